@@ -36,6 +36,7 @@ import javax.swing.SwingUtilities;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.kse.crypto.csr.pkcs12.Pkcs12Util;
+import org.kse.crypto.keypair.KeyPairPool;
 import org.kse.crypto.x509.KseX500NameStyle;
 import org.kse.gui.CreateApplicationGui;
 import org.kse.gui.CurrentDirectory;
@@ -99,6 +100,8 @@ public class KSE {
 
             Pkcs12Util.setEncryptionStrength(preferences.getPkcs12EncryptionSetting());
 
+            KeyPairPool.getInstance().configure(preferences.getKeyGenerationDefaults());
+
             // list of files to open after start
             List<File> parameterFiles = new ArrayList<>();
             for (String arg : args) {
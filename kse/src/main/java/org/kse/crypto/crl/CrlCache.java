@@ -0,0 +1,334 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.util.encoders.Hex;
+import org.kse.crypto.CryptoException;
+import org.kse.gui.preferences.PreferencesManager;
+import org.kse.utilities.net.HttpFetcher;
+import org.kse.utilities.pem.PemInfo;
+import org.kse.utilities.pem.PemUtil;
+
+/**
+ * Cache of CRL indexes, one per CRL source (URL or file). A CRL is downloaded
+ * or read and its signature verified only when there is no index for it yet,
+ * when a downloaded CRL has passed its next update (or, if it has none, was
+ * downloaded more than a day ago) or when a CRL file has changed. The indexes
+ * are kept on disk, so they survive a restart.
+ * <p>
+ * The cache is safe for concurrent use. Access is serialised per source only,
+ * so a slow download does not block lookups of other CRLs.
+ */
+public class CrlCache {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/crl/resources");
+
+    private static CrlCache instance;
+
+    private static final String CACHE_DIR_NAME = "crl-cache";
+    private static final String INDEX_FILE_EXTENSION = ".idx";
+
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofSeconds(60);
+
+    // how long a downloaded CRL without a next update is used before it is downloaded again
+    private static final Duration NO_NEXT_UPDATE_TTL = Duration.ofDays(1);
+
+    private final File directory;
+    private final Map<String, CrlIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Long> buildTimes = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Construct cache.
+     *
+     * @param directory Directory the indexes are stored in
+     */
+    public CrlCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the shared cache, stored in the config directory.
+     *
+     * @return The cache
+     */
+    public static synchronized CrlCache getInstance() {
+        if (instance == null) {
+            File cacheDir;
+            try {
+                cacheDir = new File(PreferencesManager.getConfigDirectory(), CACHE_DIR_NAME);
+            } catch (IOException ex) {
+                cacheDir = new File(System.getProperty("java.io.tmpdir"), "kse-" + CACHE_DIR_NAME);
+            }
+            instance = new CrlCache(cacheDir);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the index of a CRL published at a URL. The CRL is downloaded again
+     * if there is no index yet, the index has passed the CRL's next update,
+     * the CRL has no next update and was downloaded more than a day ago or it
+     * was not issued by the supplied issuer.
+     *
+     * @param url        URL of the CRL
+     * @param issuerCert Issuer of the CRL
+     * @param now        Current date
+     * @return The index
+     * @throws IOException     If the CRL could not be downloaded
+     * @throws CryptoException If the CRL could not be indexed or its signature is invalid
+     */
+    public CrlIndex getIndex(URL url, X509Certificate issuerCert, Date now)
+            throws IOException, CryptoException {
+        String source = url.toExternalForm();
+
+        synchronized (lockFor(source)) {
+            CrlIndex index = lookup(source);
+
+            if (index != null && index.isIssuedBy(issuerCert) && index.isCurrent(now) &&
+                (index.getNextUpdate() != null ||
+                 now.getTime() - buildTimes.getOrDefault(source, 0L) < NO_NEXT_UPDATE_TTL.toMillis())) {
+                return index;
+            }
+
+            Files.createDirectories(directory.toPath());
+            File download = File.createTempFile("crl", ".tmp", directory);
+            try {
+                try {
+                    HttpFetcher.await(HttpFetcher.getInstance().download(url.toURI(), download.toPath(),
+                                                                         DOWNLOAD_TIMEOUT));
+                } catch (URISyntaxException ex) {
+                    throw new IOException(ex.getMessage(), ex);
+                }
+
+                return buildIndex(source, download, issuerCert, -1, -1);
+            } finally {
+                if (!download.delete()) {
+                    download.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the index of a CRL file. The file is indexed again if there is no
+     * index yet or the file has changed. An unchanged file that was issued by
+     * another CA is rejected without indexing it again.
+     *
+     * @param crlFile    CRL file (DER or PEM)
+     * @param issuerCert Issuer of the CRL
+     * @return The index
+     * @throws IOException     If the file could not be read
+     * @throws CryptoException If the CRL could not be indexed, its signature is
+     *                         invalid or it was not issued by the supplied issuer
+     */
+    public CrlIndex getIndex(File crlFile, X509Certificate issuerCert) throws IOException, CryptoException {
+        File file = crlFile.getCanonicalFile();
+        String source = file.getPath();
+
+        synchronized (lockFor(source)) {
+            CrlIndex index = lookup(source);
+
+            if (index != null && index.isFrom(file.length(), file.lastModified())) {
+                if (!index.isIssuedBy(issuerCert)) {
+                    throw new CryptoException(MessageFormat.format(res.getString("CrlNotIssuedBy.exception.message"),
+                                                                   source,
+                                                                   issuerCert.getSubjectX500Principal().getName()));
+                }
+                return index;
+            }
+
+            Files.createDirectories(directory.toPath());
+            return buildIndex(source, file, issuerCert, file.length(), file.lastModified());
+        }
+    }
+
+    /**
+     * Get the HTTP URLs of the CRL distribution points of a certificate.
+     *
+     * @param cert Certificate
+     * @return URLs, empty if the certificate has no HTTP distribution points
+     */
+    public static List<String> getDistributionPointUrls(X509Certificate cert) {
+        List<String> urls = new ArrayList<>();
+
+        byte[] extensionValue = cert.getExtensionValue(Extension.cRLDistributionPoints.getId());
+        if (extensionValue == null) {
+            return urls;
+        }
+
+        CRLDistPoint crlDistPoint;
+        try {
+            crlDistPoint = CRLDistPoint.getInstance(ASN1OctetString.getInstance(extensionValue).getOctets());
+        } catch (IllegalArgumentException ex) {
+            return urls;
+        }
+
+        for (DistributionPoint distributionPoint : crlDistPoint.getDistributionPoints()) {
+            DistributionPointName name = distributionPoint.getDistributionPoint();
+            if (name == null || name.getType() != DistributionPointName.FULL_NAME) {
+                continue;
+            }
+            for (GeneralName generalName : GeneralNames.getInstance(name.getName()).getNames()) {
+                if (generalName.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                    String url = generalName.getName().toString();
+                    if (url.toLowerCase().startsWith("http")) {
+                        urls.add(url);
+                    }
+                }
+            }
+        }
+
+        return urls;
+    }
+
+    private Object lockFor(String source) {
+        return locks.computeIfAbsent(source, s -> new Object());
+    }
+
+    private CrlIndex lookup(String source) {
+        CrlIndex index = indexes.get(source);
+        if (index != null) {
+            return index;
+        }
+
+        File newest = null;
+        for (File file : listIndexFiles(source)) {
+            if (newest == null || file.getName().compareTo(newest.getName()) > 0) {
+                newest = file;
+            }
+        }
+
+        if (newest == null) {
+            return null;
+        }
+
+        try {
+            index = CrlIndex.open(newest);
+            indexes.put(source, index);
+            buildTimes.put(source, getBuildTime(newest));
+            return index;
+        } catch (IOException ex) {
+            // unreadable index, will be rebuilt
+            return null;
+        }
+    }
+
+    private CrlIndex buildIndex(String source, File crlFile, X509Certificate issuerCert, long size, long modified)
+            throws IOException, CryptoException {
+        ByteBuffer crl;
+
+        try (RandomAccessFile raf = new RandomAccessFile(crlFile, "r")) {
+            if (raf.length() > 0 && raf.read() == 0x30) {
+                crl = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } else {
+                PemInfo pemInfo = PemUtil.decode(Files.readAllBytes(crlFile.toPath()));
+                if (pemInfo == null) {
+                    throw new CryptoException(MessageFormat.format(res.getString("NoLoadCrl.exception.message"),
+                                                                   source));
+                }
+                crl = ByteBuffer.wrap(pemInfo.getContent());
+            }
+        }
+
+        // older indexes of this source are still mapped and are removed once no longer in use
+        List<File> oldIndexFiles = listIndexFiles(source);
+
+        // a new file for every build, as a mapped file cannot be replaced on all platforms
+        long buildTime = System.currentTimeMillis();
+        File indexFile = new File(directory, sourceHash(source) + "-" + buildTime + INDEX_FILE_EXTENSION);
+        CrlIndex index = CrlIndex.build(crl, issuerCert, size, modified, indexFile);
+
+        indexes.put(source, index);
+        buildTimes.put(source, buildTime);
+
+        for (File oldIndexFile : oldIndexFiles) {
+            if (!oldIndexFile.delete()) {
+                oldIndexFile.deleteOnExit();
+            }
+        }
+
+        return index;
+    }
+
+    private List<File> listIndexFiles(String source) {
+        List<File> files = new ArrayList<>();
+        String prefix = sourceHash(source) + "-";
+
+        File[] candidates = directory.listFiles();
+        if (candidates != null) {
+            for (File file : candidates) {
+                String name = file.getName();
+                if (name.startsWith(prefix) && name.endsWith(INDEX_FILE_EXTENSION)) {
+                    files.add(file);
+                }
+            }
+        }
+
+        return files;
+    }
+
+    private static long getBuildTime(File indexFile) {
+        String name = indexFile.getName();
+        try {
+            return Long.parseLong(name.substring(name.lastIndexOf('-') + 1,
+                                                 name.length() - INDEX_FILE_EXTENSION.length()));
+        } catch (NumberFormatException ex) {
+            // unknown build time, treat the index as outdated
+            return 0;
+        }
+    }
+
+    private static String sourceHash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return Hex.toHexString(digest, 0, 16);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.ResourceBundle;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.operator.ContentSigner;
+import org.kse.crypto.CryptoException;
+import org.kse.utilities.asn1.DerUtil;
+
+/**
+ * Encodes and signs full and delta CRLs (RFC 5280). The revoked certificates
+ * are encoded one at a time into a temporary file, so the CRL is never held
+ * in memory as a whole. The file is read twice: once to sign the TBSCertList
+ * and once to write the CRL, whose length octets depend on the signature.
+ */
+public class CrlEncoder {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/crl/resources");
+
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+
+    // DER lengths of more than four octets are not supported by most parsers
+    private static final long MAX_LENGTH = 0xFFFFFFFFL - 16;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final X509Certificate issuerCert;
+    private final ContentSigner signer;
+
+    /**
+     * Construct encoder.
+     *
+     * @param issuerCert Certificate of the CA that issues the CRL
+     * @param signer     Signer with the CA's private key
+     */
+    public CrlEncoder(X509Certificate issuerCert, ContentSigner signer) {
+        this.issuerCert = issuerCert;
+        this.signer = signer;
+    }
+
+    /**
+     * Encode and sign a CRL.
+     *
+     * @param out           Stream the DER encoded CRL is written to
+     * @param thisUpdate    Effective date
+     * @param nextUpdate    Next update or null
+     * @param crlNumber     CRL number
+     * @param baseCrlNumber Number of the base CRL for a delta CRL, null for a full CRL
+     * @param entries       Revoked certificates, sorted by serial number
+     * @throws CryptoException If the CRL could not be encoded or written
+     */
+    public void encode(OutputStream out, Date thisUpdate, Date nextUpdate, BigInteger crlNumber,
+                       BigInteger baseCrlNumber, Iterable<RevocationDatabase.Entry> entries) throws CryptoException {
+        File entriesFile = null;
+
+        try {
+            entriesFile = File.createTempFile("kse", ".crl");
+            long entriesLength = writeEntries(entries, entriesFile);
+
+            byte[] head = encodeHead(thisUpdate, nextUpdate);
+            byte[] tail = encodeExtensions(crlNumber, baseCrlNumber);
+
+            long tbsContentLength = head.length + tail.length;
+            if (entriesLength > 0) {
+                tbsContentLength += DerUtil.headerLength(entriesLength) + entriesLength;
+            }
+            long tbsLength = DerUtil.headerLength(tbsContentLength) + tbsContentLength;
+
+            try (OutputStream signerOut = signer.getOutputStream()) {
+                writeTbs(signerOut, tbsContentLength, head, entriesLength, entriesFile, tail);
+            }
+            byte[] signature = signer.getSignature();
+            byte[] sigAlg = signer.getAlgorithmIdentifier().getEncoded(ASN1Encoding.DER);
+
+            long sigValueLength = DerUtil.headerLength(signature.length + 1) + signature.length + 1;
+            long crlContentLength = tbsLength + sigAlg.length + sigValueLength;
+            if (crlContentLength > MAX_LENGTH) {
+                throw new CryptoException(res.getString("CrlTooLarge.exception.message"));
+            }
+
+            DerUtil.writeHeader(out, TAG_SEQUENCE, crlContentLength);
+            writeTbs(out, tbsContentLength, head, entriesLength, entriesFile, tail);
+            out.write(sigAlg);
+            DerUtil.writeHeader(out, TAG_BIT_STRING, signature.length + 1);
+            out.write(0); // no unused bits
+            out.write(signature);
+            out.flush();
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new CryptoException(res.getString("NoEncodeCrl.exception.message"), ex);
+        } finally {
+            if (entriesFile != null) {
+                entriesFile.delete();
+            }
+        }
+    }
+
+    private static long writeEntries(Iterable<RevocationDatabase.Entry> entries, File entriesFile)
+            throws IOException, CryptoException {
+        long length = 0;
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(entriesFile.toPath()),
+                                                         BUFFER_SIZE)) {
+            byte[][] reasonExtensions = new byte[11][];
+
+            for (RevocationDatabase.Entry entry : entries) {
+                byte[] serial = entry.getSerialNumber().toByteArray();
+                byte[] revocationDate = DerUtil.encodeTime(entry.getRevocationDate());
+
+                byte[] extensions = null;
+                int reason = entry.getReason();
+                if (reason != CRLReason.unspecified) {
+                    if (reason < 0 || reason >= reasonExtensions.length) {
+                        throw new CryptoException(res.getString("NoEncodeCrl.exception.message"));
+                    }
+                    if (reasonExtensions[reason] == null) {
+                        Extension reasonCode = new Extension(Extension.reasonCode, false,
+                                                             new DEROctetString(CRLReason.lookup(reason)));
+                        reasonExtensions[reason] = new DERSequence(reasonCode).getEncoded(ASN1Encoding.DER);
+                    }
+                    extensions = reasonExtensions[reason];
+                }
+
+                // entries are written directly, as there may be millions of them
+                int contentLength = DerUtil.headerLength(serial.length) + serial.length + revocationDate.length;
+                if (extensions != null) {
+                    contentLength += extensions.length;
+                }
+
+                DerUtil.writeHeader(out, TAG_SEQUENCE, contentLength);
+                DerUtil.writeHeader(out, TAG_INTEGER, serial.length);
+                out.write(serial);
+                out.write(revocationDate);
+                if (extensions != null) {
+                    out.write(extensions);
+                }
+
+                length += DerUtil.headerLength(contentLength) + contentLength;
+
+                if (length > MAX_LENGTH) {
+                    throw new CryptoException(res.getString("CrlTooLarge.exception.message"));
+                }
+            }
+        }
+
+        return length;
+    }
+
+    private byte[] encodeHead(Date thisUpdate, Date nextUpdate) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+
+        // version v2
+        head.write(new ASN1Integer(1).getEncoded(ASN1Encoding.DER));
+        head.write(signer.getAlgorithmIdentifier().getEncoded(ASN1Encoding.DER));
+        head.write(issuerCert.getSubjectX500Principal().getEncoded());
+        head.write(new Time(thisUpdate).getEncoded(ASN1Encoding.DER));
+        if (nextUpdate != null) {
+            head.write(new Time(nextUpdate).getEncoded(ASN1Encoding.DER));
+        }
+
+        return head.toByteArray();
+    }
+
+    private byte[] encodeExtensions(BigInteger crlNumber, BigInteger baseCrlNumber)
+            throws IOException, GeneralSecurityException {
+        ExtensionsGenerator extensions = new ExtensionsGenerator();
+
+        extensions.addExtension(Extension.authorityKeyIdentifier, false,
+                                new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(issuerCert.getPublicKey()));
+        extensions.addExtension(Extension.cRLNumber, false, new CRLNumber(crlNumber));
+
+        if (baseCrlNumber != null) {
+            // delta CRL indicator has to be critical, so that clients without delta support reject the CRL
+            extensions.addExtension(Extension.deltaCRLIndicator, true, new CRLNumber(baseCrlNumber));
+        }
+
+        return new DERTaggedObject(true, 0, extensions.generate()).getEncoded(ASN1Encoding.DER);
+    }
+
+    private static void writeTbs(OutputStream out, long tbsContentLength, byte[] head, long entriesLength,
+                                 File entriesFile, byte[] tail) throws IOException {
+        DerUtil.writeHeader(out, TAG_SEQUENCE, tbsContentLength);
+        out.write(head);
+
+        // revokedCertificates is omitted if there are none
+        if (entriesLength > 0) {
+            DerUtil.writeHeader(out, TAG_SEQUENCE, entriesLength);
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(entriesFile.toPath()),
+                                                          BUFFER_SIZE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+
+        out.write(tail);
+    }
+}
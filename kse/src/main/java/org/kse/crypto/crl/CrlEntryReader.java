@@ -0,0 +1,428 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.ResourceBundle;
+import java.util.function.IntBinaryOperator;
+
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.x509.X509ExtensionSet;
+
+/**
+ * Random access to the fields and revoked certificate entries of a DER
+ * encoded CRL, without an X509CRL for the whole list. Scanning the CRL only
+ * records the offset of each entry, the serial numbers and revocation dates
+ * are decoded when they are asked for. The orders for sorting and looking up
+ * entries are plain arrays of entry numbers, so even a CRL with millions of
+ * entries needs a few bytes per entry on top of its encoding.
+ * <p>
+ * Only the issuer, the signature algorithm and the extensions are parsed into
+ * objects, when they are asked for. The signature is not verified here.
+ */
+public class CrlEntryReader {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/crl/resources");
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_CRL_EXTENSIONS = 0xA0;
+
+    private final byte[] encoded;
+    private final ByteBuffer crl;
+    private final int[] offsets;
+
+    private int version;
+    private DerTlv issuer;
+    private long thisUpdate;
+    private Long nextUpdate;
+    private DerTlv signatureAlgorithm;
+    private DerTlv crlExtensions;
+
+    private CrlEntryReader(byte[] encoded, ByteBuffer crl, int[] offsets) {
+        this.encoded = encoded;
+        this.crl = crl;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Scan a DER encoded CRL for its fields and revoked certificate entries.
+     *
+     * @param encoded DER encoded CRL
+     * @return Reader for the CRL
+     * @throws CryptoException If the CRL is not DER encoded
+     */
+    public static CrlEntryReader scan(byte[] encoded) throws CryptoException {
+        ByteBuffer crl = ByteBuffer.wrap(encoded).asReadOnlyBuffer();
+
+        try {
+            DerTlv certList = DerTlv.read(crl, 0, crl.limit(), TAG_SEQUENCE);
+            DerTlv tbs = DerTlv.read(crl, certList.contentStart, certList.end, TAG_SEQUENCE);
+            DerTlv signatureAlgorithm = DerTlv.read(crl, tbs.end, certList.end, TAG_SEQUENCE);
+            DerTlv.read(crl, signatureAlgorithm.end, certList.end, TAG_BIT_STRING);
+
+            int version = 1;
+            DerTlv field = DerTlv.read(crl, tbs.contentStart, tbs.end, -1);
+            if (field.tag == TAG_INTEGER) {
+                version = crl.get(field.end - 1) + 1;
+                field = DerTlv.read(crl, field.end, tbs.end, TAG_SEQUENCE);
+            } else if (field.tag != TAG_SEQUENCE) {
+                throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+            }
+            DerTlv issuerName = DerTlv.read(crl, field.end, tbs.end, TAG_SEQUENCE);
+            DerTlv thisUpdate = DerTlv.read(crl, issuerName.end, tbs.end, -1);
+            long thisUpdateTime = thisUpdate.getTime(crl);
+
+            int pos = thisUpdate.end;
+            Long nextUpdateTime = null;
+            DerTlv revoked = null;
+            DerTlv extensions = null;
+            field = pos < tbs.end ? DerTlv.read(crl, pos, tbs.end, -1) : null;
+            if (field != null && (field.tag == DerTlv.TAG_UTC_TIME || field.tag == DerTlv.TAG_GENERALIZED_TIME)) {
+                nextUpdateTime = field.getTime(crl);
+                field = field.end < tbs.end ? DerTlv.read(crl, field.end, tbs.end, -1) : null;
+            }
+            if (field != null && field.tag == TAG_SEQUENCE) {
+                revoked = field;
+                field = field.end < tbs.end ? DerTlv.read(crl, field.end, tbs.end, -1) : null;
+            }
+            if (field != null && field.tag == TAG_CRL_EXTENSIONS) {
+                extensions = DerTlv.read(crl, field.contentStart, field.end, TAG_SEQUENCE);
+            } else if (field != null) {
+                throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+            }
+
+            int[] offsets = new int[0];
+            int count = 0;
+            if (revoked != null) {
+                offsets = new int[1024];
+                for (pos = revoked.contentStart; pos < revoked.end; ) {
+                    DerTlv entry = DerTlv.read(crl, pos, revoked.end, TAG_SEQUENCE);
+                    DerTlv serial = DerTlv.read(crl, entry.contentStart, entry.end, TAG_INTEGER);
+                    DerTlv.read(crl, serial.end, entry.end, -1); // revocation date
+
+                    if (count == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, count + (count >> 1));
+                    }
+                    offsets[count++] = pos;
+                    pos = entry.end;
+                }
+            }
+
+            CrlEntryReader reader = new CrlEntryReader(encoded, crl, Arrays.copyOf(offsets, count));
+            reader.version = version;
+            reader.issuer = issuerName;
+            reader.thisUpdate = thisUpdateTime;
+            reader.nextUpdate = nextUpdateTime;
+            reader.signatureAlgorithm = signatureAlgorithm;
+            reader.crlExtensions = extensions;
+            return reader;
+        } catch (IOException ex) {
+            throw new CryptoException(res.getString("InvalidCrlEncoding.exception.message"), ex);
+        }
+    }
+
+    /**
+     * Get the DER encoding of the CRL.
+     *
+     * @return DER encoding
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Get the version of the CRL.
+     *
+     * @return Version, 1 or 2
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the issuer of the CRL.
+     *
+     * @return Issuer name
+     */
+    public X500Name getIssuer() {
+        return X500Name.getInstance(copy(issuer.start, issuer.end));
+    }
+
+    /**
+     * Get the effective date of the CRL.
+     *
+     * @return Effective date
+     */
+    public Date getThisUpdate() {
+        return new Date(thisUpdate);
+    }
+
+    /**
+     * Get the next update of the CRL.
+     *
+     * @return Next update or null if the CRL has none
+     */
+    public Date getNextUpdate() {
+        return nextUpdate == null ? null : new Date(nextUpdate);
+    }
+
+    /**
+     * Get the algorithm the CRL is signed with.
+     *
+     * @return Signature algorithm
+     */
+    public AlgorithmIdentifier getSignatureAlgorithm() {
+        return AlgorithmIdentifier.getInstance(copy(signatureAlgorithm.start, signatureAlgorithm.end));
+    }
+
+    /**
+     * Get the CRL extensions.
+     *
+     * @return Extensions, empty if the CRL has none
+     */
+    public X509ExtensionSet getExtensions() {
+        if (crlExtensions == null) {
+            return new X509ExtensionSet();
+        }
+        return new X509ExtensionSet(ASN1Sequence.getInstance(copy(crlExtensions.start, crlExtensions.end)));
+    }
+
+    /**
+     * Get the number of revoked certificate entries.
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Get the serial number of an entry.
+     *
+     * @param entry Entry number, in CRL order
+     * @return Serial number
+     */
+    public BigInteger getSerialNumber(int entry) {
+        DerTlv serial = serial(entry);
+        return new BigInteger(copy(serial.contentStart, serial.end));
+    }
+
+    /**
+     * Get the revocation date of an entry.
+     *
+     * @param entry Entry number, in CRL order
+     * @return Revocation date
+     */
+    public Date getRevocationDate(int entry) {
+        return new Date(getRevocationTime(entry));
+    }
+
+    /**
+     * Get the revocation time of an entry.
+     *
+     * @param entry Entry number, in CRL order
+     * @return Revocation time in milliseconds since the epoch
+     */
+    public long getRevocationTime(int entry) {
+        try {
+            DerTlv serial = serial(entry);
+            return DerTlv.read(crl, serial.end, entry(entry).end, -1).getTime(crl);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Does an entry have CRL entry extensions?
+     *
+     * @param entry Entry number, in CRL order
+     * @return True if it has extensions
+     */
+    public boolean hasExtensions(int entry) {
+        try {
+            DerTlv entryTlv = entry(entry);
+            DerTlv serial = DerTlv.read(crl, entryTlv.contentStart, entryTlv.end, TAG_INTEGER);
+            return DerTlv.read(crl, serial.end, entryTlv.end, -1).end < entryTlv.end;
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Get the CRL entry extensions of an entry.
+     *
+     * @param entry Entry number, in CRL order
+     * @return Extensions, empty if the entry has none
+     */
+    public X509ExtensionSet getEntryExtensions(int entry) {
+        try {
+            DerTlv entryTlv = entry(entry);
+            DerTlv serial = DerTlv.read(crl, entryTlv.contentStart, entryTlv.end, TAG_INTEGER);
+            DerTlv revocationDate = DerTlv.read(crl, serial.end, entryTlv.end, -1);
+            if (revocationDate.end == entryTlv.end) {
+                return new X509ExtensionSet();
+            }
+            DerTlv extensions = DerTlv.read(crl, revocationDate.end, entryTlv.end, TAG_SEQUENCE);
+            return new X509ExtensionSet(ASN1Sequence.getInstance(copy(extensions.start, extensions.end)));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Get the entry numbers in the order of their serial numbers. The serial
+     * numbers are compared in their encoding, without decoding them.
+     *
+     * @return Entry numbers, sorted by serial number
+     */
+    public int[] sortBySerialNumber() {
+        int[] starts = new int[offsets.length];
+        int[] lengths = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            DerTlv serial = serial(i);
+            starts[i] = serial.contentStart;
+            lengths[i] = serial.end - serial.contentStart;
+        }
+        return sort((entry1, entry2) -> compareSerials(starts[entry1], lengths[entry1], starts[entry2],
+                                                       lengths[entry2]));
+    }
+
+    /**
+     * Get the entry numbers in the order of their revocation dates, entries
+     * with the same date in CRL order.
+     *
+     * @return Entry numbers, sorted by revocation date
+     */
+    public int[] sortByRevocationDate() {
+        long[] times = new long[offsets.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = getRevocationTime(i);
+        }
+        return sort((entry1, entry2) -> Long.compare(times[entry1], times[entry2]));
+    }
+
+    /**
+     * Find the entry of a serial number.
+     *
+     * @param serialNumber Serial number
+     * @param bySerial     Entry numbers sorted by serial number, as returned by
+     *                     {@link #sortBySerialNumber()}
+     * @return Entry number or -1 if the serial number is not revoked
+     */
+    public int find(BigInteger serialNumber, int[] bySerial) {
+        int low = 0;
+        int high = bySerial.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = getSerialNumber(bySerial[mid]).compareTo(serialNumber);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return bySerial[mid];
+            }
+        }
+        return -1;
+    }
+
+    private DerTlv entry(int entry) throws IOException {
+        return DerTlv.read(crl, offsets[entry], crl.limit(), TAG_SEQUENCE);
+    }
+
+    private DerTlv serial(int entry) {
+        try {
+            DerTlv entryTlv = entry(entry);
+            return DerTlv.read(crl, entryTlv.contentStart, entryTlv.end, TAG_INTEGER);
+        } catch (IOException ex) {
+            // the entries were checked when scanning
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private byte[] copy(int start, int end) {
+        return Arrays.copyOfRange(encoded, start, end);
+    }
+
+    /*
+     * DER integers are minimal two's complement: negative numbers sort first,
+     * a longer encoding is a larger magnitude and encodings of equal length
+     * compare as unsigned bytes.
+     */
+    private int compareSerials(int start1, int length1, int start2, int length2) {
+        boolean negative1 = crl.get(start1) < 0;
+        boolean negative2 = crl.get(start2) < 0;
+        if (negative1 != negative2) {
+            return negative1 ? -1 : 1;
+        }
+
+        if (length1 != length2) {
+            return (length1 < length2) != negative1 ? -1 : 1;
+        }
+
+        for (int i = 0; i < length1; i++) {
+            int cmp = Integer.compare(crl.get(start1 + i) & 0xFF, crl.get(start2 + i) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    // bottom-up merge sort of entry numbers, stable and without boxing
+    private int[] sort(IntBinaryOperator comparator) {
+        int count = offsets.length;
+        int[] src = new int[count];
+        int[] dst = new int[count];
+        for (int i = 0; i < count; i++) {
+            src[i] = i;
+        }
+
+        for (int run = 1; run < count; run *= 2) {
+            for (int low = 0; low < count; low += 2 * run) {
+                int mid = Math.min(low + run, count);
+                int high = Math.min(low + 2 * run, count);
+                int i = low;
+                int j = mid;
+                for (int k = low; k < high; k++) {
+                    if (i < mid && (j >= high || comparator.applyAsInt(src[i], src[j]) <= 0)) {
+                        dst[k] = src[i++];
+                    } else {
+                        dst[k] = src[j++];
+                    }
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+
+        return src;
+    }
+}
@@ -0,0 +1,734 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.spec.AlgorithmParameterSpec;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.ResourceBundle;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.kse.KSE;
+import org.kse.crypto.CryptoException;
+
+/**
+ * Index of the revoked serial numbers of a CRL. The index is built once from
+ * the DER encoded CRL, after verifying its signature, and written to a file
+ * of fixed-width records sorted by serial number. The file is memory-mapped,
+ * so a lookup is a binary search that neither parses the CRL again nor keeps
+ * its entries on the heap.
+ * <p>
+ * The CRL is walked at the level of DER headers, so building the index of a
+ * CRL with millions of entries does not materialise the whole CRL either.
+ * <p>
+ * Only complete CRLs of the issuer can be indexed. Delta CRLs, CRLs scoped by
+ * an issuing distribution point and CRLs with critical extensions that are
+ * not understood are rejected, as looking up a serial number in them alone
+ * would not tell whether a certificate is revoked.
+ */
+public class CrlIndex {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/crl/resources");
+
+    private static final int MAGIC = 0x4B43524C; // "KCRL"
+    private static final int VERSION = 1;
+    private static final long NO_NEXT_UPDATE = -1;
+    private static final int NO_REASON = -1;
+    private static final int REMOVE_FROM_CRL = 8;
+
+    // tolerated difference between the clocks of the CRL issuer and this machine
+    private static final long CLOCK_SKEW = 5 * 60 * 1000L;
+
+    private static final int TAG_BOOLEAN = 0x01;
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+    private static final int TAG_OCTET_STRING = 0x04;
+    private static final int TAG_OID = 0x06;
+    private static final int TAG_ENUMERATED = 0x0A;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_UTC_TIME = 0x17;
+    private static final int TAG_GENERALIZED_TIME = 0x18;
+    private static final int TAG_CRL_EXTENSIONS = 0xA0;
+    private static final int TAG_DIRECTORY_NAME = 0xA4;
+
+    // DER encoding of the OID arc id-ce (2.5.29), the extensions below are id-ce.<arc>
+    private static final byte[] ID_CE = { 0x06, 0x03, 0x55, 0x1D };
+    private static final int ISSUER_ALT_NAME = 18;
+    private static final int CRL_NUMBER = 20;
+    private static final int REASON_CODE = 21;
+    private static final int HOLD_INSTRUCTION_CODE = 23;
+    private static final int INVALIDITY_DATE = 24;
+    private static final int DELTA_CRL_INDICATOR = 27;
+    private static final int ISSUING_DISTRIBUTION_POINT = 28;
+    private static final int CERTIFICATE_ISSUER = 29;
+    private static final int AUTHORITY_KEY_IDENTIFIER = 35;
+
+    private final ByteBuffer records;
+    private final int width;
+    private final int recordLength;
+    private final int count;
+    private final long thisUpdate;
+    private final long nextUpdate;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final byte[] issuer;
+    private final byte[] issuerKeyHash;
+
+    private CrlIndex(ByteBuffer records, int width, int count, long thisUpdate, long nextUpdate, long sourceSize,
+                     long sourceModified, byte[] issuer, byte[] issuerKeyHash) {
+        this.records = records;
+        this.width = width;
+        this.recordLength = width + 9;
+        this.count = count;
+        this.thisUpdate = thisUpdate;
+        this.nextUpdate = nextUpdate;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.issuer = issuer;
+        this.issuerKeyHash = issuerKeyHash;
+    }
+
+    /**
+     * A revoked certificate found in the index.
+     */
+    public static class RevokedEntry {
+        private final BigInteger serialNumber;
+        private final Date revocationDate;
+        private final int reason;
+
+        RevokedEntry(BigInteger serialNumber, Date revocationDate, int reason) {
+            this.serialNumber = serialNumber;
+            this.revocationDate = revocationDate;
+            this.reason = reason;
+        }
+
+        public BigInteger getSerialNumber() {
+            return serialNumber;
+        }
+
+        public Date getRevocationDate() {
+            return revocationDate;
+        }
+
+        /**
+         * Get the CRL reason code.
+         *
+         * @return Reason code or -1 if the entry has none
+         */
+        public int getReason() {
+            return reason;
+        }
+    }
+
+    /**
+     * Build the index of a CRL and write it to a file. The signature of the
+     * CRL is verified with the public key of the issuer first.
+     *
+     * @param crl            DER encoded CRL
+     * @param issuerCert     Issuer of the CRL
+     * @param sourceSize     Size of the CRL source, to detect changes later
+     * @param sourceModified Modification time of the CRL source, to detect changes later
+     * @param indexFile      File to write the index to
+     * @return The index
+     * @throws CryptoException If the CRL could not be parsed, its signature is
+     *                         invalid, it is not a complete CRL of the issuer
+     *                         or the index could not be written
+     */
+    public static CrlIndex build(ByteBuffer crl, X509Certificate issuerCert, long sourceSize, long sourceModified,
+                                 File indexFile) throws CryptoException {
+        try {
+            DerTlv certList = DerTlv.read(crl, 0, crl.limit(), TAG_SEQUENCE);
+            DerTlv tbs = DerTlv.read(crl, certList.contentStart, certList.end, TAG_SEQUENCE);
+            DerTlv sigAlg = DerTlv.read(crl, tbs.end, certList.end, TAG_SEQUENCE);
+            DerTlv sigValue = DerTlv.read(crl, sigAlg.end, certList.end, TAG_BIT_STRING);
+
+            verifySignature(crl, tbs, sigAlg, sigValue, issuerCert);
+
+            int pos = tbs.contentStart;
+            DerTlv field = DerTlv.read(crl, pos, tbs.end, -1);
+            if (field.tag == TAG_INTEGER) { // version
+                field = DerTlv.read(crl, field.end, tbs.end, TAG_SEQUENCE);
+            }
+            DerTlv issuerName = DerTlv.read(crl, field.end, tbs.end, TAG_SEQUENCE);
+            DerTlv thisUpdateTime = DerTlv.read(crl, issuerName.end, tbs.end, -1);
+            long thisUpdate = thisUpdateTime.getTime(crl);
+            long nextUpdate = NO_NEXT_UPDATE;
+
+            pos = thisUpdateTime.end;
+            DerTlv revoked = null;
+            DerTlv crlExtensions = null;
+            if (pos < tbs.end) {
+                field = DerTlv.read(crl, pos, tbs.end, -1);
+                if (field.tag == TAG_UTC_TIME || field.tag == TAG_GENERALIZED_TIME) {
+                    nextUpdate = field.getTime(crl);
+                    pos = field.end;
+                    field = pos < tbs.end ? DerTlv.read(crl, pos, tbs.end, -1) : null;
+                }
+                if (field != null && field.tag == TAG_SEQUENCE) {
+                    revoked = field;
+                    pos = field.end;
+                    field = pos < tbs.end ? DerTlv.read(crl, pos, tbs.end, -1) : null;
+                }
+                if (field != null && field.tag == TAG_CRL_EXTENSIONS) {
+                    crlExtensions = field;
+                }
+            }
+
+            if (crlExtensions != null) {
+                checkCrlExtensions(crl, DerTlv.read(crl, crlExtensions.contentStart, crlExtensions.end,
+                                                    TAG_SEQUENCE));
+            }
+
+            byte[] issuer = copy(crl, issuerName.start, issuerName.end);
+
+            // first pass: number of entries and widest serial number
+            int count = 0;
+            int width = 1;
+            if (revoked != null) {
+                EntryWalker entries = new EntryWalker(crl, revoked, issuer);
+                while (entries.next()) {
+                    width = Math.max(width, entries.serial.end - entries.serial.contentStart);
+                    count++;
+                }
+            }
+
+            byte[] header = encodeHeader(thisUpdate, nextUpdate, sourceSize, sourceModified, issuer,
+                                         hashPublicKey(issuerCert), width, count);
+
+            writeIndex(crl, revoked, issuer, header, width, count, indexFile);
+        } catch (IOException | GeneralSecurityException | IllegalArgumentException ex) {
+            throw new CryptoException(res.getString("NoIndexCrl.exception.message"), ex);
+        }
+
+        try {
+            return open(indexFile);
+        } catch (IOException ex) {
+            throw new CryptoException(res.getString("NoIndexCrl.exception.message"), ex);
+        }
+    }
+
+    /**
+     * Open a previously built index.
+     *
+     * @param indexFile Index file
+     * @return The index
+     * @throws IOException If the file could not be read or is not an index
+     */
+    public static CrlIndex open(File indexFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(MessageFormat.format(res.getString("NoReadCrlIndex.exception.message"),
+                                                           indexFile));
+            }
+
+            long thisUpdate = buffer.getLong();
+            long nextUpdate = buffer.getLong();
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            byte[] issuer = new byte[buffer.getInt()];
+            buffer.get(issuer);
+            byte[] issuerKeyHash = new byte[buffer.getInt()];
+            buffer.get(issuerKeyHash);
+            int width = buffer.getInt();
+            int count = buffer.getInt();
+
+            if (buffer.remaining() != (long) count * (width + 9)) {
+                throw new IOException(MessageFormat.format(res.getString("NoReadCrlIndex.exception.message"),
+                                                           indexFile));
+            }
+
+            return new CrlIndex(buffer.slice(), width, count, thisUpdate, nextUpdate, sourceSize, sourceModified,
+                                issuer, issuerKeyHash);
+        } catch (RuntimeException ex) {
+            throw new IOException(MessageFormat.format(res.getString("NoReadCrlIndex.exception.message"),
+                                                       indexFile), ex);
+        }
+    }
+
+    /**
+     * Look up a serial number.
+     *
+     * @param serialNumber Serial number of a certificate
+     * @return The revocation entry or null if the serial number is not revoked
+     */
+    public RevokedEntry find(BigInteger serialNumber) {
+        byte[] encoded = serialNumber.toByteArray();
+        if (encoded.length > width) {
+            return null;
+        }
+
+        byte[] key = encodeKey(encoded, 0, encoded.length, width);
+
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(records, mid * recordLength, key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int pos = mid * recordLength + width;
+                return new RevokedEntry(serialNumber, new Date(records.getLong(pos)), records.get(pos + 8));
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Is the CRL current, i.e. has it been issued and has its next update not
+     * passed yet? A few minutes of clock skew are tolerated for the issue date.
+     *
+     * @param now Current date
+     * @return True if issued and current or if the CRL has no next update
+     */
+    public boolean isCurrent(Date now) {
+        return !isNotYetValid(now) && (nextUpdate == NO_NEXT_UPDATE || now.getTime() < nextUpdate);
+    }
+
+    /**
+     * Was the CRL issued after a date, i.e. is its this update still to come?
+     * A few minutes of clock skew are tolerated.
+     *
+     * @param now Current date
+     * @return True if the CRL is not valid yet
+     */
+    public boolean isNotYetValid(Date now) {
+        return now.getTime() + CLOCK_SKEW < thisUpdate;
+    }
+
+    /**
+     * Was the index built from a source with this size and modification time?
+     *
+     * @param size     Size of the source
+     * @param modified Modification time of the source
+     * @return True if the source did not change
+     */
+    public boolean isFrom(long size, long modified) {
+        return sourceSize == size && sourceModified == modified;
+    }
+
+    /**
+     * Was the CRL issued, and its signature verified, by this certificate?
+     *
+     * @param issuerCert Issuer certificate
+     * @return True if the CRL issuer matches the certificate
+     */
+    public boolean isIssuedBy(X509Certificate issuerCert) {
+        try {
+            return Arrays.equals(issuer, issuerCert.getSubjectX500Principal().getEncoded()) &&
+                   Arrays.equals(issuerKeyHash, hashPublicKey(issuerCert));
+        } catch (GeneralSecurityException ex) {
+            return false;
+        }
+    }
+
+    public Date getThisUpdate() {
+        return new Date(thisUpdate);
+    }
+
+    /**
+     * Get the next update of the CRL.
+     *
+     * @return Next update or null if the CRL has none
+     */
+    public Date getNextUpdate() {
+        return nextUpdate == NO_NEXT_UPDATE ? null : new Date(nextUpdate);
+    }
+
+    /**
+     * Get the number of revoked certificates in the CRL.
+     *
+     * @return Number of revoked certificates
+     */
+    public int getRevokedCount() {
+        return count;
+    }
+
+    private static void verifySignature(ByteBuffer crl, DerTlv tbs, DerTlv sigAlg, DerTlv sigValue,
+                                        X509Certificate issuerCert) throws GeneralSecurityException, IOException {
+        AlgorithmIdentifier algId = AlgorithmIdentifier.getInstance(copy(crl, sigAlg.start, sigAlg.end));
+        String oid = algId.getAlgorithm().getId();
+
+        Signature signature = Signature.getInstance(oid, KSE.BC);
+
+        ASN1Encodable params = algId.getParameters();
+        if (params != null && !DERNull.INSTANCE.equals(params)) {
+            AlgorithmParameters algParams = AlgorithmParameters.getInstance(oid, KSE.BC);
+            algParams.init(params.toASN1Primitive().getEncoded());
+            signature.setParameter(algParams.getParameterSpec(AlgorithmParameterSpec.class));
+        }
+
+        signature.initVerify(issuerCert.getPublicKey());
+
+        ByteBuffer tbsBytes = crl.duplicate();
+        tbsBytes.limit(tbs.end).position(tbs.start);
+        signature.update(tbsBytes);
+
+        // skip the unused bits octet of the BIT STRING
+        byte[] sig = copy(crl, sigValue.contentStart + 1, sigValue.end);
+
+        if (!signature.verify(sig)) {
+            throw new GeneralSecurityException(res.getString("InvalidCrlSignature.exception.message"));
+        }
+    }
+
+    private static void writeIndex(ByteBuffer crl, DerTlv revoked, byte[] issuer, byte[] header, int width,
+                                   int count, File indexFile) throws IOException, CryptoException {
+        int recordLength = width + 9;
+        long length = header.length + (long) count * recordLength;
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+
+        boolean sorted = true;
+
+        try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+            raf.setLength(length);
+            MappedByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            out.put(header);
+            ByteBuffer recordBuffer = out.slice();
+
+            if (revoked != null) {
+                EntryWalker entries = new EntryWalker(crl, revoked, issuer);
+                for (int index = 0; entries.next(); index++) {
+                    DerTlv serial = entries.serial;
+
+                    byte[] key = encodeKey(copy(crl, serial.contentStart, serial.end), 0,
+                                           serial.end - serial.contentStart, width);
+
+                    int recordPos = index * recordLength;
+                    if (index > 0 && compareKey(recordBuffer, recordPos - recordLength, key) > 0) {
+                        sorted = false;
+                    }
+
+                    recordBuffer.position(recordPos);
+                    recordBuffer.put(key);
+                    recordBuffer.putLong(entries.revocationDate.getTime(crl));
+                    recordBuffer.put((byte) entries.reason);
+                }
+            }
+
+            if (sorted) {
+                out.force();
+            } else {
+                writeSorted(recordBuffer, header, width, count, indexFile);
+            }
+        }
+
+        if (sorted) {
+            Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else if (!tmpFile.delete()) {
+            tmpFile.deleteOnExit();
+        }
+    }
+
+    private static void writeSorted(ByteBuffer unsorted, byte[] header, int width, int count, File indexFile)
+            throws IOException {
+        int recordLength = width + 9;
+        int[] order = sortRecords(unsorted, width, count);
+
+        long length = header.length + (long) count * recordLength;
+        byte[] record = new byte[recordLength];
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            raf.setLength(length);
+            MappedByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            out.put(header);
+
+            for (int i = 0; i < count; i++) {
+                unsorted.position(order[i] * recordLength);
+                unsorted.get(record);
+                out.put(record);
+            }
+            out.force();
+        }
+    }
+
+    // bottom-up merge sort of record numbers, keeps the records themselves off the heap
+    private static int[] sortRecords(ByteBuffer records, int width, int count) {
+        int recordLength = width + 9;
+        int[] src = new int[count];
+        int[] dst = new int[count];
+        for (int i = 0; i < count; i++) {
+            src[i] = i;
+        }
+
+        for (int run = 1; run < count; run *= 2) {
+            for (int low = 0; low < count; low += 2 * run) {
+                int mid = Math.min(low + run, count);
+                int high = Math.min(low + 2 * run, count);
+                int i = low;
+                int j = mid;
+                for (int k = low; k < high; k++) {
+                    if (i < mid && (j >= high ||
+                                    compareRecords(records, src[i] * recordLength, src[j] * recordLength,
+                                                   width) <= 0)) {
+                        dst[k] = src[i++];
+                    } else {
+                        dst[k] = src[j++];
+                    }
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+
+        return src;
+    }
+
+    private static void checkCrlExtensions(ByteBuffer crl, DerTlv extensions) throws IOException, CryptoException {
+        for (int pos = extensions.contentStart; pos < extensions.end; ) {
+            DerTlv extension = DerTlv.read(crl, pos, extensions.end, TAG_SEQUENCE);
+            DerTlv oid = DerTlv.read(crl, extension.contentStart, extension.end, TAG_OID);
+
+            switch (getIdCeArc(crl, oid)) {
+            case DELTA_CRL_INDICATOR:
+                throw new CryptoException(res.getString("DeltaCrlNotSupported.exception.message"));
+            case ISSUING_DISTRIBUTION_POINT:
+                throw new CryptoException(res.getString("ScopedCrlNotSupported.exception.message"));
+            case CRL_NUMBER:
+            case AUTHORITY_KEY_IDENTIFIER:
+            case ISSUER_ALT_NAME:
+                break;
+            default:
+                checkNotCritical(crl, oid, extension);
+                break;
+            }
+
+            pos = extension.end;
+        }
+    }
+
+    private static void checkNotCritical(ByteBuffer crl, DerTlv oid, DerTlv extension)
+            throws IOException, CryptoException {
+        DerTlv value = DerTlv.read(crl, oid.end, extension.end, -1);
+
+        if (value.tag == TAG_BOOLEAN && value.end - value.contentStart == 1 && crl.get(value.contentStart) != 0) {
+            String id = ASN1ObjectIdentifier.getInstance(copy(crl, oid.start, oid.end)).getId();
+            throw new CryptoException(MessageFormat.format(
+                    res.getString("UnsupportedCriticalCrlExtension.exception.message"), id));
+        }
+    }
+
+    private static DerTlv getExtensionValue(ByteBuffer crl, DerTlv oid, DerTlv extension) throws IOException {
+        DerTlv value = DerTlv.read(crl, oid.end, extension.end, -1);
+        if (value.tag != TAG_OCTET_STRING) { // critical flag
+            value = DerTlv.read(crl, value.end, extension.end, TAG_OCTET_STRING);
+        }
+        return value;
+    }
+
+    /*
+     * Get the last arc of an OID id-ce.<arc> (2.5.29.<arc>), or -1 for any other OID.
+     */
+    private static int getIdCeArc(ByteBuffer crl, DerTlv oid) {
+        if (oid.end - oid.start != ID_CE.length + 1) {
+            return -1;
+        }
+        for (int i = 0; i < ID_CE.length; i++) {
+            if (crl.get(oid.start + i) != ID_CE[i]) {
+                return -1;
+            }
+        }
+        int arc = crl.get(oid.start + ID_CE.length);
+        return arc >= 0 ? arc : -1;
+    }
+
+    /**
+     * Walks the entries of the revoked certificates list and stops at those
+     * that revoke a certificate of the CRL issuer. The certificate issuer
+     * extension of an entry applies to the following entries as well, and
+     * entries with reason removeFromCRL do not revoke a certificate.
+     */
+    private static class EntryWalker {
+        private final ByteBuffer crl;
+        private final DerTlv revoked;
+        private final byte[] crlIssuer;
+        private int pos;
+        private boolean ofCrlIssuer = true;
+
+        DerTlv serial;
+        DerTlv revocationDate;
+        int reason;
+
+        EntryWalker(ByteBuffer crl, DerTlv revoked, byte[] crlIssuer) {
+            this.crl = crl;
+            this.revoked = revoked;
+            this.crlIssuer = crlIssuer;
+            this.pos = revoked.contentStart;
+        }
+
+        boolean next() throws IOException, CryptoException {
+            while (pos < revoked.end) {
+                DerTlv entry = DerTlv.read(crl, pos, revoked.end, TAG_SEQUENCE);
+                pos = entry.end;
+
+                serial = DerTlv.read(crl, entry.contentStart, entry.end, TAG_INTEGER);
+                revocationDate = DerTlv.read(crl, serial.end, entry.end, -1);
+                reason = NO_REASON;
+
+                if (revocationDate.end < entry.end) {
+                    readEntryExtensions(DerTlv.read(crl, revocationDate.end, entry.end, TAG_SEQUENCE));
+                }
+
+                if (ofCrlIssuer && reason != REMOVE_FROM_CRL) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void readEntryExtensions(DerTlv extensions) throws IOException, CryptoException {
+            for (int extPos = extensions.contentStart; extPos < extensions.end; ) {
+                DerTlv extension = DerTlv.read(crl, extPos, extensions.end, TAG_SEQUENCE);
+                DerTlv oid = DerTlv.read(crl, extension.contentStart, extension.end, TAG_OID);
+
+                switch (getIdCeArc(crl, oid)) {
+                case REASON_CODE:
+                    DerTlv value = getExtensionValue(crl, oid, extension);
+                    DerTlv reasonCode = DerTlv.read(crl, value.contentStart, value.end, TAG_ENUMERATED);
+                    reason = crl.get(reasonCode.end - 1);
+                    break;
+                case CERTIFICATE_ISSUER:
+                    ofCrlIssuer = namesCrlIssuer(getExtensionValue(crl, oid, extension));
+                    break;
+                case INVALIDITY_DATE:
+                case HOLD_INSTRUCTION_CODE:
+                    break;
+                default:
+                    checkNotCritical(crl, oid, extension);
+                    break;
+                }
+
+                extPos = extension.end;
+            }
+        }
+
+        private boolean namesCrlIssuer(DerTlv value) throws IOException {
+            DerTlv generalNames = DerTlv.read(crl, value.contentStart, value.end, TAG_SEQUENCE);
+
+            for (int namePos = generalNames.contentStart; namePos < generalNames.end; ) {
+                DerTlv generalName = DerTlv.read(crl, namePos, generalNames.end, -1);
+
+                if (generalName.tag == TAG_DIRECTORY_NAME) {
+                    DerTlv name = DerTlv.read(crl, generalName.contentStart, generalName.end, TAG_SEQUENCE);
+                    if (Arrays.equals(copy(crl, name.start, name.end), crlIssuer)) {
+                        return true;
+                    }
+                }
+
+                namePos = generalName.end;
+            }
+            return false;
+        }
+    }
+
+    private static byte[] encodeHeader(long thisUpdate, long nextUpdate, long sourceSize, long sourceModified,
+                                       byte[] issuer, byte[] issuerKeyHash, int width, int count)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(thisUpdate);
+            out.writeLong(nextUpdate);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeInt(issuer.length);
+            out.write(issuer);
+            out.writeInt(issuerKeyHash.length);
+            out.write(issuerKeyHash);
+            out.writeInt(width);
+            out.writeInt(count);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] hashPublicKey(X509Certificate cert) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(cert.getPublicKey().getEncoded());
+    }
+
+    /*
+     * Serial numbers are stored as two's complement, sign-extended to the
+     * common width, with the sign bit flipped. Unsigned lexicographic order of
+     * these keys is the numeric order of the serial numbers.
+     */
+    private static byte[] encodeKey(byte[] twosComplement, int offset, int length, int width) {
+        byte[] key = new byte[width];
+        byte pad = (length > 0 && twosComplement[offset] < 0) ? (byte) 0xFF : 0;
+        Arrays.fill(key, 0, width - length, pad);
+        System.arraycopy(twosComplement, offset, key, width - length, length);
+        key[0] ^= (byte) 0x80;
+        return key;
+    }
+
+    private static int compareKey(ByteBuffer records, int pos, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            int cmp = Integer.compare(records.get(pos + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareRecords(ByteBuffer records, int pos1, int pos2, int width) {
+        for (int i = 0; i < width; i++) {
+            int cmp = Integer.compare(records.get(pos1 + i) & 0xFF, records.get(pos2 + i) & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] copy(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return bytes;
+    }
+}
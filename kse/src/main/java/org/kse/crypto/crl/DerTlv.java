@@ -0,0 +1,153 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ResourceBundle;
+
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x509.Time;
+
+/**
+ * Position of a DER tag-length-value within a buffer. CRLs are walked at the
+ * level of these headers, so that large CRLs do not have to be parsed into
+ * objects as a whole.
+ */
+class DerTlv {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/crl/resources");
+
+    static final int TAG_UTC_TIME = 0x17;
+    static final int TAG_GENERALIZED_TIME = 0x18;
+
+    int tag;
+    int start;
+    int contentStart;
+    int end;
+
+    static DerTlv read(ByteBuffer buffer, int pos, int limit, int expectedTag) throws IOException {
+        if (pos + 2 > limit) {
+            throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+        }
+
+        DerTlv tlv = new DerTlv();
+        tlv.start = pos;
+        tlv.tag = buffer.get(pos++) & 0xFF;
+
+        if (expectedTag != -1 && tlv.tag != expectedTag) {
+            throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+        }
+
+        int length = buffer.get(pos++) & 0xFF;
+        if (length > 0x7F) {
+            int octets = length & 0x7F;
+            // indefinite lengths are not allowed in DER, lengths beyond 2GB are not supported
+            if (octets == 0 || octets > 4 || pos + octets > limit) {
+                throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+            }
+            length = 0;
+            for (int i = 0; i < octets; i++) {
+                length = (length << 8) | (buffer.get(pos++) & 0xFF);
+            }
+            if (length < 0) {
+                throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+            }
+        }
+
+        tlv.contentStart = pos;
+        tlv.end = pos + length;
+
+        if (tlv.end > limit || tlv.end < pos) {
+            throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+        }
+
+        return tlv;
+    }
+
+    /**
+     * Decode a UTCTime or GeneralizedTime.
+     *
+     * @param buffer Buffer holding this TLV
+     * @return Time in milliseconds since the epoch
+     * @throws IOException If this is no valid time
+     */
+    long getTime(ByteBuffer buffer) throws IOException {
+        if (tag != TAG_UTC_TIME && tag != TAG_GENERALIZED_TIME) {
+            throw new IOException(res.getString("InvalidCrlEncoding.exception.message"));
+        }
+
+        // the DER forms YYMMDDHHMMSSZ and YYYYMMDDHHMMSSZ are decoded directly, as there may be millions of them
+        int length = end - contentStart;
+        int digits = tag == TAG_UTC_TIME ? 12 : 14;
+        if (length == digits + 1 && buffer.get(end - 1) == 'Z') {
+            int pos = contentStart;
+            int year;
+            if (tag == TAG_UTC_TIME) {
+                year = digits(buffer, pos, 2);
+                if (year >= 0) {
+                    year += year < 50 ? 2000 : 1900;
+                }
+                pos += 2;
+            } else {
+                year = digits(buffer, pos, 4);
+                pos += 4;
+            }
+            int month = digits(buffer, pos, 2);
+            int day = digits(buffer, pos + 2, 2);
+            int hour = digits(buffer, pos + 4, 2);
+            int minute = digits(buffer, pos + 6, 2);
+            int second = digits(buffer, pos + 8, 2);
+
+            if (year >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC) *
+                           1000;
+                } catch (DateTimeException ex) {
+                    // not a plain DER time, e.g. a digit is missing
+                }
+            }
+        }
+
+        byte[] encoded = new byte[end - start];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = buffer.get(start + i);
+        }
+        try {
+            return Time.getInstance(ASN1Primitive.fromByteArray(encoded)).getDate().getTime();
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(res.getString("InvalidCrlEncoding.exception.message"), ex);
+        }
+    }
+
+    private static int digits(ByteBuffer buffer, int pos, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = buffer.get(pos + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.kse.crypto.CryptoException;
+
+/**
+ * Revocation database of a CA. Every revocation, release from hold and issued
+ * CRL is appended as a record to a log file, which is replayed into an index
+ * by serial number when the database is opened. Revoking a certificate
+ * therefore writes a single record instead of rewriting the previous CRL.
+ * <p>
+ * The log also tells which entries changed since the last full CRL, which are
+ * the entries of a delta CRL (RFC 5280, section 5.2.4).
+ */
+public class RevocationDatabase implements Closeable {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/crl/resources");
+
+    private static final int MAGIC = 0x4B524442; // "KRDB"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+
+    private static final byte OP_REVOKE = 1;
+    private static final byte OP_UNREVOKE = 2;
+    private static final byte OP_CRL = 3;
+
+    private static final long NO_DATE = -1;
+
+    private final File file;
+
+    // serial number -> current state, including certificates that were released from hold
+    private final TreeMap<BigInteger, Entry> index = new TreeMap<>();
+    private int revokedCount;
+
+    // number of revocation records, a revocation record's sequence is its position among them
+    private long sequence;
+
+    private BigInteger lastCrlNumber;
+    private long lastThisUpdate = NO_DATE;
+    private long lastNextUpdate = NO_DATE;
+    private BigInteger baseCrlNumber;
+    private long baseSequence;
+
+    private DataOutputStream log;
+
+    // records of the current transaction, written to the log on commit
+    private ByteArrayOutputStream pending;
+
+    private RevocationDatabase(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the revocation database stored in the supplied file. The file is
+     * created when the first record is written.
+     *
+     * @param file Database file or null for a database that is only kept in memory
+     * @return The database
+     * @throws CryptoException If the file exists but could not be read
+     */
+    public static RevocationDatabase open(File file) throws CryptoException {
+        RevocationDatabase database = new RevocationDatabase(file);
+
+        if (file != null && file.exists()) {
+            try {
+                database.replay();
+            } catch (IOException ex) {
+                throw new CryptoException(
+                        MessageFormat.format(res.getString("NoReadRevocationDatabase.exception.message"), file), ex);
+            }
+        }
+
+        return database;
+    }
+
+    /**
+     * Has nothing been recorded in this database yet?
+     *
+     * @return True if the database is empty
+     */
+    public boolean isEmpty() {
+        return index.isEmpty() && lastCrlNumber == null;
+    }
+
+    /**
+     * Get the current entry of a certificate.
+     *
+     * @param serialNumber Serial number of the certificate
+     * @return The entry or null if the certificate was never revoked
+     */
+    public Entry get(BigInteger serialNumber) {
+        return index.get(serialNumber);
+    }
+
+    /**
+     * Get the revoked certificates, i.e. the entries of a full CRL.
+     *
+     * @return Entries sorted by serial number
+     */
+    public List<Entry> getRevoked() {
+        List<Entry> revoked = new ArrayList<>(revokedCount);
+        for (Entry entry : index.values()) {
+            if (entry.isRevoked()) {
+                revoked.add(entry);
+            }
+        }
+        return revoked;
+    }
+
+    /**
+     * Get the number of revoked certificates.
+     *
+     * @return Number of revoked certificates
+     */
+    public int getRevokedCount() {
+        return revokedCount;
+    }
+
+    /**
+     * Get the entries of a delta CRL to the last full CRL: certificates that
+     * were revoked since and certificates that were on the full CRL but have
+     * been released from hold since. The latter have the reason
+     * removeFromCRL.
+     *
+     * @return Entries sorted by serial number, empty if there is no full CRL
+     */
+    public List<Entry> getDeltaEntries() {
+        List<Entry> delta = new ArrayList<>();
+        if (baseCrlNumber == null) {
+            return delta;
+        }
+
+        for (Entry entry : index.values()) {
+            if (entry.revokedAt >= baseSequence) {
+                if (entry.isRevoked()) {
+                    delta.add(entry);
+                }
+            } else if (!entry.isRevoked() && entry.releasedAt >= baseSequence) {
+                delta.add(new Entry(entry.serialNumber, entry.releaseDate, CRLReason.removeFromCRL, entry.revokedAt,
+                                    entry.releasedAt, entry.releaseDate));
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Record the revocation of a certificate. Revoking a certificate again
+     * with a different date or reason, e.g. a certificate on hold that is
+     * now revoked permanently, replaces its entry.
+     *
+     * @param serialNumber   Serial number of the certificate
+     * @param revocationDate Revocation date
+     * @param reason         Reason code as defined in {@link CRLReason}
+     * @throws CryptoException If the record could not be written
+     */
+    public void revoke(BigInteger serialNumber, Date revocationDate, int reason) throws CryptoException {
+        Entry entry = index.get(serialNumber);
+        if (entry != null && entry.isRevoked() && entry.revocationDate == revocationDate.getTime() &&
+            entry.reason == reason) {
+            return;
+        }
+
+        try {
+            DataOutputStream out = getRecordStream();
+            out.writeByte(OP_REVOKE);
+            writeBigInteger(out, serialNumber);
+            out.writeLong(revocationDate.getTime());
+            out.writeByte(reason);
+            out.flush();
+        } catch (IOException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoWriteRevocationDatabase.exception.message"), file), ex);
+        }
+
+        applyRevoke(serialNumber, revocationDate.getTime(), reason);
+    }
+
+    /**
+     * Record the release of a certificate from hold. Only certificates with
+     * the reason certificateHold can be released, all other revocations are
+     * permanent.
+     *
+     * @param serialNumber Serial number of the certificate
+     * @param releaseDate  Date of the release
+     * @throws CryptoException If the certificate is not on hold or the record could not be written
+     */
+    public void unrevoke(BigInteger serialNumber, Date releaseDate) throws CryptoException {
+        checkOnHold(serialNumber);
+
+        try {
+            DataOutputStream out = getRecordStream();
+            out.writeByte(OP_UNREVOKE);
+            writeBigInteger(out, serialNumber);
+            out.writeLong(releaseDate.getTime());
+            out.flush();
+        } catch (IOException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoWriteRevocationDatabase.exception.message"), file), ex);
+        }
+
+        applyUnrevoke(serialNumber, releaseDate.getTime());
+    }
+
+    /**
+     * Check that a certificate is on hold and can therefore be released with
+     * {@link #unrevoke(BigInteger, Date)}.
+     *
+     * @param serialNumber Serial number of the certificate
+     * @throws CryptoException If the certificate is not on hold
+     */
+    public void checkOnHold(BigInteger serialNumber) throws CryptoException {
+        Entry entry = index.get(serialNumber);
+        if (entry == null || !entry.isRevoked() || entry.reason != CRLReason.certificateHold) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NotOnHold.exception.message"), serialNumber.toString(16)));
+        }
+    }
+
+    /**
+     * Record an issued CRL. A full CRL becomes the base of subsequent delta
+     * CRLs.
+     *
+     * @param crlNumber     CRL number
+     * @param thisUpdate    Effective date
+     * @param nextUpdate    Next update or null
+     * @param baseCrlNumber Number of the base CRL for a delta CRL, null for a full CRL
+     * @throws CryptoException If the record could not be written
+     */
+    public void recordCrl(BigInteger crlNumber, Date thisUpdate, Date nextUpdate, BigInteger baseCrlNumber)
+            throws CryptoException {
+        long next = nextUpdate == null ? NO_DATE : nextUpdate.getTime();
+
+        try {
+            DataOutputStream out = getRecordStream();
+            out.writeByte(OP_CRL);
+            writeBigInteger(out, crlNumber);
+            out.writeLong(thisUpdate.getTime());
+            out.writeLong(next);
+            writeBigInteger(out, baseCrlNumber == null ? BigInteger.ZERO : baseCrlNumber);
+            out.flush();
+        } catch (IOException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoWriteRevocationDatabase.exception.message"), file), ex);
+        }
+
+        applyCrl(crlNumber, thisUpdate.getTime(), next, baseCrlNumber);
+    }
+
+    /**
+     * Start a transaction. The changes made from now on are applied at once,
+     * but their records are only written to the log by {@link #commit()},
+     * e.g. after the CRL that publishes them was written. If the transaction
+     * is not committed, the database no longer matches its file and must be
+     * closed without further changes.
+     */
+    public void startTransaction() {
+        pending = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Write the records of the current transaction to the log and end the
+     * transaction.
+     *
+     * @throws CryptoException If the records could not be written
+     */
+    public void commit() throws CryptoException {
+        if (pending == null) {
+            return;
+        }
+
+        try {
+            DataOutputStream out = getLog();
+            pending.writeTo(out);
+            out.flush();
+        } catch (IOException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoWriteRevocationDatabase.exception.message"), file), ex);
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * Record the entries and number of a CRL, used to take over a CRL issued
+     * before the database existed. The CRL is recorded as a full CRL.
+     *
+     * @param crl The CRL
+     * @throws CryptoException If the records could not be written
+     */
+    public void importCrl(X509CRL crl) throws CryptoException {
+        Set<? extends X509CRLEntry> entries = crl.getRevokedCertificates();
+        if (entries != null) {
+            for (X509CRLEntry entry : entries) {
+                int reason = entry.getRevocationReason() == null ? CRLReason.unspecified :
+                             entry.getRevocationReason().ordinal();
+                revoke(entry.getSerialNumber(), entry.getRevocationDate(), reason);
+            }
+        }
+
+        BigInteger crlNumber = BigInteger.ZERO;
+        byte[] crlNumberValue = crl.getExtensionValue(Extension.cRLNumber.getId());
+        if (crlNumberValue != null) {
+            try {
+                crlNumber = ASN1Integer.getInstance(
+                        ASN1Primitive.fromByteArray(ASN1OctetString.getInstance(crlNumberValue).getOctets()))
+                                       .getValue();
+            } catch (IOException | IllegalArgumentException ex) {
+                // no usable CRL number, the next CRL starts the numbering again
+            }
+        }
+
+        recordCrl(crlNumber, crl.getThisUpdate(), crl.getNextUpdate(), null);
+    }
+
+    /**
+     * Get the number of the last issued CRL.
+     *
+     * @return CRL number or null if no CRL was issued yet
+     */
+    public BigInteger getLastCrlNumber() {
+        return lastCrlNumber;
+    }
+
+    /**
+     * Get the effective date of the last issued CRL.
+     *
+     * @return Effective date or null if no CRL was issued yet
+     */
+    public Date getLastThisUpdate() {
+        return lastThisUpdate == NO_DATE ? null : new Date(lastThisUpdate);
+    }
+
+    /**
+     * Get the next update of the last issued CRL.
+     *
+     * @return Next update or null if no CRL was issued yet or it had none
+     */
+    public Date getLastNextUpdate() {
+        return lastNextUpdate == NO_DATE ? null : new Date(lastNextUpdate);
+    }
+
+    /**
+     * Get the number of the last full CRL, the base of a delta CRL.
+     *
+     * @return CRL number or null if no full CRL was issued yet
+     */
+    public BigInteger getBaseCrlNumber() {
+        return baseCrlNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    private DataOutputStream getRecordStream() throws IOException {
+        return pending == null ? getLog() : new DataOutputStream(pending);
+    }
+
+    private DataOutputStream getLog() throws IOException {
+        if (log == null) {
+            if (file == null) {
+                log = new DataOutputStream(OutputStream.nullOutputStream());
+            } else {
+                boolean exists = file.exists();
+                log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                if (!exists) {
+                    log.writeInt(MAGIC);
+                    log.writeInt(VERSION);
+                }
+            }
+        }
+        return log;
+    }
+
+    private void replay() throws IOException {
+        long validLength = HEADER_LENGTH;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(
+                        MessageFormat.format(res.getString("NoReadRevocationDatabase.exception.message"), file));
+            }
+
+            while (true) {
+                int op = in.read();
+                if (op == -1) {
+                    break;
+                }
+
+                try {
+                    long recordLength = 1 + replayRecord(op, in);
+                    validLength += recordLength;
+                } catch (EOFException ex) {
+                    // last record was not written completely, it is dropped below
+                    break;
+                }
+            }
+        }
+
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    private int replayRecord(int op, DataInputStream in) throws IOException {
+        byte[] serial;
+        switch (op) {
+        case OP_REVOKE:
+            serial = readBytes(in);
+            long revocationDate = in.readLong();
+            int reason = in.readByte();
+            applyRevoke(new BigInteger(serial), revocationDate, reason);
+            return 2 + serial.length + 8 + 1;
+        case OP_UNREVOKE:
+            serial = readBytes(in);
+            long releaseDate = in.readLong();
+            applyUnrevoke(new BigInteger(serial), releaseDate);
+            return 2 + serial.length + 8;
+        case OP_CRL:
+            byte[] crlNumber = readBytes(in);
+            long thisUpdate = in.readLong();
+            long nextUpdate = in.readLong();
+            byte[] base = readBytes(in);
+            BigInteger baseNumber = new BigInteger(base);
+            applyCrl(new BigInteger(crlNumber), thisUpdate, nextUpdate,
+                     baseNumber.signum() == 0 ? null : baseNumber);
+            return 2 + crlNumber.length + 8 + 8 + 2 + base.length;
+        default:
+            throw new IOException(
+                    MessageFormat.format(res.getString("NoReadRevocationDatabase.exception.message"), file));
+        }
+    }
+
+    private void applyRevoke(BigInteger serialNumber, long revocationDate, int reason) {
+        Entry previous = index.put(serialNumber,
+                                   new Entry(serialNumber, revocationDate, reason, sequence++, -1, NO_DATE));
+        if (previous == null || !previous.isRevoked()) {
+            revokedCount++;
+        }
+    }
+
+    private void applyUnrevoke(BigInteger serialNumber, long releaseDate) {
+        Entry previous = index.get(serialNumber);
+        if (previous != null && previous.isRevoked()) {
+            index.put(serialNumber, new Entry(serialNumber, previous.revocationDate, previous.reason,
+                                              previous.revokedAt, sequence++, releaseDate));
+            revokedCount--;
+        }
+    }
+
+    private void applyCrl(BigInteger crlNumber, long thisUpdate, long nextUpdate, BigInteger base) {
+        lastCrlNumber = crlNumber;
+        lastThisUpdate = thisUpdate;
+        lastNextUpdate = nextUpdate;
+
+        if (base == null) {
+            baseCrlNumber = crlNumber;
+            baseSequence = sequence;
+        }
+    }
+
+    private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+        byte[] bytes = value.toByteArray();
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * State of a certificate in the revocation database.
+     */
+    public static class Entry {
+        private final BigInteger serialNumber;
+        private final long revocationDate;
+        private final int reason;
+
+        // sequence of the revocation record and of the release record, -1 if not released
+        private final long revokedAt;
+        private final long releasedAt;
+        private final long releaseDate;
+
+        private Entry(BigInteger serialNumber, long revocationDate, int reason, long revokedAt, long releasedAt,
+                      long releaseDate) {
+            this.serialNumber = serialNumber;
+            this.revocationDate = revocationDate;
+            this.reason = reason;
+            this.revokedAt = revokedAt;
+            this.releasedAt = releasedAt;
+            this.releaseDate = releaseDate;
+        }
+
+        /**
+         * Get the serial number of the certificate.
+         *
+         * @return Serial number
+         */
+        public BigInteger getSerialNumber() {
+            return serialNumber;
+        }
+
+        /**
+         * Get the revocation date, for a removeFromCRL entry the date of the release.
+         *
+         * @return Revocation date
+         */
+        public Date getRevocationDate() {
+            return new Date(revocationDate);
+        }
+
+        /**
+         * Get the reason code.
+         *
+         * @return Reason code as defined in {@link CRLReason}
+         */
+        public int getReason() {
+            return reason;
+        }
+
+        /**
+         * Is the certificate revoked, i.e. not released from hold?
+         *
+         * @return True if revoked
+         */
+        public boolean isRevoked() {
+            return releasedAt < 0;
+        }
+    }
+}
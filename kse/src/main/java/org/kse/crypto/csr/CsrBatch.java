@@ -0,0 +1,497 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.csr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.PublicKey;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.csr.pkcs10.Pkcs10Util;
+import org.kse.crypto.csr.spkac.Spkac;
+import org.kse.crypto.filetype.CryptoFileType;
+import org.kse.crypto.filetype.CryptoFileUtil;
+import org.kse.crypto.x509.X509ExtensionSet;
+import org.kse.crypto.x509.X509ExtensionType;
+
+/**
+ * A batch of CSRs read from a directory or a ZIP archive. The CSRs are
+ * parsed and their signatures verified in parallel. Files that are no CSRs
+ * or fail verification stay in the batch with an error, so that they show
+ * up in the report of the batch.
+ */
+public class CsrBatch {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/csr/resources");
+
+    // CSRs are small, anything larger is certainly something else
+    private static final long MAX_CSR_SIZE = 1024 * 1024;
+
+    private static final String SUBJECT_ALTERNATIVE_NAME = X509ExtensionType.SUBJECT_ALTERNATIVE_NAME.oid();
+
+    // key identifiers are calculated from the keys if the template has them, whatever a CSR requests
+    private static final Set<String> KEY_IDENTIFIERS = new HashSet<>(
+            Arrays.asList(X509ExtensionType.SUBJECT_KEY_IDENTIFIER.oid(),
+                          X509ExtensionType.AUTHORITY_KEY_IDENTIFIER.oid()));
+
+    private static final String[] COLUMNS = { "file", "subject", "status", "serialNumber", "details" };
+
+    private final List<Csr> csrs;
+
+    private CsrBatch(List<Csr> csrs) {
+        this.csrs = csrs;
+    }
+
+    /**
+     * Is the supplied file a source of a CSR batch, i.e. a directory or a ZIP archive?
+     *
+     * @param file File
+     * @return True if CSRs can be loaded as a batch from the file
+     */
+    public static boolean isBatchSource(File file) {
+        return file.isDirectory() || (file.isFile() && file.getName().toLowerCase().endsWith(".zip"));
+    }
+
+    /**
+     * Load all CSRs in a directory (without sub-directories) or ZIP archive.
+     *
+     * @param source  Directory or ZIP archive
+     * @param threads Number of threads to verify the CSRs with
+     * @return The batch, in the order of the file names
+     * @throws CryptoException      If the directory or archive could not be read
+     * @throws InterruptedException If the calling thread was interrupted
+     */
+    public static CsrBatch load(File source, int threads) throws CryptoException, InterruptedException {
+        List<Csr> csrs = new ArrayList<>();
+
+        try {
+            if (source.isDirectory()) {
+                File[] files = source.listFiles(file -> file.isFile() && !file.isHidden());
+                if (files == null) {
+                    throw new IOException(source.getPath());
+                }
+                Arrays.sort(files, Comparator.comparing(File::getName));
+                for (File file : files) {
+                    csrs.add(file.length() > MAX_CSR_SIZE ?
+                             new Csr(file.getName(), null) :
+                             new Csr(file.getName(), Files.readAllBytes(file.toPath())));
+                }
+            } else {
+                try (ZipFile zipFile = new ZipFile(source)) {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        if (entry.isDirectory()) {
+                            continue;
+                        }
+                        if (entry.getSize() > MAX_CSR_SIZE) {
+                            csrs.add(new Csr(entry.getName(), null));
+                            continue;
+                        }
+                        try (InputStream is = zipFile.getInputStream(entry)) {
+                            csrs.add(new Csr(entry.getName(), IOUtils.toByteArray(is)));
+                        }
+                    }
+                }
+                csrs.sort(Comparator.comparing(Csr::getName));
+            }
+        } catch (IOException ex) {
+            throw new CryptoException(MessageFormat.format(res.getString("NoReadCsrBatch.exception.message"), source),
+                                      ex);
+        }
+
+        verify(csrs, threads);
+
+        return new CsrBatch(csrs);
+    }
+
+    private static void verify(List<Csr> csrs, int threads) throws InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "CsrBatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(csrs.size());
+            for (Csr csr : csrs) {
+                tasks.add(() -> {
+                    csr.parse();
+                    return null;
+                });
+            }
+            executor.invokeAll(tasks);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get all CSRs of the batch, including those that could not be loaded.
+     *
+     * @return CSRs
+     */
+    public List<Csr> getCsrs() {
+        return csrs;
+    }
+
+    /**
+     * Get the CSRs that were loaded and verified successfully.
+     *
+     * @return Valid CSRs
+     */
+    public List<Csr> getValidCsrs() {
+        List<Csr> valid = new ArrayList<>();
+        for (Csr csr : csrs) {
+            if (csr.isValid()) {
+                valid.add(csr);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Create the extensions shared by all certificates of the batch from the
+     * extensions chosen while signing one of its CSRs. The subject alternative
+     * name belongs to the subject of that CSR and is left out; every CSR gets
+     * its own when it is signed, see {@link Csr#getOwnExtensions(X509ExtensionSet)}.
+     *
+     * @param extensions Extensions chosen for the CSR
+     * @return Extension template of the batch
+     */
+    public static X509ExtensionSet createExtensionTemplate(X509ExtensionSet extensions) {
+        X509ExtensionSet template = (X509ExtensionSet) extensions.clone();
+        template.removeExtension(SUBJECT_ALTERNATIVE_NAME);
+        return template;
+    }
+
+    private static Set<String> getOids(X509ExtensionSet extensions) {
+        Set<String> oids = new HashSet<>(extensions.getCriticalExtensionOIDs());
+        oids.addAll(extensions.getNonCriticalExtensionOIDs());
+        return oids;
+    }
+
+    /**
+     * Write the outcome of the batch as CSV (RFC 4180) with a header line.
+     *
+     * @param writer Writer to write to
+     * @throws IOException If writing failed
+     */
+    public void writeReport(Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        for (Csr csr : csrs) {
+            writer.write(csvField(csr.getName()));
+            writer.write(',');
+            writer.write(csvField(csr.getSubject() == null ? null : csr.getSubject().toString()));
+            writer.write(',');
+            writer.write(csr.getStatus().name());
+            writer.write(',');
+            writer.write(csr.getSerialNumber() == null ? "" : csr.getSerialNumber().toString(16));
+            writer.write(',');
+            writer.write(csvField(csr.getStatus() == Status.SIGNED ? csr.getReplyName() : csr.getError()));
+            writer.write("\r\n");
+        }
+
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 &&
+            value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Status of a CSR in a batch.
+     */
+    public enum Status {
+        /** Loaded and verified, but not signed (yet). */
+        VALID,
+        /** Not a CSR or the CSR's signature is not valid. */
+        INVALID,
+        /** Signed, the CA reply was written. */
+        SIGNED,
+        /** Signing or writing the CA reply failed. */
+        FAILED
+    }
+
+    /**
+     * A CSR of a batch.
+     */
+    public static class Csr {
+        private final String name;
+        private byte[] data;
+
+        private volatile Status status = Status.INVALID;
+        private CsrType type;
+        private PKCS10CertificationRequest pkcs10Csr;
+        private Spkac spkacCsr;
+        private X500Name subject;
+        private PublicKey publicKey;
+        private volatile String error;
+        private volatile BigInteger serialNumber;
+        private volatile String replyName;
+
+        Csr(String name, byte[] data) {
+            this.name = name;
+            this.data = data;
+            this.error = res.getString("NotCsr.message");
+        }
+
+        private void parse() {
+            if (data == null) {
+                return;
+            }
+
+            try {
+                CryptoFileType fileType = CryptoFileUtil.detectFileType(data);
+
+                if (fileType == CryptoFileType.PKCS10_CSR) {
+                    type = CsrType.PKCS10;
+                    pkcs10Csr = Pkcs10Util.loadCsr(data);
+                    subject = pkcs10Csr.getSubject();
+                    publicKey = new JcaPKCS10CertificationRequest(pkcs10Csr).getPublicKey();
+
+                    if (!Pkcs10Util.verifyCsr(pkcs10Csr)) {
+                        error = res.getString("NoVerifyCsr.message");
+                        return;
+                    }
+                } else if (fileType == CryptoFileType.SPKAC_CSR) {
+                    type = CsrType.SPKAC;
+                    spkacCsr = new Spkac(data);
+                    subject = spkacCsr.getSubject().getName();
+                    publicKey = spkacCsr.getPublicKey();
+
+                    if (!spkacCsr.verify()) {
+                        error = res.getString("NoVerifyCsr.message");
+                        return;
+                    }
+                } else {
+                    return;
+                }
+
+                error = null;
+                status = Status.VALID;
+            } catch (Exception ex) {
+                error = MessageFormat.format(res.getString("NoLoadCsr.message"), ex.getMessage());
+            } finally {
+                data = null;
+            }
+        }
+
+        /**
+         * Get the extensions requested by the CSR.
+         *
+         * @return Requested extensions, empty for an SPKAC CSR
+         */
+        public X509ExtensionSet getRequestedExtensions() {
+            if (pkcs10Csr == null) {
+                return new X509ExtensionSet();
+            }
+            return Pkcs10Util.getExtensions(pkcs10Csr);
+        }
+
+        /**
+         * Get the extensions the certificate for this CSR has in addition to
+         * the extension template of the batch, i.e. the subject alternative
+         * name requested by the CSR. Any other extension the CSR requests must
+         * be part of the template with the same value, as nothing but the
+         * template has been reviewed.
+         *
+         * @param template Extension template of the batch, as created by
+         *                 {@link CsrBatch#createExtensionTemplate(X509ExtensionSet)}
+         * @return The CSR's own extensions, empty if it requests no subject alternative name
+         * @throws CryptoException If the CSR requests extensions that are not in the template
+         */
+        public X509ExtensionSet getOwnExtensions(X509ExtensionSet template) throws CryptoException {
+            X509ExtensionSet extensions = new X509ExtensionSet();
+
+            X509ExtensionSet requested = getRequestedExtensions();
+            List<String> rejected = new ArrayList<>();
+            for (String oid : getOids(requested)) {
+                if (oid.equals(SUBJECT_ALTERNATIVE_NAME)) {
+                    extensions.addExtension(oid, requested.isCritical(oid), requested.getExtensionValue(oid));
+                } else if (!KEY_IDENTIFIERS.contains(oid) &&
+                           !Arrays.equals(requested.getExtensionValue(oid), template.getExtensionValue(oid))) {
+                    X509ExtensionType type = X509ExtensionType.resolveOid(oid);
+                    rejected.add(type == X509ExtensionType.UNKNOWN ? oid : type.friendly());
+                }
+            }
+
+            if (!rejected.isEmpty()) {
+                rejected.sort(null);
+                throw new CryptoException(MessageFormat.format(res.getString("ExtensionsNotInProfile.message"),
+                                                               String.join(", ", rejected)));
+            }
+            return extensions;
+        }
+
+        /**
+         * Record that the CSR was signed.
+         *
+         * @param serialNumber Serial number of the issued certificate
+         * @param replyName    Name of the file the CA reply was written to
+         */
+        public void signed(BigInteger serialNumber, String replyName) {
+            this.serialNumber = serialNumber;
+            this.replyName = replyName;
+            this.status = Status.SIGNED;
+        }
+
+        /**
+         * Record that signing the CSR failed.
+         *
+         * @param error Description of the failure
+         */
+        public void failed(String error) {
+            this.error = error;
+            this.status = Status.FAILED;
+        }
+
+        /**
+         * Get the file name of the CSR within the directory or archive.
+         *
+         * @return File name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Get the status of the CSR.
+         *
+         * @return Status
+         */
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Is the CSR loaded and verified, i.e. can it be signed?
+         *
+         * @return True if valid
+         */
+        public boolean isValid() {
+            return status != Status.INVALID;
+        }
+
+        /**
+         * Get the type of the CSR.
+         *
+         * @return CSR type or null if the file is no CSR
+         */
+        public CsrType getType() {
+            return type;
+        }
+
+        /**
+         * Get the PKCS #10 CSR.
+         *
+         * @return PKCS #10 CSR or null if the CSR is of another type
+         */
+        public PKCS10CertificationRequest getPkcs10Csr() {
+            return pkcs10Csr;
+        }
+
+        /**
+         * Get the SPKAC CSR.
+         *
+         * @return SPKAC CSR or null if the CSR is of another type
+         */
+        public Spkac getSpkacCsr() {
+            return spkacCsr;
+        }
+
+        /**
+         * Get the subject of the CSR.
+         *
+         * @return Subject or null if the CSR could not be loaded
+         */
+        public X500Name getSubject() {
+            return subject;
+        }
+
+        /**
+         * Get the public key of the CSR.
+         *
+         * @return Public key or null if the CSR could not be loaded
+         */
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+
+        /**
+         * Get the reason why the CSR could not be loaded or signed.
+         *
+         * @return Error or null
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Get the serial number of the issued certificate.
+         *
+         * @return Serial number or null if the CSR was not signed
+         */
+        public BigInteger getSerialNumber() {
+            return serialNumber;
+        }
+
+        /**
+         * Get the name of the file the CA reply was written to.
+         *
+         * @return File name or null if the CSR was not signed
+         */
+        public String getReplyName() {
+            return replyName;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.dh;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERSequence;
+import org.kse.crypto.CryptoException;
+
+/**
+ * Generates DH parameters (PKCS #3) with a safe prime modulus p = 2q + 1 and
+ * generator 2. The search for the safe prime is spread over several worker
+ * threads, each testing candidates from its own random starting point. The
+ * first worker that finds a safe prime wins, the others are stopped.
+ * Generation can be cancelled by interrupting the calling thread.
+ */
+public class DHParametersGenerator {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/dh/resources");
+
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+
+    // certainty for the final primality tests of q and p
+    private static final int CERTAINTY = 100;
+
+    // candidates are taken from a window above a random start, which is then replaced
+    private static final int WINDOW = 1 << 20;
+
+    private static final int[] SMALL_PRIMES = smallPrimes(20000);
+
+    private final int keySize;
+    private final int threads;
+    private final AtomicLong candidatesTested = new AtomicLong();
+
+    /**
+     * Construct generator.
+     *
+     * @param keySize Bit length of the prime modulus
+     * @param threads Number of worker threads
+     */
+    public DHParametersGenerator(int keySize, int threads) {
+        this.keySize = keySize;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Generate DH parameters. Blocks until a safe prime has been found.
+     *
+     * @return DER encoded DH parameters
+     * @throws CryptoException      If the generation failed
+     * @throws InterruptedException If the calling thread was interrupted
+     */
+    public byte[] generate() throws CryptoException, InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "DHParametersGenerator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        try {
+            List<Callable<BigInteger>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(new SafePrimeSearch());
+            }
+
+            BigInteger p = executor.invokeAny(workers);
+
+            return encode(p, TWO);
+        } catch (ExecutionException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoGenerateDhParameters.exception.message"), keySize),
+                    ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the number of candidates that have been tested so far by all
+     * workers. Can be called while the generation is running.
+     *
+     * @return Number of tested candidates
+     */
+    public long getCandidatesTested() {
+        return candidatesTested.get();
+    }
+
+    /**
+     * DER encode DH parameters as a PKCS #3 DHParameter structure.
+     *
+     * @param p Prime modulus
+     * @param g Generator
+     * @return DER encoding
+     * @throws CryptoException If the encoding failed
+     */
+    public static byte[] encode(BigInteger p, BigInteger g) throws CryptoException {
+        ASN1EncodableVector vec = new ASN1EncodableVector();
+        vec.add(new ASN1Integer(p));
+        vec.add(new ASN1Integer(g));
+
+        try {
+            return new DERSequence(vec).getEncoded(ASN1Encoding.DER);
+        } catch (IOException ex) {
+            throw new CryptoException(res.getString("NoEncodeDhParameters.exception.message"), ex);
+        }
+    }
+
+    /**
+     * Is p a safe prime, i.e. are p and (p - 1) / 2 both prime?
+     *
+     * @param p Candidate
+     * @return True if p is a safe prime (with overwhelming probability)
+     */
+    static boolean isSafePrime(BigInteger p) {
+        BigInteger q = p.shiftRight(1);
+        return p.testBit(0) && q.isProbablePrime(CERTAINTY) && p.isProbablePrime(CERTAINTY);
+    }
+
+    private static int[] smallPrimes(int limit) {
+        boolean[] composite = new boolean[limit];
+        List<Integer> primes = new ArrayList<>();
+
+        // 2 is skipped, all candidates are odd
+        for (int i = 3; i < limit; i += 2) {
+            if (!composite[i]) {
+                primes.add(i);
+                for (long j = (long) i * i; j < limit; j += 2L * i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+
+        return primes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private class SafePrimeSearch implements Callable<BigInteger> {
+        private final SecureRandom random = new SecureRandom();
+        private final int[] residues = new int[SMALL_PRIMES.length];
+
+        @Override
+        public BigInteger call() throws InterruptedException {
+            while (true) {
+                BigInteger start = randomStart();
+
+                for (int i = 0; i < SMALL_PRIMES.length; i++) {
+                    residues[i] = start.mod(BigInteger.valueOf(SMALL_PRIMES[i])).intValue();
+                }
+
+                for (int delta = 0; delta < WINDOW; delta += 2) {
+                    checkInterrupted();
+
+                    if (!passesSieve(delta)) {
+                        continue;
+                    }
+
+                    candidatesTested.incrementAndGet();
+
+                    BigInteger q = start.add(BigInteger.valueOf(delta));
+                    BigInteger p = q.shiftLeft(1).setBit(0);
+
+                    // cheap Fermat test on p filters almost all remaining candidates
+                    if (!TWO.modPow(p.subtract(BigInteger.ONE), p).equals(BigInteger.ONE)) {
+                        continue;
+                    }
+
+                    checkInterrupted();
+                    if (!q.isProbablePrime(CERTAINTY)) {
+                        continue;
+                    }
+
+                    checkInterrupted();
+                    if (p.isProbablePrime(CERTAINTY)) {
+                        return p;
+                    }
+                }
+            }
+        }
+
+        private BigInteger randomStart() {
+            // q has keySize - 1 bits with the top bit set, so p = 2q + 1 has exactly keySize bits
+            BigInteger q = new BigInteger(keySize - 1, random).setBit(keySize - 2).setBit(0);
+            return q;
+        }
+
+        private boolean passesSieve(int delta) {
+            for (int i = 0; i < SMALL_PRIMES.length; i++) {
+                int prime = SMALL_PRIMES[i];
+                int residue = (int) ((residues[i] + (long) delta) % prime);
+
+                // q divisible by prime, or p = 2q + 1 divisible by prime
+                if (residue == 0 || residue == (prime - 1) / 2) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void checkInterrupted() throws InterruptedException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.dh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.kse.crypto.CryptoException;
+import org.kse.utilities.pem.PemInfo;
+import org.kse.utilities.pem.PemUtil;
+
+/**
+ * Local library of generated DH parameters. Each parameter set is stored as a
+ * PEM file in the library directory, named after its key size, so that the
+ * index by key size can be built from the directory listing alone.
+ */
+public class DHParametersLibrary {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/dh/resources");
+
+    private static final String PEM_TYPE = "DH PARAMETERS";
+    private static final Pattern FILE_NAME_PATTERN = Pattern.compile("dh-(\\d+)-(\\d+)\\.pem");
+
+    private final File directory;
+
+    // key size -> files, oldest first
+    private TreeMap<Integer, List<File>> index;
+
+    /**
+     * Construct library.
+     *
+     * @param directory Directory the parameters are stored in; created on first add
+     */
+    public DHParametersLibrary(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the most recently stored DH parameters of the supplied key size.
+     *
+     * @param keySize Key size
+     * @return DER encoded DH parameters or null if there are none for this size
+     * @throws CryptoException If the stored parameters could not be read
+     */
+    public synchronized byte[] get(int keySize) throws CryptoException {
+        List<File> files = getIndex().get(keySize);
+
+        if (files == null || files.isEmpty()) {
+            return null;
+        }
+
+        File file = files.get(files.size() - 1);
+
+        try {
+            PemInfo pemInfo = PemUtil.decode(Files.readAllBytes(file.toPath()));
+
+            if (pemInfo == null || !PEM_TYPE.equals(pemInfo.getType())) {
+                throw new CryptoException(
+                        MessageFormat.format(res.getString("NoReadDhParameters.exception.message"), file));
+            }
+
+            return pemInfo.getContent();
+        } catch (IOException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoReadDhParameters.exception.message"), file), ex);
+        }
+    }
+
+    /**
+     * Get the number of stored DH parameters of the supplied key size.
+     *
+     * @param keySize Key size
+     * @return Number of stored parameter sets
+     */
+    public synchronized int count(int keySize) {
+        List<File> files = getIndex().get(keySize);
+        return files == null ? 0 : files.size();
+    }
+
+    /**
+     * Store DH parameters in the library.
+     *
+     * @param keySize Key size of the parameters
+     * @param dhParameters DER encoded DH parameters
+     * @return The file the parameters were written to
+     * @throws CryptoException If the parameters could not be written
+     */
+    public synchronized File add(int keySize, byte[] dhParameters) throws CryptoException {
+        // index has to be loaded before the new file appears in the directory
+        List<File> files = getIndex().computeIfAbsent(keySize, k -> new ArrayList<>());
+
+        String pem = PemUtil.encode(new PemInfo(PEM_TYPE, null, dhParameters));
+
+        long timestamp = System.currentTimeMillis();
+        File file = new File(directory, fileName(keySize, timestamp));
+        while (file.exists()) {
+            file = new File(directory, fileName(keySize, ++timestamp));
+        }
+
+        try {
+            Files.createDirectories(directory.toPath());
+            Files.write(file.toPath(), pem.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException ex) {
+            throw new CryptoException(
+                    MessageFormat.format(res.getString("NoWriteDhParameters.exception.message"), file), ex);
+        }
+
+        files.add(file);
+        return file;
+    }
+
+    private static String fileName(int keySize, long timestamp) {
+        return "dh-" + keySize + "-" + timestamp + ".pem";
+    }
+
+    private TreeMap<Integer, List<File>> getIndex() {
+        if (index != null) {
+            return index;
+        }
+
+        index = new TreeMap<>();
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return index;
+        }
+
+        TreeMap<Integer, TreeMap<Long, File>> sorted = new TreeMap<>();
+
+        for (File file : files) {
+            Matcher matcher = FILE_NAME_PATTERN.matcher(file.getName());
+            if (file.isFile() && matcher.matches()) {
+                try {
+                    int keySize = Integer.parseInt(matcher.group(1));
+                    long timestamp = Long.parseLong(matcher.group(2));
+                    sorted.computeIfAbsent(keySize, k -> new TreeMap<>()).put(timestamp, file);
+                } catch (NumberFormatException ex) {
+                    // not one of ours
+                }
+            }
+        }
+
+        sorted.forEach((keySize, byTime) -> index.put(keySize, new ArrayList<>(byTime.values())));
+        return index;
+    }
+}
@@ -164,7 +164,8 @@ public class CryptoFileUtil {
         }
 
         try {
-            X509CertUtil.loadCRL(data);
+            // only the structure is checked, so that a large CRL is not parsed as a whole here
+            X509CertUtil.loadCrlEntries(data);
             return CRL;
         } catch (Exception ex) {
             // Ignore - not a CRL file
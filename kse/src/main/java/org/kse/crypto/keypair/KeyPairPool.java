@@ -0,0 +1,242 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keypair;
+
+import java.security.KeyPair;
+import java.security.Provider;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.kse.crypto.CryptoException;
+import org.kse.gui.preferences.data.KeyGenerationSettings;
+
+/**
+ * Pool of key pairs that are generated in the background for the default key
+ * pair type and size, so that generating a key pair with these parameters
+ * completes instantly. Only RSA and DSA key pairs are pooled, as their
+ * generation is slow, and only for the default provider. The key pairs are
+ * kept in memory only and are discarded when the parameters change.
+ */
+public class KeyPairPool {
+    private static KeyPairPool instance;
+
+    private final Deque<KeyPair> keyPairs = new ArrayDeque<>();
+
+    private boolean enabled;
+    private KeyPairType keyPairType;
+    private int keySize;
+    private int depth;
+
+    // incremented whenever the parameters change, so that a running refill drops outdated key pairs
+    private long generation;
+
+    private long hits;
+    private long misses;
+
+    private ExecutorService executor;
+    private boolean refilling;
+
+    KeyPairPool() {
+    }
+
+    /**
+     * Get the singleton instance of the pool.
+     *
+     * @return The pool
+     */
+    public static synchronized KeyPairPool getInstance() {
+        if (instance == null) {
+            instance = new KeyPairPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Configure the pool from the key generation defaults.
+     *
+     * @param settings Key generation defaults
+     */
+    public void configure(KeyGenerationSettings settings) {
+        KeyPairType type = settings.getKeyPairType();
+        int size = type == KeyPairType.DSA ? settings.getKeyPairSizeDSA() : settings.getKeyPairSizeRSA();
+
+        configure(settings.isKeyPairPoolEnabled(), type, size, settings.getKeyPairPoolDepth());
+    }
+
+    /**
+     * Configure the pool. If the key pair parameters change, all pooled key
+     * pairs are discarded and the pool is refilled in the background.
+     *
+     * @param enabled     Whether key pairs are pooled at all
+     * @param keyPairType Key pair type to pool
+     * @param keySize     Key size to pool
+     * @param depth       Number of key pairs to keep ready
+     */
+    public synchronized void configure(boolean enabled, KeyPairType keyPairType, int keySize, int depth) {
+        boolean poolable = enabled && depth > 0 && (keyPairType == KeyPairType.RSA || keyPairType == KeyPairType.DSA);
+
+        if (!poolable) {
+            this.enabled = false;
+            this.depth = 0;
+            keyPairs.clear();
+            generation++;
+            return;
+        }
+
+        if (!this.enabled || this.keyPairType != keyPairType || this.keySize != keySize) {
+            keyPairs.clear();
+            generation++;
+        }
+
+        this.enabled = true;
+        this.keyPairType = keyPairType;
+        this.keySize = keySize;
+        this.depth = depth;
+
+        while (keyPairs.size() > depth) {
+            keyPairs.removeLast();
+        }
+
+        refill();
+    }
+
+    /**
+     * Take a pooled key pair with the supplied parameters.
+     *
+     * @param keyPairType Key pair type
+     * @param keySize     Key size
+     * @param provider    Crypto provider the key pair is generated with
+     * @return A key pair or null if none is available, in which case the
+     *         caller has to generate the key pair itself
+     */
+    public synchronized KeyPair take(KeyPairType keyPairType, int keySize, Provider provider) {
+        if (!enabled) {
+            return null;
+        }
+
+        // key pairs for explicit providers (e.g. PKCS#11 tokens) have to be generated by the provider
+        if (provider != null || this.keyPairType != keyPairType || this.keySize != keySize) {
+            misses++;
+            return null;
+        }
+
+        KeyPair keyPair = keyPairs.pollFirst();
+
+        if (keyPair == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        refill();
+        return keyPair;
+    }
+
+    /**
+     * Get the number of key pairs that are ready to be taken.
+     *
+     * @return Number of pooled key pairs
+     */
+    public synchronized int getAvailable() {
+        return keyPairs.size();
+    }
+
+    /**
+     * Get the number of key pairs the pool keeps ready.
+     *
+     * @return Pool depth, 0 if the pool is disabled
+     */
+    public synchronized int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of requests that were served from the pool.
+     *
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of requests that could not be served from the pool.
+     *
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private void refill() {
+        if (refilling || keyPairs.size() >= depth) {
+            return;
+        }
+
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "KeyPairPool-Refill");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+
+        refilling = true;
+        executor.submit(this::refillLoop);
+    }
+
+    private void refillLoop() {
+        while (true) {
+            KeyPairType type;
+            int size;
+            long currentGeneration;
+
+            synchronized (this) {
+                if (!enabled || keyPairs.size() >= depth) {
+                    refilling = false;
+                    return;
+                }
+                type = keyPairType;
+                size = keySize;
+                currentGeneration = generation;
+            }
+
+            KeyPair keyPair;
+            try {
+                keyPair = KeyPairUtil.generateKeyPair(type, size, null);
+            } catch (CryptoException ex) {
+                // parameters not supported, callers will generate their key pairs themselves
+                synchronized (this) {
+                    refilling = false;
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (currentGeneration == generation && keyPairs.size() < depth) {
+                    keyPairs.addLast(keyPair);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.kse.crypto.keystore.KeyStoreSearchIndex.Entry;
+import org.kse.gui.preferences.PreferencesManager;
+
+/**
+ * Index of the certificate metadata found in the KeyStore and certificate
+ * files of a directory tree. The metadata of a file is stored together with
+ * the size and modification time the file had when it was read, and is only
+ * used as long as both are unchanged. The index can be persisted, so that
+ * unchanged files do not have to be opened again after a restart.
+ */
+public class KeyStoreCorpusIndex {
+    private static KeyStoreCorpusIndex instance;
+
+    private static final String INDEX_FILE_NAME = "keystore-index.bin";
+    // version 2: strings are length-prefixed UTF-8, as modified UTF-8 is limited to 64 KB
+    private static final int FILE_FORMAT_VERSION = 2;
+
+    private final File file;
+    private boolean loaded;
+    private boolean modified;
+
+    private final Map<String, IndexedFile> files = new HashMap<>();
+
+    /**
+     * Construct index.
+     *
+     * @param file File the index is persisted to or null for a memory-only index
+     */
+    public KeyStoreCorpusIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the shared index, persisted in the config directory.
+     *
+     * @return The index
+     */
+    public static synchronized KeyStoreCorpusIndex getInstance() {
+        if (instance == null) {
+            File indexFile;
+            try {
+                indexFile = new File(PreferencesManager.getConfigDirectory(), INDEX_FILE_NAME);
+            } catch (IOException ex) {
+                indexFile = null;
+            }
+            instance = new KeyStoreCorpusIndex(indexFile);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the indexed entries of a file, if the file did not change since it
+     * was indexed.
+     *
+     * @param indexedFile  File
+     * @param size         Current size of the file
+     * @param lastModified Current modification time of the file
+     * @return Entries of the file, empty if it holds no certificates, or null if
+     *         the file is not indexed or changed
+     */
+    public synchronized List<Entry> get(File indexedFile, long size, long lastModified) {
+        load();
+
+        IndexedFile indexed = files.get(indexedFile.getAbsolutePath());
+        if (indexed == null || indexed.size != size || indexed.lastModified != lastModified) {
+            return null;
+        }
+        return indexed.entries;
+    }
+
+    /**
+     * Add or replace the entries of a file.
+     *
+     * @param indexedFile  File
+     * @param size         Size of the file when it was read
+     * @param lastModified Modification time of the file when it was read
+     * @param entries      Entries of the file, empty if it holds no certificates
+     */
+    public synchronized void put(File indexedFile, long size, long lastModified, List<Entry> entries) {
+        load();
+
+        files.put(indexedFile.getAbsolutePath(),
+                  new IndexedFile(size, lastModified, Collections.unmodifiableList(new ArrayList<>(entries))));
+        modified = true;
+    }
+
+    /**
+     * Remove the files of a directory tree that are not among the given files,
+     * e.g. because they were deleted since they were indexed.
+     *
+     * @param directory Root of the directory tree
+     * @param existing  Files still present in the directory tree
+     */
+    public synchronized void retain(File directory, Set<File> existing) {
+        load();
+
+        String prefix = directory.getAbsolutePath() + File.separator;
+
+        Set<String> existingPaths = new HashSet<>();
+        for (File existingFile : existing) {
+            existingPaths.add(existingFile.getAbsolutePath());
+        }
+
+        modified |= files.keySet().removeIf(path -> path.startsWith(prefix) && !existingPaths.contains(path));
+    }
+
+    /**
+     * Remove all indexed files.
+     */
+    public synchronized void clear() {
+        loaded = true;
+        files.clear();
+        modified = true;
+    }
+
+    /**
+     * Get the number of indexed files.
+     *
+     * @return Number of files
+     */
+    public synchronized int size() {
+        load();
+        return files.size();
+    }
+
+    /**
+     * Write the index to its file, if it was modified. The index is written
+     * to a temporary file first, which then replaces the file, so that a
+     * failed write does not destroy the existing index.
+     *
+     * @throws IOException If the file could not be written
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !modified) {
+            return;
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        File tempFile = File.createTempFile("." + file.getName() + ".", ".tmp", parent);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(files.size());
+
+                for (Map.Entry<String, IndexedFile> indexed : files.entrySet()) {
+                    writeString(indexed.getKey(), out);
+                    out.writeLong(indexed.getValue().size);
+                    out.writeLong(indexed.getValue().lastModified);
+                    out.writeInt(indexed.getValue().entries.size());
+
+                    for (Entry entry : indexed.getValue().entries) {
+                        writeEntry(entry, out);
+                    }
+                }
+            }
+
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+
+        modified = false;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        if (file == null || !file.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_FORMAT_VERSION) {
+                return;
+            }
+
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String path = readString(in);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+
+                int entryCount = in.readInt();
+                List<Entry> entries = new ArrayList<>(entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    entries.add(readEntry(in));
+                }
+
+                files.put(path, new IndexedFile(size, lastModified, Collections.unmodifiableList(entries)));
+            }
+        } catch (IOException | RuntimeException ex) {
+            // corrupt index file, start with an empty index
+            files.clear();
+        }
+
+        modified = false;
+    }
+
+    private static void writeEntry(Entry entry, DataOutputStream out) throws IOException {
+        writeString(entry.alias, out);
+        writeString(entry.fingerprint, out);
+        writeString(entry.subject, out);
+        writeString(entry.serialNumber, out);
+        out.writeLong(entry.notAfter);
+        writeStrings(entry.terms, out);
+        writeStrings(entry.identifiers, out);
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        return new Entry(readString(in), readString(in), readString(in), readString(in), in.readLong(),
+                         readStrings(in), readStrings(in));
+    }
+
+    private static void writeStrings(String[] strings, DataOutputStream out) throws IOException {
+        out.writeInt(strings.length);
+        for (String string : strings) {
+            writeString(string, out);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        return strings;
+    }
+
+    private static void writeString(String string, DataOutputStream out) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class IndexedFile {
+        private final long size;
+        private final long lastModified;
+        private final List<Entry> entries;
+
+        IndexedFile(long size, long lastModified, List<Entry> entries) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,602 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.util.encoders.Hex;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.digest.DigestType;
+import org.kse.crypto.digest.DigestUtil;
+import org.kse.crypto.x509.X500NameUtils;
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.crypto.x509.X509Ext;
+
+/**
+ * In-memory search index over the entries of a KeyStore.
+ * <p>
+ * Text terms are the alias, subject and issuer DN and the values of the
+ * subject alternative name. They are matched by substring, queries with at
+ * least three characters through a trigram index over the distinct terms.
+ * Identifiers are serial number (hex and decimal), SHA-1 and SHA-256
+ * fingerprint, subject and authority key identifier. They are matched by
+ * prefix, ignoring case, colons, blanks and dashes, through a sorted map.
+ * </p>
+ * <p>
+ * {@link #update(KeyStore)} only re-indexes entries whose certificate changed.
+ * The index is not thread-safe.
+ * </p>
+ */
+public class KeyStoreSearchIndex {
+
+    private static final int MIN_COMPACT_SIZE = 64;
+    private static final int MAX_UNVERIFIED_CANDIDATES = 32;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final List<Entry> entriesById = new ArrayList<>();
+    private int removedEntries;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<IntList> termEntries = new ArrayList<>();
+    private final Map<String, IntList> trigramTerms = new HashMap<>();
+    private final TreeMap<String, IntList> identifiers = new TreeMap<>();
+
+    /**
+     * The searchable metadata of a KeyStore entry, extracted from its certificate.
+     */
+    public static final class Entry {
+        final String alias;
+        final String fingerprint;
+        final String subject;
+        final String serialNumber;
+        final long notAfter;
+        final String[] terms;
+        final String[] identifiers;
+        int id;
+
+        Entry(String alias, String fingerprint, String subject, String serialNumber, long notAfter, String[] terms,
+              String[] identifiers) {
+            this.alias = alias;
+            this.fingerprint = fingerprint;
+            this.subject = subject;
+            this.serialNumber = serialNumber;
+            this.notAfter = notAfter;
+            this.terms = terms;
+            this.identifiers = identifiers;
+        }
+
+        /**
+         * Get the alias of the entry.
+         *
+         * @return Alias
+         */
+        public String getAlias() {
+            return alias;
+        }
+
+        /**
+         * Get the subject DN of the certificate.
+         *
+         * @return Subject DN or an empty string for a key entry
+         */
+        public String getSubject() {
+            return subject;
+        }
+
+        /**
+         * Get the serial number of the certificate.
+         *
+         * @return Serial number as hex or an empty string for a key entry
+         */
+        public String getSerialNumber() {
+            return serialNumber;
+        }
+
+        /**
+         * Get the expiry date of the certificate.
+         *
+         * @return Expiry date or null for a key entry
+         */
+        public Date getNotAfter() {
+            return notAfter == 0 ? null : new Date(notAfter);
+        }
+    }
+
+    /**
+     * Growable list of ints, ascending as ids are only ever appended.
+     */
+    private static class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        IntList intersect(IntList other) {
+            IntList result = new IntList();
+
+            // look up the few values of a short list in a long one instead of walking both
+            if (size * 8 < other.size) {
+                for (int i = 0; i < size; i++) {
+                    if (Arrays.binarySearch(other.values, 0, other.size, values[i]) >= 0) {
+                        result.add(values[i]);
+                    }
+                }
+                return result;
+            }
+
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (values[i] < other.values[j]) {
+                    i++;
+                } else if (values[i] > other.values[j]) {
+                    j++;
+                } else {
+                    result.add(values[i]);
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Bring the index in line with the entries of a KeyStore.
+     *
+     * @param keyStore KeyStore
+     * @throws KeyStoreException If the KeyStore cannot be accessed
+     * @throws CryptoException   If a certificate cannot be processed
+     */
+    public void update(KeyStore keyStore) throws KeyStoreException, CryptoException {
+        Set<String> aliases = new HashSet<>();
+
+        Enumeration<String> enumeration = keyStore.aliases();
+        while (enumeration.hasMoreElements()) {
+            String alias = enumeration.nextElement();
+            aliases.add(alias);
+            put(alias, getCertificate(alias, keyStore));
+        }
+
+        for (String alias : new ArrayList<>(entries.keySet())) {
+            if (!aliases.contains(alias)) {
+                remove(alias);
+            }
+        }
+    }
+
+    /**
+     * Add or replace an entry. Nothing happens if the entry is indexed with the same certificate already.
+     *
+     * @param alias Alias
+     * @param cert  Certificate of the entry, null for a key entry
+     * @throws CryptoException If the certificate cannot be processed
+     */
+    public void put(String alias, X509Certificate cert) throws CryptoException {
+        byte[] encoded = getEncoded(cert);
+        String fingerprint = getFingerprint(encoded);
+
+        Entry existing = entries.get(alias);
+        if (existing != null && existing.fingerprint.equals(fingerprint)) {
+            return;
+        }
+
+        put(describe(alias, cert, encoded, fingerprint));
+    }
+
+    /**
+     * Add or replace an entry with metadata extracted before. An entry can only
+     * be part of one index.
+     *
+     * @param entry Entry
+     */
+    public void put(Entry entry) {
+        remove(entry.alias);
+        add(entry);
+    }
+
+    /**
+     * Get the metadata of an entry.
+     *
+     * @param alias Alias
+     * @return Entry or null if the alias is not indexed
+     */
+    public Entry get(String alias) {
+        return entries.get(alias);
+    }
+
+    /**
+     * Extract the searchable metadata of a KeyStore entry.
+     *
+     * @param alias Alias
+     * @param cert  Certificate of the entry, null for a key entry
+     * @return Entry, not added to any index
+     * @throws CryptoException If the certificate cannot be processed
+     */
+    public static Entry describe(String alias, X509Certificate cert) throws CryptoException {
+        byte[] encoded = getEncoded(cert);
+        return describe(alias, cert, encoded, getFingerprint(encoded));
+    }
+
+    private static Entry describe(String alias, X509Certificate cert, byte[] encoded, String fingerprint)
+            throws CryptoException {
+        Set<String> entryTerms = new LinkedHashSet<>();
+        Set<String> entryIdentifiers = new LinkedHashSet<>();
+        entryTerms.add(alias.toLowerCase(Locale.ROOT));
+
+        if (cert == null) {
+            return new Entry(alias, fingerprint, "", "", 0, entryTerms.toArray(new String[0]), new String[0]);
+        }
+
+        String subject = X500NameUtils.x500PrincipalToX500Name(cert.getSubjectX500Principal()).toString();
+        entryTerms.add(subject.toLowerCase(Locale.ROOT));
+        addCertificateTerms(cert, entryTerms);
+
+        String serialNumber = cert.getSerialNumber().toString(16);
+        entryIdentifiers.add(serialNumber);
+        entryIdentifiers.add(X509CertUtil.getSerialNumberAsDec(cert));
+        entryIdentifiers.add(fingerprint);
+        entryIdentifiers.add(hex(DigestUtil.getMessageDigest(encoded, DigestType.SHA1)));
+        addKeyIdentifiers(cert, entryIdentifiers);
+
+        return new Entry(alias, fingerprint, subject, serialNumber, cert.getNotAfter().getTime(),
+                         entryTerms.toArray(new String[0]), entryIdentifiers.toArray(new String[0]));
+    }
+
+    /**
+     * Remove an entry.
+     *
+     * @param alias Alias
+     */
+    public void remove(String alias) {
+        Entry entry = entries.remove(alias);
+        if (entry == null) {
+            return;
+        }
+
+        // postings still refer to the id, they are skipped as long as the slot is empty
+        entriesById.set(entry.id, null);
+        removedEntries++;
+
+        if (removedEntries > MIN_COMPACT_SIZE && removedEntries > entries.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Get the number of indexed entries.
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Find the entries that match a query. All words of the query have to
+     * match a text term or an identifier. The query as a whole may also match
+     * an identifier, so fingerprints can be pasted with blanks.
+     * <p>
+     * The result is a view that is only valid until the index is changed.
+     * </p>
+     *
+     * @param query Query
+     * @return Aliases of the matching entries
+     */
+    public Set<String> search(String query) {
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return new HashSet<>(entries.keySet());
+        }
+
+        BitSet matches = null;
+        for (String word : normalized.split("\\s+")) {
+            BitSet wordMatches = searchTerms(word);
+            wordMatches.or(searchIdentifiers(word));
+
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+        }
+        matches.or(searchIdentifiers(normalized));
+
+        return new MatchSet(matches);
+    }
+
+    /**
+     * Read-only view of a search result, so large results are not copied into a hash set.
+     */
+    private class MatchSet extends AbstractSet<String> {
+        private final BitSet ids;
+
+        MatchSet(BitSet ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean contains(Object alias) {
+            Entry entry = entries.get(alias);
+            return entry != null && ids.get(entry.id);
+        }
+
+        @Override
+        public int size() {
+            return ids.cardinality();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return ids.stream().mapToObj(id -> entriesById.get(id).alias).iterator();
+        }
+    }
+
+    private BitSet searchTerms(String word) {
+        BitSet matches = new BitSet();
+
+        if (word.length() < 3) {
+            for (int termId = 0; termId < terms.size(); termId++) {
+                if (terms.get(termId).contains(word)) {
+                    addLiveEntries(termEntries.get(termId), matches);
+                }
+            }
+            return matches;
+        }
+
+        List<IntList> termLists = new ArrayList<>();
+        for (int i = 0; i + 3 <= word.length(); i++) {
+            IntList termList = trigramTerms.get(word.substring(i, i + 3));
+            if (termList == null) {
+                return matches;
+            }
+            termLists.add(termList);
+        }
+        termLists.sort(Comparator.comparingInt(termList -> termList.size));
+
+        // start with the rarest trigram, a handful of candidates is cheaper to verify than to narrow down further
+        IntList candidates = termLists.get(0);
+        for (int i = 1; i < termLists.size() && candidates.size > MAX_UNVERIFIED_CANDIDATES; i++) {
+            candidates = candidates.intersect(termLists.get(i));
+        }
+
+        for (int i = 0; i < candidates.size; i++) {
+            int termId = candidates.values[i];
+            if (terms.get(termId).contains(word)) {
+                addLiveEntries(termEntries.get(termId), matches);
+            }
+        }
+        return matches;
+    }
+
+    private BitSet searchIdentifiers(String word) {
+        BitSet matches = new BitSet();
+
+        String identifier = normalizeIdentifier(word);
+        if (identifier.isEmpty() || !isHex(identifier)) {
+            return matches;
+        }
+
+        addIdentifierMatches(identifier, matches);
+
+        // serial numbers are indexed without leading zeros
+        String stripped = identifier.replaceFirst("^0+(?=.)", "");
+        if (!stripped.equals(identifier)) {
+            addIdentifierMatches(stripped, matches);
+        }
+        return matches;
+    }
+
+    private void addIdentifierMatches(String prefix, BitSet matches) {
+        for (IntList ids : identifiers.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            addLiveEntries(ids, matches);
+        }
+    }
+
+    private void addLiveEntries(IntList ids, BitSet matches) {
+        for (int i = 0; i < ids.size; i++) {
+            if (entriesById.get(ids.values[i]) != null) {
+                matches.set(ids.values[i]);
+            }
+        }
+    }
+
+    private void add(Entry entry) {
+        entry.id = entriesById.size();
+        entriesById.add(entry);
+        entries.put(entry.alias, entry);
+
+        for (String term : entry.terms) {
+            Integer termId = termIds.get(term);
+            if (termId == null) {
+                termId = terms.size();
+                termIds.put(term, termId);
+                terms.add(term);
+                termEntries.add(new IntList());
+
+                Set<String> trigrams = new HashSet<>();
+                for (int i = 0; i + 3 <= term.length(); i++) {
+                    trigrams.add(term.substring(i, i + 3));
+                }
+                for (String trigram : trigrams) {
+                    trigramTerms.computeIfAbsent(trigram, t -> new IntList()).add(termId);
+                }
+            }
+            termEntries.get(termId).add(entry.id);
+        }
+
+        for (String identifier : entry.identifiers) {
+            identifiers.computeIfAbsent(identifier, i -> new IntList()).add(entry.id);
+        }
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>(entries.values());
+
+        entries.clear();
+        entriesById.clear();
+        removedEntries = 0;
+        termIds.clear();
+        terms.clear();
+        termEntries.clear();
+        trigramTerms.clear();
+        identifiers.clear();
+
+        for (Entry entry : live) {
+            add(entry);
+        }
+    }
+
+    private static void addCertificateTerms(X509Certificate cert, Set<String> entryTerms) throws CryptoException {
+        entryTerms.add(X500NameUtils.x500PrincipalToX500Name(cert.getIssuerX500Principal()).toString()
+                                    .toLowerCase(Locale.ROOT));
+
+        Collection<List<?>> subjectAltNames;
+        try {
+            subjectAltNames = cert.getSubjectAlternativeNames();
+        } catch (CertificateParsingException ex) {
+            throw new CryptoException(ex);
+        }
+
+        if (subjectAltNames != null) {
+            for (List<?> generalName : subjectAltNames) {
+                // other names, X.400 addresses and EDI party names come as DER encoding
+                if (generalName.size() > 1 && generalName.get(1) instanceof String) {
+                    entryTerms.add(((String) generalName.get(1)).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+    }
+
+    private static void addKeyIdentifiers(X509Certificate cert, Set<String> entryIdentifiers) {
+        byte[] ski = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (ski != null) {
+            try {
+                entryIdentifiers.add(hex(SubjectKeyIdentifier.getInstance(X509Ext.unwrapExtension(ski))
+                                                             .getKeyIdentifier()));
+            } catch (IllegalArgumentException ex) {
+                // malformed extension, not searchable
+            }
+        }
+
+        byte[] aki = cert.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (aki != null) {
+            try {
+                byte[] keyIdentifier = AuthorityKeyIdentifier.getInstance(X509Ext.unwrapExtension(aki))
+                                                             .getKeyIdentifier();
+                if (keyIdentifier != null) {
+                    entryIdentifiers.add(hex(keyIdentifier));
+                }
+            } catch (IllegalArgumentException ex) {
+                // malformed extension, not searchable
+            }
+        }
+    }
+
+    private static byte[] getEncoded(X509Certificate cert) throws CryptoException {
+        if (cert == null) {
+            return null;
+        }
+
+        try {
+            return cert.getEncoded();
+        } catch (CertificateEncodingException ex) {
+            throw new CryptoException(ex);
+        }
+    }
+
+    private static String getFingerprint(byte[] encoded) throws CryptoException {
+        return encoded == null ? "" : hex(DigestUtil.getMessageDigest(encoded, DigestType.SHA256));
+    }
+
+    /**
+     * Get the certificate an entry is searched by: the certificate of a trusted
+     * certificate entry or the first certificate of a key pair's chain.
+     *
+     * @param alias    Alias
+     * @param keyStore KeyStore
+     * @return Certificate or null for a key entry
+     * @throws KeyStoreException If the KeyStore cannot be accessed
+     * @throws CryptoException   If the certificate cannot be processed
+     */
+    static X509Certificate getCertificate(String alias, KeyStore keyStore)
+            throws KeyStoreException, CryptoException {
+        if (KeyStoreUtil.isTrustedCertificateEntry(alias, keyStore)) {
+            return X509CertUtil.convertCertificate(keyStore.getCertificate(alias));
+        }
+
+        Certificate[] chain = keyStore.getCertificateChain(alias);
+        if (chain == null || chain.length == 0) {
+            return null;
+        }
+
+        // Key pair - first certificate in chain will be for the private key
+        return X509CertUtil.orderX509CertChain(X509CertUtil.convertCertificates(chain))[0];
+    }
+
+    static String normalizeIdentifier(String identifier) {
+        String normalized = identifier.replaceAll("[:\\s-]", "");
+        return normalized.startsWith("0x") ? normalized.substring(2) : normalized;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hex(byte[] bytes) {
+        return Hex.toHexString(bytes);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import java.io.File;
+import java.util.List;
+
+import org.kse.crypto.keystore.KeyStoreSearchIndex.Entry;
+
+/**
+ * Outcome of searching a single KeyStore or certificate file.
+ */
+public class KeyStoreSearchResult {
+
+    /**
+     * How the entries of the KeyStore were obtained.
+     */
+    public enum Status {
+        /** KeyStore is open in KSE and was searched as currently edited */
+        OPEN,
+        /** File was read, as it was not indexed before or changed since */
+        INDEXED,
+        /** File did not change and was searched in the index */
+        CACHED,
+        /** KeyStore could not be opened without a password */
+        LOCKED,
+        /** File could not be read */
+        FAILED
+    }
+
+    private final String name;
+    private final File file;
+    private final Status status;
+    private final List<Entry> matches;
+    private final String message;
+
+    /**
+     * Construct result.
+     *
+     * @param name    Name of the KeyStore, the path for files
+     * @param file    File of the KeyStore, may be null for a KeyStore that is open but was never saved
+     * @param status  Status
+     * @param matches Entries that match the query
+     * @param message Details, may be null
+     */
+    public KeyStoreSearchResult(String name, File file, Status status, List<Entry> matches, String message) {
+        this.name = name;
+        this.file = file;
+        this.status = status;
+        this.matches = matches;
+        this.message = message;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public List<Entry> getMatches() {
+        return matches;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.commons.io.FileUtils;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.filetype.CryptoFileUtil;
+import org.kse.crypto.keystore.KeyStoreSearchIndex.Entry;
+import org.kse.crypto.keystore.KeyStoreSearchResult.Status;
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.gui.passwordmanager.Password;
+
+/**
+ * Searches the KeyStore and certificate files of a directory tree for
+ * certificates. The files are read concurrently and their certificate metadata
+ * is kept in a {@link KeyStoreCorpusIndex}, so files that did not change since
+ * an earlier search are not opened again.
+ */
+public class KeyStoreSearcher {
+
+    /**
+     * Default number of files that are read at the same time.
+     */
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // larger files are not expected to be KeyStores or certificates
+    static final long MAX_FILE_SIZE = 4 * 1024 * 1024L;
+
+    private final KeyStoreCorpusIndex index;
+    private final int threads;
+    private final Function<File, Password> passwords;
+
+    /**
+     * Construct searcher.
+     *
+     * @param index     Index of the files read before
+     * @param threads   Number of files that are read at the same time
+     * @param passwords Supplies the password of a KeyStore file or null if it is not known
+     */
+    public KeyStoreSearcher(KeyStoreCorpusIndex index, int threads, Function<File, Password> passwords) {
+        this.index = index;
+        this.threads = Math.max(1, threads);
+        this.passwords = passwords;
+    }
+
+    /**
+     * List the files of a directory tree that may hold KeyStores or
+     * certificates. Files that were indexed before but no longer exist are
+     * removed from the index.
+     *
+     * @param directory Root of the directory tree
+     * @return Files in path order
+     * @throws IOException If the directory cannot be read
+     */
+    public List<File> listFiles(File directory) throws IOException {
+        List<File> files = new ArrayList<>();
+
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && attributes.size() <= MAX_FILE_SIZE) {
+                    files.add(path.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException ex) {
+                // unreadable subdirectories are skipped, not the whole tree
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(files);
+        index.retain(directory, new HashSet<>(files));
+        return files;
+    }
+
+    /**
+     * Search files. Blocks until all files have been searched, then saves the
+     * index.
+     *
+     * @param files    Files to search
+     * @param query    Query, see {@link KeyStoreSearchIndex#search(String)}
+     * @param listener Receives the result of each file as soon as it is available
+     * @throws InterruptedException If the calling thread was interrupted, in
+     *                              which case the remaining files are skipped
+     */
+    public void search(List<File> files, String query, Consumer<KeyStoreSearchResult> listener)
+            throws InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "KeyStoreSearcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())),
+                                                                threadFactory);
+
+        try {
+            for (File file : files) {
+                executor.submit(() -> listener.accept(search(file, query)));
+            }
+
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting, interruption ends the wait
+            }
+        } finally {
+            executor.shutdownNow();
+
+            try {
+                index.save();
+            } catch (IOException ex) {
+                // the metadata is still indexed in memory
+            }
+        }
+    }
+
+    /**
+     * Search a single file. The file is only read if it is not indexed yet or
+     * changed since.
+     *
+     * @param file  File
+     * @param query Query, see {@link KeyStoreSearchIndex#search(String)}
+     * @return Result
+     */
+    public KeyStoreSearchResult search(File file, String query) {
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        Status status = Status.CACHED;
+        List<Entry> entries = index.get(file, size, lastModified);
+
+        if (entries == null) {
+            status = Status.INDEXED;
+
+            try {
+                entries = readEntries(file);
+            } catch (IOException | CryptoException | KeyStoreException ex) {
+                String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+                return new KeyStoreSearchResult(file.getPath(), file, Status.FAILED, Collections.emptyList(), message);
+            }
+
+            // locked KeyStores are tried again, their password may become known
+            if (entries == null) {
+                return new KeyStoreSearchResult(file.getPath(), file, Status.LOCKED, Collections.emptyList(), null);
+            }
+
+            index.put(file, size, lastModified, entries);
+        }
+
+        KeyStoreSearchIndex searchIndex = new KeyStoreSearchIndex();
+        for (Entry entry : entries) {
+            searchIndex.put(entry);
+        }
+
+        return new KeyStoreSearchResult(file.getPath(), file, status, search(searchIndex, query), null);
+    }
+
+    /**
+     * Search an index and get the metadata of the matching entries.
+     *
+     * @param searchIndex Index
+     * @param query       Query, see {@link KeyStoreSearchIndex#search(String)}
+     * @return Matching entries
+     */
+    public static List<Entry> search(KeyStoreSearchIndex searchIndex, String query) {
+        List<Entry> matches = new ArrayList<>();
+        for (String alias : searchIndex.search(query)) {
+            matches.add(searchIndex.get(alias));
+        }
+        return matches;
+    }
+
+    private List<Entry> readEntries(File file) throws IOException, CryptoException, KeyStoreException {
+        byte[] data = FileUtils.readFileToByteArray(file);
+
+        KeyStoreType keyStoreType = CryptoFileUtil.detectKeyStoreType(data);
+        if (keyStoreType != null) {
+            KeyStore keyStore = load(file, keyStoreType);
+            if (keyStore == null) {
+                return null;
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                entries.add(KeyStoreSearchIndex.describe(alias, KeyStoreSearchIndex.getCertificate(alias, keyStore)));
+            }
+            return entries;
+        }
+
+        X509Certificate[] certs;
+        try {
+            certs = X509CertUtil.loadCertificates(data);
+        } catch (CryptoException | RuntimeException ex) {
+            // neither a KeyStore nor a certificate file, indexed without entries so it is not read again
+            return Collections.emptyList();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        Set<String> aliases = new HashSet<>();
+        for (X509Certificate cert : certs) {
+            String baseAlias = X509CertUtil.getCertificateAlias(cert);
+            String alias = baseAlias;
+            for (int i = 2; !aliases.add(alias); i++) {
+                alias = baseAlias + " (" + i + ")";
+            }
+            entries.add(KeyStoreSearchIndex.describe(alias, cert));
+        }
+        return entries;
+    }
+
+    private KeyStore load(File file, KeyStoreType keyStoreType) throws IOException, CryptoException {
+        Password password = passwords.apply(file);
+
+        // without a password, JKS and JCEKS are read without integrity check and PKCS #12 may have an empty one
+        if (password == null) {
+            try {
+                return KeyStoreUtil.load(file, new Password(new char[0]), keyStoreType);
+            } catch (KeyStoreLoadException ex) {
+                return null;
+            }
+        }
+
+        return KeyStoreUtil.load(file, password, keyStoreType);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.ocsp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.kse.gui.preferences.PreferencesManager;
+
+/**
+ * Cache of OCSP responses, keyed by the certificate ID of the single responses
+ * they contain. A cached response is only used within its validity window
+ * (thisUpdate to nextUpdate) and its signature is verified again against the
+ * issuer every time it is taken from the cache. The cache can be persisted, so
+ * that responses survive a restart.
+ */
+public class OcspResponseCache {
+    private static OcspResponseCache instance;
+
+    private static final String CACHE_FILE_NAME = "ocsp-cache.bin";
+    private static final int FILE_FORMAT_VERSION = 1;
+
+    // responses without nextUpdate only reflect the status at thisUpdate
+    private static final long MAX_AGE_WITHOUT_NEXT_UPDATE = 5 * 60 * 1000L;
+
+    // allowed difference between our clock and the responder's
+    private static final long CLOCK_SKEW = 5 * 60 * 1000L;
+
+    private static final int MAX_ENTRIES = 1000;
+
+    private final File file;
+    private boolean loaded;
+    private boolean modified;
+
+    private final Map<CertificateID, CachedResponse> responses = new LinkedHashMap<CertificateID, CachedResponse>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CertificateID, CachedResponse> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Construct cache.
+     *
+     * @param file File the cache is persisted to or null for a memory-only cache
+     */
+    public OcspResponseCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Get the shared cache, persisted in the config directory.
+     *
+     * @return The cache
+     */
+    public static synchronized OcspResponseCache getInstance() {
+        if (instance == null) {
+            File cacheFile;
+            try {
+                cacheFile = new File(PreferencesManager.getConfigDirectory(), CACHE_FILE_NAME);
+            } catch (IOException ex) {
+                cacheFile = null;
+            }
+            instance = new OcspResponseCache(cacheFile);
+        }
+        return instance;
+    }
+
+    /**
+     * Get a cached OCSP response for a certificate. The response is only
+     * returned if it is current and its signature can be verified with the
+     * issuer or a responder delegated by the issuer. Responses failing these
+     * checks are evicted.
+     *
+     * @param certId     Certificate ID of the certificate
+     * @param issuerCert Issuer of the certificate
+     * @param now        Current date
+     * @return Cached response or null
+     */
+    public synchronized OCSPResp get(CertificateID certId, X509Certificate issuerCert, Date now) {
+        load();
+
+        CachedResponse cached = responses.get(certId);
+
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+
+        if (!cached.isCurrent(now) || !OcspUtil.isSignatureValid(cached.basicResp, issuerCert, now)) {
+            responses.remove(certId);
+            modified = true;
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return cached.response;
+    }
+
+    /**
+     * Add an OCSP response to the cache. Each of its current single responses
+     * is cached under its certificate ID. Unsuccessful responses and responses
+     * whose signature cannot be verified with the issuer are not cached.
+     *
+     * @param response   OCSP response
+     * @param issuerCert Issuer of the certificates the response is about
+     * @param now        Current date
+     * @return True if the response was cached
+     */
+    public synchronized boolean put(OCSPResp response, X509Certificate issuerCert, Date now) {
+        load();
+
+        BasicOCSPResp basicResp = getBasicResponse(response);
+
+        if (basicResp == null || !OcspUtil.isSignatureValid(basicResp, issuerCert, now)) {
+            return false;
+        }
+
+        return index(response, basicResp, now);
+    }
+
+    /**
+     * Remove all cached responses.
+     */
+    public synchronized void clear() {
+        loaded = true;
+        responses.clear();
+        modified = true;
+    }
+
+    /**
+     * Get the number of certificates with a cached response.
+     *
+     * @return Number of cached entries
+     */
+    public synchronized int size() {
+        load();
+        return responses.size();
+    }
+
+    /**
+     * Get the number of lookups served from the cache.
+     *
+     * @return Number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups not served from the cache.
+     *
+     * @return Number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Write the cache to its file, if it was modified. Expired responses are
+     * dropped.
+     *
+     * @throws IOException If the file could not be written
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !modified) {
+            return;
+        }
+
+        Date now = new Date();
+        responses.values().removeIf(cached -> !cached.isCurrent(now));
+
+        // several certificate IDs can share one response, which is stored only once
+        Map<OCSPResp, Boolean> distinct = new IdentityHashMap<>();
+        for (CachedResponse cached : responses.values()) {
+            distinct.put(cached.response, Boolean.TRUE);
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_FORMAT_VERSION);
+            out.writeInt(distinct.size());
+
+            for (OCSPResp response : distinct.keySet()) {
+                byte[] encoded = response.getEncoded();
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        }
+
+        modified = false;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        if (file == null || !file.isFile()) {
+            return;
+        }
+
+        Date now = new Date();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_FORMAT_VERSION) {
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+
+                OCSPResp response = new OCSPResp(encoded);
+                BasicOCSPResp basicResp = getBasicResponse(response);
+
+                // signatures are verified on lookup, when the issuer is known
+                if (basicResp != null) {
+                    index(response, basicResp, now);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            // corrupt cache file, start with an empty cache
+            responses.clear();
+        }
+
+        modified = false;
+    }
+
+    private boolean index(OCSPResp response, BasicOCSPResp basicResp, Date now) {
+        boolean cached = false;
+
+        for (SingleResp singleResp : basicResp.getResponses()) {
+            CachedResponse entry = new CachedResponse(response, basicResp, singleResp);
+
+            if (entry.isCurrent(now)) {
+                responses.put(singleResp.getCertID(), entry);
+                cached = true;
+            }
+        }
+
+        modified |= cached;
+        return cached;
+    }
+
+    private static BasicOCSPResp getBasicResponse(OCSPResp response) {
+        if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+            return null;
+        }
+
+        try {
+            Object responseObject = response.getResponseObject();
+            return responseObject instanceof BasicOCSPResp ? (BasicOCSPResp) responseObject : null;
+        } catch (OCSPException ex) {
+            return null;
+        }
+    }
+
+    private static class CachedResponse {
+        private final OCSPResp response;
+        private final BasicOCSPResp basicResp;
+        private final Date thisUpdate;
+        private final Date expires;
+
+        CachedResponse(OCSPResp response, BasicOCSPResp basicResp, SingleResp singleResp) {
+            this.response = response;
+            this.basicResp = basicResp;
+            this.thisUpdate = singleResp.getThisUpdate();
+
+            Date nextUpdate = singleResp.getNextUpdate();
+            this.expires = nextUpdate != null ? nextUpdate :
+                           new Date(thisUpdate.getTime() + MAX_AGE_WITHOUT_NEXT_UPDATE);
+        }
+
+        boolean isCurrent(Date now) {
+            return thisUpdate.getTime() - CLOCK_SKEW <= now.getTime() && now.before(expires);
+        }
+    }
+}
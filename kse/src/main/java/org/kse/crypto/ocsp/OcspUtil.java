@@ -0,0 +1,396 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.ocsp;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.CertException;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.jcajce.JcaCertificateID;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.kse.KSE;
+import org.kse.utilities.net.FetchResult;
+import org.kse.utilities.net.HttpFetcher;
+
+/**
+ * Provides utility methods relating to OCSP.
+ */
+public class OcspUtil {
+
+    // certificate IDs per request, responders limit the size of requests
+    private static final int MAX_BATCH_SIZE = 50;
+
+    // responders that answered a batched request with an error or only partially, with the time they did so;
+    // they only get single requests for a while, as they may have been fixed or reconfigured in the meantime
+    private static final Map<String, Long> batchRejectingResponders = new ConcurrentHashMap<>();
+    private static final long BATCH_REJECTION_TTL = 60 * 60 * 1000L;
+    private static final int MAX_BATCH_REJECTING_RESPONDERS = 100;
+
+    private static Clock clock = Clock.systemUTC();
+
+    private OcspUtil() {
+    }
+
+    static void setClock(Clock newClock) {
+        clock = newClock;
+    }
+
+    /**
+     * Create the OCSP certificate ID of a certificate.
+     *
+     * @param issuerCert Issuer of the certificate
+     * @param serialNumber Serial number of the certificate
+     * @return Certificate ID (with SHA-1 hashes)
+     * @throws OCSPException If the ID could not be created
+     */
+    public static CertificateID createCertificateId(X509Certificate issuerCert, BigInteger serialNumber)
+            throws OCSPException {
+        try {
+            DigestCalculatorProvider digCalcProv = new JcaDigestCalculatorProviderBuilder().setProvider(KSE.BC)
+                                                                                           .build();
+            return new JcaCertificateID(digCalcProv.get(CertificateID.HASH_SHA1), issuerCert, serialNumber);
+        } catch (OperatorCreationException | CertificateEncodingException ex) {
+            throw new OCSPException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Create an OCSP request for the supplied certificate IDs.
+     *
+     * @param certIds Certificate IDs
+     * @return OCSP request
+     * @throws OCSPException If the request could not be created
+     */
+    public static OCSPReq createRequest(CertificateID... certIds) throws OCSPException {
+        OCSPReqBuilder gen = new OCSPReqBuilder();
+        for (CertificateID certId : certIds) {
+            gen.addRequest(certId);
+        }
+        return gen.build();
+    }
+
+    /**
+     * Send an OCSP request to a responder.
+     *
+     * @param url     URL of the OCSP responder
+     * @param ocspReq OCSP request
+     * @return OCSP response
+     * @throws IOException If the responder could not be reached or sent no valid response
+     */
+    public static OCSPResp requestResponse(String url, OCSPReq ocspReq) throws IOException {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+
+        FetchResult result = HttpFetcher.await(
+                HttpFetcher.getInstance().post(uri, "application/ocsp-request", "application/ocsp-response",
+                                               ocspReq.getEncoded(), HttpFetcher.DEFAULT_TIMEOUT));
+        return new OCSPResp(result.getBody());
+    }
+
+    /**
+     * Get the OCSP response for a certificate, from the shared response cache
+     * if a current and valid response is cached, from the responder otherwise.
+     * Valid responses fetched from the responder are added to the cache, it is
+     * up to the caller to save the cache.
+     *
+     * @param url        URL of the OCSP responder
+     * @param issuerCert Issuer of the certificate
+     * @param certId     Certificate ID of the certificate
+     * @return OCSP response
+     * @throws IOException   If the responder could not be reached
+     * @throws OCSPException If the request could not be created
+     */
+    public static OCSPResp getResponse(String url, X509Certificate issuerCert, CertificateID certId)
+            throws IOException, OCSPException {
+        OcspResponseCache cache = OcspResponseCache.getInstance();
+        Date now = new Date();
+
+        OCSPResp response = cache.get(certId, issuerCert, now);
+        if (response != null) {
+            return response;
+        }
+
+        response = requestResponse(url, createRequest(certId));
+        cache.put(response, issuerCert, now);
+        return response;
+    }
+
+    /**
+     * Get the OCSP responses for several certificates of the same issuer from
+     * one responder. Certificates with a current and valid response in the
+     * shared response cache are served from the cache. For the others one
+     * request with all their certificate IDs is sent, and the single responses
+     * are matched back by certificate ID. Certificates the responder did not
+     * answer in the batch are requested one by one, and responders that reject
+     * batched requests are only sent single requests for the next hour. Valid
+     * responses are added to the cache, it is up to the caller to save the
+     * cache.
+     *
+     * @param url        URL of the OCSP responder
+     * @param issuerCert Issuer of the certificates
+     * @param certIds    Certificate IDs of the certificates
+     * @return OCSP responses by certificate ID; a response may cover several
+     *         certificates, certificates whose response could not be obtained
+     *         are missing
+     * @throws OCSPException If a request could not be created
+     */
+    public static Map<CertificateID, OCSPResp> getResponses(String url, X509Certificate issuerCert,
+                                                            Collection<CertificateID> certIds) throws OCSPException {
+        OcspResponseCache cache = OcspResponseCache.getInstance();
+        Date now = new Date();
+
+        Map<CertificateID, OCSPResp> responses = new HashMap<>();
+        List<CertificateID> missing = new ArrayList<>();
+
+        for (CertificateID certId : certIds) {
+            OCSPResp response = cache.get(certId, issuerCert, now);
+            if (response != null) {
+                responses.put(certId, response);
+            } else if (!missing.contains(certId)) {
+                missing.add(certId);
+            }
+        }
+
+        if (missing.size() > 1 && !isRejectingBatches(url)) {
+            for (int i = 0; i < missing.size(); i += MAX_BATCH_SIZE) {
+                List<CertificateID> batch = missing.subList(i, Math.min(missing.size(), i + MAX_BATCH_SIZE));
+                requestBatch(url, issuerCert, batch, now, responses);
+            }
+        }
+
+        for (CertificateID certId : missing) {
+            if (!responses.containsKey(certId)) {
+                try {
+                    OCSPResp response = requestResponse(url, createRequest(certId));
+                    cache.put(response, issuerCert, now);
+                    responses.put(certId, response);
+                } catch (IOException ex) {
+                    // no response for this certificate
+                }
+            }
+        }
+
+        return responses;
+    }
+
+    private static void requestBatch(String url, X509Certificate issuerCert, List<CertificateID> batch, Date now,
+                                     Map<CertificateID, OCSPResp> responses) throws OCSPException {
+        OCSPResp response;
+        BasicOCSPResp basicResp = null;
+        try {
+            response = requestResponse(url, createRequest(batch.toArray(new CertificateID[0])));
+            if (response.getStatus() == OCSPResp.SUCCESSFUL && response.getResponseObject() instanceof BasicOCSPResp) {
+                basicResp = (BasicOCSPResp) response.getResponseObject();
+            }
+        } catch (IOException | OCSPException ex) {
+            // a broken connection or response says nothing about batches, single requests will tell
+            return;
+        }
+
+        // responders that do not support requests with more than one certificate
+        if (response.getStatus() == OCSPResp.MALFORMED_REQUEST || response.getStatus() == OCSPResp.UNAUTHORIZED) {
+            rememberBatchRejection(url);
+            return;
+        }
+
+        // e.g. tryLater or a response that cannot be verified, single requests will tell
+        if (basicResp == null || !isSignatureValid(basicResp, issuerCert, now)) {
+            return;
+        }
+
+        OcspResponseCache.getInstance().put(response, issuerCert, now);
+
+        int answered = 0;
+        for (SingleResp singleResp : basicResp.getResponses()) {
+            CertificateID certId = singleResp.getCertID();
+            if (batch.contains(certId) && !responses.containsKey(certId)) {
+                responses.put(certId, response);
+                answered++;
+            }
+        }
+
+        // some responders only answer the first certificate of a request
+        if (answered < batch.size()) {
+            rememberBatchRejection(url);
+        }
+    }
+
+    private static boolean isRejectingBatches(String url) {
+        Long rejected = batchRejectingResponders.get(url);
+        if (rejected == null) {
+            return false;
+        }
+
+        if (clock.millis() - rejected >= BATCH_REJECTION_TTL) {
+            batchRejectingResponders.remove(url, rejected);
+            return false;
+        }
+        return true;
+    }
+
+    private static void rememberBatchRejection(String url) {
+        long now = clock.millis();
+
+        if (batchRejectingResponders.size() >= MAX_BATCH_REJECTING_RESPONDERS &&
+            !batchRejectingResponders.containsKey(url)) {
+            batchRejectingResponders.values().removeIf(rejected -> now - rejected >= BATCH_REJECTION_TTL);
+
+            if (batchRejectingResponders.size() >= MAX_BATCH_REJECTING_RESPONDERS) {
+                batchRejectingResponders.entrySet().stream().min(Map.Entry.comparingByValue())
+                                        .ifPresent(oldest -> batchRejectingResponders.remove(oldest.getKey()));
+            }
+        }
+
+        batchRejectingResponders.put(url, now);
+    }
+
+    /**
+     * Get the OCSP responder URL from the authority information access
+     * extension of a certificate.
+     *
+     * @param cert Certificate
+     * @return First HTTP(S) OCSP URL or null if the certificate has none
+     */
+    public static String getResponderUrl(X509Certificate cert) {
+        byte[] extensionValue = cert.getExtensionValue(Extension.authorityInfoAccess.getId());
+        if (extensionValue == null) {
+            return null;
+        }
+
+        AuthorityInformationAccess aia;
+        try {
+            aia = AuthorityInformationAccess.getInstance(ASN1OctetString.getInstance(extensionValue).getOctets());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+
+        for (AccessDescription accessDescription : aia.getAccessDescriptions()) {
+            GeneralName location = accessDescription.getAccessLocation();
+
+            if (AccessDescription.id_ad_ocsp.equals(accessDescription.getAccessMethod()) &&
+                location.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                String url = location.getName().toString();
+                if (url.toLowerCase().startsWith("http")) {
+                    return url;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Check that an OCSP response was signed either by the issuer itself or
+     * by a responder that the issuer delegated OCSP signing to (RFC 6960,
+     * section 4.2.2.2).
+     *
+     * @param basicResp  OCSP response
+     * @param issuerCert Issuer of the certificates the response is about
+     * @param date       Date the responder certificate has to be valid on
+     * @return True if the signature could be verified
+     */
+    public static boolean isSignatureValid(BasicOCSPResp basicResp, X509Certificate issuerCert, Date date) {
+        JcaContentVerifierProviderBuilder builder = new JcaContentVerifierProviderBuilder().setProvider(KSE.BC);
+
+        ContentVerifierProvider issuerVerifier;
+        try {
+            issuerVerifier = builder.build(issuerCert.getPublicKey());
+        } catch (OperatorCreationException ex) {
+            // without the issuer's key no responder can be trusted either
+            return false;
+        }
+
+        // each attempt on its own, e.g. an RSA issuer fails on a response of its EC responder
+        try {
+            if (basicResp.isSignatureValid(issuerVerifier)) {
+                return true;
+            }
+        } catch (OCSPException ex) {
+            // not signed by the issuer
+        }
+
+        for (X509CertificateHolder responderCert : basicResp.getCerts()) {
+            try {
+                if (isDelegatedResponder(responderCert, issuerVerifier, date) &&
+                    basicResp.isSignatureValid(builder.build(responderCert))) {
+                    return true;
+                }
+            } catch (OperatorCreationException | OCSPException | CertificateException ex) {
+                // not signed by this responder
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isDelegatedResponder(X509CertificateHolder responderCert,
+                                                ContentVerifierProvider issuerVerifier, Date date) {
+        if (!responderCert.isValidOn(date) || responderCert.getExtensions() == null) {
+            return false;
+        }
+
+        ExtendedKeyUsage eku = ExtendedKeyUsage.fromExtensions(responderCert.getExtensions());
+        if (eku == null || !eku.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning)) {
+            return false;
+        }
+
+        try {
+            return responderCert.isSignatureValid(issuerVerifier);
+        } catch (CertException ex) {
+            return false;
+        }
+    }
+}
@@ -21,23 +21,18 @@ package org.kse.crypto.signing;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigInteger;
-import java.net.URL;
-import java.net.URLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 
-import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
-import org.apache.commons.io.IOUtils;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.cmp.PKIFailureInfo;
 import org.bouncycastle.tsp.TSPException;
@@ -47,9 +42,13 @@ import org.bouncycastle.tsp.TimeStampResponse;
 import org.bouncycastle.tsp.TimeStampToken;
 import org.bouncycastle.util.encoders.Base64;
 import org.kse.crypto.digest.DigestType;
+import org.kse.utilities.net.FetchResult;
+import org.kse.utilities.net.HttpFetcher;
 
 public class TimeStampingClient {
 
+    private static HttpFetcher fetcher;
+
     private TimeStampingClient() {
     }
 
@@ -111,6 +110,32 @@ public class TimeStampingClient {
      * @throws IOException when request to TSA server fails
      */
     private static byte[] queryServer(String tsaUrl, byte[] requestBytes) throws IOException {
+        URI uri;
+        try {
+            uri = new URI(tsaUrl);
+        } catch (URISyntaxException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        FetchResult result = HttpFetcher.await(
+                getFetcher().post(uri, "application/timestamp-query", null, requestBytes, HttpFetcher.DEFAULT_TIMEOUT));
+
+        byte[] respBytes = result.getBody();
+        String encoding = result.getContentEncoding();
+        if (encoding != null && encoding.equalsIgnoreCase("base64")) {
+            respBytes = Base64.decode(new String(respBytes));
+        }
+        return respBytes;
+    }
+
+    /**
+     * Client for TSA requests, which trusts all TSA server certificates as the
+     * response is verified by its signature anyway.
+     */
+    private static synchronized HttpFetcher getFetcher() throws IOException {
+        if (fetcher != null) {
+            return fetcher;
+        }
 
         // Install the all-trusting trust manager
         SSLContext sc;
@@ -119,7 +144,7 @@ public class TimeStampingClient {
             sc.init(null, new TrustManager[] { new X509TrustManager() {
                 @Override
                 public java.security.cert.X509Certificate[] getAcceptedIssuers() {
-                    return null;
+                    return new X509Certificate[0];
                 }
 
                 @Override
@@ -133,33 +158,8 @@ public class TimeStampingClient {
         } catch (NoSuchAlgorithmException | KeyManagementException e) {
             throw new IOException(e);
         }
-        SSLSocketFactory defaultSSLSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
-        HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
 
-        try {
-            URL url = new URL(tsaUrl);
-            URLConnection con = url.openConnection();
-            con.setDoInput(true);
-            con.setDoOutput(true);
-            con.setUseCaches(false);
-            con.setRequestProperty("Content-Type", "application/timestamp-query");
-            con.setRequestProperty("Content-Transfer-Encoding", "binary");
-
-            OutputStream out = con.getOutputStream();
-            out.write(requestBytes);
-            out.close();
-
-            InputStream is = con.getInputStream();
-            byte[] respBytes = IOUtils.toByteArray(is);
-            String encoding = con.getContentEncoding();
-            if (encoding != null && encoding.equalsIgnoreCase("base64")) {
-                respBytes = Base64.decode(new String(respBytes));
-            }
-            return respBytes;
-
-        } finally {
-            // restore default trust manager
-            HttpsURLConnection.setDefaultSSLSocketFactory(defaultSSLSocketFactory);
-        }
+        fetcher = new HttpFetcher(sc);
+        return fetcher;
     }
 }
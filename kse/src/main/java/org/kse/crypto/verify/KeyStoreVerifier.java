@@ -0,0 +1,549 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlCache;
+import org.kse.crypto.crl.CrlIndex;
+import org.kse.crypto.ocsp.OcspResponseCache;
+import org.kse.crypto.ocsp.OcspUtil;
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.utilities.StringUtils;
+
+/**
+ * Verifies all certificate entries of a keystore concurrently. The entries are
+ * validated against one shared set of trust anchors on a bounded pool of
+ * worker threads. Every worker keeps its own certification path validator, and
+ * the results are reported to a listener as soon as each entry is done.
+ * <p>
+ * Revocation is checked with KSE's CRL index and OCSP response caches, so CRLs
+ * and OCSP responses that are shared by several entries are fetched only once.
+ * For OCSP, the entries are grouped by issuer and responder first, and each
+ * group is queried with one batched request.
+ */
+public class KeyStoreVerifier {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/verify/resources");
+
+    // revocation checks mostly wait for the network, so more threads than cores pay off
+    private static final int MIN_REVOCATION_THREADS = 8;
+
+    private final Set<TrustAnchor> trustAnchors;
+    private final Map<X500Principal, List<X509Certificate>> anchorsBySubject = new HashMap<>();
+    private final RevocationCheck revocationCheck;
+    private final File crlFile;
+    private final String ocspUrl;
+    private final int threads;
+
+    // responses of the batched OCSP requests of the current run
+    private final Map<CertificateID, OCSPResp> batchedOcspResponses = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<CertPathValidator> validators = ThreadLocal.withInitial(() -> {
+        try {
+            return CertPathValidator.getInstance("PKIX");
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private final ThreadLocal<CertificateFactory> certificateFactories = ThreadLocal.withInitial(() -> {
+        try {
+            return CertificateFactory.getInstance("X.509");
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    /**
+     * Construct verifier.
+     *
+     * @param trustedCerts    Trusted CA certificates
+     * @param revocationCheck Revocation check to perform
+     * @param crlFile         CRL file for {@link RevocationCheck#CRL_FILE}, otherwise ignored
+     * @param ocspUrl         OCSP responder for {@link RevocationCheck#OCSP_URL}, otherwise ignored
+     * @param threads         Maximum number of entries verified at the same time
+     * @throws CryptoException If there are no trusted certificates
+     */
+    public KeyStoreVerifier(Collection<X509Certificate> trustedCerts, RevocationCheck revocationCheck, File crlFile,
+                            String ocspUrl, int threads) throws CryptoException {
+        if (trustedCerts.isEmpty()) {
+            throw new CryptoException(res.getString("NoTrustAnchors.exception.message"));
+        }
+
+        Set<TrustAnchor> anchors = new HashSet<>();
+        for (X509Certificate trustedCert : trustedCerts) {
+            anchors.add(new TrustAnchor(trustedCert, null));
+            anchorsBySubject.computeIfAbsent(trustedCert.getSubjectX500Principal(), s -> new ArrayList<>())
+                            .add(trustedCert);
+        }
+
+        this.trustAnchors = Collections.unmodifiableSet(anchors);
+        this.revocationCheck = revocationCheck;
+        this.crlFile = crlFile;
+        this.ocspUrl = ocspUrl;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Get a sensible number of worker threads for a revocation check.
+     *
+     * @param revocationCheck Revocation check
+     * @return Number of threads
+     */
+    public static int getDefaultThreads(RevocationCheck revocationCheck) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (revocationCheck == RevocationCheck.NONE) {
+            return processors;
+        }
+        return Math.max(MIN_REVOCATION_THREADS, processors);
+    }
+
+    /**
+     * Get the CA certificates of a keystore, i.e. the certificates of key pair
+     * and trusted certificate entries that may sign certificates.
+     *
+     * @param keyStore Keystore
+     * @return CA certificates
+     * @throws CryptoException If the keystore could not be read
+     */
+    public static List<X509Certificate> getCaCertificates(KeyStore keyStore) throws CryptoException {
+        List<X509Certificate> caCerts = new ArrayList<>();
+
+        try {
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                if (keyStore.entryInstanceOf(alias, KeyStore.PrivateKeyEntry.class) ||
+                    keyStore.entryInstanceOf(alias, KeyStore.TrustedCertificateEntry.class)) {
+                    Certificate cert = keyStore.getCertificate(alias);
+                    if (cert != null) {
+                        X509Certificate x509Cert = X509CertUtil.convertCertificate(cert);
+                        if (isCA(x509Cert)) {
+                            caCerts.add(x509Cert);
+                        }
+                    }
+                }
+            }
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("NoReadEntries.exception.message"), ex);
+        }
+
+        return caCerts;
+    }
+
+    /**
+     * Read the certificate chains of all key pair and trusted certificate
+     * entries of a keystore. Keystores are not safe for concurrent access, so
+     * the chains are read up front and verified afterwards.
+     *
+     * @param keyStore Keystore
+     * @return Certificate chains by alias, in alias order
+     * @throws CryptoException If the keystore could not be read
+     */
+    public static Map<String, X509Certificate[]> getCertificateChains(KeyStore keyStore) throws CryptoException {
+        Map<String, X509Certificate[]> chains = new LinkedHashMap<>();
+
+        try {
+            List<String> aliases = Collections.list(keyStore.aliases());
+            Collections.sort(aliases);
+
+            for (String alias : aliases) {
+                if (keyStore.entryInstanceOf(alias, KeyStore.PrivateKeyEntry.class)) {
+                    Certificate[] chain = keyStore.getCertificateChain(alias);
+                    if (chain != null && chain.length > 0) {
+                        chains.put(alias, X509CertUtil.convertCertificates(chain));
+                    }
+                } else if (keyStore.entryInstanceOf(alias, KeyStore.TrustedCertificateEntry.class)) {
+                    Certificate cert = keyStore.getCertificate(alias);
+                    if (cert != null) {
+                        chains.put(alias, new X509Certificate[] { X509CertUtil.convertCertificate(cert) });
+                    }
+                }
+            }
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("NoReadEntries.exception.message"), ex);
+        }
+
+        return chains;
+    }
+
+    /**
+     * Verify certificate chains. Blocks until all chains have been verified.
+     * The listener is called from the worker threads.
+     *
+     * @param chains   Certificate chains by alias
+     * @param listener Receives the result of each entry as soon as it is available
+     * @throws InterruptedException If the calling thread was interrupted, in
+     *                              which case the remaining entries are skipped
+     */
+    public void verify(Map<String, X509Certificate[]> chains, Consumer<VerificationResult> listener)
+            throws InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "KeyStoreVerifier-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, chains.size())),
+                                                                threadFactory);
+
+        try {
+            if (revocationCheck == RevocationCheck.OCSP_AIA || revocationCheck == RevocationCheck.OCSP_URL) {
+                requestOcspBatches(chains, executor);
+            }
+
+            for (Map.Entry<String, X509Certificate[]> chain : chains.entrySet()) {
+                executor.submit(() -> listener.accept(verify(chain.getKey(), chain.getValue())));
+            }
+
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting, interruption ends the wait
+            }
+        } finally {
+            executor.shutdownNow();
+            batchedOcspResponses.clear();
+
+            if (revocationCheck == RevocationCheck.OCSP_AIA || revocationCheck == RevocationCheck.OCSP_URL) {
+                try {
+                    OcspResponseCache.getInstance().save();
+                } catch (IOException ex) {
+                    // the responses are still cached in memory
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify a single certificate chain.
+     *
+     * @param alias Alias of the entry
+     * @param chain Certificate chain, end entity first
+     * @return Result
+     */
+    public VerificationResult verify(String alias, X509Certificate[] chain) {
+        long start = System.nanoTime();
+        X509Certificate cert = chain[0];
+        String subject = X509CertUtil.getCertificateAlias(cert);
+
+        VerificationResult.Status status;
+        String message;
+
+        try {
+            Date now = new Date();
+            cert.checkValidity(now);
+            validateChain(chain, now);
+
+            message = checkRevocation(chain, now);
+            status = message == null ? VerificationResult.Status.VALID : VerificationResult.Status.UNKNOWN;
+        } catch (CertificateExpiredException ex) {
+            status = VerificationResult.Status.EXPIRED;
+            message = MessageFormat.format(res.getString("Expired.message"),
+                                           StringUtils.formatDate(cert.getNotAfter()));
+        } catch (CertificateNotYetValidException ex) {
+            status = VerificationResult.Status.EXPIRED;
+            message = MessageFormat.format(res.getString("NotYetValid.message"),
+                                           StringUtils.formatDate(cert.getNotBefore()));
+        } catch (CertPathValidatorException ex) {
+            status = VerificationResult.Status.INVALID;
+            message = ex.getMessage();
+        } catch (RevokedException ex) {
+            status = VerificationResult.Status.REVOKED;
+            message = ex.getMessage();
+        } catch (GeneralSecurityException | CryptoException | IOException | RuntimeException ex) {
+            status = VerificationResult.Status.UNKNOWN;
+            message = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName();
+        }
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new VerificationResult(alias, subject, status, message, durationMillis);
+    }
+
+    /**
+     * Group the entries by responder and issuer and fetch the OCSP responses
+     * of each group with batched requests. Entries without a batched response
+     * are checked with a single request later on.
+     */
+    private void requestOcspBatches(Map<String, X509Certificate[]> chains, ExecutorService executor)
+            throws InterruptedException {
+        // responder URL -> issuer -> certificate IDs
+        Map<String, Map<X509Certificate, List<CertificateID>>> groups = new LinkedHashMap<>();
+
+        for (X509Certificate[] chain : chains.values()) {
+            X509Certificate cert = chain[0];
+            if (isTrustAnchor(cert)) {
+                continue;
+            }
+
+            X509Certificate issuerCert = findIssuer(chain);
+            String url = revocationCheck == RevocationCheck.OCSP_URL ? ocspUrl : OcspUtil.getResponderUrl(cert);
+            if (issuerCert == null || url == null) {
+                continue;
+            }
+
+            try {
+                CertificateID certId = OcspUtil.createCertificateId(issuerCert, cert.getSerialNumber());
+                groups.computeIfAbsent(url, u -> new LinkedHashMap<>())
+                      .computeIfAbsent(issuerCert, i -> new ArrayList<>())
+                      .add(certId);
+            } catch (OCSPException ex) {
+                // reported by the check of the entry
+            }
+        }
+
+        List<Callable<Void>> requests = new ArrayList<>();
+        groups.forEach((url, certIdsByIssuer) -> certIdsByIssuer.forEach((issuerCert, certIds) -> {
+            if (certIds.size() > 1) {
+                requests.add(() -> {
+                    batchedOcspResponses.putAll(OcspUtil.getResponses(url, issuerCert, certIds));
+                    return null;
+                });
+            }
+        }));
+
+        // failed batches are retried by the checks of the entries
+        executor.invokeAll(requests);
+    }
+
+    private void validateChain(X509Certificate[] chain, Date now) throws GeneralSecurityException {
+        // certificates that are trust anchors themselves must not be part of the path
+        int length = chain.length;
+        while (length > 1 && isTrustAnchor(chain[length - 1])) {
+            length--;
+        }
+
+        if (length == 1 && isTrustAnchor(chain[0])) {
+            return;
+        }
+
+        PKIXParameters params = new PKIXParameters(trustAnchors);
+        params.setDate(now);
+        params.setRevocationEnabled(false);
+        params.addCertPathChecker(new ExtensionRemovingCertPathChecker());
+
+        List<X509Certificate> path = Arrays.asList(chain).subList(0, length);
+        validators.get().validate(certificateFactories.get().generateCertPath(path), params);
+    }
+
+    /**
+     * Check the revocation status of the first certificate of a chain.
+     *
+     * @return Null if the certificate is not revoked, otherwise why the status
+     *         could not be determined
+     * @throws RevokedException If the certificate has been revoked
+     */
+    private String checkRevocation(X509Certificate[] chain, Date now)
+            throws RevokedException, CryptoException, IOException, OCSPException {
+        X509Certificate cert = chain[0];
+
+        // trust anchors are trusted as they are
+        if (revocationCheck == RevocationCheck.NONE || isTrustAnchor(cert)) {
+            return null;
+        }
+
+        X509Certificate issuerCert = findIssuer(chain);
+        if (issuerCert == null) {
+            return res.getString("NoIssuer.message");
+        }
+
+        switch (revocationCheck) {
+        case CRL_DIST_POINT:
+            return checkCrlDistributionPoints(cert, issuerCert, now);
+        case CRL_FILE:
+            return checkCrl(CrlCache.getInstance().getIndex(crlFile, issuerCert), cert, now);
+        case OCSP_AIA:
+            String url = OcspUtil.getResponderUrl(cert);
+            if (url == null) {
+                return res.getString("NoOcspUrl.message");
+            }
+            return checkOcsp(url, cert, issuerCert, now);
+        case OCSP_URL:
+            return checkOcsp(ocspUrl, cert, issuerCert, now);
+        default:
+            return null;
+        }
+    }
+
+    private String checkCrlDistributionPoints(X509Certificate cert, X509Certificate issuerCert, Date now)
+            throws RevokedException, CryptoException, IOException {
+        List<String> urls = CrlCache.getDistributionPointUrls(cert);
+        if (urls.isEmpty()) {
+            return res.getString("NoCrlDistPoint.message");
+        }
+
+        // first distribution point that can be downloaded wins
+        IOException lastException = null;
+        for (String url : urls) {
+            try {
+                return checkCrl(CrlCache.getInstance().getIndex(new URL(url), issuerCert, now), cert, now);
+            } catch (IOException ex) {
+                lastException = ex;
+            }
+        }
+        throw lastException;
+    }
+
+    private String checkCrl(CrlIndex crlIndex, X509Certificate cert, Date now) throws RevokedException {
+        if (crlIndex.isNotYetValid(now)) {
+            return MessageFormat.format(res.getString("CrlNotYetValid.message"),
+                                        StringUtils.formatDate(crlIndex.getThisUpdate()));
+        }
+        if (!crlIndex.isCurrent(now)) {
+            return MessageFormat.format(res.getString("CrlExpired.message"),
+                                        StringUtils.formatDate(crlIndex.getNextUpdate()));
+        }
+
+        CrlIndex.RevokedEntry revokedEntry = crlIndex.find(cert.getSerialNumber());
+        if (revokedEntry != null) {
+            throw new RevokedException(revokedEntry.getReason(), revokedEntry.getRevocationDate());
+        }
+        return null;
+    }
+
+    private String checkOcsp(String url, X509Certificate cert, X509Certificate issuerCert, Date now)
+            throws RevokedException, IOException, OCSPException {
+        CertificateID certId = OcspUtil.createCertificateId(issuerCert, cert.getSerialNumber());
+        OCSPResp ocspResp = batchedOcspResponses.get(certId);
+        if (ocspResp == null) {
+            ocspResp = OcspUtil.getResponse(url, issuerCert, certId);
+        }
+
+        if (ocspResp.getStatus() != OCSPResp.SUCCESSFUL) {
+            return MessageFormat.format(res.getString("OcspStatus.message"), ocspResp.getStatus());
+        }
+
+        BasicOCSPResp basicResp = (BasicOCSPResp) ocspResp.getResponseObject();
+        if (!OcspUtil.isSignatureValid(basicResp, issuerCert, now)) {
+            return res.getString("OcspSignatureInvalid.message");
+        }
+
+        for (SingleResp singleResp : basicResp.getResponses()) {
+            if (!singleResp.getCertID().equals(certId)) {
+                continue;
+            }
+
+            CertificateStatus certStatus = singleResp.getCertStatus();
+            if (certStatus == CertificateStatus.GOOD) {
+                return null;
+            }
+            if (certStatus instanceof RevokedStatus) {
+                RevokedStatus revokedStatus = (RevokedStatus) certStatus;
+                int reason = revokedStatus.hasRevocationReason() ? revokedStatus.getRevocationReason() : -1;
+                throw new RevokedException(reason, revokedStatus.getRevocationTime());
+            }
+            return res.getString("OcspUnknown.message");
+        }
+
+        return res.getString("OcspNoResponse.message");
+    }
+
+    private X509Certificate findIssuer(X509Certificate[] chain) {
+        if (chain.length > 1) {
+            return chain[1];
+        }
+
+        X509Certificate cert = chain[0];
+        List<X509Certificate> candidates = anchorsBySubject.get(cert.getIssuerX500Principal());
+        if (candidates == null) {
+            return null;
+        }
+
+        for (X509Certificate candidate : candidates) {
+            try {
+                cert.verify(candidate.getPublicKey());
+                return candidate;
+            } catch (GeneralSecurityException ex) {
+                // signed by another key with the same name
+            }
+        }
+        return null;
+    }
+
+    private boolean isTrustAnchor(X509Certificate cert) {
+        List<X509Certificate> candidates = anchorsBySubject.get(cert.getSubjectX500Principal());
+        return candidates != null && candidates.contains(cert);
+    }
+
+    private static boolean isCA(X509Certificate cert) {
+        int basicConstraints = cert.getBasicConstraints();
+        if (basicConstraints != -1) {
+            boolean[] keyUsage = cert.getKeyUsage();
+            if (keyUsage != null && keyUsage[5]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class RevokedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        RevokedException(int reason, Date revocationDate) {
+            super(MessageFormat.format(res.getString("Revoked.message"), reason,
+                                       StringUtils.formatDate(revocationDate)));
+        }
+    }
+}
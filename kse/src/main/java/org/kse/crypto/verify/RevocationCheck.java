@@ -0,0 +1,36 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.verify;
+
+/**
+ * Revocation check performed in addition to the certification path validation.
+ */
+public enum RevocationCheck {
+    /** Validate the certification path only */
+    NONE,
+    /** Check CRLs downloaded from the distribution points of the certificates */
+    CRL_DIST_POINT,
+    /** Check a single local CRL file */
+    CRL_FILE,
+    /** Query the OCSP responders from the authority information access of the certificates */
+    OCSP_AIA,
+    /** Query a single OCSP responder */
+    OCSP_URL
+}
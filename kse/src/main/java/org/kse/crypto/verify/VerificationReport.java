@@ -0,0 +1,102 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.verify;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.jr.ob.JSON;
+
+/**
+ * Writes the results of a keystore verification as CSV (RFC 4180) or JSON.
+ */
+public class VerificationReport {
+
+    private static final String[] COLUMNS = { "alias", "subject", "status", "details", "timeMs" };
+
+    private VerificationReport() {
+    }
+
+    /**
+     * Write results as CSV with a header line.
+     *
+     * @param results Verification results
+     * @param writer  Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeCsv(List<VerificationResult> results, Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        for (VerificationResult result : results) {
+            writer.write(csvField(result.getAlias()));
+            writer.write(',');
+            writer.write(csvField(result.getSubject()));
+            writer.write(',');
+            writer.write(result.getStatus().name());
+            writer.write(',');
+            writer.write(csvField(result.getMessage()));
+            writer.write(',');
+            writer.write(Long.toString(result.getDurationMillis()));
+            writer.write("\r\n");
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Write results as a JSON array of objects.
+     *
+     * @param results Verification results
+     * @param writer  Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeJson(List<VerificationResult> results, Writer writer) throws IOException {
+        List<Map<String, Object>> entries = new ArrayList<>(results.size());
+
+        for (VerificationResult result : results) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put(COLUMNS[0], result.getAlias());
+            entry.put(COLUMNS[1], result.getSubject());
+            entry.put(COLUMNS[2], result.getStatus().name());
+            entry.put(COLUMNS[3], result.getMessage());
+            entry.put(COLUMNS[4], result.getDurationMillis());
+            entries.add(entry);
+        }
+
+        JSON.std.with(JSON.Feature.PRETTY_PRINT_OUTPUT).with(JSON.Feature.WRITE_NULL_PROPERTIES).write(entries, writer);
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 &&
+            value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
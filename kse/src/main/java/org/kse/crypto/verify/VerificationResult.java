@@ -0,0 +1,85 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.verify;
+
+/**
+ * Outcome of the verification of a single keystore entry.
+ */
+public class VerificationResult {
+
+    /**
+     * Verification status of an entry.
+     */
+    public enum Status {
+        /** Chain and (if checked) revocation status are valid */
+        VALID,
+        /** Certificate has expired or is not yet valid */
+        EXPIRED,
+        /** Certification path could not be validated */
+        INVALID,
+        /** Certificate has been revoked */
+        REVOKED,
+        /** Revocation status could not be determined */
+        UNKNOWN
+    }
+
+    private final String alias;
+    private final String subject;
+    private final Status status;
+    private final String message;
+    private final long durationMillis;
+
+    /**
+     * Construct result.
+     *
+     * @param alias          Alias of the entry
+     * @param subject        Subject of the entry's certificate
+     * @param status         Verification status
+     * @param message        Details, may be null
+     * @param durationMillis Time the verification of the entry took
+     */
+    public VerificationResult(String alias, String subject, Status status, String message, long durationMillis) {
+        this.alias = alias;
+        this.subject = subject;
+        this.status = status;
+        this.message = message;
+        this.durationMillis = durationMillis;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
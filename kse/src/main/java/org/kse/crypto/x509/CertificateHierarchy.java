@@ -0,0 +1,206 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.x509;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+
+/**
+ * Arranges a set of certificates, e.g. the contents of a PEM bundle or a
+ * PKCS #7 file, into issuer hierarchies.
+ * <p>
+ * The certificates are indexed by subject, so only certificates whose subject
+ * is the issuer DN of a certificate are considered as its issuer. If there are
+ * several of them, the ones whose subject key identifier matches the
+ * certificate's authority key identifier are tried first. Every candidate
+ * signature is verified at most once, which keeps building the hierarchy of
+ * large bundles close to linear.
+ */
+public class CertificateHierarchy {
+
+    private final List<X509Certificate> roots = new ArrayList<>();
+    private final Map<X509Certificate, X509Certificate> issuers = new HashMap<>();
+    private final Map<X509Certificate, List<X509Certificate>> issued = new HashMap<>();
+    private int verifications;
+
+    /**
+     * Construct hierarchy. Certificates without an issuer in the set, including
+     * self-signed ones, become roots. Duplicates are ignored.
+     *
+     * @param certs Certificates
+     * @param order Order of the roots and of the certificates issued by the same issuer
+     */
+    public CertificateHierarchy(X509Certificate[] certs, Comparator<X509Certificate> order) {
+        List<X509Certificate> sorted = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(certs)));
+        sorted.sort(order);
+
+        Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+        for (X509Certificate cert : sorted) {
+            bySubject.computeIfAbsent(cert.getSubjectX500Principal(), subject -> new ArrayList<>(1)).add(cert);
+        }
+
+        for (X509Certificate cert : sorted) {
+            X509Certificate issuer = findIssuer(cert, bySubject.get(cert.getIssuerX500Principal()));
+            if (issuer != null) {
+                issuers.put(cert, issuer);
+            }
+        }
+
+        breakCycles(sorted);
+
+        for (X509Certificate cert : sorted) {
+            X509Certificate issuer = issuers.get(cert);
+            if (issuer == null) {
+                roots.add(cert);
+            } else {
+                issued.computeIfAbsent(issuer, i -> new ArrayList<>()).add(cert);
+            }
+        }
+    }
+
+    /**
+     * Get the certificates that have no issuer in the set.
+     *
+     * @return Root certificates
+     */
+    public List<X509Certificate> getRoots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    /**
+     * Get the issuer of a certificate.
+     *
+     * @param cert Certificate
+     * @return Issuer or null if the certificate is a root
+     */
+    public X509Certificate getIssuer(X509Certificate cert) {
+        return issuers.get(cert);
+    }
+
+    /**
+     * Get the certificates issued by a certificate.
+     *
+     * @param issuer Issuer certificate
+     * @return Issued certificates, empty if there are none
+     */
+    public List<X509Certificate> getIssued(X509Certificate issuer) {
+        return Collections.unmodifiableList(issued.getOrDefault(issuer, Collections.emptyList()));
+    }
+
+    /**
+     * Get the number of signatures that were verified to build the hierarchy.
+     *
+     * @return Number of verifications
+     */
+    public int getVerifications() {
+        return verifications;
+    }
+
+    private X509Certificate findIssuer(X509Certificate cert, List<X509Certificate> candidates) {
+        // if certificate is self-signed then finding an issuer is irrelevant
+        if (candidates == null || X509CertUtil.isCertificateSelfSigned(cert)) {
+            return null;
+        }
+
+        if (candidates.size() > 1) {
+            byte[] authorityKeyIdentifier = getAuthorityKeyIdentifier(cert);
+            if (authorityKeyIdentifier != null) {
+                List<X509Certificate> matchingFirst = new ArrayList<>(candidates);
+                matchingFirst.sort(Comparator.comparing(
+                        candidate -> !Arrays.equals(authorityKeyIdentifier, getSubjectKeyIdentifier(candidate))));
+                candidates = matchingFirst;
+            }
+        }
+
+        for (X509Certificate candidate : candidates) {
+            if (candidate != cert) {
+                verifications++;
+                if (X509CertUtil.isIssuedBy(cert, candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void breakCycles(List<X509Certificate> certs) {
+        // certificates whose issuers are known to lead to a root
+        Set<X509Certificate> done = new HashSet<>();
+
+        for (X509Certificate cert : certs) {
+            Set<X509Certificate> path = new LinkedHashSet<>();
+            X509Certificate current = cert;
+
+            while (current != null && !done.contains(current)) {
+                path.add(current);
+                X509Certificate issuer = issuers.get(current);
+
+                if (path.contains(issuer)) {
+                    // e.g. two cross-certified CAs, the last certificate on the path becomes a root
+                    issuers.remove(current);
+                    issuer = null;
+                }
+                current = issuer;
+            }
+
+            done.addAll(path);
+        }
+    }
+
+    private static byte[] getAuthorityKeyIdentifier(X509Certificate cert) {
+        byte[] value = cert.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (value == null) {
+            return null;
+        }
+        try {
+            return AuthorityKeyIdentifier.getInstance(X509Ext.unwrapExtension(value)).getKeyIdentifier();
+        } catch (IllegalArgumentException ex) {
+            // malformed extension, no preference among the candidates
+            return null;
+        }
+    }
+
+    private static byte[] getSubjectKeyIdentifier(X509Certificate cert) {
+        byte[] value = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (value == null) {
+            return null;
+        }
+        try {
+            return SubjectKeyIdentifier.getInstance(X509Ext.unwrapExtension(value)).getKeyIdentifier();
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.x509;
+
+import static org.kse.utilities.asn1.DerUtil.concat;
+import static org.kse.utilities.asn1.DerUtil.encodeTime;
+import static org.kse.utilities.asn1.DerUtil.tlv;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.security.cert.X509Extension;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.kse.KSE;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.publickey.KeyIdentifierGenerator;
+import org.kse.crypto.signing.SignatureType;
+
+/**
+ * Issues large numbers of certificates with the same CA and extensions, e.g.
+ * when a batch of CSRs is signed. Everything that is the same for all
+ * certificates (version, signature algorithm, issuer DN, authority key
+ * identifier and the static extensions) is encoded once when the issuer is
+ * created; per certificate only serial number, validity, subject, public key,
+ * subject key identifier and the extensions of the request are encoded. The TBSCertificate is assembled directly from
+ * these DER fragments and the result is returned as DER, without building or
+ * converting certificate objects.
+ * <p>
+ * Content signers are not thread-safe, so every thread that issues
+ * certificates gets its own signer, which it then reuses.
+ */
+public class CertificateIssuer {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/crypto/x509/resources");
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_BIT_STRING = 0x03;
+    private static final int TAG_OCTET_STRING = 0x04;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_EXTENSIONS = 0xA3;
+
+    // [0] EXPLICIT INTEGER 2 (v3)
+    private static final byte[] VERSION_3 = { (byte) 0xA0, 0x03, TAG_INTEGER, 0x01, 0x02 };
+    private static final byte[] CRITICAL = { 0x01, 0x01, (byte) 0xFF };
+
+    private final PrivateKey privateKey;
+    private final SignatureType signatureType;
+    private final Provider provider;
+    private final ThreadLocal<ContentSigner> signers = new ThreadLocal<>();
+
+    private final boolean version1;
+    private final byte[] signatureAlgorithm;
+    private final byte[] signatureAlgorithmAndIssuer;
+    private final byte[] staticExtensions;
+    private final boolean subjectKeyIdentifier;
+    private final boolean subjectKeyIdentifierCritical;
+
+    /**
+     * Construct issuer.
+     *
+     * @param version       Version of the issued certificates; version 1 certificates have no extensions
+     * @param issuerCert    Certificate of the issuing CA
+     * @param privateKey    Private key of the issuing CA
+     * @param signatureType Signature type
+     * @param provider      Provider for the signature or null for the default provider
+     * @param extensions    Extensions of all issued certificates, may be null. A subject key identifier
+     *                      in here is calculated per certificate and an authority key identifier
+     *                      is set from the issuer, in the form of the one in here.
+     * @throws CryptoException If the signer could not be created or the extensions could not be encoded
+     */
+    public CertificateIssuer(X509CertificateVersion version, X509Certificate issuerCert, PrivateKey privateKey,
+                             SignatureType signatureType, Provider provider, X509Extension extensions)
+            throws CryptoException {
+        this.version1 = version == X509CertificateVersion.VERSION1;
+        this.privateKey = privateKey;
+        this.signatureType = signatureType;
+        this.provider = provider;
+
+        try {
+            signatureAlgorithm = getSigner().getAlgorithmIdentifier().getEncoded(ASN1Encoding.DER);
+            signatureAlgorithmAndIssuer = concat(signatureAlgorithm,
+                                                 issuerCert.getSubjectX500Principal().getEncoded());
+
+            if (version1) {
+                subjectKeyIdentifier = false;
+                subjectKeyIdentifierCritical = false;
+                staticExtensions = new byte[0];
+                return;
+            }
+
+            X509ExtensionSet extensionSet = extensions == null ?
+                                            new X509ExtensionSet() :
+                                            new X509ExtensionSet(extensions);
+
+            String akiOid = Extension.authorityKeyIdentifier.getId();
+            String skiOid = Extension.subjectKeyIdentifier.getId();
+
+            if (extensionSet.getExtensionValue(akiOid) != null) {
+                // keep the form of the template, but with the issuer's key identifier, name and serial number
+                X509ExtensionSetUpdater.update(extensionSet, issuerCert.getPublicKey(), issuerCert.getPublicKey(),
+                                               X500NameUtils.x500PrincipalToX500Name(
+                                                       issuerCert.getSubjectX500Principal()),
+                                               issuerCert.getSerialNumber());
+            }
+
+            subjectKeyIdentifier = extensionSet.getExtensionValue(skiOid) != null;
+            subjectKeyIdentifierCritical = subjectKeyIdentifier && extensionSet.isCritical(skiOid);
+
+            extensionSet.removeExtension(skiOid);
+            staticExtensions = encodeExtensions(extensionSet);
+        } catch (IOException | OperatorCreationException ex) {
+            throw new CryptoException(res.getString("CertificateGenFailed.exception.message"), ex);
+        }
+    }
+
+    /**
+     * Issue a certificate.
+     *
+     * @param request Subject, public key, serial number and validity of the certificate
+     * @return DER encoded certificate
+     * @throws CryptoException If the certificate could not be issued
+     */
+    public byte[] issue(Request request) throws CryptoException {
+        try {
+            byte[] tbsCertificate = encodeTbsCertificate(request);
+
+            ContentSigner signer = getSigner();
+            try (OutputStream out = signer.getOutputStream()) {
+                out.write(tbsCertificate);
+            }
+            byte[] signature = signer.getSignature();
+
+            byte[] signatureValue = new byte[signature.length + 1];
+            System.arraycopy(signature, 0, signatureValue, 1, signature.length); // no unused bits
+
+            return tlv(TAG_SEQUENCE, tbsCertificate, signatureAlgorithm, tlv(TAG_BIT_STRING, signatureValue));
+        } catch (IOException | OperatorCreationException | RuntimeException ex) {
+            throw new CryptoException(res.getString("CertificateGenFailed.exception.message"), ex);
+        }
+    }
+
+    /**
+     * Issue certificates in parallel. The sink is called from the worker
+     * threads as soon as a certificate has been issued, so it has to be
+     * thread-safe, and the certificates arrive in no particular order.
+     * Issuing stops at the first failure.
+     *
+     * @param requests Certificates to issue
+     * @param threads  Number of worker threads
+     * @param sink     Receives the DER encoded certificates
+     * @throws CryptoException      If a certificate could not be issued or written
+     * @throws InterruptedException If the calling thread was interrupted
+     */
+    public void issue(List<Request> requests, int threads, Sink sink) throws CryptoException, InterruptedException {
+        int workers = Math.max(1, Math.min(threads, requests.size()));
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "CertificateIssuer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                tasks.add(() -> {
+                    for (int index = next.getAndIncrement(); index < requests.size();
+                         index = next.getAndIncrement()) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new InterruptedException();
+                        }
+                        sink.write(index, issue(requests.get(index)));
+                    }
+                    return null;
+                });
+            }
+
+            List<Future<Void>> futures = new ArrayList<>(workers);
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    // let the other workers run out of requests
+                    next.set(requests.size());
+                    if (ex.getCause() instanceof CryptoException) {
+                        throw (CryptoException) ex.getCause();
+                    }
+                    throw new CryptoException(res.getString("CertificateGenFailed.exception.message"),
+                                              ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ContentSigner getSigner() throws OperatorCreationException {
+        ContentSigner signer = signers.get();
+        if (signer == null) {
+            signer = new JcaContentSignerBuilder(signatureType.jce()).setProvider(provider == null ? KSE.BC : provider)
+                                                                     .build(privateKey);
+            signers.set(signer);
+        }
+        return signer;
+    }
+
+    private byte[] encodeTbsCertificate(Request request) throws IOException, CryptoException {
+        byte[] extensions = staticExtensions;
+
+        if (!version1 && request.extensions != null) {
+            extensions = concat(extensions, encodeExtensions(request.extensions));
+        }
+
+        if (subjectKeyIdentifier) {
+            SubjectKeyIdentifier ski = new SubjectKeyIdentifier(
+                    new KeyIdentifierGenerator(request.publicKey).generate160BitHashId());
+            extensions = concat(extensions,
+                                encodeExtension(Extension.subjectKeyIdentifier.getId(), subjectKeyIdentifierCritical,
+                                                X509Ext.wrapInOctetString(ski.getEncoded(ASN1Encoding.DER))));
+        }
+
+        byte[][] fields = {
+                // the version is omitted for version 1
+                version1 ? new byte[0] : VERSION_3,
+                tlv(TAG_INTEGER, request.serialNumber.toByteArray()),
+                signatureAlgorithmAndIssuer,
+                tlv(TAG_SEQUENCE, encodeTime(request.notBefore), encodeTime(request.notAfter)),
+                request.subject.getEncoded(ASN1Encoding.DER),
+                request.publicKey.getEncoded(),
+                // extensions are omitted if there are none
+                extensions.length == 0 ? new byte[0] : tlv(TAG_EXTENSIONS, tlv(TAG_SEQUENCE, extensions))
+        };
+
+        return tlv(TAG_SEQUENCE, fields);
+    }
+
+    private static byte[] encodeExtensions(X509Extension extensions) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        for (String oid : extensions.getCriticalExtensionOIDs()) {
+            encoded.write(encodeExtension(oid, true, extensions.getExtensionValue(oid)));
+        }
+        for (String oid : extensions.getNonCriticalExtensionOIDs()) {
+            encoded.write(encodeExtension(oid, false, extensions.getExtensionValue(oid)));
+        }
+        return encoded.toByteArray();
+    }
+
+    private static byte[] encodeExtension(String oid, boolean critical, byte[] octetString) throws IOException {
+        byte[] extnId = new ASN1ObjectIdentifier(oid).getEncoded(ASN1Encoding.DER);
+
+        if (critical) {
+            return tlv(TAG_SEQUENCE, extnId, CRITICAL, octetString);
+        }
+        return tlv(TAG_SEQUENCE, extnId, octetString);
+    }
+
+    /**
+     * Receives issued certificates.
+     */
+    public interface Sink {
+        /**
+         * Write an issued certificate.
+         *
+         * @param index       Index of the certificate's request
+         * @param certificate DER encoded certificate
+         * @throws IOException If the certificate could not be written
+         */
+        void write(int index, byte[] certificate) throws IOException;
+    }
+
+    /**
+     * The values of a certificate to issue that are not the same for all
+     * certificates.
+     */
+    public static class Request {
+        private final X500Name subject;
+        private final PublicKey publicKey;
+        private final BigInteger serialNumber;
+        private final Date notBefore;
+        private final Date notAfter;
+        private final X509Extension extensions;
+
+        /**
+         * Construct request.
+         *
+         * @param subject      Certificate subject
+         * @param publicKey    Subject public key
+         * @param serialNumber Serial number
+         * @param notBefore    Validity start
+         * @param notAfter     Validity end
+         */
+        public Request(X500Name subject, PublicKey publicKey, BigInteger serialNumber, Date notBefore,
+                       Date notAfter) {
+            this(subject, publicKey, serialNumber, notBefore, notAfter, null);
+        }
+
+        /**
+         * Construct request with extensions of its own.
+         *
+         * @param subject      Certificate subject
+         * @param publicKey    Subject public key
+         * @param serialNumber Serial number
+         * @param notBefore    Validity start
+         * @param notAfter     Validity end
+         * @param extensions   Extensions added to the ones of the issuer, may be null. Must not contain
+         *                     any of the issuer's extensions or key identifiers.
+         */
+        public Request(X500Name subject, PublicKey publicKey, BigInteger serialNumber, Date notBefore,
+                       Date notAfter, X509Extension extensions) {
+            this.subject = subject;
+            this.publicKey = publicKey;
+            this.serialNumber = serialNumber;
+            this.notBefore = notBefore;
+            this.notAfter = notAfter;
+            this.extensions = extensions;
+        }
+    }
+}
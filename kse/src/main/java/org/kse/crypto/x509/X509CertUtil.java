@@ -57,6 +57,7 @@ import org.bouncycastle.openssl.PEMParser;
 import org.bouncycastle.openssl.X509TrustedCertificateBlock;
 import org.kse.KSE;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlEntryReader;
 import org.kse.crypto.signing.SignatureType;
 import org.kse.gui.preferences.PreferencesManager;
 import org.kse.utilities.SerialNumbers;
@@ -75,6 +76,7 @@ public final class X509CertUtil {
     private static final String PKI_PATH_ENCODING = "PkiPath";
     private static final String CERT_PEM_TYPE = "CERTIFICATE";
     private static final String PKCS7_PEM_TYPE = "PKCS7";
+    private static final String CRL_PEM_TYPE = "X509 CRL";
 
     public static final String BEGIN_CERTIFICATE = "-----BEGIN CERTIFICATE-----";
     public static final String END_CERTIFICATE = "-----END CERTIFICATE-----";
@@ -213,6 +215,42 @@ public final class X509CertUtil {
         }
     }
 
+    /**
+     * Load a CRL from the specified data without building an X509CRL, as a
+     * CRL may have millions of entries. A PEM encoded CRL is decoded first.
+     *
+     * @param crlData BA to load CRL from
+     * @return Reader for the fields and entries of the CRL
+     * @throws CryptoException Problem encountered while loading the CRL
+     */
+    public static CrlEntryReader loadCrlEntries(byte[] crlData) throws CryptoException {
+
+        if (crlData == null || crlData.length == 0) {
+            throw new CryptoException(res.getString("NoLoadCrl.exception.message"),
+                                      new IllegalArgumentException("CRL data is empty"));
+        }
+
+        byte[] encoded = crlData;
+        if (PemUtil.isPemFormat(crlData)) {
+            PemInfo pemInfo;
+            try {
+                pemInfo = PemUtil.decode(crlData);
+            } catch (IOException ex) {
+                throw new CryptoException(res.getString("NoLoadCrl.exception.message"), ex);
+            }
+            if (pemInfo == null || !CRL_PEM_TYPE.equals(pemInfo.getType())) {
+                throw new CryptoException(res.getString("NoLoadCrl.exception.message"));
+            }
+            encoded = pemInfo.getContent();
+        }
+
+        try {
+            return CrlEntryReader.scan(encoded);
+        } catch (CryptoException ex) {
+            throw new CryptoException(res.getString("NoLoadCrl.exception.message"), ex);
+        }
+    }
+
     /**
      * Convert the supplied array of certificate objects into X509Certificate
      * objects.
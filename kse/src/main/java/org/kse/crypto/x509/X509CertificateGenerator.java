@@ -117,6 +117,42 @@ public class X509CertificateGenerator {
         }
     }
 
+    /**
+     * Generate a certificate with an existing signer. A signer can be reused
+     * for any number of certificates, but only by one thread at a time.
+     *
+     * @param subject       Certificate subject
+     * @param issuer        Certificate issuer
+     * @param validityStart Validity start date of certificate in msecs
+     * @param validityEnd   Validity end date of certificate in msecs
+     * @param publicKey     Public part of key pair
+     * @param serialNumber  Serial number
+     * @param extensions    Extensions, ignored by version 1 generators
+     * @param signer        Signer with the issuer's private key
+     * @return The generated certificate
+     * @throws CryptoException If there was a problem generating the certificate
+     */
+    public X509Certificate generate(X500Name subject, X500Name issuer, Date validityStart, Date validityEnd,
+                                    PublicKey publicKey, BigInteger serialNumber, X509Extension extensions,
+                                    ContentSigner signer) throws CryptoException {
+        Date notBefore = validityStart == null ? new Date() : validityStart;
+        Date notAfter = validityEnd == null ? new Date(notBefore.getTime() + TimeUnit.DAYS.toMillis(365)) : validityEnd;
+
+        try {
+            if (version == X509CertificateVersion.VERSION1) {
+                return new JcaX509CertificateConverter().setProvider(KSE.BC).getCertificate(
+                        new JcaX509v1CertificateBuilder(issuer, serialNumber, notBefore, notAfter, subject,
+                                                        publicKey).build(signer));
+            }
+
+            JcaX509v3CertificateBuilder certBuilder = createVersion3Builder(subject, issuer, notBefore, notAfter,
+                                                                            publicKey, serialNumber, extensions);
+            return new JcaX509CertificateConverter().setProvider(KSE.BC).getCertificate(certBuilder.build(signer));
+        } catch (CertificateException | IllegalStateException | CertIOException ex) {
+            throw new CryptoException(res.getString("CertificateGenFailed.exception.message"), ex);
+        }
+    }
+
     /**
      * Generate a self-signed certificate.
      *
@@ -204,18 +240,8 @@ public class X509CertificateGenerator {
         Date notBefore = validityStart == null ? new Date() : validityStart;
         Date notAfter = validityEnd == null ? new Date(notBefore.getTime() + TimeUnit.DAYS.toMillis(365)) : validityEnd;
 
-        JcaX509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(issuer, serialNumber, notBefore,
-                                                                                  notAfter, subject, publicKey);
-
-        if (extensions != null) {
-            for (String oid : extensions.getCriticalExtensionOIDs()) {
-                certBuilder.addExtension(new ASN1ObjectIdentifier(oid), true, getExtensionValue(extensions, oid));
-            }
-
-            for (String oid : extensions.getNonCriticalExtensionOIDs()) {
-                certBuilder.addExtension(new ASN1ObjectIdentifier(oid), false, getExtensionValue(extensions, oid));
-            }
-        }
+        JcaX509v3CertificateBuilder certBuilder = createVersion3Builder(subject, issuer, notBefore, notAfter,
+                                                                        publicKey, serialNumber, extensions);
 
         try {
             ContentSigner certSigner = null;
@@ -232,6 +258,26 @@ public class X509CertificateGenerator {
         }
     }
 
+    private JcaX509v3CertificateBuilder createVersion3Builder(X500Name subject, X500Name issuer, Date notBefore,
+                                                              Date notAfter, PublicKey publicKey,
+                                                              BigInteger serialNumber, X509Extension extensions)
+            throws CryptoException, CertIOException {
+        JcaX509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(issuer, serialNumber, notBefore,
+                                                                                  notAfter, subject, publicKey);
+
+        if (extensions != null) {
+            for (String oid : extensions.getCriticalExtensionOIDs()) {
+                certBuilder.addExtension(new ASN1ObjectIdentifier(oid), true, getExtensionValue(extensions, oid));
+            }
+
+            for (String oid : extensions.getNonCriticalExtensionOIDs()) {
+                certBuilder.addExtension(new ASN1ObjectIdentifier(oid), false, getExtensionValue(extensions, oid));
+            }
+        }
+
+        return certBuilder;
+    }
+
     private ASN1Encodable getExtensionValue(X509Extension extensions, String oid) throws CryptoException {
         byte[] octets = ASN1OctetString.getInstance(extensions.getExtensionValue(oid)).getOctets();
         try (ASN1InputStream ais = new ASN1InputStream(octets)) {
@@ -72,6 +72,8 @@ public class FileChooserFactory {
     public static final String LIB_SO_EXT = "so";
     public static final String LIB_DYLIB_EXT = "dylib";
     public static final String PEM_EXT = "pem";
+    public static final String CSV_EXT = "csv";
+    public static final String JSON_EXT = "json";
 
     private static final String KEYSTORE_FILE_DESC =
             format(res.getString("FileChooserFactory.KeyStoreFiles"), PKCS12_KEYSTORE_EXT_1, PKCS12_KEYSTORE_EXT_2,
@@ -131,6 +133,10 @@ public class FileChooserFactory {
 
     private static final String PEM_FILE_DESC = format(res.getString("FileChooserFactory.PemFiles"), PEM_EXT);
 
+    private static final String CSV_FILE_DESC = format(res.getString("FileChooserFactory.CsvFiles"), CSV_EXT);
+
+    private static final String JSON_FILE_DESC = format(res.getString("FileChooserFactory.JsonFiles"), JSON_EXT);
+
     private FileChooserFactory() {
     }
 
@@ -166,6 +172,28 @@ public class FileChooserFactory {
         return chooser;
     }
 
+    /**
+     * Get a JFileChooser filtered for CSV files
+     *
+     * @return JFileChooser object
+     */
+    public static JFileChooser getCsvFileChooser() {
+        JFileChooser chooser = getFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter(CSV_FILE_DESC, CSV_EXT));
+        return chooser;
+    }
+
+    /**
+     * Get a JFileChooser filtered for JSON files
+     *
+     * @return JFileChooser object
+     */
+    public static JFileChooser getJsonFileChooser() {
+        JFileChooser chooser = getFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter(JSON_FILE_DESC, JSON_EXT));
+        return chooser;
+    }
+
     /**
      * Get a JFileChooser filtered for KeyStore files.
      *
@@ -321,6 +349,18 @@ public class FileChooserFactory {
         chooser.setFileFilter(new FileNameExtensionFilter(PKCS10_CSR_FILE_DESC, PKCS10_CSR_EXT_1, PKCS10_CSR_EXT_2));
         chooser.addChoosableFileFilter(new FileNameExtensionFilter(PEM_FILE_DESC, PEM_EXT));
         chooser.addChoosableFileFilter(new FileNameExtensionFilter(SPKAC_CSR_FILE_DESC, SPKAC_CSR_EXT));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter(ZIP_FILE_DESC, ZIP_EXT));
+        return chooser;
+    }
+
+    /**
+     * Get a JFileChooser for directories.
+     *
+     * @return JFileChooser object
+     */
+    public static JFileChooser getDirectoryChooser() {
+        JFileChooser chooser = getFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
         return chooser;
     }
 
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui;
+
+import java.awt.Insets;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import javax.swing.AbstractAction;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Search bar above the KeyStore tabs. Filters the entries of the active
+ * KeyStore as the query is typed.
+ */
+public class KeyStoreSearchBar extends JPanel {
+    private static final long serialVersionUID = 1L;
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/resources");
+
+    private static final String CLOSE_KEY = "CLOSE_KEY";
+
+    private JLabel jlSearch;
+    private JTextField jtfSearch;
+    private JLabel jlMatches;
+    private JButton jbClose;
+    private KseFrame kseFrame;
+
+    /**
+     * Construct search bar.
+     *
+     * @param kseFrame KeyStore Explorer frame
+     */
+    public KeyStoreSearchBar(KseFrame kseFrame) {
+        this.kseFrame = kseFrame;
+
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlSearch = new JLabel(res.getString("KeyStoreSearchBar.jlSearch.text"));
+
+        jtfSearch = new JTextField(30);
+        jtfSearch.setToolTipText(res.getString("KeyStoreSearchBar.jtfSearch.tooltip"));
+        jtfSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent evt) {
+                kseFrame.applyKeyStoreFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent evt) {
+                kseFrame.applyKeyStoreFilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent evt) {
+                kseFrame.applyKeyStoreFilter();
+            }
+        });
+        jtfSearch.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CLOSE_KEY);
+        jtfSearch.getActionMap().put(CLOSE_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                kseFrame.hideSearchBar();
+            }
+        });
+
+        jlMatches = new JLabel();
+
+        jbClose = new JButton(new ImageIcon(
+                Toolkit.getDefaultToolkit().createImage(getClass().getResource("images/tab/close_tab.png"))));
+        jbClose.setToolTipText(res.getString("KeyStoreSearchBar.jbClose.tooltip"));
+        jbClose.setMargin(new Insets(0, 0, 0, 0));
+        jbClose.setBorderPainted(false);
+        jbClose.setContentAreaFilled(false);
+        jbClose.setFocusable(false);
+        jbClose.addActionListener(evt -> kseFrame.hideSearchBar());
+
+        setLayout(new MigLayout("insets 3 6 0 6", "[][grow][][]", "[]"));
+        add(jlSearch);
+        add(jtfSearch, "growx");
+        add(jlMatches);
+        add(jbClose);
+    }
+
+    /**
+     * Get the query.
+     *
+     * @return Query as typed
+     */
+    public String getQuery() {
+        return jtfSearch.getText();
+    }
+
+    /**
+     * Focus the query field and select its text.
+     */
+    public void focusQuery() {
+        jtfSearch.requestFocusInWindow();
+        jtfSearch.selectAll();
+    }
+
+    /**
+     * Clear the query.
+     */
+    public void clearQuery() {
+        jtfSearch.setText("");
+    }
+
+    /**
+     * Show the number of entries that match the query.
+     *
+     * @param matches Number of matching entries, -1 if there is no query
+     */
+    public void setMatchCount(int matches) {
+        jlMatches.setText(matches < 0 ? "" : MessageFormat.format(res.getString("KeyStoreSearchBar.jlMatches.text"),
+                                                                   matches));
+    }
+}
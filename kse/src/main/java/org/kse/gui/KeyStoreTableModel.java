@@ -51,6 +51,7 @@ import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
 import org.kse.crypto.CryptoException;
 import org.kse.crypto.KeyInfo;
 import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.keystore.KeyStoreSearchIndex;
 import org.kse.crypto.keystore.KeyStoreType;
 import org.kse.crypto.keystore.KeyStoreUtil;
 import org.kse.crypto.secretkey.SecretKeyType;
@@ -71,7 +72,9 @@ public class KeyStoreTableModel extends AbstractTableModel {
     private String[] columnNames;
     private Class<?>[] columnTypes;
     private Object[][] data = new Object[0][0];
+    private String[] aliases = new String[0];
     private KeyStoreHistory history;
+    private final KeyStoreSearchIndex searchIndex = new KeyStoreSearchIndex();
 
     /**
      * Type column value for a key pair entry
@@ -154,6 +157,7 @@ public class KeyStoreTableModel extends AbstractTableModel {
         }
 
         data = new Object[sortedAliases.size()][nofColumns];
+        this.aliases = sortedAliases.keySet().toArray(new String[0]);
 
         int i = 0;
         for (Iterator<Entry<String, String>> itr = sortedAliases.entrySet().iterator(); itr.hasNext(); i++) {
@@ -352,6 +356,8 @@ public class KeyStoreTableModel extends AbstractTableModel {
             }
         }
 
+        searchIndex.update(keyStore);
+
         fireTableDataChanged();
     }
 
@@ -743,6 +749,25 @@ public class KeyStoreTableModel extends AbstractTableModel {
         return history;
     }
 
+    /**
+     * Get the alias of the entry in a row, regardless of the visible columns.
+     *
+     * @param row The row position
+     * @return The alias
+     */
+    public String getAliasAt(int row) {
+        return aliases[row];
+    }
+
+    /**
+     * Get the search index over the entries of the loaded KeyStore.
+     *
+     * @return Search index
+     */
+    public KeyStoreSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
     private class AliasComparator implements Comparator<String> {
         @Override
         public int compare(String name1, String name2) {
@@ -71,6 +71,7 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JScrollPane;
@@ -79,6 +80,7 @@ import javax.swing.JTable;
 import javax.swing.JToolBar;
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
+import javax.swing.RowFilter;
 import javax.swing.RowSorter;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
@@ -92,6 +94,7 @@ import javax.swing.table.TableRowSorter;
 import org.kse.KSE;
 import org.kse.crypto.CryptoException;
 import org.kse.gui.passwordmanager.Password;
+import org.kse.crypto.keystore.KeyStoreSearchIndex;
 import org.kse.crypto.keystore.KeyStoreType;
 import org.kse.crypto.keystore.KeyStoreUtil;
 import org.kse.gui.actions.AboutAction;
@@ -128,6 +131,7 @@ import org.kse.gui.actions.FindAction;
 import org.kse.gui.actions.GenerateCsrAction;
 import org.kse.gui.actions.GenerateDHParametersAction;
 import org.kse.gui.actions.GenerateKeyPairAction;
+import org.kse.gui.actions.GenerateKeyPairsAction;
 import org.kse.gui.actions.GenerateSecretKeyAction;
 import org.kse.gui.actions.HelpAction;
 import org.kse.gui.actions.ImportCaReplyFromClipboardAction;
@@ -139,6 +143,7 @@ import org.kse.gui.actions.KeyDetailsAction;
 import org.kse.gui.actions.KeyPairCertificateChainDetailsAction;
 import org.kse.gui.actions.KeyPairPrivateKeyDetailsAction;
 import org.kse.gui.actions.KeyPairPublicKeyDetailsAction;
+import org.kse.gui.actions.MergeExternalChangesAction;
 import org.kse.gui.actions.NewAction;
 import org.kse.gui.actions.OpenAction;
 import org.kse.gui.actions.OpenCaCertificatesAction;
@@ -156,6 +161,8 @@ import org.kse.gui.actions.RenameTrustedCertificateAction;
 import org.kse.gui.actions.SaveAction;
 import org.kse.gui.actions.SaveAllAction;
 import org.kse.gui.actions.SaveAsAction;
+import org.kse.gui.actions.ScanSslAction;
+import org.kse.gui.actions.SearchKeyStoresAction;
 import org.kse.gui.actions.SecurityProvidersAction;
 import org.kse.gui.actions.SetKeyPairPasswordAction;
 import org.kse.gui.actions.SetKeyPasswordAction;
@@ -168,6 +175,7 @@ import org.kse.gui.actions.SignJarAction;
 import org.kse.gui.actions.SignJwtAction;
 import org.kse.gui.actions.SignMidletAction;
 import org.kse.gui.actions.SignNewKeyPairAction;
+import org.kse.gui.actions.SignNewKeyPairsAction;
 import org.kse.gui.actions.SystemInformationAction;
 import org.kse.gui.actions.TabStyleScrollAction;
 import org.kse.gui.actions.TabStyleWrapAction;
@@ -178,6 +186,7 @@ import org.kse.gui.actions.UndoAction;
 import org.kse.gui.actions.UnlockKeyAction;
 import org.kse.gui.actions.UnlockKeyPairAction;
 import org.kse.gui.actions.VerifyCertificateAction;
+import org.kse.gui.actions.VerifyKeyStoreAction;
 import org.kse.gui.actions.WebsiteAction;
 import org.kse.gui.dnd.DragEntry;
 import org.kse.gui.dnd.DragKeyPairEntry;
@@ -190,6 +199,8 @@ import org.kse.gui.quickstart.JQuickStartPane;
 import org.kse.gui.statusbar.StatusBar;
 import org.kse.gui.statusbar.StatusBarChangeHandler;
 import org.kse.utilities.buffer.Buffer;
+import org.kse.utilities.history.KeyStoreDiff;
+import org.kse.utilities.history.KeyStoreFileMonitor;
 import org.kse.utilities.history.KeyStoreHistory;
 import org.kse.utilities.history.KeyStoreState;
 import org.kse.utilities.os.OperatingSystem;
@@ -215,6 +226,7 @@ public final class KseFrame implements StatusBar {
     private KsePreferences preferences = PreferencesManager.getPreferences();
     private KeyStoreTableColumns keyStoreTableColumns = new KeyStoreTableColumns();
     private int autoResizeMode = JTable.AUTO_RESIZE_ALL_COLUMNS;
+    private final KeyStoreFileMonitor keyStoreFileMonitor = new KeyStoreFileMonitor(new ExternalChangeListener());
 
     //
     // Menu bar controls
@@ -243,6 +255,7 @@ public final class KseFrame implements StatusBar {
     private JMenuItem jmiCopy;
     private JMenuItem jmiPaste;
     private JMenuItem jmiFind;
+    private JMenuItem jmiSearchKeyStores;
     private JMenuItem jmiCompare;
 
     private JMenu jmView;
@@ -255,6 +268,7 @@ public final class KseFrame implements StatusBar {
     private JMenu jmTools;
     private JMenuItem jmiGenerateDHParameters;
     private JMenuItem jmiGenerateKeyPair;
+    private JMenuItem jmiGenerateKeyPairs;
     private JMenuItem jmiGenerateSecretKey;
     private JMenuItem jmiImportTrustedCertificate;
     private JMenuItem jmiImportKeyPair;
@@ -266,6 +280,7 @@ public final class KseFrame implements StatusBar {
     private JRadioButtonMenuItem jrbmiChangeTypeBcfks;
     private JRadioButtonMenuItem jrbmiChangeTypeUber;
     private JMenuItem jmiSetPassword;
+    private JMenuItem jmiVerifyKeyStore;
     private JMenuItem jmiProperties;
     private JMenuItem jmiPreferences;
 
@@ -273,6 +288,7 @@ public final class KseFrame implements StatusBar {
     private JMenuItem jmiExamineFile;
     private JMenuItem jmiExamineClipboard;
     private JMenuItem jmiExamineSsl;
+    private JMenuItem jmiScanSsl;
     private JMenuItem jmiDetectFileType;
 
     private JMenu jmHelp;
@@ -321,6 +337,7 @@ public final class KseFrame implements StatusBar {
     private JMenuItem jmiKeyStoreTabSave;
     private JMenuItem jmiKeyStoreTabSaveAll;
     private JMenuItem jmiKeyStoreTabPaste;
+    private JMenuItem jmiKeyStoreTabMergeExternalChanges;
     private JMenuItem jmiKeyStoreTabClose;
     private JMenuItem jmiKeyStoreTabCloseOthers;
     private JMenuItem jmiKeyStoreTabCloseAll;
@@ -368,6 +385,7 @@ public final class KseFrame implements StatusBar {
     private JMenuItem jmiKeyPairSignCrl;
     private JMenuItem jmiKeyPairSignJwt;
     private JMenuItem jmiKeyPairSignNewKeyPair;
+    private JMenuItem jmiKeyPairSignNewKeyPairs;
     private JMenuItem jmiKeyPairUnlock;
     private JMenuItem jmiKeyPairSetPassword;
     private JMenuItem jmiKeyPairDelete;
@@ -408,6 +426,8 @@ public final class KseFrame implements StatusBar {
     //
 
     private JKeyStoreTabbedPane jkstpKeyStores;
+    private KeyStoreSearchBar jpSearchBar;
+    private JPanel jpKeyStores;
     private JQuickStartPane jQuickStart;
 
     //
@@ -438,7 +458,9 @@ public final class KseFrame implements StatusBar {
     private final CutAction cutAction = new CutAction(this);
     private final CopyAction copyAction = new CopyAction(this);
     private final PasteAction pasteAction = new PasteAction(this);
+    private final MergeExternalChangesAction mergeExternalChangesAction = new MergeExternalChangesAction(this);
     private final FindAction findAction = new FindAction(this);
+    private final SearchKeyStoresAction searchKeyStoresAction = new SearchKeyStoresAction(this);
     private final CompareCertificateAction compareCertificateAction = new CompareCertificateAction(this);
     private final ShowHideToolBarAction showHideToolBarAction = new ShowHideToolBarAction(this);
     private final ShowHideStatusBarAction showHideStatusBarAction = new ShowHideStatusBarAction(this);
@@ -446,6 +468,7 @@ public final class KseFrame implements StatusBar {
     private final TabStyleScrollAction tabStyleScrollAction = new TabStyleScrollAction(this);
     private final GenerateDHParametersAction generateDHParametersAction = new GenerateDHParametersAction(this);
     private final GenerateKeyPairAction generateKeyPairAction = new GenerateKeyPairAction(this);
+    private final GenerateKeyPairsAction generateKeyPairsAction = new GenerateKeyPairsAction(this);
     private final GenerateSecretKeyAction generateSecretKeyAction = new GenerateSecretKeyAction(this);
     private final ImportTrustedCertificateAction importTrustedCertificateAction = new ImportTrustedCertificateAction(
             this);
@@ -462,6 +485,7 @@ public final class KseFrame implements StatusBar {
     private final ExamineFileAction examineFileAction = new ExamineFileAction(this);
     private final ExamineClipboardAction examineClipboardAction = new ExamineClipboardAction(this);
     private final ExamineSslAction examineSslAction = new ExamineSslAction(this);
+    private final ScanSslAction scanSslAction = new ScanSslAction(this);
     private final DetectFileTypeAction detectFileTypeAction = new DetectFileTypeAction(this);
     private final HelpAction helpAction = new HelpAction(this);
     private final TipOfTheDayAction tipOfTheDayAction = new TipOfTheDayAction(this);
@@ -489,6 +513,7 @@ public final class KseFrame implements StatusBar {
     private final ExportKeyPairPublicKeyAction exportKeyPairPublicKeyAction = new ExportKeyPairPublicKeyAction(this);
     private final GenerateCsrAction generateCsrAction = new GenerateCsrAction(this);
     private final VerifyCertificateAction verifyCertificateAction = new VerifyCertificateAction(this);
+    private final VerifyKeyStoreAction verifyKeyStoreAction = new VerifyKeyStoreAction(this);
     private final ImportCaReplyFromFileAction importCaReplyFromFileAction = new ImportCaReplyFromFileAction(this);
     private final ImportCaReplyFromClipboardAction importCaReplyFromClipboardAction =
             new ImportCaReplyFromClipboardAction(
@@ -504,6 +529,7 @@ public final class KseFrame implements StatusBar {
     private final SignCrlAction signCrlAction = new SignCrlAction(this);
     private final SignJwtAction signJwtAction = new SignJwtAction(this);
     private final SignNewKeyPairAction signNewKeyPairAction = new SignNewKeyPairAction(this);
+    private final SignNewKeyPairsAction signNewKeyPairsAction = new SignNewKeyPairsAction(this);
     private final UnlockKeyPairAction unlockKeyPairAction = new UnlockKeyPairAction(this);
     private final SetKeyPairPasswordAction setKeyPairPasswordAction = new SetKeyPairPasswordAction(this);
     private final DeleteKeyPairAction deleteKeyPairAction = new DeleteKeyPairAction(this);
@@ -800,6 +826,13 @@ public final class KseFrame implements StatusBar {
         new StatusBarChangeHandler(jmiFind, (String) findAction.getValue(Action.LONG_DESCRIPTION), this);
         jmEdit.add(jmiFind);
 
+        jmiSearchKeyStores = new JMenuItem(searchKeyStoresAction);
+        PlatformUtil.setMnemonic(jmiSearchKeyStores, res.getString("KseFrame.jmiSearchKeyStores.mnemonic").charAt(0));
+        jmiSearchKeyStores.setToolTipText(null);
+        new StatusBarChangeHandler(jmiSearchKeyStores, (String) searchKeyStoresAction.getValue(Action.LONG_DESCRIPTION),
+                                   this);
+        jmEdit.add(jmiSearchKeyStores);
+
         jmView = new JMenu(res.getString("KseFrame.jmView.text"));
         PlatformUtil.setMnemonic(jmView, res.getString("KseFrame.jmView.mnemonic").charAt(0));
 
@@ -867,6 +900,14 @@ public final class KseFrame implements StatusBar {
                                    this);
         jmTools.add(jmiGenerateKeyPair);
 
+        jmiGenerateKeyPairs = new JMenuItem(generateKeyPairsAction);
+        PlatformUtil.setMnemonic(jmiGenerateKeyPairs,
+                                 res.getString("KseFrame.jmiGenerateKeyPairs.mnemonic").charAt(0));
+        jmiGenerateKeyPairs.setToolTipText(null);
+        new StatusBarChangeHandler(jmiGenerateKeyPairs,
+                                   (String) generateKeyPairsAction.getValue(Action.LONG_DESCRIPTION), this);
+        jmTools.add(jmiGenerateKeyPairs);
+
         jmiGenerateSecretKey = new JMenuItem(generateSecretKeyAction);
         PlatformUtil.setMnemonic(jmiGenerateSecretKey,
                                  res.getString("KseFrame.jmiGenerateSecretKey.mnemonic").charAt(0));
@@ -966,6 +1007,13 @@ public final class KseFrame implements StatusBar {
         changeTypeGroup.add(jrbmiChangeTypeBcfks);
         changeTypeGroup.add(jrbmiChangeTypeUber);
 
+        jmiVerifyKeyStore = new JMenuItem(verifyKeyStoreAction);
+        PlatformUtil.setMnemonic(jmiVerifyKeyStore, res.getString("KseFrame.jmiVerifyKeyStore.mnemonic").charAt(0));
+        jmiVerifyKeyStore.setToolTipText(null);
+        new StatusBarChangeHandler(jmiVerifyKeyStore, (String) verifyKeyStoreAction.getValue(Action.LONG_DESCRIPTION),
+                                   this);
+        jmTools.add(jmiVerifyKeyStore);
+
         jmiProperties = new JMenuItem(propertiesAction);
         PlatformUtil.setMnemonic(jmiProperties, res.getString("KseFrame.jmiProperties.mnemonic").charAt(0));
         jmiProperties.setToolTipText(null);
@@ -1005,6 +1053,12 @@ public final class KseFrame implements StatusBar {
         new StatusBarChangeHandler(jmiExamineSsl, (String) examineSslAction.getValue(Action.LONG_DESCRIPTION), this);
         jmExamine.add(jmiExamineSsl);
 
+        jmiScanSsl = new JMenuItem(scanSslAction);
+        PlatformUtil.setMnemonic(jmiScanSsl, res.getString("KseFrame.jmiScanSsl.mnemonic").charAt(0));
+        jmiScanSsl.setToolTipText(null);
+        new StatusBarChangeHandler(jmiScanSsl, (String) scanSslAction.getValue(Action.LONG_DESCRIPTION), this);
+        jmExamine.add(jmiScanSsl);
+
         jmExamine.addSeparator();
 
         jmiDetectFileType = new JMenuItem(detectFileTypeAction);
@@ -1496,9 +1550,17 @@ public final class KseFrame implements StatusBar {
 
         jkstpKeyStores.setBorder(new EmptyBorder(3, 3, 3, 3));
 
+        jpSearchBar = new KeyStoreSearchBar(this);
+        jpSearchBar.setVisible(false);
+
+        jpKeyStores = new JPanel(new BorderLayout());
+        jpKeyStores.add(jpSearchBar, BorderLayout.NORTH);
+        jpKeyStores.add(jkstpKeyStores, BorderLayout.CENTER);
+
         jkstpKeyStores.addChangeListener(evt -> {
             // Update controls as selected KeyStore is changed
             updateControls(false);
+            applyKeyStoreFilter();
         });
 
         jkstpKeyStores.addMouseListener(new MouseAdapter() {
@@ -1732,6 +1794,12 @@ public final class KseFrame implements StatusBar {
         new StatusBarChangeHandler(jmiKeyStoreTabPaste, (String) pasteAction.getValue(Action.LONG_DESCRIPTION), this);
         jpmKeyStoreTab.add(jmiKeyStoreTabPaste);
 
+        jmiKeyStoreTabMergeExternalChanges = new JMenuItem(mergeExternalChangesAction);
+        jmiKeyStoreTabMergeExternalChanges.setToolTipText(null);
+        new StatusBarChangeHandler(jmiKeyStoreTabMergeExternalChanges,
+                                   (String) mergeExternalChangesAction.getValue(Action.LONG_DESCRIPTION), this);
+        jpmKeyStoreTab.add(jmiKeyStoreTabMergeExternalChanges);
+
         jpmKeyStoreTab.addSeparator();
 
         jmiKeyStoreTabClose = new JMenuItem(closeAction);
@@ -2002,6 +2070,11 @@ public final class KseFrame implements StatusBar {
         new StatusBarChangeHandler(jmiKeyPairSignNewKeyPair,
                                    (String) signNewKeyPairAction.getValue(Action.LONG_DESCRIPTION), this);
 
+        jmiKeyPairSignNewKeyPairs = new JMenuItem(signNewKeyPairsAction);
+        jmiKeyPairSignNewKeyPairs.setToolTipText(null);
+        new StatusBarChangeHandler(jmiKeyPairSignNewKeyPairs,
+                                   (String) signNewKeyPairsAction.getValue(Action.LONG_DESCRIPTION), this);
+
         jmiKeyPairUnlock = new JMenuItem(unlockKeyPairAction);
         jmiKeyPairUnlock.setToolTipText(null);
         new StatusBarChangeHandler(jmiKeyPairUnlock, (String) unlockKeyPairAction.getValue(Action.LONG_DESCRIPTION),
@@ -2046,6 +2119,7 @@ public final class KseFrame implements StatusBar {
         jpmKeyPair.addSeparator();
         jpmKeyPair.add(jmKeyPairSign);
         jmKeyPairSign.add(jmiKeyPairSignNewKeyPair);
+        jmKeyPairSign.add(jmiKeyPairSignNewKeyPairs);
         jmKeyPairSign.add(jmiKeyPairSignCsr);
         jmKeyPairSign.add(jmiKeyPairSignJar);
         jmKeyPairSign.add(jmiKeyPairSignMidlet);
@@ -2402,12 +2476,25 @@ public final class KseFrame implements StatusBar {
 
         updateControls(true);
 
-        // If KeyStore is backed up by a file add it to the recent files menu
+        // If KeyStore is backed up by a file add it to the recent files menu and watch it for external changes
         if (history.getFile() != null) {
             jmrfRecentFiles.add(createRecentFileMenuItem(jmrfRecentFiles, history.getFile()));
+            keyStoreFileMonitor.register(history);
         }
     }
 
+    /**
+     * Notify the frame that a KeyStore was written to its file, so that the write
+     * is not mistaken for an external change.
+     *
+     * @param history KeyStore history
+     */
+    public void keyStoreFileSaved(KeyStoreHistory history) {
+        keyStoreFileMonitor.register(history);
+        mergeExternalChangesAction.discardPendingChanges(history);
+        updateControls(false);
+    }
+
     /**
      * Removed the supplied KeyStore from the set of loaded KeyStores.
      *
@@ -2418,7 +2505,10 @@ public final class KseFrame implements StatusBar {
 
         if (index >= 0) {
             keyStoreTables.remove(index);
-            histories.remove(index).nullPasswords();
+            KeyStoreHistory history = histories.remove(index);
+            keyStoreFileMonitor.unregister(history);
+            mergeExternalChangesAction.discardPendingChanges(history);
+            history.nullPasswords();
             jkstpKeyStores.remove(index);
         }
     }
@@ -2452,6 +2542,8 @@ public final class KseFrame implements StatusBar {
                     DError.displayError(frame, e);
                 }
             }
+
+            applyKeyStoreFilter();
         }
     }
 
@@ -2522,6 +2614,21 @@ public final class KseFrame implements StatusBar {
         }
     }
 
+    /**
+     * Get the search index over the entries of a loaded KeyStore.
+     *
+     * @param history KeyStore history
+     * @return Search index or null if the KeyStore is not loaded
+     */
+    public KeyStoreSearchIndex getKeyStoreSearchIndex(KeyStoreHistory history) {
+        int index = histories.indexOf(history);
+        if (index < 0) {
+            return null;
+        }
+
+        return ((KeyStoreTableModel) keyStoreTables.get(index).getModel()).getSearchIndex();
+    }
+
     private JTable getActiveKeyStoreTable() {
         if (keyStoreTables.isEmpty()) {
             return null;
@@ -2682,6 +2789,63 @@ public final class KseFrame implements StatusBar {
         }
     }
 
+    /**
+     * Show the search bar and focus its query field.
+     */
+    public void showSearchBar() {
+        jpSearchBar.setVisible(true);
+        jpKeyStores.revalidate();
+        jpSearchBar.focusQuery();
+    }
+
+    /**
+     * Hide the search bar and show all entries again.
+     */
+    public void hideSearchBar() {
+        jpSearchBar.setVisible(false);
+        jpSearchBar.clearQuery();
+        jpKeyStores.revalidate();
+
+        for (JTable keyStoreTable : keyStoreTables) {
+            ((TableRowSorter<?>) keyStoreTable.getRowSorter()).setRowFilter(null);
+        }
+
+        JTable jtKeyStore = getActiveKeyStoreTable();
+        if (jtKeyStore != null) {
+            jtKeyStore.requestFocusInWindow();
+        }
+    }
+
+    /**
+     * Filter the entries of the active KeyStore by the query of the search bar.
+     */
+    public void applyKeyStoreFilter() {
+        JTable jtKeyStore = getActiveKeyStoreTable();
+        if (jtKeyStore == null) {
+            return;
+        }
+
+        KeyStoreTableModel ksModel = (KeyStoreTableModel) jtKeyStore.getModel();
+        @SuppressWarnings("unchecked")
+        TableRowSorter<KeyStoreTableModel> sorter = (TableRowSorter<KeyStoreTableModel>) jtKeyStore.getRowSorter();
+
+        String query = jpSearchBar.isVisible() ? jpSearchBar.getQuery().trim() : "";
+        if (query.isEmpty()) {
+            sorter.setRowFilter(null);
+            jpSearchBar.setMatchCount(-1);
+            return;
+        }
+
+        Set<String> matches = ksModel.getSearchIndex().search(query);
+        sorter.setRowFilter(new RowFilter<KeyStoreTableModel, Integer>() {
+            @Override
+            public boolean include(Entry<? extends KeyStoreTableModel, ? extends Integer> entry) {
+                return matches.contains(entry.getModel().getAliasAt(entry.getIdentifier()));
+            }
+        });
+        jpSearchBar.setMatchCount(jtKeyStore.getRowCount());
+    }
+
     public void keyStoreclearSelection() {
         JTable jtKeyStore = getActiveKeyStoreTable();
         ListSelectionModel selectionModel = jtKeyStore.getSelectionModel();
@@ -2723,6 +2887,7 @@ public final class KseFrame implements StatusBar {
                 String[] selectedAliases = getSelectedEntryAliases();
 
                 ((KeyStoreTableModel) getActiveKeyStoreTable().getModel()).load(history);
+                applyKeyStoreFilter();
 
                 // Loading the model loses the selected entry - preserve it
                 if (selectedAliases.length > 0) {
@@ -2754,6 +2919,9 @@ public final class KseFrame implements StatusBar {
         // Can close others?
         closeOthersAction.setEnabled(jkstpKeyStores.getTabCount() > 1);
 
+        // Can merge changes made by other programs?
+        mergeExternalChangesAction.setEnabled(mergeExternalChangesAction.hasPendingChanges(history));
+
         KeyStore keyStore = currentState.getKeyStore();
         KeyStoreType type = KeyStoreType.resolveJce(keyStore.getType());
 
@@ -2775,9 +2943,11 @@ public final class KseFrame implements StatusBar {
 
         // Can use tools on
         generateKeyPairAction.setEnabled(true);
+        generateKeyPairsAction.setEnabled(true);
         generateSecretKeyAction.setEnabled(type.supportsKeyEntries());
         importTrustedCertificateAction.setEnabled(true);
         importKeyPairAction.setEnabled(true);
+        verifyKeyStoreAction.setEnabled(true);
         propertiesAction.setEnabled(true);
         if (type.isFileBased()) {
             setPasswordAction.setEnabled(true);
@@ -2865,7 +3035,7 @@ public final class KseFrame implements StatusBar {
 
         // Show KeyStores tabbed pane
         frame.getContentPane().remove(jQuickStart);
-        frame.getContentPane().add(jkstpKeyStores, BorderLayout.CENTER);
+        frame.getContentPane().add(jpKeyStores, BorderLayout.CENTER);
 
         updateKeyStoreTabsText();
         updateApplicationTitle();
@@ -2884,6 +3054,9 @@ public final class KseFrame implements StatusBar {
         saveAsAction.setEnabled(false);
         saveAllAction.setEnabled(false);
 
+        // Nothing to merge
+        mergeExternalChangesAction.setEnabled(false);
+
         // Nothing to undo/redo
         undoAction.setEnabled(false);
         redoAction.setEnabled(false);
@@ -2901,11 +3074,13 @@ public final class KseFrame implements StatusBar {
 
         // Nothing to use tools on
         generateKeyPairAction.setEnabled(false);
+        generateKeyPairsAction.setEnabled(false);
         generateSecretKeyAction.setEnabled(false);
         importTrustedCertificateAction.setEnabled(false);
         importKeyPairAction.setEnabled(false);
         setPasswordAction.setEnabled(false);
         jmChangeType.setEnabled(false);
+        verifyKeyStoreAction.setEnabled(false);
         propertiesAction.setEnabled(false);
 
         // No current KeyStore type
@@ -2923,7 +3098,7 @@ public final class KseFrame implements StatusBar {
         jrbmiKeyStoreChangeTypeUber.setSelected(false);
 
         // Show Quick Start pane
-        frame.getContentPane().remove(jkstpKeyStores);
+        frame.getContentPane().remove(jpKeyStores);
         frame.getContentPane().add(jQuickStart, BorderLayout.CENTER);
 
         updateApplicationTitle();
@@ -3142,4 +3317,24 @@ public final class KseFrame implements StatusBar {
             preferences.setShowStatusBar(true);
         }
     }
+
+    private class ExternalChangeListener implements KeyStoreFileMonitor.Listener {
+        @Override
+        public void keyStoreFileChanged(KeyStoreHistory history, KeyStoreDiff diff) {
+            SwingUtilities.invokeLater(() -> {
+                if (histories.contains(history)) {
+                    mergeExternalChangesAction.offerExternalChanges(history, diff);
+                }
+            });
+        }
+
+        @Override
+        public void keyStoreFileReloadFailed(KeyStoreHistory history, Exception ex) {
+            SwingUtilities.invokeLater(() -> {
+                if (histories.contains(history)) {
+                    mergeExternalChangesAction.reportReloadFailure(history, ex);
+                }
+            });
+        }
+    }
 }
@@ -26,12 +26,12 @@ import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.text.MessageFormat;
 import java.util.Base64;
@@ -44,9 +44,9 @@ import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 
-import org.apache.commons.io.IOUtils;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlEntryReader;
 import org.kse.crypto.csr.pkcs10.Pkcs10Util;
 import org.kse.crypto.csr.spkac.Spkac;
 import org.kse.crypto.filetype.CryptoFileType;
@@ -70,6 +70,8 @@ import org.kse.gui.error.DProblem;
 import org.kse.gui.error.Problem;
 import org.kse.gui.password.DGetPassword;
 import org.kse.gui.passwordmanager.Password;
+import org.kse.utilities.net.FetchResult;
+import org.kse.utilities.net.HttpFetcher;
 
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
@@ -138,17 +140,23 @@ public class ExamineClipboardAction extends KeyStoreExplorerAction {
         try {
             URL url = new URL(data);
             String path = url.getPath();
-            if (path.endsWith(".cer") || path.endsWith(".crt") || path.endsWith(".pem") || path.endsWith(".der")) {
-                downloadCert(url);
+            boolean http = url.getProtocol().equals("http") || url.getProtocol().equals("https");
+            if (http && (path.endsWith(".cer") || path.endsWith(".crt") || path.endsWith(".pem") ||
+                         path.endsWith(".der"))) {
+                download(url, data, false);
                 return;
-            } else if (url.getPath().endsWith(".crl")) {
-                downloadCrl(url);
+            } else if (http && path.endsWith(".crl")) {
+                download(url, data, true);
                 return;
             }
-        } catch (IOException | CryptoException e) {
+        } catch (MalformedURLException e) {
             // ignore
         }
 
+        showData(data);
+    }
+
+    private void showData(String data) {
         try {
             byte[] dataAsBytes = decodeIfBase64(data);
 
@@ -211,52 +219,57 @@ public class ExamineClipboardAction extends KeyStoreExplorerAction {
         return dataAsBytes;
     }
 
-    private boolean isRedirect(int status) {
-        // normally, 3xx is redirect
-        if (status != HttpURLConnection.HTTP_OK) {
-            return status == HttpURLConnection.HTTP_MOVED_TEMP || status == HttpURLConnection.HTTP_MOVED_PERM ||
-                   status == HttpURLConnection.HTTP_SEE_OTHER;
+    /**
+     * Download a certificate or CRL in the background. Content that cannot be
+     * downloaded or loaded is examined as text instead.
+     */
+    private void download(URL url, String data, boolean crl) {
+        URI uri;
+        try {
+            uri = url.toURI();
+        } catch (URISyntaxException e) {
+            showData(data);
+            return;
         }
-        return false;
+
+        HttpFetcher.getInstance().get(uri, HttpFetcher.DEFAULT_TIMEOUT).whenComplete(
+                (result, ex) -> SwingUtilities.invokeLater(() -> {
+                    try {
+                        if (ex == null) {
+                            if (crl) {
+                                showDownloadedCrl(result);
+                            } else {
+                                showDownloadedCert(result);
+                            }
+                            return;
+                        }
+                    } catch (CryptoException e) {
+                        // ignore
+                    }
+                    showData(data);
+                }));
     }
 
-    private void downloadCrl(URL url) throws IOException, CryptoException {
-        HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
-        int status = urlConn.getResponseCode();
-        if (isRedirect(status)) {
-            String newUrl = urlConn.getHeaderField("Location");
-            url = new URL(newUrl);
-            urlConn = (HttpURLConnection) url.openConnection();
-        }
-        try (InputStream is = urlConn.getInputStream()) {
-            X509CRL crl = X509CertUtil.loadCRL(IOUtils.toByteArray(is));
-            if (crl != null) {
-                DViewCrl dViewCrl = new DViewCrl(frame,
-                                                 MessageFormat.format(resExt.getString("DViewExtensions.ViewCrl.Title"),
-                                                                      url.toString()), crl);
-                dViewCrl.setLocationRelativeTo(frame);
-                dViewCrl.setVisible(true);
-            }
+    private void showDownloadedCrl(FetchResult result) throws CryptoException {
+        CrlEntryReader crl = X509CertUtil.loadCrlEntries(result.getBody());
+        if (crl != null) {
+            DViewCrl dViewCrl = new DViewCrl(frame,
+                                             MessageFormat.format(resExt.getString("DViewExtensions.ViewCrl.Title"),
+                                                                  result.getUri().toString()), crl);
+            dViewCrl.setLocationRelativeTo(frame);
+            dViewCrl.setVisible(true);
         }
     }
 
-    private void downloadCert(URL url) throws IOException, CryptoException {
-        HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
-        int status = urlConn.getResponseCode();
-        if (isRedirect(status)) {
-            String newUrl = urlConn.getHeaderField("Location");
-            url = new URL(newUrl);
-            urlConn = (HttpURLConnection) url.openConnection();
-        }
-        try (InputStream is = urlConn.getInputStream()) {
-            X509Certificate[] certs = X509CertUtil.loadCertificates(IOUtils.toByteArray(is));
-            if (certs != null && certs.length > 0) {
-                DViewCertificate dViewCertificate = new DViewCertificate(frame,
-                        MessageFormat.format(resExt.getString("DViewExtensions.ViewCert.Title"), url.toString()), certs,
-                        this.kseFrame, DViewCertificate.IMPORT_EXPORT);
-                dViewCertificate.setLocationRelativeTo(frame);
-                dViewCertificate.setVisible(true);
-            }
+    private void showDownloadedCert(FetchResult result) throws CryptoException {
+        X509Certificate[] certs = X509CertUtil.loadCertificates(result.getBody());
+        if (certs != null && certs.length > 0) {
+            DViewCertificate dViewCertificate = new DViewCertificate(frame,
+                    MessageFormat.format(resExt.getString("DViewExtensions.ViewCert.Title"),
+                                         result.getUri().toString()), certs,
+                    this.kseFrame, DViewCertificate.IMPORT_EXPORT);
+            dViewCertificate.setLocationRelativeTo(frame);
+            dViewCertificate.setVisible(true);
         }
     }
 
@@ -366,9 +379,9 @@ public class ExamineClipboardAction extends KeyStoreExplorerAction {
             return;
         }
 
-        X509CRL crl = null;
+        CrlEntryReader crl = null;
         try {
-            crl = X509CertUtil.loadCRL(data);
+            crl = X509CertUtil.loadCrlEntries(data);
         } catch (Exception ex) {
             String problemStr = res.getString("ExamineClipboardAction.NoOpenCrl.Problem");
 
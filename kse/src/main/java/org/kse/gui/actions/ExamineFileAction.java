@@ -26,7 +26,6 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.text.MessageFormat;
 import java.util.Base64;
@@ -40,6 +39,7 @@ import javax.swing.KeyStroke;
 import org.apache.commons.io.FileUtils;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlEntryReader;
 import org.kse.crypto.csr.pkcs10.Pkcs10Util;
 import org.kse.crypto.csr.spkac.Spkac;
 import org.kse.crypto.filetype.CryptoFileType;
@@ -178,10 +178,10 @@ public class ExamineFileAction extends KeyStoreExplorerAction {
             return;
         }
 
-        X509CRL crl = null;
+        CrlEntryReader crl = null;
         try {
             byte[] data = FileUtils.readFileToByteArray(file);
-            crl = X509CertUtil.loadCRL(data);
+            crl = X509CertUtil.loadCrlEntries(data);
         } catch (Exception ex) {
             String problemStr = MessageFormat.format(res.getString("ExamineFileAction.NoOpenCrl.Problem"),
                                                      file.getName());
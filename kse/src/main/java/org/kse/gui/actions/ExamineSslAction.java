@@ -27,12 +27,15 @@ import javax.swing.ImageIcon;
 import javax.swing.KeyStroke;
 
 import org.kse.gui.KseFrame;
+import org.kse.gui.dialogs.DEnumeratingSsl;
 import org.kse.gui.dialogs.DExamineSsl;
 import org.kse.gui.dialogs.DExaminingSsl;
 import org.kse.gui.dialogs.DViewCertificate;
 import org.kse.gui.error.DError;
 import org.kse.utilities.history.KeyStoreHistory;
 import org.kse.utilities.ssl.SslConnectionInfos;
+import org.kse.utilities.ssl.SslEnumerator;
+import org.kse.utilities.ssl.SslScanner;
 
 /**
  * Action to examine an SSL connection's certificates.
@@ -77,6 +80,16 @@ public class ExamineSslAction extends KeyStoreExplorerAction {
                 return;
             }
 
+            if (dExamineSsl.enumerateCapabilities()) {
+                SslEnumerator enumerator = new SslEnumerator(SslEnumerator.DEFAULT_CONNECTIONS_PER_HOST,
+                                                             SslScanner.DEFAULT_TIMEOUT_MILLIS);
+                DEnumeratingSsl dEnumeratingSsl = new DEnumeratingSsl(frame, enumerator, sslHost, sslPort);
+                dEnumeratingSsl.setLocationRelativeTo(frame);
+                dEnumeratingSsl.startEnumeration();
+                dEnumeratingSsl.setVisible(true);
+                return;
+            }
+
             DExaminingSsl dExaminingSsl = new DExaminingSsl(frame, sslHost, sslPort, useClientAuth, ksh);
             dExaminingSsl.setLocationRelativeTo(frame);
             dExaminingSsl.startExamination();
@@ -90,7 +103,7 @@ public class ExamineSslAction extends KeyStoreExplorerAction {
 
             DViewCertificate dViewCertificate = new DViewCertificate(frame, MessageFormat.format(
                     res.getString("ExamineSslAction.CertDetailsSsl.Title"), sslHost, Integer.toString(sslPort)),
-                                                                     sslInfos.getServerCertificates(), kseFrame,
+                                                                     sslInfos, kseFrame,
                                                                      DViewCertificate.IMPORT_EXPORT);
             dViewCertificate.setLocationRelativeTo(frame);
             dViewCertificate.setVisible(true);
@@ -21,24 +21,15 @@
 package org.kse.gui.actions;
 
 import java.awt.Toolkit;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.text.MessageFormat;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.swing.ImageIcon;
-import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
 
 import org.kse.gui.KseFrame;
-import org.kse.gui.dialogs.DFindKeyStoreEntry;
-import org.kse.gui.error.DError;
-import org.kse.utilities.history.KeyStoreHistory;
 
 /**
- * Action to Find a KeyStore entry.
+ * Action to find KeyStore entries. Shows the search bar, which filters the
+ * entries of the active KeyStore as the query is typed.
  */
 public class FindAction extends KeyStoreExplorerAction {
     private static final long serialVersionUID = 1L;
@@ -60,41 +51,6 @@ public class FindAction extends KeyStoreExplorerAction {
 
     @Override
     protected void doAction() {
-
-        DFindKeyStoreEntry dialog = new DFindKeyStoreEntry(frame);
-        dialog.setLocationRelativeTo(frame);
-        dialog.setVisible(true);
-
-        if (dialog.isSuccess()) {
-            try {
-                String name = dialog.getEntryName();
-                kseFrame.keyStoreclearSelection();
-                Set<String> aliases = findEntryAlias(name);
-                if (aliases.isEmpty()) {
-                    JOptionPane.showMessageDialog(frame,
-                                                  MessageFormat.format(res.getString("FindAction.NotFound.message"),
-                                                                       name), res.getString("FindAction.Find.Title"),
-                                                  JOptionPane.WARNING_MESSAGE);
-                } else {
-                    kseFrame.setSelectedEntriesByAliases(aliases);
-                }
-            } catch (KeyStoreException ex) {
-                DError.displayError(frame, ex);
-            }
-        }
-    }
-
-    private Set<String> findEntryAlias(String name) throws KeyStoreException {
-        Set<String> aliases = new HashSet<>();
-        KeyStoreHistory history = kseFrame.getActiveKeyStoreHistory();
-        KeyStore keyStore = history.getCurrentState().getKeyStore();
-        Enumeration<String> enumeration = keyStore.aliases();
-        while (enumeration.hasMoreElements()) {
-            String alias = enumeration.nextElement();
-            if (alias.contains(name)) {
-                aliases.add(alias);
-            }
-        }
-        return aliases;
+        kseFrame.showSearchBar();
     }
 }
@@ -22,16 +22,20 @@ package org.kse.gui.actions;
 
 import java.awt.Toolkit;
 import java.awt.event.InputEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.ResourceBundle;
 
 import javax.swing.ImageIcon;
 import javax.swing.KeyStroke;
 
+import org.kse.crypto.dh.DHParametersLibrary;
 import org.kse.gui.KseFrame;
 import org.kse.gui.dialogs.DGenerateDHParameters;
 import org.kse.gui.dialogs.DGeneratingDHParameters;
 import org.kse.gui.dialogs.DViewDHParameters;
 import org.kse.gui.error.DError;
+import org.kse.gui.preferences.PreferencesManager;
 import org.kse.utilities.history.HistoryAction;
 
 /**
@@ -40,14 +44,19 @@ import org.kse.utilities.history.HistoryAction;
  * of the dialogue windows when generating the DH Parameters.
  * <p>
  * The class also checks for successful completion before
- * continuing with next window. This class does not save the
- * parameters generated and there is no history integration.
+ * continuing with next window. Generated parameters are saved to a local
+ * library in the config directory, from which later requests for the same key
+ * size can be served immediately. There is no history integration.
  */
 public class GenerateDHParametersAction extends KeyStoreExplorerAction implements HistoryAction {
 
     private static final long serialVersionUID = 7477452992392634450L;
     protected static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/actions/resources");
 
+    private static final String LIBRARY_DIR_NAME = "dhparams";
+
+    private DHParametersLibrary library;
+
     /**
      * Construct Action
      *
@@ -83,8 +92,10 @@ public class GenerateDHParametersAction extends KeyStoreExplorerAction implement
     public void generateDHParameters() {
 
         try {
+            DHParametersLibrary library = getLibrary();
+
             //Get KeySize selection
-            DGenerateDHParameters dGenerateDHParameters = new DGenerateDHParameters(frame);
+            DGenerateDHParameters dGenerateDHParameters = new DGenerateDHParameters(frame, library);
             dGenerateDHParameters.setLocationRelativeTo(frame);
             dGenerateDHParameters.setVisible(true);
 
@@ -92,20 +103,31 @@ public class GenerateDHParametersAction extends KeyStoreExplorerAction implement
                 return;
             }
 
-            //Generate DER Encoded DH Parameters
-            DGeneratingDHParameters dGeneratingDH = new DGeneratingDHParameters(frame,
-                                                                                dGenerateDHParameters.getKeySize());
-            dGeneratingDH.setLocationRelativeTo(frame);
-            dGeneratingDH.startDHParametersGeneration();
-            dGeneratingDH.setVisible(true);
+            int keySize = dGenerateDHParameters.getKeySize();
+            byte[] dhParameters = null;
 
-            if (!dGeneratingDH.isSuccessful()) {
-                return;
+            if (dGenerateDHParameters.isReuseFromLibrary()) {
+                dhParameters = library.get(keySize);
+            }
+
+            if (dhParameters == null) {
+                //Generate DER Encoded DH Parameters
+                DGeneratingDHParameters dGeneratingDH = new DGeneratingDHParameters(frame, keySize);
+                dGeneratingDH.setLocationRelativeTo(frame);
+                dGeneratingDH.startDHParametersGeneration();
+                dGeneratingDH.setVisible(true);
+
+                if (!dGeneratingDH.isSuccessful() || dGeneratingDH.getDHParameters() == null) {
+                    return;
+                }
+
+                dhParameters = dGeneratingDH.getDHParameters();
+                library.add(keySize, dhParameters);
             }
 
             //View Base64 DH Parameters with copy and export
             DViewDHParameters dViewDH = new DViewDHParameters(frame, res.getString(
-                    "GenerateDHParametersAction.ViewDHParameters.Title"), dGeneratingDH.getDHParameters());
+                    "GenerateDHParametersAction.ViewDHParameters.Title"), dhParameters);
             dViewDH.setLocationRelativeTo(frame);
             dViewDH.setVisible(true);
 
@@ -114,4 +136,10 @@ public class GenerateDHParametersAction extends KeyStoreExplorerAction implement
         }
     }
 
+    private DHParametersLibrary getLibrary() throws IOException {
+        if (library == null) {
+            library = new DHParametersLibrary(new File(PreferencesManager.getConfigDirectory(), LIBRARY_DIR_NAME));
+        }
+        return library;
+    }
 }
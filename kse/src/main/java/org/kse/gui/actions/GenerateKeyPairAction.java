@@ -31,6 +31,7 @@ import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
 
+import org.kse.crypto.keypair.KeyPairPool;
 import org.kse.crypto.keypair.KeyPairType;
 import org.kse.crypto.keystore.KeyStoreType;
 import org.kse.crypto.x509.X509CertUtil;
@@ -138,6 +139,10 @@ public class GenerateKeyPairAction extends KeyStoreExplorerAction implements His
             preferences.getKeyGenerationDefaults().setEcCurveName(keyPairCurveName);
 
             KeyPair keyPair = generateKeyPair(keyPairType, keyPairSizeRSA, keyPairSizeDSA, keyPairCurveName, provider);
+
+            // keep the pool in line with the (possibly changed) defaults
+            KeyPairPool.getInstance().configure(preferences.getKeyGenerationDefaults());
+
             if (keyPair == null) {
                 return "";
             }
@@ -231,6 +236,14 @@ public class GenerateKeyPairAction extends KeyStoreExplorerAction implements His
 
     private KeyPair generateKeyPair(KeyPairType keyPairType, int keyPairSizeRSA, int keyPairSizeDSA, String curveName,
                                     Provider provider) {
+        if (keyPairType == KeyPairType.RSA || keyPairType == KeyPairType.DSA) {
+            int keySize = keyPairType == KeyPairType.RSA ? keyPairSizeRSA : keyPairSizeDSA;
+            KeyPair keyPair = KeyPairPool.getInstance().take(keyPairType, keySize, provider);
+            if (keyPair != null) {
+                return keyPair;
+            }
+        }
+
         DGeneratingKeyPair dGeneratingKeyPair;
 
         switch (keyPairType) {
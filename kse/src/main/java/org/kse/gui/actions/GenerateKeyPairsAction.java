@@ -0,0 +1,201 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.actions;
+
+import java.awt.Toolkit;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.ImageIcon;
+import javax.swing.JOptionPane;
+
+import org.kse.crypto.keypair.KeyPairType;
+import org.kse.crypto.keystore.KeyStoreType;
+import org.kse.gui.KseFrame;
+import org.kse.gui.dialogs.DGenerateKeyPair;
+import org.kse.gui.dialogs.DGenerateKeyPairs;
+import org.kse.gui.dialogs.DGeneratingKeyPairs;
+import org.kse.gui.error.DError;
+import org.kse.gui.password.DGetNewPassword;
+import org.kse.gui.passwordmanager.Password;
+import org.kse.utilities.history.HistoryAction;
+import org.kse.utilities.history.KeyStoreHistory;
+import org.kse.utilities.history.KeyStoreState;
+
+/**
+ * Action to generate several key pairs at once. The key pairs are generated in
+ * parallel and added to the KeyStore as a single history step.
+ */
+public class GenerateKeyPairsAction extends KeyStoreExplorerAction implements HistoryAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct action.
+     *
+     * @param kseFrame KeyStore Explorer frame
+     */
+    public GenerateKeyPairsAction(KseFrame kseFrame) {
+        super(kseFrame);
+
+        putValue(LONG_DESCRIPTION, res.getString("GenerateKeyPairsAction.statusbar"));
+        putValue(NAME, res.getString("GenerateKeyPairsAction.text"));
+        putValue(SHORT_DESCRIPTION, res.getString("GenerateKeyPairsAction.tooltip"));
+        putValue(SMALL_ICON, new ImageIcon(
+                Toolkit.getDefaultToolkit().createImage(getClass().getResource("images/genkeypair.png"))));
+    }
+
+    @Override
+    public String getHistoryDescription() {
+        return (String) getValue(NAME);
+    }
+
+    /**
+     * Do action.
+     */
+    @Override
+    protected void doAction() {
+        generateKeyPairs(null, null);
+    }
+
+    /**
+     * Generate several key pairs (with certificates) in the currently opened
+     * KeyStore.
+     *
+     * @param issuerCertChain  Chain of issuer certificate or null for self-signed certificates
+     * @param issuerPrivateKey Issuer's private key for signing or null for self-signed certificates
+     */
+    public void generateKeyPairs(X509Certificate[] issuerCertChain, PrivateKey issuerPrivateKey) {
+        try {
+            // Restore preferences regarding key type and length (or EC curve)
+            KeyPairType keyPairType = preferences.getKeyGenerationDefaults().getKeyPairType();
+            int keyPairSizeRSA = preferences.getKeyGenerationDefaults().getKeyPairSizeRSA();
+            int keyPairSizeDSA = preferences.getKeyGenerationDefaults().getKeyPairSizeDSA();
+            String keyPairCurveSet = preferences.getKeyGenerationDefaults().getEcCurveSet();
+            String keyPairCurveName = preferences.getKeyGenerationDefaults().getEcCurveName();
+
+            KeyStoreHistory history = kseFrame.getActiveKeyStoreHistory();
+            KeyStoreState currentState = history.getCurrentState();
+            KeyStoreType keyStoreType = KeyStoreType.resolveJce(currentState.getKeyStore().getType());
+            Provider provider = history.getExplicitProvider();
+
+            DGenerateKeyPair dGenerateKeyPair = new DGenerateKeyPair(frame, keyStoreType, keyPairType, keyPairSizeRSA,
+                                                                     keyPairSizeDSA, keyPairCurveSet,
+                                                                     keyPairCurveName);
+            dGenerateKeyPair.setLocationRelativeTo(frame);
+            dGenerateKeyPair.setVisible(true);
+
+            if (!dGenerateKeyPair.isSuccessful()) {
+                return;
+            }
+
+            // update (saved) values from user selection
+            keyPairType = dGenerateKeyPair.getKeyPairType();
+            keyPairSizeRSA = dGenerateKeyPair.getKeyPairSizeRSA();
+            keyPairSizeDSA = dGenerateKeyPair.getKeyPairSizeDSA();
+            keyPairCurveSet = dGenerateKeyPair.getCurveSet();
+            keyPairCurveName = dGenerateKeyPair.getCurveName();
+            preferences.getKeyGenerationDefaults().setKeyPairType(keyPairType);
+            preferences.getKeyGenerationDefaults().setKeyPairSizeRSA(keyPairSizeRSA);
+            preferences.getKeyGenerationDefaults().setKeyPairSizeDSA(keyPairSizeDSA);
+            preferences.getKeyGenerationDefaults().setEcCurveSet(keyPairCurveSet);
+            preferences.getKeyGenerationDefaults().setEcCurveName(keyPairCurveName);
+
+            int keySize = keyPairType == KeyPairType.DSA ? keyPairSizeDSA : keyPairSizeRSA;
+
+            Set<String> existingAliases = new HashSet<>(Collections.list(currentState.getKeyStore().aliases()));
+
+            DGenerateKeyPairs dGenerateKeyPairs = new DGenerateKeyPairs(frame, res.getString(
+                    "GenerateKeyPairsAction.GenerateKeyPairs.Title"), keyPairType, keySize, keyPairCurveName,
+                                                                        issuerPrivateKey, existingAliases);
+            dGenerateKeyPairs.setLocationRelativeTo(frame);
+            dGenerateKeyPairs.setVisible(true);
+
+            if (dGenerateKeyPairs.getAliases() == null) {
+                return;
+            }
+
+            Password password = new Password((char[]) null);
+
+            if (keyStoreType.hasEntryPasswords()) {
+                DGetNewPassword dGetNewPassword = new DGetNewPassword(frame, res.getString(
+                        "GenerateKeyPairsAction.NewKeyPairEntryPassword.Title"),
+                                                                      preferences.getPasswordQualityConfig());
+                dGetNewPassword.setLocationRelativeTo(frame);
+                dGetNewPassword.setVisible(true);
+                password = dGetNewPassword.getPassword();
+
+                if (password == null) {
+                    return;
+                }
+            }
+
+            DGeneratingKeyPairs dGeneratingKeyPairs = new DGeneratingKeyPairs(frame, keyPairType, keySize,
+                                                                              keyPairCurveName,
+                                                                              dGenerateKeyPairs.getAliases(),
+                                                                              dGenerateKeyPairs.getNames(),
+                                                                              dGenerateKeyPairs.getSignatureType(),
+                                                                              dGenerateKeyPairs.getValidityPeriodMs(),
+                                                                              issuerCertChain, issuerPrivateKey,
+                                                                              dGenerateKeyPairs.getThreads(),
+                                                                              provider);
+            dGeneratingKeyPairs.setLocationRelativeTo(frame);
+            dGeneratingKeyPairs.startKeyPairGeneration();
+            dGeneratingKeyPairs.setVisible(true);
+
+            Map<String, KeyStore.PrivateKeyEntry> entries = dGeneratingKeyPairs.getKeyPairEntries();
+            if (entries == null) {
+                return;
+            }
+
+            // all new entries are added in one step, so a single undo removes them again
+            currentState = history.getCurrentState();
+            KeyStoreState newState = currentState.createBasisForNextState(this);
+            KeyStore keyStore = newState.getKeyStore();
+
+            for (Map.Entry<String, KeyStore.PrivateKeyEntry> entry : entries.entrySet()) {
+                String alias = entry.getKey();
+                KeyStore.PrivateKeyEntry keyPairEntry = entry.getValue();
+
+                keyStore.setKeyEntry(alias, keyPairEntry.getPrivateKey(), password.toCharArray(),
+                                     keyPairEntry.getCertificateChain());
+                newState.setEntryPassword(alias, new Password(password));
+            }
+
+            currentState.append(newState);
+
+            kseFrame.updateControls(true);
+
+            JOptionPane.showMessageDialog(frame, MessageFormat.format(
+                                                  res.getString("GenerateKeyPairsAction.KeyPairsGenerationSuccessful.message"),
+                                                  entries.size()),
+                                          res.getString("GenerateKeyPairsAction.GenerateKeyPairs.Title"),
+                                          JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception ex) {
+            DError.displayError(frame, ex);
+        }
+    }
+}
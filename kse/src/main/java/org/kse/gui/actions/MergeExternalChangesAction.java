@@ -0,0 +1,160 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.actions;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JOptionPane;
+
+import org.kse.gui.KseFrame;
+import org.kse.gui.error.DError;
+import org.kse.utilities.history.HistoryAction;
+import org.kse.utilities.history.KeyStoreDiff;
+import org.kse.utilities.history.KeyStoreHistory;
+import org.kse.utilities.history.KeyStoreState;
+
+/**
+ * Action to merge changes that another program made to the file of an open
+ * KeyStore into its history.
+ */
+public class MergeExternalChangesAction extends KeyStoreExplorerAction implements HistoryAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Map<KeyStoreHistory, KeyStoreDiff> pendingChanges = new HashMap<>();
+
+    /**
+     * Construct action.
+     *
+     * @param kseFrame KeyStore Explorer frame
+     */
+    public MergeExternalChangesAction(KseFrame kseFrame) {
+        super(kseFrame);
+
+        putValue(LONG_DESCRIPTION, res.getString("MergeExternalChangesAction.statusbar"));
+        putValue(NAME, res.getString("MergeExternalChangesAction.text"));
+        putValue(SHORT_DESCRIPTION, res.getString("MergeExternalChangesAction.tooltip"));
+    }
+
+    @Override
+    public String getHistoryDescription() {
+        return (String) getValue(NAME);
+    }
+
+    /**
+     * Do action.
+     */
+    @Override
+    protected void doAction() {
+        KeyStoreHistory history = kseFrame.getActiveKeyStoreHistory();
+        KeyStoreDiff diff = pendingChanges.get(history);
+
+        if (diff != null) {
+            mergeExternalChanges(history, diff);
+        }
+    }
+
+    /**
+     * Are there external changes for the supplied KeyStore that have not been
+     * merged yet?
+     *
+     * @param history KeyStore history
+     * @return True if there are
+     */
+    public boolean hasPendingChanges(KeyStoreHistory history) {
+        return pendingChanges.containsKey(history);
+    }
+
+    /**
+     * Forget about external changes for the supplied KeyStore, e.g. because it
+     * was saved or closed.
+     *
+     * @param history KeyStore history
+     */
+    public void discardPendingChanges(KeyStoreHistory history) {
+        pendingChanges.remove(history);
+    }
+
+    /**
+     * Inform the user about external changes to a KeyStore file and offer to
+     * merge them. If the user declines, the changes can be merged later on.
+     *
+     * @param history KeyStore history
+     * @param diff    Difference between the saved state and the file
+     */
+    public void offerExternalChanges(KeyStoreHistory history, KeyStoreDiff diff) {
+        pendingChanges.put(history, diff);
+        kseFrame.updateControls(false);
+
+        String message = MessageFormat.format(res.getString("MergeExternalChangesAction.ExternalChanges.message"),
+                                              history.getName(), diff.getAliases(KeyStoreDiff.Change.ADDED).size(),
+                                              diff.getAliases(KeyStoreDiff.Change.REMOVED).size(),
+                                              diff.getAliases(KeyStoreDiff.Change.MODIFIED).size());
+
+        int selected = JOptionPane.showConfirmDialog(frame, message,
+                                                     res.getString("MergeExternalChangesAction.ExternalChanges.Title"),
+                                                     JOptionPane.YES_NO_OPTION);
+
+        if (selected == JOptionPane.YES_OPTION) {
+            mergeExternalChanges(history, diff);
+        }
+    }
+
+    /**
+     * Inform the user that a KeyStore file was changed but could not be re-read.
+     *
+     * @param history KeyStore history
+     * @param ex      Cause
+     */
+    public void reportReloadFailure(KeyStoreHistory history, Exception ex) {
+        String message = MessageFormat.format(res.getString("MergeExternalChangesAction.NoReload.message"),
+                                              history.getName(), ex.getLocalizedMessage());
+
+        JOptionPane.showMessageDialog(frame, message, res.getString("MergeExternalChangesAction.ExternalChanges.Title"),
+                                      JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void mergeExternalChanges(KeyStoreHistory history, KeyStoreDiff diff) {
+        try {
+            KeyStoreState currentState = history.getCurrentState();
+            KeyStoreState newState = currentState.createBasisForNextState(this);
+
+            List<String> skipped = diff.applyTo(newState);
+
+            currentState.append(newState);
+            pendingChanges.remove(history);
+
+            kseFrame.focusOnKeyStore(newState.getKeyStore());
+            kseFrame.updateControls(true);
+
+            if (!skipped.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, MessageFormat.format(
+                                                      res.getString("MergeExternalChangesAction.EntriesSkipped.message"),
+                                                      String.join(", ", skipped)),
+                                              res.getString("MergeExternalChangesAction.ExternalChanges.Title"),
+                                              JOptionPane.WARNING_MESSAGE);
+            }
+        } catch (Exception ex) {
+            DError.displayError(frame, ex);
+        }
+    }
+}
@@ -32,6 +32,7 @@ import javax.swing.UIManager;
 
 import org.kse.AuthorityCertificates;
 import org.kse.crypto.csr.pkcs12.Pkcs12Util;
+import org.kse.crypto.keypair.KeyPairPool;
 import org.kse.gui.KseFrame;
 import org.kse.gui.preferences.DPreferences;
 
@@ -102,6 +103,10 @@ public class PreferencesAction extends ExitAction {
         preferences.setShowHiddenFilesEnabled(dPreferences.isShowHiddenFilesEnabled());
         preferences.setSerialNumberLengthInBytes(dPreferences.getSerialNumberLengthInBytes());
 
+        preferences.getKeyGenerationDefaults().setKeyPairPoolEnabled(dPreferences.isKeyPairPoolEnabled());
+        preferences.getKeyGenerationDefaults().setKeyPairPoolDepth(dPreferences.getKeyPairPoolDepth());
+        KeyPairPool.getInstance().configure(preferences.getKeyGenerationDefaults());
+
         preferences.setPkcs12EncryptionSetting(dPreferences.getPkcs12EncryptionSetting());
         Pkcs12Util.setEncryptionStrength(preferences.getPkcs12EncryptionSetting());
 
@@ -107,7 +107,7 @@ public class SaveAction extends SaveAsAction {
             currentState.setPassword(password);
             currentState.setAsSavedState();
 
-            kseFrame.updateControls(false);
+            kseFrame.keyStoreFileSaved(history);
 
             return true;
         } catch (FileNotFoundException ex) {
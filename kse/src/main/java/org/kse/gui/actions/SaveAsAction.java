@@ -136,7 +136,7 @@ public class SaveAsAction extends KeyStoreExplorerAction {
             history.setFile(saveFile);
             currentState.setAsSavedState();
 
-            kseFrame.updateControls(false);
+            kseFrame.keyStoreFileSaved(history);
 
             kseFrame.addRecentFile(saveFile);
 
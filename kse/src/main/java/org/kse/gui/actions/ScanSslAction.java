@@ -0,0 +1,147 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.actions;
+
+import java.awt.Toolkit;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.List;
+
+import javax.swing.ImageIcon;
+import javax.swing.JOptionPane;
+
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.gui.KseFrame;
+import org.kse.gui.dialogs.DScanSsl;
+import org.kse.gui.dialogs.DScanningSsl;
+import org.kse.gui.error.DError;
+import org.kse.utilities.history.HistoryAction;
+import org.kse.utilities.history.KeyStoreHistory;
+import org.kse.utilities.history.KeyStoreState;
+import org.kse.utilities.ssl.SslScanTarget;
+import org.kse.utilities.ssl.SslScanner;
+
+/**
+ * Action to scan many SSL endpoints at once and to import the certificates
+ * they present into the active KeyStore as trusted certificate entries.
+ */
+public class ScanSslAction extends KeyStoreExplorerAction implements HistoryAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct action.
+     *
+     * @param kseFrame KeyStore Explorer frame
+     */
+    public ScanSslAction(KseFrame kseFrame) {
+        super(kseFrame);
+
+        putValue(LONG_DESCRIPTION, res.getString("ScanSslAction.statusbar"));
+        putValue(NAME, res.getString("ScanSslAction.text"));
+        putValue(SHORT_DESCRIPTION, res.getString("ScanSslAction.tooltip"));
+        putValue(SMALL_ICON, new ImageIcon(
+                Toolkit.getDefaultToolkit().createImage(getClass().getResource("images/examinessl.png"))));
+    }
+
+    @Override
+    public String getHistoryDescription() {
+        return res.getString("ScanSslAction.History.text");
+    }
+
+    /**
+     * Do action.
+     */
+    @Override
+    protected void doAction() {
+        try {
+            DScanSsl dScanSsl = new DScanSsl(frame);
+            dScanSsl.setLocationRelativeTo(frame);
+            dScanSsl.setVisible(true);
+
+            List<SslScanTarget> targets = dScanSsl.getTargets();
+            if (targets == null) {
+                return;
+            }
+
+            SslScanner scanner = new SslScanner(dScanSsl.getThreads(), dScanSsl.getTimeoutMillis(), null, null);
+
+            DScanningSsl dScanningSsl = new DScanningSsl(frame, kseFrame, scanner, targets);
+            dScanningSsl.setLocationRelativeTo(frame);
+            dScanningSsl.startScan();
+            dScanningSsl.setVisible(true);
+
+            List<X509Certificate> certificates = dScanningSsl.getCertificatesToImport();
+            if (certificates != null) {
+                importCertificates(certificates);
+            }
+        } catch (Exception ex) {
+            DError.displayError(frame, ex);
+        }
+    }
+
+    private void importCertificates(List<X509Certificate> certificates) throws Exception {
+        KeyStoreHistory history = kseFrame.getActiveKeyStoreHistory();
+
+        // handle case that no keystore is currently opened (-> create new keystore)
+        if (history == null) {
+            new NewAction(kseFrame).actionPerformed(null);
+            history = kseFrame.getActiveKeyStoreHistory();
+
+            // cancel pressed => abort
+            if (history == null) {
+                return;
+            }
+        }
+
+        KeyStoreState currentState = history.getCurrentState();
+        KeyStoreState newState = currentState.createBasisForNextState(this);
+
+        KeyStore keyStore = newState.getKeyStore();
+
+        int imported = 0;
+        for (X509Certificate cert : certificates) {
+            // certificates that are already in the KeyStore are skipped
+            if (X509CertUtil.matchCertificate(keyStore, cert) != null) {
+                continue;
+            }
+
+            String baseAlias = X509CertUtil.getCertificateAlias(cert);
+            String alias = baseAlias;
+            for (int i = 2; keyStore.containsAlias(alias); i++) {
+                alias = baseAlias + " (" + i + ")";
+            }
+
+            keyStore.setCertificateEntry(alias, cert);
+            imported++;
+        }
+
+        if (imported > 0) {
+            currentState.append(newState);
+            kseFrame.updateControls(true);
+        }
+
+        JOptionPane.showMessageDialog(frame, MessageFormat.format(
+                                              res.getString("ScanSslAction.ImportSuccessful.message"), imported,
+                                              certificates.size() - imported),
+                                      res.getString("ScanSslAction.ImportCertificates.Title"),
+                                      JOptionPane.INFORMATION_MESSAGE);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.actions;
+
+import java.awt.Toolkit;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.ImageIcon;
+
+import org.kse.crypto.keystore.KeyStoreCorpusIndex;
+import org.kse.crypto.keystore.KeyStoreSearchIndex;
+import org.kse.crypto.keystore.KeyStoreSearchResult;
+import org.kse.crypto.keystore.KeyStoreSearcher;
+import org.kse.gui.KseFrame;
+import org.kse.gui.dialogs.DSearchKeyStores;
+import org.kse.gui.dialogs.DSearchingKeyStores;
+import org.kse.gui.error.DError;
+import org.kse.gui.passwordmanager.Password;
+import org.kse.gui.passwordmanager.PasswordManager;
+import org.kse.utilities.history.KeyStoreHistory;
+
+/**
+ * Action to search the open KeyStores and the KeyStore and certificate files
+ * of a directory tree for certificates, e.g. by serial number, fingerprint or
+ * subject alternative name.
+ */
+public class SearchKeyStoresAction extends KeyStoreExplorerAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct action.
+     *
+     * @param kseFrame KeyStore Explorer frame
+     */
+    public SearchKeyStoresAction(KseFrame kseFrame) {
+        super(kseFrame);
+
+        putValue(LONG_DESCRIPTION, res.getString("SearchKeyStoresAction.statusbar"));
+        putValue(NAME, res.getString("SearchKeyStoresAction.text"));
+        putValue(SHORT_DESCRIPTION, res.getString("SearchKeyStoresAction.tooltip"));
+        putValue(SMALL_ICON,
+                 new ImageIcon(Toolkit.getDefaultToolkit().createImage(getClass().getResource("images/find.png"))));
+    }
+
+    /**
+     * Do action.
+     */
+    @Override
+    protected void doAction() {
+        try {
+            DSearchKeyStores dSearchKeyStores = new DSearchKeyStores(frame, preferences.getKeyStoreSearchDirectory());
+            dSearchKeyStores.setLocationRelativeTo(frame);
+            dSearchKeyStores.setVisible(true);
+
+            String query = dSearchKeyStores.getQuery();
+            if (query == null) {
+                return;
+            }
+
+            File directory = dSearchKeyStores.getDirectory();
+            if (directory != null) {
+                preferences.setKeyStoreSearchDirectory(directory.getPath());
+
+                // the stored passwords open the KeyStores that cannot be read without one
+                if (PasswordManager.getInstance().isInitialized()) {
+                    unlockPasswordManager();
+                }
+            }
+
+            Map<KeyStoreSearchResult, KeyStoreHistory> openKeyStores = new IdentityHashMap<>();
+            List<KeyStoreSearchResult> openResults = new ArrayList<>();
+            Set<File> openFiles = new HashSet<>();
+
+            for (KeyStoreHistory history : kseFrame.getKeyStoreHistories()) {
+                if (history.getFile() != null) {
+                    openFiles.add(history.getFile().getAbsoluteFile());
+                }
+
+                KeyStoreSearchIndex searchIndex = kseFrame.getKeyStoreSearchIndex(history);
+                if (dSearchKeyStores.isOpenKeyStoresSearched() && searchIndex != null) {
+                    KeyStoreSearchResult result = new KeyStoreSearchResult(history.getName(), history.getFile(),
+                                                                           KeyStoreSearchResult.Status.OPEN,
+                                                                           KeyStoreSearcher.search(searchIndex, query),
+                                                                           null);
+                    openKeyStores.put(result, history);
+                    openResults.add(result);
+                }
+            }
+
+            KeyStoreSearcher searcher = new KeyStoreSearcher(KeyStoreCorpusIndex.getInstance(),
+                                                             KeyStoreSearcher.DEFAULT_THREADS,
+                                                             SearchKeyStoresAction::getKeyStorePassword);
+
+            DSearchingKeyStores dSearchingKeyStores = new DSearchingKeyStores(frame, searcher, query, directory,
+                                                                              openResults, openFiles);
+            dSearchingKeyStores.setLocationRelativeTo(frame);
+            dSearchingKeyStores.startSearch();
+            dSearchingKeyStores.setVisible(true);
+
+            KeyStoreSearchResult result = dSearchingKeyStores.getSelectedResult();
+            if (result != null) {
+                show(result, dSearchingKeyStores.getSelectedEntry(), openKeyStores.get(result));
+            }
+        } catch (Exception ex) {
+            DError.displayError(frame, ex);
+        }
+    }
+
+    private void show(KeyStoreSearchResult result, KeyStoreSearchIndex.Entry entry, KeyStoreHistory history) {
+        if (history == null) {
+            // opens KeyStores, asking for the password if needed, and shows certificate files
+            new ExamineFileAction(kseFrame).openFile(result.getFile());
+
+            history = kseFrame.getActiveKeyStoreHistory();
+            if (history == null || !result.getFile().equals(history.getFile())) {
+                return;
+            }
+        } else {
+            kseFrame.focusOnKeyStore(history.getCurrentState().getKeyStore());
+        }
+
+        if (entry != null) {
+            kseFrame.setSelectedEntriesByAliases(entry.getAlias());
+        }
+    }
+
+    private static Password getKeyStorePassword(File keyStoreFile) {
+        PasswordManager passwordManager = PasswordManager.getInstance();
+        if (!passwordManager.isUnlocked()) {
+            return null;
+        }
+        return passwordManager.getKeyStorePassword(keyStoreFile).map(Password::new).orElse(null);
+    }
+}
@@ -23,14 +23,17 @@ package org.kse.gui.actions;
 import static org.kse.crypto.SecurityProvider.BOUNCY_CASTLE;
 
 import java.awt.Toolkit;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
@@ -40,24 +43,22 @@ import java.security.SignatureException;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
+import java.util.Base64;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
 
 import org.apache.commons.io.IOUtils;
-import org.bouncycastle.asn1.x509.CRLNumber;
-import org.bouncycastle.asn1.x509.Extension;
-import org.bouncycastle.cert.X509CRLHolder;
-import org.bouncycastle.cert.X509v2CRLBuilder;
-import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
-import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
-import org.bouncycastle.cert.jcajce.JcaX509v2CRLBuilder;
-import org.bouncycastle.operator.OperatorCreationException;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
-import org.kse.KSE;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlEncoder;
+import org.kse.crypto.crl.RevocationDatabase;
 import org.kse.gui.passwordmanager.Password;
 import org.kse.crypto.keypair.KeyPairType;
 import org.kse.crypto.keypair.KeyPairUtil;
@@ -69,11 +70,11 @@ import org.kse.gui.dialogs.sign.RevokedEntry;
 import org.kse.gui.error.DError;
 import org.kse.utilities.history.KeyStoreHistory;
 import org.kse.utilities.history.KeyStoreState;
-import org.kse.utilities.pem.PemInfo;
-import org.kse.utilities.pem.PemUtil;
 
 /**
- * Action to create a list of revoked certificates CRL.
+ * Action to create a list of revoked certificates CRL. The revoked
+ * certificates of the CA are kept in a revocation database next to the
+ * keystore, from which full and delta CRLs are issued.
  */
 public class SignCrlAction extends KeyStoreExplorerAction {
     private static final long serialVersionUID = 1L;
@@ -119,40 +120,66 @@ public class SignCrlAction extends KeyStoreExplorerAction {
 
             KeyPairType keyPairType = KeyPairUtil.getKeyPairType(privateKey);
 
-            File filePrevious = getFilePrevious(certs[0], history);
+            File databaseFile = getDatabaseFile(certs[0], history);
 
-            X509CRL x509CRL = loadPreviousCrl(filePrevious, certs[0]);
+            try (RevocationDatabase database = openDatabase(databaseFile, certs[0])) {
+                DSignCrl dSignCrl = new DSignCrl(frame, kseFrame, keyPairType, privateKey, certs[0], database);
+                dSignCrl.setLocationRelativeTo(frame);
+                dSignCrl.setVisible(true);
+                Date effectiveDate = dSignCrl.getEffectiveDate();
+                if (effectiveDate == null) {
+                    return;
+                }
 
-            DSignCrl dSignCrl = new DSignCrl(frame, kseFrame, keyPairType, privateKey, certs[0], x509CRL);
-            dSignCrl.setLocationRelativeTo(frame);
-            dSignCrl.setVisible(true);
-            Date effectiveDate = dSignCrl.getEffectiveDate();
-            if (effectiveDate != null) {
                 Date nextUpdate = dSignCrl.getNextUpdate();
                 BigInteger crlNumber = dSignCrl.getCrlNumber();
                 String signatureAlgorithm = dSignCrl.getSignatureType().jce();
                 Map<BigInteger, RevokedEntry> mapRevoked = dSignCrl.getMapRevokedEntry();
 
-                x509CRL = signCrl(crlNumber, effectiveDate, nextUpdate, certs[0], privateKey, signatureAlgorithm,
-                                  mapRevoked, provider);
                 String newFileName = X509CertUtil.getShortName(certs[0]).toLowerCase();
                 DExportCrl dExportCrl = new DExportCrl(frame, newFileName);
                 dExportCrl.setLocationRelativeTo(frame);
                 dExportCrl.setVisible(true);
-                if (dExportCrl.exportSelected()) {
-                    exportFile(x509CRL, filePrevious, false);// export CRL .db
-                    exportFile(x509CRL, dExportCrl.getExportFile(), dExportCrl.pemEncode());// export file .crl
-                    JOptionPane.showMessageDialog(frame, res.getString("SignCrlAction.SignCrlSuccessful.message"),
-                                                  res.getString("SignCrlAction.SignCrl.Title"),
-                                                  JOptionPane.INFORMATION_MESSAGE);
+                if (!dExportCrl.exportSelected()) {
+                    return;
                 }
+
+                // the changes are only written to the database once the CRL that publishes them is written
+                database.startTransaction();
+                updateDatabase(database, mapRevoked, dSignCrl.getReleasedSerials(), effectiveDate);
+
+                BigInteger baseCrlNumber = dSignCrl.isDeltaCrl() ? database.getBaseCrlNumber() : null;
+                List<RevocationDatabase.Entry> entries =
+                        baseCrlNumber == null ? database.getRevoked() : database.getDeltaEntries();
+
+                ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).setProvider(provider)
+                                                                                      .build(privateKey);
+
+                File exportFile = dExportCrl.getExportFile().getAbsoluteFile();
+                File tempFile = File.createTempFile("." + exportFile.getName() + ".", ".tmp",
+                                                    exportFile.getParentFile());
+                try {
+                    exportCrl(new CrlEncoder(certs[0], signer), effectiveDate, nextUpdate, crlNumber,
+                              baseCrlNumber, entries, tempFile, dExportCrl.pemEncode());
+
+                    database.recordCrl(crlNumber, effectiveDate, nextUpdate, baseCrlNumber);
+                    database.commit();
+
+                    moveIntoPlace(tempFile, exportFile);
+                } finally {
+                    Files.deleteIfExists(tempFile.toPath());
+                }
+
+                JOptionPane.showMessageDialog(frame, res.getString("SignCrlAction.SignCrlSuccessful.message"),
+                                              res.getString("SignCrlAction.SignCrl.Title"),
+                                              JOptionPane.INFORMATION_MESSAGE);
             }
         } catch (Exception ex) {
             DError.displayError(frame, ex);
         }
     }
 
-    private File getFilePrevious(X509Certificate caCert, KeyStoreHistory history) {
+    private File getDatabaseFile(X509Certificate caCert, KeyStoreHistory history) {
         String serial = caCert.getSerialNumber().toString(16);
         String pathFile = history.getPath();
         File fileParent = new File(pathFile);
@@ -160,13 +187,26 @@ public class SignCrlAction extends KeyStoreExplorerAction {
             return null;
         }
         String path = fileParent.getParentFile().getAbsolutePath();
-        String newPath = path + File.separator + serial + ".db";
-        File filePrevious = new File(newPath);
-        return filePrevious;
+        return new File(path + File.separator + serial + ".crldb");
+    }
+
+    private RevocationDatabase openDatabase(File databaseFile, X509Certificate caCert) throws CryptoException {
+        RevocationDatabase database = RevocationDatabase.open(databaseFile);
+
+        // take over the CRL that was stored as <ca-serial>.db before there was a revocation database
+        if (database.isEmpty() && databaseFile != null) {
+            String legacyName = databaseFile.getName().replaceFirst("\\.crldb$", ".db");
+            X509CRL legacyCrl = loadPreviousCrl(new File(databaseFile.getParentFile(), legacyName), caCert);
+            if (legacyCrl != null) {
+                database.importCrl(legacyCrl);
+            }
+        }
+
+        return database;
     }
 
     private X509CRL loadPreviousCrl(File filePrevious, X509Certificate caCert) {
-        if (filePrevious == null) {
+        if (!filePrevious.isFile()) {
             return null;
         }
         try (FileInputStream is = new FileInputStream(filePrevious)) {
@@ -179,53 +219,48 @@ public class SignCrlAction extends KeyStoreExplorerAction {
         return null;
     }
 
-    private X509CRL signCrl(BigInteger number, Date effectiveDate, Date nextUpdate, X509Certificate caCert,
-                            PrivateKey caPrivateKey, String signatureAlgorithm,
-                            Map<BigInteger, RevokedEntry> mapRevokedCertificate, String provider)
-            throws NoSuchAlgorithmException, OperatorCreationException, CRLException, IOException {
-
-        X509v2CRLBuilder crlGen = new JcaX509v2CRLBuilder(caCert.getSubjectX500Principal(), effectiveDate);
-        crlGen.setNextUpdate(nextUpdate);
+    private void updateDatabase(RevocationDatabase database, Map<BigInteger, RevokedEntry> mapRevoked,
+                                Set<BigInteger> releasedSerials, Date releaseDate) throws CryptoException {
 
-        if (mapRevokedCertificate != null) {
-
-            for (Map.Entry<BigInteger, RevokedEntry> pair : mapRevokedCertificate.entrySet()) {
-                RevokedEntry entry = pair.getValue();
-                crlGen.addCRLEntry(entry.getUserCertificateSerial(), entry.getRevocationDate(), entry.getReason());
-            }
+        // check all releases before anything is written, so a rejected release leaves the database untouched
+        for (BigInteger serial : releasedSerials) {
+            database.checkOnHold(serial);
         }
-        JcaX509ExtensionUtils extUtils = new JcaX509ExtensionUtils();
 
-        crlGen.addExtension(Extension.authorityKeyIdentifier, false,
-                            extUtils.createAuthorityKeyIdentifier(caCert.getPublicKey()));
+        for (RevokedEntry entry : mapRevoked.values()) {
+            database.revoke(entry.getUserCertificateSerial(), entry.getRevocationDate(), entry.getReason());
+        }
 
-        crlGen.addExtension(Extension.cRLNumber, false, new CRLNumber(number));
+        // only certificates explicitly released in the dialog are released from hold
+        for (BigInteger serial : releasedSerials) {
+            database.unrevoke(serial, releaseDate);
+        }
+    }
 
-        X509CRLHolder crl = crlGen.build(
-                new JcaContentSignerBuilder(signatureAlgorithm).setProvider(provider).build(caPrivateKey));
-        return new JcaX509CRLConverter().setProvider(KSE.BC).getCRL(crl);
+    private void moveIntoPlace(File tempFile, File exportFile) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
-    private void exportFile(X509CRL x509CRL, File fileExported, boolean pemEncode)
-            throws FileNotFoundException, IOException, CRLException {
+    private void exportCrl(CrlEncoder crlEncoder, Date effectiveDate, Date nextUpdate, BigInteger crlNumber,
+                           BigInteger baseCrlNumber, List<RevocationDatabase.Entry> entries, File fileExported,
+                           boolean pemEncode) throws IOException, CryptoException {
 
-        if (fileExported == null) {
-            return;
-        }
-        byte[] data = null;
-        if (pemEncode) {
-            PemInfo pemInfo = new PemInfo("X509 CRL", null, x509CRL.getEncoded());
-            data = PemUtil.encode(pemInfo).getBytes();
-        } else {
-            data = x509CRL.getEncoded();
-        }
-        try (InputStream in = new ByteArrayInputStream(data)) {
-            int length;
-            byte[] buffer = new byte[1024];
-            try (FileOutputStream fileOutputStream = new FileOutputStream(fileExported)) {
-                while ((length = in.read(buffer)) != -1) {
-                    fileOutputStream.write(buffer, 0, length);
+        // the CRL is streamed to the file, for PEM through a Base64 encoder with the line length of PemUtil
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileExported))) {
+            if (pemEncode) {
+                out.write("-----BEGIN X509 CRL-----\n".getBytes(StandardCharsets.US_ASCII));
+                try (OutputStream base64 = Base64.getMimeEncoder(64, new byte[] { '\n' })
+                                                 .wrap(CloseShieldOutputStream.wrap(out))) {
+                    crlEncoder.encode(base64, effectiveDate, nextUpdate, crlNumber, baseCrlNumber, entries);
                 }
+                out.write("\n-----END X509 CRL-----\n".getBytes(StandardCharsets.US_ASCII));
+            } else {
+                crlEncoder.encode(out, effectiveDate, nextUpdate, crlNumber, baseCrlNumber, entries);
             }
         }
     }
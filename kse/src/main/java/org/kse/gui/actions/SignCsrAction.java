@@ -32,6 +32,9 @@ import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.text.MessageFormat;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.swing.ImageIcon;
 import javax.swing.JFileChooser;
@@ -40,7 +43,9 @@ import javax.swing.JOptionPane;
 import org.apache.commons.io.FileUtils;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
-import org.kse.gui.passwordmanager.Password;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.csr.CsrBatch;
+import org.kse.crypto.csr.CsrType;
 import org.kse.crypto.csr.pkcs10.Pkcs10Util;
 import org.kse.crypto.csr.spkac.Spkac;
 import org.kse.crypto.filetype.CryptoFileType;
@@ -48,6 +53,7 @@ import org.kse.crypto.filetype.CryptoFileUtil;
 import org.kse.crypto.keypair.KeyPairType;
 import org.kse.crypto.keypair.KeyPairUtil;
 import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.CertificateIssuer;
 import org.kse.crypto.x509.X500NameUtils;
 import org.kse.crypto.x509.X509CertUtil;
 import org.kse.crypto.x509.X509CertificateGenerator;
@@ -57,16 +63,22 @@ import org.kse.gui.CurrentDirectory;
 import org.kse.gui.FileChooserFactory;
 import org.kse.gui.KseFrame;
 import org.kse.gui.dialogs.importexport.DExportCertificates;
+import org.kse.gui.dialogs.sign.DLoadingCsrs;
 import org.kse.gui.dialogs.sign.DSignCsr;
+import org.kse.gui.dialogs.sign.DSigningCsrs;
 import org.kse.gui.error.DError;
 import org.kse.gui.error.DProblem;
 import org.kse.gui.error.Problem;
+import org.kse.gui.passwordmanager.Password;
+import org.kse.utilities.SerialNumbers;
 import org.kse.utilities.history.KeyStoreHistory;
 import org.kse.utilities.history.KeyStoreState;
 import org.kse.utilities.io.FileNameUtil;
 
 /**
- * Action to sign a CSR using the selected key pair entry.
+ * Action to sign a CSR using the selected key pair entry. If a directory or
+ * ZIP archive is chosen instead of a CSR file, all CSRs in it are signed
+ * with the same profile.
  */
 public class SignCsrAction extends KeyStoreExplorerAction {
     private static final long serialVersionUID = 1L;
@@ -121,6 +133,11 @@ public class SignCsrAction extends KeyStoreExplorerAction {
                 return;
             }
 
+            if (CsrBatch.isBatchSource(csrFile)) {
+                signCsrBatch(history, csrFile, privateKey, keyPairType, signingChain);
+                return;
+            }
+
             dSignCsr = createSignDialogFromCsrFile(csrFile, privateKey, keyPairType, signingCert);
             if (dSignCsr == null) {
                 return;
@@ -139,6 +156,119 @@ public class SignCsrAction extends KeyStoreExplorerAction {
         }
     }
 
+    private void signCsrBatch(KeyStoreHistory history, File source, PrivateKey privateKey, KeyPairType keyPairType,
+                              X509Certificate[] signingChain) throws CryptoException {
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        DLoadingCsrs dLoadingCsrs = new DLoadingCsrs(frame, source, threads);
+        dLoadingCsrs.setLocationRelativeTo(frame);
+        dLoadingCsrs.startLoading();
+        dLoadingCsrs.setVisible(true);
+
+        CsrBatch batch = dLoadingCsrs.getBatch();
+        if (batch == null) {
+            return;
+        }
+        List<CsrBatch.Csr> csrs = batch.getValidCsrs();
+
+        if (csrs.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, MessageFormat.format(
+                                                  res.getString("SignCsrAction.NoValidCsrs.message"), source),
+                                          res.getString("SignCsrAction.SignCsrBatch.Title"),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // the profile is defined once with the first CSR and applied to all of them
+        CsrBatch.Csr first = csrs.get(0);
+        JOptionPane.showMessageDialog(frame, MessageFormat.format(res.getString("SignCsrAction.BatchProfile.message"),
+                                                                  csrs.size(), batch.getCsrs().size(),
+                                                                  first.getName()),
+                                      res.getString("SignCsrAction.SignCsrBatch.Title"),
+                                      JOptionPane.INFORMATION_MESSAGE);
+
+        DSignCsr dSignCsr;
+        if (first.getType() == CsrType.PKCS10) {
+            dSignCsr = new DSignCsr(frame, first.getPkcs10Csr(), privateKey, keyPairType, signingChain[0]);
+        } else {
+            dSignCsr = new DSignCsr(frame, first.getSpkacCsr(), privateKey, keyPairType, signingChain[0]);
+        }
+        dSignCsr.setLocationRelativeTo(frame);
+        dSignCsr.setVisible(true);
+
+        if (dSignCsr.getVersion() == null) {
+            return;
+        }
+
+        File outputDirectory = chooseOutputDirectory(source);
+        if (outputDirectory == null) {
+            return;
+        }
+
+        // serial numbers are random, but unique within the batch is guaranteed here; existing CA replies are kept
+        Set<BigInteger> usedSerialNumbers = new HashSet<>();
+        Set<String> usedReplyNames = new HashSet<>();
+        BigInteger[] serialNumbers = new BigInteger[csrs.size()];
+        String[] replyNames = new String[csrs.size()];
+
+        for (int i = 0; i < csrs.size(); i++) {
+            do {
+                serialNumbers[i] = SerialNumbers.parse(X509CertUtil.generateCertSerialNumber());
+            } while (!usedSerialNumbers.add(serialNumbers[i]));
+
+            String baseName = FileNameUtil.removeExtension(new File(csrs.get(i).getName()).getName());
+            replyNames[i] = baseName + ".cer";
+            for (int n = 2; new File(outputDirectory, replyNames[i]).exists() ||
+                            !usedReplyNames.add(replyNames[i].toLowerCase()); n++) {
+                replyNames[i] = baseName + "-" + n + ".cer";
+            }
+        }
+
+        X509ExtensionSet extensions = dSignCsr.getExtensions();
+        if (extensions == null) {
+            extensions = new X509ExtensionSet();
+        }
+
+        // the subject alternative name of the first CSR is replaced by the one each CSR requests
+        X509ExtensionSet extensionTemplate = CsrBatch.createExtensionTemplate(extensions);
+
+        // tokens of explicit providers, e.g. smart cards, sign one request at a time anyway
+        Provider provider = history.getExplicitProvider();
+        if (provider != null) {
+            threads = 1;
+        }
+
+        CertificateIssuer issuer = new CertificateIssuer(dSignCsr.getVersion(), signingChain[0], privateKey,
+                                                         dSignCsr.getSignatureType(), provider, extensionTemplate);
+
+        DSigningCsrs dSigningCsrs = new DSigningCsrs(frame, batch, csrs, serialNumbers, replyNames, outputDirectory,
+                                                     issuer, dSignCsr.getValidityStart(), dSignCsr.getValidityEnd(),
+                                                     extensionTemplate, signingChain, threads);
+        dSigningCsrs.setLocationRelativeTo(frame);
+        dSigningCsrs.startSigning();
+        dSigningCsrs.setVisible(true);
+
+        if (!dSigningCsrs.isSuccessful()) {
+            return;
+        }
+
+        int signed = 0;
+        for (CsrBatch.Csr csr : csrs) {
+            if (csr.getStatus() == CsrBatch.Status.SIGNED) {
+                signed++;
+            }
+        }
+
+        JOptionPane.showMessageDialog(frame, MessageFormat.format(
+                                              res.getString("SignCsrAction.SignCsrBatchSuccessful.message"), signed,
+                                              batch.getCsrs().size(), batch.getCsrs().size() - signed,
+                                              DSigningCsrs.REPORT_FILE_NAME, outputDirectory),
+                                      res.getString("SignCsrAction.SignCsrBatch.Title"),
+                                      signed == batch.getCsrs().size() ?
+                                      JOptionPane.INFORMATION_MESSAGE :
+                                      JOptionPane.WARNING_MESSAGE);
+    }
+
     private DSignCsr createSignDialogFromCsrFile(File csrFile, PrivateKey privateKey, KeyPairType keyPairType,
                                                  X509Certificate signingCert) {
 
@@ -310,6 +440,9 @@ public class SignCsrAction extends KeyStoreExplorerAction {
         chooser.setMultiSelectionEnabled(false);
         chooser.setApproveButtonText(res.getString("SignCsrAction.ChooseCsr.button"));
 
+        // a directory or ZIP archive of CSRs is signed as a batch
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+
         int rtnValue = chooser.showOpenDialog(frame);
         if (rtnValue == JFileChooser.APPROVE_OPTION) {
             File importFile = chooser.getSelectedFile();
@@ -318,4 +451,17 @@ public class SignCsrAction extends KeyStoreExplorerAction {
         }
         return null;
     }
+
+    private File chooseOutputDirectory(File source) {
+        JFileChooser chooser = FileChooserFactory.getDirectoryChooser();
+        chooser.setCurrentDirectory(source.isDirectory() ? source : source.getParentFile());
+        chooser.setDialogTitle(res.getString("SignCsrAction.ChooseOutputDirectory.Title"));
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = chooser.showDialog(frame, res.getString("SignCsrAction.ChooseOutputDirectory.button"));
+        if (rtnValue == JFileChooser.APPROVE_OPTION) {
+            return chooser.getSelectedFile();
+        }
+        return null;
+    }
 }
@@ -24,9 +24,7 @@ import java.awt.HeadlessException;
 import java.awt.Toolkit;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.math.BigInteger;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -39,46 +37,36 @@ import java.security.SignatureException;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathValidator;
 import java.security.cert.CertPathValidatorException;
-import java.security.cert.CertStore;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
-import java.security.cert.CollectionCertStoreParameters;
 import java.security.cert.PKIXCertPathChecker;
 import java.security.cert.PKIXParameters;
-import java.security.cert.X509CRL;
+import java.security.cert.PKIXRevocationChecker;
 import java.security.cert.X509Certificate;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import javax.swing.ImageIcon;
 import javax.swing.JOptionPane;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.CertificateID;
 import org.bouncycastle.cert.ocsp.CertificateStatus;
 import org.bouncycastle.cert.ocsp.OCSPException;
-import org.bouncycastle.cert.ocsp.OCSPReq;
-import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.bouncycastle.cert.ocsp.SingleResp;
-import org.bouncycastle.cert.ocsp.jcajce.JcaCertificateID;
-import org.bouncycastle.operator.DigestCalculatorProvider;
-import org.bouncycastle.operator.OperatorCreationException;
-import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
-import org.kse.KSE;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlCache;
+import org.kse.crypto.crl.CrlIndex;
+import org.kse.crypto.ocsp.OcspResponseCache;
+import org.kse.crypto.ocsp.OcspUtil;
+import org.kse.crypto.verify.ExtensionRemovingCertPathChecker;
 import org.kse.crypto.x509.X509CertUtil;
 import org.kse.gui.KseFrame;
 import org.kse.gui.dialogs.DVerifyCertificate;
@@ -174,7 +162,7 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
             throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException,
                    InvalidAlgorithmParameterException, CertPathValidatorException, IllegalStateException,
                    CryptoException {
-        if (verify("false", "true", true, keyStoreHistory, null, alias)) {
+        if (verify("false", "true", true, keyStoreHistory, getOcspResponses(keyStoreHistory), alias)) {
             JOptionPane.showMessageDialog(frame, res.getString("VerifyCertificateAction.OcspSuccessful.message"),
                                           MessageFormat.format(res.getString("VerifyCertificateAction.Verify.Title"),
                                                                alias), JOptionPane.INFORMATION_MESSAGE);
@@ -182,37 +170,18 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
     }
 
     private void verifyStatusOcspUrl(KeyStoreHistory keyStoreHistory, String alias, String ocspUrl)
-            throws OperatorCreationException, OCSPException, IOException, HeadlessException, CertPathValidatorException,
+            throws OCSPException, IOException, HeadlessException, CertPathValidatorException,
                    KeyStoreException, NoSuchAlgorithmException, CertificateException,
                    InvalidAlgorithmParameterException, IllegalStateException, CryptoException {
 
         if (verify("false", "false", false, keyStoreHistory, null, alias)) {
-            // search issuer
-            X509Certificate issuer = null;
-
-            if (keyCertChain == null || keyCertChain.length == 1) {
-                KeyStore trustStore = getKeyStore(keyStoreHistory);
-                Enumeration<String> enumeration = trustStore.aliases();
-                while (enumeration.hasMoreElements()) {
-                    String tempAlias = enumeration.nextElement();
-                    X509Certificate cert = (X509Certificate) trustStore.getCertificate(tempAlias);
-                    try {
-                        certificateEval.verify(cert.getPublicKey());
-                        issuer = cert;
-                        break;
-                    } catch (InvalidKeyException | CertificateException | NoSuchAlgorithmException | NoSuchProviderException | SignatureException e) {
-                        // ignore
-                    }
-                }
-            } else {
-                issuer = keyCertChain[1];
-            }
+            X509Certificate issuer = findIssuer(keyStoreHistory);
             if (issuer == null) {
                 throw new CertPathValidatorException(res.getString("VerifyCertificateAction.trustStoreEmpty.message"));
             }
-            OCSPReq request = makeOcspRequest(issuer, certificateEval);
-            OCSPResp response = requestOCSPResponse(ocspUrl, request);
-            if (isGoodCertificate(response)) {
+            CertificateID certId = OcspUtil.createCertificateId(issuer, certificateEval.getSerialNumber());
+            OCSPResp response = getOcspResponse(ocspUrl, issuer, certId);
+            if (isGoodCertificate(response, certId)) {
                 JOptionPane.showMessageDialog(frame, res.getString("VerifyCertificateAction.OcspSuccessful.message"),
                                               MessageFormat.format(
                                                       res.getString("VerifyCertificateAction.Verify.Title"), alias),
@@ -221,50 +190,81 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
         }
     }
 
-    private static OCSPReq makeOcspRequest(X509Certificate caCert, X509Certificate certToCheck)
-            throws OCSPException, OperatorCreationException, CertificateEncodingException {
-        DigestCalculatorProvider digCalcProv = new JcaDigestCalculatorProviderBuilder().setProvider(KSE.BC)
-                                                                                       .build();
+    private X509Certificate findIssuer(KeyStoreHistory keyStoreHistory)
+            throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException {
+        if (keyCertChain != null && keyCertChain.length > 1) {
+            return keyCertChain[1];
+        }
 
-        CertificateID certId = new JcaCertificateID(digCalcProv.get(CertificateID.HASH_SHA1), caCert,
-                                                    certToCheck.getSerialNumber());
+        KeyStore trustStore = getKeyStore(keyStoreHistory);
+        Enumeration<String> enumeration = trustStore.aliases();
+        while (enumeration.hasMoreElements()) {
+            String tempAlias = enumeration.nextElement();
+            X509Certificate cert = (X509Certificate) trustStore.getCertificate(tempAlias);
+            try {
+                certificateEval.verify(cert.getPublicKey());
+                return cert;
+            } catch (InvalidKeyException | CertificateException | NoSuchAlgorithmException | NoSuchProviderException | SignatureException e) {
+                // ignore
+            }
+        }
+        return null;
+    }
 
-        OCSPReqBuilder gen = new OCSPReqBuilder();
-        gen.addRequest(certId);
-        return gen.build();
+    /**
+     * Get the OCSP response for a certificate and persist the response cache.
+     */
+    private OCSPResp getOcspResponse(String url, X509Certificate issuer, CertificateID certId)
+            throws IOException, OCSPException {
+        OCSPResp response = OcspUtil.getResponse(url, issuer, certId);
+        try {
+            OcspResponseCache.getInstance().save();
+        } catch (IOException ex) {
+            // the response is still cached in memory
+        }
+        return response;
     }
 
-    private OCSPResp requestOCSPResponse(String url, OCSPReq ocspReq) throws IOException {
-        byte[] ocspReqData = ocspReq.getEncoded();
+    /**
+     * Collect an OCSP response for the certificate to check, so that the PKIX
+     * revocation checker does not have to fetch it again.
+     */
+    private Map<X509Certificate, byte[]> getOcspResponses(KeyStoreHistory keyStoreHistory)
+            throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException {
+        String url = OcspUtil.getResponderUrl(certificateEval);
+        X509Certificate issuer = findIssuer(keyStoreHistory);
+
+        if (url == null || issuer == null) {
+            return null;
+        }
 
-        HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
         try {
-            con.setRequestProperty("Content-Type", "application/ocsp-request");
-            con.setRequestProperty("Accept", "application/ocsp-response");
-            con.setDoInput(true);
-            con.setDoOutput(true);
-            con.setUseCaches(false);
-            try (OutputStream out = con.getOutputStream()) {
-                IOUtils.write(ocspReqData, out);
-                out.flush();
-            }
-            byte[] responseBytes = IOUtils.toByteArray(con.getInputStream());
-            OCSPResp ocspResp = new OCSPResp(responseBytes);
-            return ocspResp;
-        } finally {
-            if (con != null) {
-                con.disconnect();
+            CertificateID certId = OcspUtil.createCertificateId(issuer, certificateEval.getSerialNumber());
+            OCSPResp response = getOcspResponse(url, issuer, certId);
+            if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+                return null;
             }
+            return Collections.singletonMap(certificateEval, response.getEncoded());
+        } catch (IOException | OCSPException ex) {
+            // leave it to the revocation checker
+            return null;
         }
     }
 
-    private boolean isGoodCertificate(OCSPResp ocspResp) throws OCSPException, CertPathValidatorException {
+    private boolean isGoodCertificate(OCSPResp ocspResp, CertificateID certId)
+            throws OCSPException, CertPathValidatorException {
 
         if (ocspResp.getStatus() != OCSPResp.SUCCESSFUL) {
             throw new CertPathValidatorException(getMessageStatus(ocspResp.getStatus()));
         }
         BasicOCSPResp basicResponse = (BasicOCSPResp) ocspResp.getResponseObject();
         SingleResp first = basicResponse.getResponses()[0];
+        for (SingleResp singleResp : basicResponse.getResponses()) {
+            if (singleResp.getCertID().equals(certId)) {
+                first = singleResp;
+                break;
+            }
+        }
 
         CertificateStatus certStatus = first.getCertStatus();
 
@@ -319,11 +319,18 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
             throws HeadlessException, KeyStoreException, NoSuchAlgorithmException, CertificateException,
                    InvalidAlgorithmParameterException, CertPathValidatorException, IllegalStateException, IOException,
                    CryptoException {
+        // the path is built from the certificate itself, as trusted certificate entries have no chain
+        if (!verify("false", "false", false, keyStoreHistory, null, Collections.singletonList(certificateEval))) {
+            return;
+        }
+        X509Certificate issuer = findIssuer(keyStoreHistory);
+        if (issuer == null) {
+            throw new CertPathValidatorException(res.getString("VerifyCertificateAction.trustStoreEmpty.message"));
+        }
         File file = new File(crlFile);
-        X509CRL crl = null;
+        CrlIndex crlIndex = null;
         try {
-            byte[] data = FileUtils.readFileToByteArray(file);
-            crl = X509CertUtil.loadCRL(data);
+            crlIndex = CrlCache.getInstance().getIndex(file, issuer);
         } catch (Exception ex) {
             String problemStr = MessageFormat.format(res.getString("ExamineFileAction.NoOpenCrl.Problem"),
                                                      file.getName());
@@ -339,42 +346,75 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
             dProblem.setVisible(true);
             return;
         }
-        if (verify("true", "false", true, keyStoreHistory, crl, alias)) {
-            JOptionPane.showMessageDialog(frame, res.getString("VerifyCertificateAction.CrlSuccessful.message"),
-                                          MessageFormat.format(res.getString("VerifyCertificateAction.Verify.Title"),
-                                                               alias), JOptionPane.INFORMATION_MESSAGE);
-        }
+        checkCrlStatus(crlIndex);
+        JOptionPane.showMessageDialog(frame, res.getString("VerifyCertificateAction.CrlSuccessful.message"),
+                                      MessageFormat.format(res.getString("VerifyCertificateAction.Verify.Title"),
+                                                           alias), JOptionPane.INFORMATION_MESSAGE);
     }
 
     private void verifyStatusCrl(KeyStoreHistory keyStoreHistory, String alias)
             throws CertificateException, KeyStoreException, NoSuchAlgorithmException, IOException,
                    InvalidAlgorithmParameterException, CertPathValidatorException, IllegalStateException,
                    CryptoException {
-        if (verify("true", "false", true, keyStoreHistory, null, alias)) {
-            JOptionPane.showMessageDialog(frame, res.getString("VerifyCertificateAction.CrlSuccessful.message"),
-                                          MessageFormat.format(res.getString("VerifyCertificateAction.Verify.Title"),
-                                                               alias), JOptionPane.INFORMATION_MESSAGE);
+        if (!verify("false", "false", false, keyStoreHistory, null, Collections.singletonList(certificateEval))) {
+            return;
+        }
+        X509Certificate issuer = findIssuer(keyStoreHistory);
+        if (issuer == null) {
+            throw new CertPathValidatorException(res.getString("VerifyCertificateAction.trustStoreEmpty.message"));
+        }
+        List<String> urls = CrlCache.getDistributionPointUrls(certificateEval);
+        if (urls.isEmpty()) {
+            throw new CertPathValidatorException(res.getString("VerifyCertificateAction.noCrlDistPoint.message"));
+        }
+
+        // first distribution point that can be downloaded wins
+        CrlIndex crlIndex = null;
+        IOException lastException = null;
+        for (String url : urls) {
+            try {
+                crlIndex = CrlCache.getInstance().getIndex(new URL(url), issuer, new Date());
+                break;
+            } catch (IOException ex) {
+                lastException = ex;
+            }
+        }
+        if (crlIndex == null) {
+            throw lastException;
+        }
+        checkCrlStatus(crlIndex);
+        JOptionPane.showMessageDialog(frame, res.getString("VerifyCertificateAction.CrlSuccessful.message"),
+                                      MessageFormat.format(res.getString("VerifyCertificateAction.Verify.Title"),
+                                                           alias), JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void checkCrlStatus(CrlIndex crlIndex) throws CertPathValidatorException {
+        Date now = new Date();
+        if (crlIndex.isNotYetValid(now)) {
+            throw new CertPathValidatorException(
+                    MessageFormat.format(res.getString("VerifyCertificateAction.crlNotYetValid.message"),
+                                         StringUtils.formatDate(crlIndex.getThisUpdate())));
+        }
+        if (!crlIndex.isCurrent(now)) {
+            throw new CertPathValidatorException(
+                    MessageFormat.format(res.getString("VerifyCertificateAction.crlExpired.message"),
+                                         StringUtils.formatDate(crlIndex.getNextUpdate())));
+        }
+        CrlIndex.RevokedEntry revokedEntry = crlIndex.find(certificateEval.getSerialNumber());
+        if (revokedEntry != null) {
+            throw new CertPathValidatorException(
+                    MessageFormat.format(res.getString("VerifyCertificateAction.revokedStatus.message"),
+                                         revokedEntry.getReason(),
+                                         StringUtils.formatDate(revokedEntry.getRevocationDate())));
         }
     }
 
     private boolean verify(String crl, String ocsp, boolean revocationEnabled, KeyStoreHistory keyStoreHistory,
-                           X509CRL xCrl, String alias)
+                           Map<X509Certificate, byte[]> ocspResponses, String alias)
             throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException,
                    InvalidAlgorithmParameterException, CertPathValidatorException, IllegalStateException,
                    CryptoException {
 
-        KeyStore trustStore = getKeyStore(keyStoreHistory);
-
-        if (trustStore == null) {
-            return false;
-        }
-        if (trustStore.size() == 0) {
-            throw new CertPathValidatorException(res.getString("VerifyCertificateAction.trustStoreEmpty.message"));
-        }
-        System.setProperty("com.sun.net.ssl.checkRevocation", crl);
-        System.setProperty("com.sun.security.enableCRLDP", crl);
-        Security.setProperty("ocsp.enable", ocsp);
-
         List<X509Certificate> listCertificates = new ArrayList<>();
         if (revocationEnabled) {
             listCertificates.add(certificateEval);
@@ -390,20 +430,44 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
             }
         }
 
+        return verify(crl, ocsp, revocationEnabled, keyStoreHistory, ocspResponses, listCertificates);
+    }
+
+    private boolean verify(String crl, String ocsp, boolean revocationEnabled, KeyStoreHistory keyStoreHistory,
+                           Map<X509Certificate, byte[]> ocspResponses, List<X509Certificate> listCertificates)
+            throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException,
+                   InvalidAlgorithmParameterException, CertPathValidatorException, IllegalStateException,
+                   CryptoException {
+
+        KeyStore trustStore = getKeyStore(keyStoreHistory);
+
+        if (trustStore == null) {
+            return false;
+        }
+        if (trustStore.size() == 0) {
+            throw new CertPathValidatorException(res.getString("VerifyCertificateAction.trustStoreEmpty.message"));
+        }
+        System.setProperty("com.sun.net.ssl.checkRevocation", crl);
+        System.setProperty("com.sun.security.enableCRLDP", crl);
+        Security.setProperty("ocsp.enable", ocsp);
+
         CertPathValidator validator = CertPathValidator.getInstance("PKIX");
         CertificateFactory factory = CertificateFactory.getInstance("X509");
         CertPath certPath = factory.generateCertPath(listCertificates);
         PKIXParameters params = new PKIXParameters(trustStore);
-        if (xCrl != null) {
-            params.addCertStore(CertStore.getInstance("Collection", new CollectionCertStoreParameters(
-                    Collections.singletonList(xCrl))));
-        }
 
         // remove some critical extensions that are private to companies and would
         // otherwise cause a validation failure
         PKIXCertPathChecker certPathChecker = new ExtensionRemovingCertPathChecker();
         params.addCertPathChecker(certPathChecker);
 
+        // pre-fetched (possibly cached) OCSP responses are handed to the revocation checker
+        if (revocationEnabled && ocspResponses != null && !ocspResponses.isEmpty()) {
+            PKIXRevocationChecker revocationChecker = (PKIXRevocationChecker) validator.getRevocationChecker();
+            revocationChecker.setOcspResponses(ocspResponses);
+            params.addCertPathChecker(revocationChecker);
+        }
+
         Date now = new Date(System.currentTimeMillis());
         params.setDate(now);
         params.setRevocationEnabled(revocationEnabled);
@@ -482,33 +546,4 @@ public class VerifyCertificateAction extends KeyStoreExplorerAction {
             throw new CryptoException(message, ex);
         }
     }
-
-    static class ExtensionRemovingCertPathChecker extends PKIXCertPathChecker {
-        @Override
-        public void init(boolean forward) throws CertPathValidatorException {
-            // nothing to do here
-        }
-
-        @Override
-        public boolean isForwardCheckingSupported() {
-            return false;
-        }
-
-        @Override
-        public Set<String> getSupportedExtensions() {
-            HashSet<String> hashSet = new HashSet<>();
-
-            // appleCertificateExtensionCodeSigning
-            hashSet.add("1.2.840.113635.100.6.1.13");
-
-            return hashSet;
-        }
-
-        @Override
-        public void check(Certificate cert, Collection<String> unresolvedCritExts) throws CertPathValidatorException {
-            // remove critical Apple private extension that causes certificate validation to
-            // fail
-            unresolvedCritExts.remove("1.2.840.113635.100.6.1.13");
-        }
-    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.actions;
+
+import java.awt.Toolkit;
+import java.io.File;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+import javax.swing.JOptionPane;
+
+import org.kse.crypto.verify.KeyStoreVerifier;
+import org.kse.crypto.verify.RevocationCheck;
+import org.kse.gui.KseFrame;
+import org.kse.gui.dialogs.DVerifyCertificate;
+import org.kse.gui.dialogs.DVerifyCertificate.VerifyOptions;
+import org.kse.gui.dialogs.DVerifyingKeyStore;
+import org.kse.gui.error.DError;
+import org.kse.utilities.history.KeyStoreHistory;
+
+/**
+ * Action to verify the certificates of all entries of the active KeyStore at
+ * once, with the same options as the verification of a single certificate.
+ */
+public class VerifyKeyStoreAction extends KeyStoreExplorerAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct action.
+     *
+     * @param kseFrame KeyStore Explorer frame
+     */
+    public VerifyKeyStoreAction(KseFrame kseFrame) {
+        super(kseFrame);
+
+        putValue(LONG_DESCRIPTION, res.getString("VerifyKeyStoreAction.statusbar"));
+        putValue(NAME, res.getString("VerifyKeyStoreAction.text"));
+        putValue(SHORT_DESCRIPTION, res.getString("VerifyKeyStoreAction.tooltip"));
+        putValue(SMALL_ICON, new ImageIcon(
+                Toolkit.getDefaultToolkit().createImage(getClass().getResource("images/verifycert.png"))));
+    }
+
+    /**
+     * Do action.
+     */
+    @Override
+    protected void doAction() {
+        try {
+            KeyStoreHistory history = kseFrame.getActiveKeyStoreHistory();
+            KeyStore keyStore = history.getCurrentState().getKeyStore();
+
+            Map<String, X509Certificate[]> chains = KeyStoreVerifier.getCertificateChains(keyStore);
+            if (chains.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, res.getString("VerifyKeyStoreAction.NoEntries.message"),
+                                              res.getString("VerifyKeyStoreAction.VerifyKeyStore.Title"),
+                                              JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+
+            DVerifyCertificate dVerifyCertificate = new DVerifyCertificate(frame, kseFrame);
+            dVerifyCertificate.setLocationRelativeTo(frame);
+            dVerifyCertificate.setVisible(true);
+
+            if (!dVerifyCertificate.isVerifySelected()) {
+                return;
+            }
+
+            // trust anchors come from the selected CA KeyStore, otherwise from the active KeyStore itself
+            KeyStoreHistory caKeyStoreHistory = dVerifyCertificate.getKeyStore();
+            KeyStore caKeyStore = caKeyStoreHistory != null ?
+                                  caKeyStoreHistory.getCurrentState().getKeyStore() :
+                                  keyStore;
+
+            List<X509Certificate> caCerts = KeyStoreVerifier.getCaCertificates(caKeyStore);
+            if (caCerts.isEmpty()) {
+                JOptionPane.showMessageDialog(frame, res.getString("VerifyKeyStoreAction.NoCaCertificates.message"),
+                                              res.getString("VerifyKeyStoreAction.VerifyKeyStore.Title"),
+                                              JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            RevocationCheck revocationCheck = getRevocationCheck(dVerifyCertificate.getVerifyOption());
+            File crlFile = null;
+            if (revocationCheck == RevocationCheck.CRL_FILE) {
+                crlFile = new File(dVerifyCertificate.getCrlFile());
+            }
+
+            KeyStoreVerifier verifier = new KeyStoreVerifier(caCerts, revocationCheck, crlFile,
+                                                             dVerifyCertificate.getOcspUrl(),
+                                                             KeyStoreVerifier.getDefaultThreads(revocationCheck));
+
+            DVerifyingKeyStore dVerifyingKeyStore = new DVerifyingKeyStore(frame, verifier, chains);
+            dVerifyingKeyStore.setLocationRelativeTo(frame);
+            dVerifyingKeyStore.startVerification();
+            dVerifyingKeyStore.setVisible(true);
+        } catch (Exception ex) {
+            DError.displayError(frame, ex);
+        }
+    }
+
+    private static RevocationCheck getRevocationCheck(VerifyOptions verifyOption) {
+        switch (verifyOption) {
+        case CRL_DIST:
+            return RevocationCheck.CRL_DIST_POINT;
+        case CRL_FILE:
+            return RevocationCheck.CRL_FILE;
+        case OCSP_AIA:
+            return RevocationCheck.OCSP_AIA;
+        case OCSP_URL:
+            return RevocationCheck.OCSP_URL;
+        case CHAIN:
+        default:
+            return RevocationCheck.NONE;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableColumn;
+
+import org.kse.gui.CurrentDirectory;
+import org.kse.gui.FileChooserFactory;
+import org.kse.gui.JavaFXFileChooser;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+import org.kse.utilities.ssl.SslCapability;
+import org.kse.utilities.ssl.SslCapabilityReport;
+import org.kse.utilities.ssl.SslEnumerator;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Enumerates the protocol versions, cipher suites and named groups of an SSL
+ * endpoint in the background and shows the probe results in a sortable table
+ * as they arrive. The results can be exported as CSV or JSON.
+ */
+public class DEnumeratingSsl extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlProgress;
+    private JProgressBar jpbProgress;
+    private SslCapabilitiesTableModel capabilitiesModel;
+    private JTable jtCapabilities;
+    private JScrollPane jspCapabilities;
+    private JButton jbExportCsv;
+    private JButton jbExportJson;
+    private JButton jbCancel;
+
+    private SslEnumerator enumerator;
+    private String sslHost;
+    private int sslPort;
+
+    private Thread enumeration;
+    private volatile boolean aborted;
+    private boolean finished;
+    private long startTime;
+    private long totalMillis;
+    private int supported;
+
+    /**
+     * Creates a new DEnumeratingSsl dialog.
+     *
+     * @param parent     The parent frame
+     * @param enumerator The configured enumerator
+     * @param sslHost    Endpoint host
+     * @param sslPort    Endpoint port
+     */
+    public DEnumeratingSsl(JFrame parent, SslEnumerator enumerator, String sslHost, int sslPort) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.enumerator = enumerator;
+        this.sslHost = sslHost;
+        this.sslPort = sslPort;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlProgress = new JLabel(MessageFormat.format(res.getString("DEnumeratingSsl.jlProgress.text"), 0, 0, 0));
+
+        jpbProgress = new JProgressBar();
+        jpbProgress.setIndeterminate(true);
+
+        capabilitiesModel = new SslCapabilitiesTableModel();
+        jtCapabilities = new JTable(capabilitiesModel);
+        jtCapabilities.setAutoCreateRowSorter(true);
+        jtCapabilities.setShowGrid(false);
+        jtCapabilities.setRowMargin(0);
+        jtCapabilities.getColumnModel().setColumnMargin(0);
+        jtCapabilities.getTableHeader().setReorderingAllowed(false);
+        jtCapabilities.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+
+        int[] widths = { 100, 70, 300, 100, 300, 60 };
+        for (int i = 0; i < widths.length; i++) {
+            TableColumn column = jtCapabilities.getColumnModel().getColumn(i);
+            column.setPreferredWidth(widths[i]);
+        }
+
+        jspCapabilities = PlatformUtil.createScrollPane(jtCapabilities, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                        JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        jspCapabilities.getViewport().setBackground(jtCapabilities.getBackground());
+
+        jbExportCsv = new JButton(res.getString("DEnumeratingSsl.jbExportCsv.text"));
+        PlatformUtil.setMnemonic(jbExportCsv, res.getString("DEnumeratingSsl.jbExportCsv.mnemonic").charAt(0));
+        jbExportCsv.setToolTipText(res.getString("DEnumeratingSsl.jbExportCsv.tooltip"));
+        jbExportCsv.addActionListener(evt -> exportPressed(false));
+
+        jbExportJson = new JButton(res.getString("DEnumeratingSsl.jbExportJson.text"));
+        PlatformUtil.setMnemonic(jbExportJson, res.getString("DEnumeratingSsl.jbExportJson.mnemonic").charAt(0));
+        jbExportJson.setToolTipText(res.getString("DEnumeratingSsl.jbExportJson.tooltip"));
+        jbExportJson.addActionListener(evt -> exportPressed(true));
+
+        jbCancel = new JButton(res.getString("DEnumeratingSsl.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                closeDialog();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", "[][][grow][]"));
+        pane.add(jlProgress, "wrap");
+        pane.add(jpbProgress, "growx, wrap");
+        pane.add(jspCapabilities, "grow, w 900, h 400, wrap unrel");
+        pane.add(jbExportCsv, "split 3, tag other");
+        pane.add(jbExportJson, "tag other");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setTitle(MessageFormat.format(res.getString("DEnumeratingSsl.Title"), sslHost, Integer.toString(sslPort)));
+        setResizable(true);
+
+        pack();
+    }
+
+    /**
+     * Start the enumeration in the background.
+     */
+    public void startEnumeration() {
+        startTime = System.nanoTime();
+
+        enumeration = new Thread(() -> {
+            try {
+                enumerator.enumerate(sslHost, sslPort, this::capabilityReceived);
+                SwingUtilities.invokeLater(this::enumerationFinished);
+            } catch (InterruptedException ex) {
+                // cancelled
+            }
+        }, "SslEnumeration");
+        enumeration.setDaemon(true);
+        enumeration.start();
+    }
+
+    private void capabilityReceived(SslCapability capability) {
+        SwingUtilities.invokeLater(() -> {
+            if (aborted || !isShowing()) {
+                return;
+            }
+
+            capabilitiesModel.add(capability);
+            if (capability.getStatus() == SslCapability.Status.SUPPORTED) {
+                supported++;
+            }
+            updateProgressText();
+        });
+    }
+
+    private void enumerationFinished() {
+        if (aborted) {
+            return;
+        }
+        finished = true;
+        totalMillis = elapsedMillis();
+        jpbProgress.setIndeterminate(false);
+        jpbProgress.setMaximum(1);
+        jpbProgress.setValue(1);
+        jlProgress.setText(MessageFormat.format(res.getString("DEnumeratingSsl.Finished.text"),
+                                                capabilitiesModel.getRowCount(), supported, totalMillis));
+        jbCancel.setText(res.getString("DEnumeratingSsl.jbClose.text"));
+    }
+
+    private void updateProgressText() {
+        jlProgress.setText(MessageFormat.format(res.getString("DEnumeratingSsl.jlProgress.text"),
+                                                capabilitiesModel.getRowCount(), supported, elapsedMillis()));
+    }
+
+    private long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private void exportPressed(boolean json) {
+        String title = res.getString(json ? "DEnumeratingSsl.ExportJson.Title" : "DEnumeratingSsl.ExportCsv.Title");
+
+        JFileChooser chooser = json ? FileChooserFactory.getJsonFileChooser() : FileChooserFactory.getCsvFileChooser();
+        chooser.setCurrentDirectory(CurrentDirectory.get());
+        chooser.setDialogTitle(title);
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = JavaFXFileChooser.isFxAvailable() ?
+                       chooser.showSaveDialog(this) :
+                       chooser.showDialog(this, res.getString("DEnumeratingSsl.ChooseExportFile.button"));
+
+        if (rtnValue != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File chosenFile = chooser.getSelectedFile();
+        CurrentDirectory.updateForFile(chosenFile);
+
+        String extension = "." + (json ? FileChooserFactory.JSON_EXT : FileChooserFactory.CSV_EXT);
+        if (!chosenFile.getName().toLowerCase().endsWith(extension)) {
+            chosenFile = new File(chosenFile.getPath() + extension);
+        }
+
+        if (chosenFile.isFile()) {
+            String message = MessageFormat.format(res.getString("DEnumeratingSsl.OverWriteFile.message"), chosenFile);
+
+            int selected = JOptionPane.showConfirmDialog(this, message, title, JOptionPane.YES_NO_OPTION);
+            if (selected != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+
+        List<SslCapability> capabilities = capabilitiesModel.getCapabilities();
+
+        try (Writer writer = Files.newBufferedWriter(chosenFile.toPath(), StandardCharsets.UTF_8)) {
+            if (json) {
+                SslCapabilityReport.writeJson(sslHost, sslPort, finished ? totalMillis : elapsedMillis(),
+                                              capabilities, writer);
+            } else {
+                SslCapabilityReport.writeCsv(capabilities, writer);
+            }
+        } catch (IOException ex) {
+            DError.displayError(this, ex);
+            return;
+        }
+
+        JOptionPane.showMessageDialog(this, MessageFormat.format(
+                res.getString("DEnumeratingSsl.ExportSuccessful.message"), capabilities.size()), title,
+                                      JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void cancelPressed() {
+        if (finished) {
+            closeDialog();
+            return;
+        }
+
+        // keep the results so far, they can still be exported
+        totalMillis = elapsedMillis();
+        stopEnumeration();
+        jpbProgress.setIndeterminate(false);
+        jbCancel.setText(res.getString("DEnumeratingSsl.jbClose.text"));
+        finished = true;
+    }
+
+    private void stopEnumeration() {
+        aborted = true;
+        if (enumeration != null) {
+            enumeration.interrupt();
+        }
+    }
+
+    private void closeDialog() {
+        stopEnumeration();
+        setVisible(false);
+        dispose();
+    }
+}
@@ -74,6 +74,7 @@ public class DExamineSsl extends JEscDialog {
     private JComboBox<String> jcbSslHost;
     private JLabel jlSslPort;
     private JComboBox<String> jcbSslPort;
+    private JCheckBox jcbEnumerate;
     private JCheckBox jcbClientAuth;
     private JComboBox<KeyStoreHistory> jcbKeyStore;
     private JButton jbLoadKeystore;
@@ -114,6 +115,9 @@ public class DExamineSsl extends JEscDialog {
         jcbSslPort.setToolTipText(res.getString("DExamineSsl.jtfSslPort.tooltip"));
         jcbSslPort.setModel(new DefaultComboBoxModel<>(getSslPorts()));
 
+        jcbEnumerate = new JCheckBox(res.getString("DExamineSsl.jcbEnumerate.text"));
+        jcbEnumerate.setToolTipText(res.getString("DExamineSsl.jcbEnumerate.tooltip"));
+
         jcbClientAuth = new JCheckBox(res.getString("DExamineSsl.jlEnableClientAuth.text"));
 
         jcbKeyStore = new JComboBox<>(getKeystoreNames());
@@ -137,7 +141,8 @@ public class DExamineSsl extends JEscDialog {
         pane.add(jlSslHost, "skip");
         pane.add(jcbSslHost, "sgx, growx, wrap");
         pane.add(jlSslPort, "skip");
-        pane.add(jcbSslPort, "sgx, growx, wrap para");
+        pane.add(jcbSslPort, "sgx, growx, wrap");
+        pane.add(jcbEnumerate, "skip, spanx, wrap para");
         MiGUtil.addSeparator(pane, res.getString("DExamineSsl.jlClientAuth.text"));
         pane.add(jcbClientAuth, "left, spanx, wrap");
         pane.add(new JLabel(res.getString("DExamineSsl.jlKeyStore.text")), "skip");
@@ -203,6 +208,15 @@ public class DExamineSsl extends JEscDialog {
         return sslPort;
     }
 
+    /**
+     * User wants to enumerate the supported protocols, cipher suites and named groups?
+     *
+     * @return True if the endpoint's capabilities are to be enumerated
+     */
+    public boolean enumerateCapabilities() {
+        return jcbEnumerate.isSelected();
+    }
+
     /**
      * User wants to use SSL client authentication?
      *
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JProgressBar;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+import org.kse.gui.components.JEscDialog;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Shown while a fetch from the network is in progress - a process which the
+ * user may cancel at any time by pressing the cancel button. The dialog is
+ * application modal, so no other action can be started while it is shown.
+ */
+public class DFetching extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlFetching;
+    private JProgressBar jpbFetching;
+    private JButton jbCancel;
+
+    private CompletableFuture<?> future;
+
+    /**
+     * Creates a new DFetching dialog, which closes when the fetch completes.
+     *
+     * @param parent The parent window or null
+     * @param future Future of the fetch, cancelled if the user cancels
+     */
+    public DFetching(Window parent, CompletableFuture<?> future) {
+        super(parent, Dialog.ModalityType.APPLICATION_MODAL);
+        this.future = future;
+        initComponents();
+
+        future.whenComplete((result, ex) -> SwingUtilities.invokeLater(this::closeDialog));
+    }
+
+    private void initComponents() {
+        jlFetching = new JLabel(res.getString("DFetching.jlFetching.text"));
+
+        jpbFetching = new JProgressBar();
+        jpbFetching.setIndeterminate(true);
+
+        jbCancel = new JButton(res.getString("DFetching.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", ""));
+        pane.add(jlFetching, "center, wrap");
+        pane.add(jpbFetching, "growx, wmin 250, wrap unrel");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        setTitle(res.getString("DFetching.Title"));
+        setResizable(false);
+
+        pack();
+    }
+
+    private void cancelPressed() {
+        future.cancel(true);
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+}
@@ -26,11 +26,14 @@ import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.text.MessageFormat;
 import java.util.ResourceBundle;
 
 import javax.swing.AbstractAction;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
@@ -40,6 +43,7 @@ import javax.swing.JSeparator;
 import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 
+import org.kse.crypto.dh.DHParametersLibrary;
 import org.kse.gui.components.JEscDialog;
 import org.kse.gui.MiGUtil;
 import org.kse.gui.PlatformUtil;
@@ -62,6 +66,10 @@ import net.miginfocom.swing.MigLayout;
  * <p>
  * An expansion of this class can allow specific key sizes and the inclusion
  * of DH standard RFC groups.
+ * <p>
+ * Previously generated parameters are kept in a local library. If the library
+ * holds parameters of the selected size, the user can choose to reuse them
+ * instead of generating new ones.
  */
 
 public class DGenerateDHParameters extends JEscDialog {
@@ -71,22 +79,29 @@ public class DGenerateDHParameters extends JEscDialog {
     private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
 
     private static final String CANCEL_KEY = "CANCEL_KEY";
-    private String[] keySizeSelection = { "1024", "2048" };
+    private String[] keySizeSelection = { "1024", "2048", "3072", "4096", "8192" };
     private JLabel jlDHKeySize;
     private JComboBox<String> jcbDHKeySize;
+    private JCheckBox jcbReuseFromLibrary;
+    private JLabel jlLibraryCount;
 
     private JButton jbOK;
     private JButton jbCancel;
     private int dhKeySize;
+    private boolean reuseFromLibrary;
     private boolean success = false;
 
+    private DHParametersLibrary library;
+
     /**
      * Creates a new DGeneratingKeyPair dialog.
      *
-     * @param parent The parent frame
+     * @param parent  The parent frame
+     * @param library Library of previously generated DH parameters
      */
-    public DGenerateDHParameters(JFrame parent) {
+    public DGenerateDHParameters(JFrame parent, DHParametersLibrary library) {
         super(parent, res.getString("DGenerateDHParameters.Title"), Dialog.ModalityType.DOCUMENT_MODAL);
+        this.library = library;
         initComponents();
     }
 
@@ -101,6 +116,13 @@ public class DGenerateDHParameters extends JEscDialog {
         jcbDHKeySize.setSelectedIndex(1);
         jcbDHKeySize.setToolTipText(res.getString("DGenerateDHParameters.jcbDHKeySize.tooltip"));
 
+        jcbReuseFromLibrary = new JCheckBox(res.getString("DGenerateDHParameters.jcbReuseFromLibrary.text"));
+        jcbReuseFromLibrary.setToolTipText(res.getString("DGenerateDHParameters.jcbReuseFromLibrary.tooltip"));
+        jcbReuseFromLibrary.setSelected(true);
+
+        jlLibraryCount = new JLabel();
+        updateLibraryCount();
+
         JMultiLineLabel jmllFooter = new JMultiLineLabel(res.getString("DGenerateDHParameters.jtAreaFooter.text"));
         jmllFooter.setColumns(25);
 
@@ -115,10 +137,13 @@ public class DGenerateDHParameters extends JEscDialog {
         MiGUtil.addSeparator(pane, res.getString("DGenerateDHParameters.jpContent.text"));
         pane.add(jlDHKeySize, "skip, align right");
         pane.add(jcbDHKeySize, "wrap");
+        pane.add(jcbReuseFromLibrary, "skip, spanx, wrap");
+        pane.add(jlLibraryCount, "skip 2, spanx, wrap");
         pane.add(jmllFooter, "growx, spanx, wrap");
         pane.add(new JSeparator(), "spanx, growx, wrap");
         pane.add(buttons, "right, spanx");
 
+        jcbDHKeySize.addItemListener(evt -> updateLibraryCount());
         jbOK.addActionListener(evt -> okPressed());
         jbCancel.addActionListener(evt -> cancelPressed());
         jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
@@ -146,6 +171,13 @@ public class DGenerateDHParameters extends JEscDialog {
         pack();
     }
 
+    private void updateLibraryCount() {
+        int count = library.count(Integer.parseInt((String) jcbDHKeySize.getSelectedItem()));
+        jlLibraryCount.setText(MessageFormat.format(res.getString("DGenerateDHParameters.jlLibraryCount.text"),
+                                                    count));
+        jcbReuseFromLibrary.setEnabled(count > 0);
+    }
+
     /**
      * Set the selected key size.
      */
@@ -162,6 +194,16 @@ public class DGenerateDHParameters extends JEscDialog {
         return dhKeySize;
     }
 
+    /**
+     * Should DH parameters from the library be used if there are any of the
+     * selected size?
+     *
+     * @return True if stored parameters should be reused
+     */
+    public boolean isReuseFromLibrary() {
+        return reuseFromLibrary;
+    }
+
     /**
      * Have the parameters been entered correctly?
      *
@@ -180,6 +222,7 @@ public class DGenerateDHParameters extends JEscDialog {
      */
     private void okPressed() {
         setKeySize();
+        reuseFromLibrary = jcbReuseFromLibrary.isEnabled() && jcbReuseFromLibrary.isSelected();
         success = true;
         closeDialog();
     }
@@ -201,7 +244,8 @@ public class DGenerateDHParameters extends JEscDialog {
 
     // for quick UI testing
     public static void main(String[] args) throws Exception {
-        DGenerateDHParameters dialog = new DGenerateDHParameters(new JFrame());
+        DGenerateDHParameters dialog = new DGenerateDHParameters(new JFrame(),
+                                                                 new DHParametersLibrary(new File("dhparams")));
         DialogViewer.run(dialog);
     }
 
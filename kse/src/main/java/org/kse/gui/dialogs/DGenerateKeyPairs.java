@@ -0,0 +1,327 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.security.PrivateKey;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JSeparator;
+import javax.swing.JSpinner;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.SpinnerNumberModel;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.kse.crypto.keypair.KeyPairType;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.KseX500NameStyle;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.crypto.JValidityPeriod;
+import org.kse.utilities.DialogViewer;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Dialog used to specify the parameters for generating several key pairs at
+ * once: how many, their aliases and names, their certificates and how many
+ * worker threads to use.
+ */
+public class DGenerateKeyPairs extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private static final String NUMBER_PLACEHOLDER = "{0}";
+    private static final String ALIAS_PLACEHOLDER = "{1}";
+
+    private JLabel jlCount;
+    private JSpinner jsCount;
+    private JLabel jlAliasTemplate;
+    private JTextField jtfAliasTemplate;
+    private JLabel jlNameTemplate;
+    private JTextField jtfNameTemplate;
+    private JLabel jlSigAlg;
+    private JComboBox<SignatureType> jcbSignatureAlgorithm;
+    private JLabel jlValidityPeriod;
+    private JValidityPeriod jvpValidityPeriod;
+    private JLabel jlThreads;
+    private JSpinner jsThreads;
+    private JButton jbOK;
+    private JButton jbCancel;
+
+    private List<String> aliases;
+    private List<X500Name> names;
+    private Set<String> existingAliases;
+
+    /**
+     * Creates a new DGenerateKeyPairs dialog.
+     *
+     * @param parent           The parent frame
+     * @param title            The dialog's title
+     * @param keyPairType      The type of the key pairs to generate
+     * @param keySize          The key size (RSA and DSA)
+     * @param curveName        The curve name (EC)
+     * @param issuerPrivateKey The signing key (issuer CA) or null for self-signed certificates
+     * @param existingAliases  Aliases that are already used in the KeyStore
+     */
+    public DGenerateKeyPairs(JFrame parent, String title, KeyPairType keyPairType, int keySize, String curveName,
+                             PrivateKey issuerPrivateKey, Set<String> existingAliases) {
+        super(parent, title, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.existingAliases = new HashSet<>(existingAliases);
+        initComponents(keyPairType, keySize, curveName, issuerPrivateKey);
+    }
+
+    private void initComponents(KeyPairType keyPairType, int keySize, String curveName, PrivateKey issuerPrivateKey) {
+        jlCount = new JLabel(res.getString("DGenerateKeyPairs.jlCount.text"));
+
+        jsCount = new JSpinner(new SpinnerNumberModel(10, 1, 10000, 1));
+        jsCount.setToolTipText(res.getString("DGenerateKeyPairs.jsCount.tooltip"));
+
+        jlAliasTemplate = new JLabel(res.getString("DGenerateKeyPairs.jlAliasTemplate.text"));
+
+        jtfAliasTemplate = new JTextField(res.getString("DGenerateKeyPairs.jtfAliasTemplate.default"), 30);
+        jtfAliasTemplate.setToolTipText(res.getString("DGenerateKeyPairs.jtfAliasTemplate.tooltip"));
+
+        jlNameTemplate = new JLabel(res.getString("DGenerateKeyPairs.jlNameTemplate.text"));
+
+        jtfNameTemplate = new JTextField(res.getString("DGenerateKeyPairs.jtfNameTemplate.default"), 30);
+        jtfNameTemplate.setToolTipText(res.getString("DGenerateKeyPairs.jtfNameTemplate.tooltip"));
+
+        jlSigAlg = new JLabel(res.getString("DGenerateKeyPairs.jlSigAlg.text"));
+
+        jcbSignatureAlgorithm = new JComboBox<>();
+        jcbSignatureAlgorithm.setToolTipText(res.getString("DGenerateKeyPairs.jcbSignatureAlgorithm.tooltip"));
+        jcbSignatureAlgorithm.setMaximumRowCount(10);
+
+        // populate signature algorithm selector
+        if (issuerPrivateKey != null) {
+            KeyPairType issuerKeyPairType = KeyPairType.resolveJce(issuerPrivateKey.getAlgorithm());
+            DialogHelper.populateSigAlgs(issuerKeyPairType, issuerPrivateKey, jcbSignatureAlgorithm);
+        } else {
+            // self-signed
+            DialogHelper.populateSigAlgs(keyPairType, keySize, curveName, jcbSignatureAlgorithm);
+        }
+
+        jlValidityPeriod = new JLabel(res.getString("DGenerateKeyPairs.jlValidityPeriod.text"));
+
+        jvpValidityPeriod = new JValidityPeriod(JValidityPeriod.YEARS);
+        jvpValidityPeriod.setToolTipText(res.getString("DGenerateKeyPairs.jvpValidityPeriod.tooltip"));
+
+        jlThreads = new JLabel(res.getString("DGenerateKeyPairs.jlThreads.text"));
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        jsThreads = new JSpinner(new SpinnerNumberModel(processors, 1, Math.max(64, processors), 1));
+        jsThreads.setToolTipText(res.getString("DGenerateKeyPairs.jsThreads.tooltip"));
+
+        jbOK = new JButton(res.getString("DGenerateKeyPairs.jbOK.text"));
+
+        jbCancel = new JButton(res.getString("DGenerateKeyPairs.jbCancel.text"));
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+
+        // layout
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[right]unrel[]", "[]unrel[]"));
+        pane.add(jlCount, "");
+        pane.add(jsCount, "wrap");
+        pane.add(jlAliasTemplate, "");
+        pane.add(jtfAliasTemplate, "wrap");
+        pane.add(jlNameTemplate, "");
+        pane.add(jtfNameTemplate, "wrap");
+        pane.add(jlSigAlg, "");
+        pane.add(jcbSignatureAlgorithm, "wrap");
+        pane.add(jlValidityPeriod, "");
+        pane.add(jvpValidityPeriod, "wrap");
+        pane.add(jlThreads, "");
+        pane.add(jsThreads, "wrap");
+        pane.add(new JSeparator(), "spanx, growx, wrap 15:push");
+        pane.add(jbCancel, "spanx, split 2, tag cancel");
+        pane.add(jbOK, "tag ok");
+
+        jbOK.addActionListener(evt -> okPressed());
+
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        jbCancel.addActionListener(evt -> cancelPressed());
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setResizable(false);
+
+        getRootPane().setDefaultButton(jbOK);
+
+        pack();
+    }
+
+    private boolean expandTemplates() {
+        int count = (Integer) jsCount.getValue();
+        String aliasTemplate = jtfAliasTemplate.getText().trim();
+        String nameTemplate = jtfNameTemplate.getText().trim();
+
+        if (aliasTemplate.isEmpty()) {
+            JOptionPane.showMessageDialog(this, res.getString("DGenerateKeyPairs.AliasTemplateReq.message"),
+                                          getTitle(), JOptionPane.WARNING_MESSAGE);
+            return false;
+        }
+
+        if (count > 1 && !aliasTemplate.contains(NUMBER_PLACEHOLDER)) {
+            JOptionPane.showMessageDialog(this, res.getString("DGenerateKeyPairs.AliasTemplateNumberReq.message"),
+                                          getTitle(), JOptionPane.WARNING_MESSAGE);
+            return false;
+        }
+
+        if (nameTemplate.isEmpty()) {
+            JOptionPane.showMessageDialog(this, res.getString("DGenerateKeyPairs.NameTemplateReq.message"),
+                                          getTitle(), JOptionPane.WARNING_MESSAGE);
+            return false;
+        }
+
+        List<String> newAliases = new ArrayList<>(count);
+        List<X500Name> newNames = new ArrayList<>(count);
+
+        for (int i = 1; i <= count; i++) {
+            String number = Integer.toString(i);
+            String alias = aliasTemplate.replace(NUMBER_PLACEHOLDER, number);
+
+            if (existingAliases.contains(alias)) {
+                JOptionPane.showMessageDialog(this, MessageFormat.format(
+                        res.getString("DGenerateKeyPairs.AliasExists.message"), alias), getTitle(),
+                                              JOptionPane.WARNING_MESSAGE);
+                return false;
+            }
+
+            String name = nameTemplate.replace(NUMBER_PLACEHOLDER, number).replace(ALIAS_PLACEHOLDER, alias);
+            try {
+                newNames.add(new X500Name(KseX500NameStyle.INSTANCE, name));
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, MessageFormat.format(
+                        res.getString("DGenerateKeyPairs.NameInvalid.message"), name), getTitle(),
+                                              JOptionPane.WARNING_MESSAGE);
+                return false;
+            }
+
+            newAliases.add(alias);
+        }
+
+        aliases = newAliases;
+        names = newNames;
+        return true;
+    }
+
+    /**
+     * Get the aliases of the key pairs to generate.
+     *
+     * @return The aliases or null if the user cancelled the dialog
+     */
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Get the certificate names (DN) of the key pairs to generate, in the same
+     * order as the aliases.
+     *
+     * @return The names or null if the user cancelled the dialog
+     */
+    public List<X500Name> getNames() {
+        return names;
+    }
+
+    /**
+     * Get the selected signature algorithm.
+     *
+     * @return The signature algorithm
+     */
+    public SignatureType getSignatureType() {
+        return (SignatureType) jcbSignatureAlgorithm.getSelectedItem();
+    }
+
+    /**
+     * Get the selected validity period.
+     *
+     * @return The validity period in msecs
+     */
+    public long getValidityPeriodMs() {
+        return jvpValidityPeriod.getValidityPeriodMs();
+    }
+
+    /**
+     * Get the number of worker threads to use for the generation.
+     *
+     * @return The number of threads
+     */
+    public int getThreads() {
+        return (Integer) jsThreads.getValue();
+    }
+
+    private void okPressed() {
+        if (expandTemplates()) {
+            closeDialog();
+        }
+    }
+
+    private void cancelPressed() {
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+
+    // for quick testing
+    public static void main(String[] args) throws Exception {
+        DialogViewer.prepare();
+        DialogViewer.run(new DGenerateKeyPairs(new JFrame(), "Generate Key Pairs", KeyPairType.RSA, 2048, null, null,
+                                               new HashSet<>()));
+    }
+}
@@ -26,13 +26,9 @@ import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.math.BigInteger;
-import java.security.AlgorithmParameterGenerator;
-import java.security.AlgorithmParameters;
-import java.security.SecureRandom;
+import java.text.MessageFormat;
 import java.util.ResourceBundle;
 
-import javax.crypto.spec.DHParameterSpec;
 import javax.swing.AbstractAction;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -42,13 +38,9 @@ import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
-import org.bouncycastle.asn1.ASN1EncodableVector;
-import org.bouncycastle.asn1.ASN1Encoding;
-import org.bouncycastle.asn1.ASN1Integer;
-import org.bouncycastle.asn1.DERSequence;
-import org.bouncycastle.crypto.params.DHParameters;
-import org.kse.KSE;
+import org.kse.crypto.dh.DHParametersGenerator;
 import org.kse.gui.components.JEscDialog;
 import org.kse.gui.error.DError;
 
@@ -56,8 +48,8 @@ import net.miginfocom.swing.MigLayout;
 
 /**
  * <h1>DH Parameters generation</h1> The class DGeneratingDHParameters initiates
- * DH Parameters generation. Bouncy Castle is the provider used to generate the
- * parameters.
+ * DH Parameters generation. The search for a safe prime runs on all available
+ * processors.
  * <p>
  * The user may cancel at any time by pressing the cancel button.
  */
@@ -70,11 +62,14 @@ public class DGeneratingDHParameters extends JEscDialog {
 
     private JLabel jlGenDHParameters;
     private JProgressBar jpbGenDHParameters;
+    private JLabel jlCandidates;
     private JButton jbCancel;
+    private Timer candidatesTimer;
 
     private byte[] dhParameters;
     private int keySize;
     private Thread generator;
+    private DHParametersGenerator dhParametersGenerator;
     private boolean successStatus = true;
 
     /**
@@ -86,6 +81,7 @@ public class DGeneratingDHParameters extends JEscDialog {
     public DGeneratingDHParameters(JFrame parent, int keySize) {
         super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
         this.keySize = keySize;
+        this.dhParametersGenerator = new DHParametersGenerator(keySize, Runtime.getRuntime().availableProcessors());
         initComponents();
     }
 
@@ -101,6 +97,12 @@ public class DGeneratingDHParameters extends JEscDialog {
         jpbGenDHParameters = new JProgressBar();
         jpbGenDHParameters.setIndeterminate(true);
 
+        jlCandidates = new JLabel(MessageFormat.format(res.getString("DGeneratingDHParameters.jlCandidates.text"), 0));
+
+        candidatesTimer = new Timer(250, evt -> jlCandidates.setText(
+                MessageFormat.format(res.getString("DGeneratingDHParameters.jlCandidates.text"),
+                                     dhParametersGenerator.getCandidatesTested())));
+
         jbCancel = new JButton(res.getString("DGeneratingDHParameters.jbCancel.text"));
         jbCancel.addActionListener(evt -> cancelPressed());
         jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
@@ -118,6 +120,7 @@ public class DGeneratingDHParameters extends JEscDialog {
         pane.setLayout(new MigLayout("insets dialog, fill", "[]", "[]unrel"));
         pane.add(jlGenDHParameters, "wrap");
         pane.add(jpbGenDHParameters, "growx, wrap");
+        pane.add(jlCandidates, "wrap");
         pane.add(jbCancel, "tag Cancel");
 
         addWindowListener(new WindowAdapter() {
@@ -143,6 +146,7 @@ public class DGeneratingDHParameters extends JEscDialog {
         generator = new Thread(new GenerateDHParameters());
         generator.setPriority(Thread.MIN_PRIORITY);
         generator.start();
+        candidatesTimer.start();
     }
 
     /**
@@ -169,6 +173,7 @@ public class DGeneratingDHParameters extends JEscDialog {
      * Closes the dialogue
      */
     private void closeDialog() {
+        candidatesTimer.stop();
         setVisible(false);
         dispose();
     }
@@ -186,7 +191,8 @@ public class DGeneratingDHParameters extends JEscDialog {
     /**
      * Generates the DH Parameters.
      * <p>
-     * Identifies a safe prime using the Bouncy Castle provider.
+     * Searches for a safe prime with one worker per processor. Interrupting
+     * this thread stops all workers.
      * <p>
      * The parameters are then encoded in DER.
      */
@@ -194,27 +200,17 @@ public class DGeneratingDHParameters extends JEscDialog {
         @Override
         public void run() {
             try {
-                AlgorithmParameterGenerator algGen = AlgorithmParameterGenerator.getInstance("DH", KSE.BC);
-                algGen.init(keySize, new SecureRandom());
-                AlgorithmParameters dhParams = algGen.generateParameters();
-                DHParameterSpec dhSpec = dhParams.getParameterSpec(DHParameterSpec.class);
-
-                // Generator G is set as random in params, but it has to be 2 to conform to
-                // openssl
-                DHParameters realParams = new DHParameters(dhSpec.getP(), BigInteger.valueOf(2));
-                // Add DH Params to ASN.1 Encoding vector
-                ASN1EncodableVector vec = new ASN1EncodableVector();
-                vec.add(new ASN1Integer(realParams.getP()));
-                vec.add(new ASN1Integer(realParams.getG()));
-                // Add DER Encoding to byte array
-                dhParameters = new DERSequence(vec).getEncoded(ASN1Encoding.DER);
+                dhParameters = dhParametersGenerator.generate();
 
                 SwingUtilities.invokeLater(() -> {
                     if (DGeneratingDHParameters.this.isShowing()) {
                         closeDialog();
                     }
                 });
+            } catch (InterruptedException ex) {
+                // cancelled by user
             } catch (final Exception ex) {
+                successStatus = false;
                 SwingUtilities.invokeLater(() -> {
                     if (DGeneratingDHParameters.this.isShowing()) {
                         DError dError = new DError(DGeneratingDHParameters.this, ex);
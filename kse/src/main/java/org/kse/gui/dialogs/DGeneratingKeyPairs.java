@@ -0,0 +1,419 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import static org.kse.crypto.x509.X509CertificateVersion.VERSION3;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.AbstractAction;
+import javax.swing.DefaultListModel;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.keypair.KeyPairType;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X500NameUtils;
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509Ext;
+import org.kse.crypto.x509.X509ExtensionSet;
+import org.kse.crypto.x509.X509ExtensionSetUpdater;
+import org.kse.crypto.x509.X509ExtensionType;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+import org.kse.utilities.SerialNumbers;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Generates several key pairs with certificates in parallel on a pool of worker
+ * threads, showing the progress per key pair and the overall throughput. The
+ * user may cancel at any time by pressing the cancel button.
+ */
+public class DGeneratingKeyPairs extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlGenKeyPairs;
+    private JProgressBar jpbGenKeyPairs;
+    private JLabel jlThroughput;
+    private JList<String> jlstGenerated;
+    private DefaultListModel<String> generatedModel;
+    private JScrollPane jspGenerated;
+    private JButton jbCancel;
+
+    private KeyPairType keyPairType;
+    private int keySize;
+    private String curveName;
+    private List<String> aliases;
+    private List<X500Name> names;
+    private SignatureType signatureType;
+    private long validityPeriodMs;
+    private X509Certificate[] issuerCertChain;
+    private PrivateKey issuerPrivateKey;
+    private int threads;
+    private Provider provider;
+
+    private KeyStore.PrivateKeyEntry[] results;
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile boolean aborted;
+    private ExecutorService executor;
+    private long startTime;
+    private boolean successful;
+
+    /**
+     * Creates a new DGeneratingKeyPairs dialog.
+     *
+     * @param parent           The parent frame
+     * @param keyPairType      The key pair generation type
+     * @param keySize          The key size to generate (RSA and DSA)
+     * @param curveName        The name of the curve to create (EC)
+     * @param aliases          The aliases of the key pairs to generate
+     * @param names            The certificate names (DN), in the same order as the aliases
+     * @param signatureType    The signature algorithm for the certificates
+     * @param validityPeriodMs The validity period of the certificates
+     * @param issuerCertChain  The chain of the signing key pair (issuer CA) or null for self-signed certificates
+     * @param issuerPrivateKey The signing key (issuer CA) or null for self-signed certificates
+     * @param threads          The number of worker threads
+     * @param provider         The provider to use or null for the default
+     */
+    public DGeneratingKeyPairs(JFrame parent, KeyPairType keyPairType, int keySize, String curveName,
+                               List<String> aliases, List<X500Name> names, SignatureType signatureType,
+                               long validityPeriodMs, X509Certificate[] issuerCertChain, PrivateKey issuerPrivateKey,
+                               int threads, Provider provider) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.keyPairType = keyPairType;
+        this.keySize = keySize;
+        this.curveName = curveName;
+        this.aliases = aliases;
+        this.names = names;
+        this.signatureType = signatureType;
+        this.validityPeriodMs = validityPeriodMs;
+        this.issuerCertChain = issuerCertChain;
+        this.issuerPrivateKey = issuerPrivateKey;
+        this.threads = threads;
+        this.provider = provider;
+        this.results = new KeyStore.PrivateKeyEntry[aliases.size()];
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlGenKeyPairs = new JLabel(MessageFormat.format(res.getString("DGeneratingKeyPairs.jlGenKeyPairs.text"),
+                                                        aliases.size(), threads));
+        ImageIcon icon = new ImageIcon(getClass().getResource("images/genkp.png"));
+        jlGenKeyPairs.setIcon(icon);
+        jlGenKeyPairs.setHorizontalTextPosition(SwingConstants.LEADING);
+        jlGenKeyPairs.setIconTextGap(15);
+
+        jpbGenKeyPairs = new JProgressBar(0, aliases.size());
+        jpbGenKeyPairs.setStringPainted(true);
+
+        jlThroughput = new JLabel(MessageFormat.format(res.getString("DGeneratingKeyPairs.jlThroughput.text"), 0,
+                                                       aliases.size(), 0));
+
+        generatedModel = new DefaultListModel<>();
+        jlstGenerated = new JList<>(generatedModel);
+        jlstGenerated.setVisibleRowCount(8);
+        jlstGenerated.setToolTipText(res.getString("DGeneratingKeyPairs.jlstGenerated.tooltip"));
+
+        jspGenerated = PlatformUtil.createScrollPane(jlstGenerated, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                     JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+
+        jbCancel = new JButton(res.getString("DGeneratingKeyPairs.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", ""));
+        pane.add(jlGenKeyPairs, "center, wrap");
+        pane.add(jpbGenKeyPairs, "growx, wrap");
+        pane.add(jlThroughput, "wrap");
+        pane.add(jspGenerated, "grow, wmin 350, wrap unrel");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        setTitle(res.getString("DGeneratingKeyPairs.Title"));
+        setResizable(false);
+
+        pack();
+    }
+
+    /**
+     * Start key pair generation on the worker threads.
+     */
+    public void startKeyPairGeneration() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "KeyPairGenerator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        // all certificates share the same validity, as if generated at once
+        Date validityStart = new Date();
+        Date validityEnd = new Date(validityStart.getTime() + validityPeriodMs);
+
+        startTime = System.nanoTime();
+
+        for (int i = 0; i < aliases.size(); i++) {
+            executor.submit(new GenerateKeyPair(i, validityStart, validityEnd));
+        }
+        executor.shutdown();
+    }
+
+    private void cancelPressed() {
+        aborted = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+
+    /**
+     * Get the generated key pairs with their certificate chains.
+     *
+     * @return The key pair entries keyed by alias, in the order of the aliases,
+     *         or null if the user cancelled the dialog or an error occurred
+     */
+    public Map<String, KeyStore.PrivateKeyEntry> getKeyPairEntries() {
+        if (!successful) {
+            return null;
+        }
+
+        Map<String, KeyStore.PrivateKeyEntry> entries = new LinkedHashMap<>();
+        for (int i = 0; i < aliases.size(); i++) {
+            entries.put(aliases.get(i), results[i]);
+        }
+        return entries;
+    }
+
+    private void keyPairGenerated(String alias, long durationNanos) {
+        int done = completed.incrementAndGet();
+        long elapsedNanos = System.nanoTime() - startTime;
+        long perMinute = elapsedNanos > 0 ? Math.round(done * (double) TimeUnit.MINUTES.toNanos(1) / elapsedNanos) : 0;
+
+        SwingUtilities.invokeLater(() -> {
+            if (aborted || !isShowing()) {
+                return;
+            }
+
+            generatedModel.addElement(MessageFormat.format(res.getString("DGeneratingKeyPairs.KeyPairGenerated.text"),
+                                                           alias, TimeUnit.NANOSECONDS.toMillis(durationNanos)));
+            jlstGenerated.ensureIndexIsVisible(generatedModel.size() - 1);
+            jpbGenKeyPairs.setValue(done);
+            jlThroughput.setText(MessageFormat.format(res.getString("DGeneratingKeyPairs.jlThroughput.text"), done,
+                                                      aliases.size(), perMinute));
+
+            if (done == aliases.size()) {
+                successful = true;
+                closeDialog();
+            }
+        });
+    }
+
+    private void keyPairGenerationFailed(final Exception ex) {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+        executor.shutdownNow();
+
+        SwingUtilities.invokeLater(() -> {
+            if (isShowing()) {
+                DError dError = new DError(DGeneratingKeyPairs.this, ex);
+                dError.setLocationRelativeTo(DGeneratingKeyPairs.this);
+                dError.setVisible(true);
+                closeDialog();
+            }
+        });
+    }
+
+    private class GenerateKeyPair implements Runnable {
+        private final int index;
+        private final Date validityStart;
+        private final Date validityEnd;
+
+        GenerateKeyPair(int index, Date validityStart, Date validityEnd) {
+            this.index = index;
+            this.validityStart = validityStart;
+            this.validityEnd = validityEnd;
+        }
+
+        @Override
+        public void run() {
+            if (aborted) {
+                return;
+            }
+
+            try {
+                long start = System.nanoTime();
+
+                KeyPair keyPair;
+                switch (keyPairType) {
+                case RSA:
+                case DSA:
+                    keyPair = KeyPairUtil.generateKeyPair(keyPairType, keySize, provider);
+                    break;
+                case EC:
+                case ECDSA:
+                case EDDSA:
+                case ED25519:
+                case ED448:
+                default:
+                    keyPair = KeyPairUtil.generateECKeyPair(curveName, provider);
+                    break;
+                }
+
+                if (aborted) {
+                    return;
+                }
+
+                results[index] = new KeyStore.PrivateKeyEntry(keyPair.getPrivate(), generateCertChain(keyPair));
+
+                keyPairGenerated(aliases.get(index), System.nanoTime() - start);
+            } catch (Exception ex) {
+                keyPairGenerationFailed(ex);
+            }
+        }
+
+        private X509Certificate[] generateCertChain(KeyPair keyPair) throws CryptoException {
+            X509CertificateGenerator generator = new X509CertificateGenerator(VERSION3);
+            X500Name name = names.get(index);
+
+            // serial numbers are random, so they are unique without coordination between the workers
+            BigInteger serialNumber = SerialNumbers.parse(X509CertUtil.generateCertSerialNumber());
+
+            if (issuerPrivateKey == null) {
+                X509ExtensionSet extensions = createExtensions(keyPair.getPublic(), keyPair.getPublic(), name,
+                                                               serialNumber);
+                X509Certificate certificate = generator.generateSelfSigned(name, validityStart, validityEnd,
+                                                                           keyPair.getPublic(), keyPair.getPrivate(),
+                                                                           signatureType, serialNumber, extensions,
+                                                                           provider);
+                return new X509Certificate[] { certificate };
+            }
+
+            X509Certificate issuerCert = issuerCertChain[0];
+            X500Name issuerName = X500NameUtils.x500PrincipalToX500Name(issuerCert.getSubjectX500Principal());
+            X509ExtensionSet extensions = createExtensions(keyPair.getPublic(), issuerCert.getPublicKey(),
+                                                           issuerName, issuerCert.getSerialNumber());
+
+            X509Certificate certificate = generator.generate(name, issuerName, validityStart, validityEnd,
+                                                             keyPair.getPublic(), issuerPrivateKey, signatureType,
+                                                             serialNumber, extensions, provider);
+
+            X509Certificate[] certChain = new X509Certificate[issuerCertChain.length + 1];
+            System.arraycopy(issuerCertChain, 0, certChain, 1, issuerCertChain.length);
+            certChain[0] = certificate;
+            return certChain;
+        }
+
+        private X509ExtensionSet createExtensions(PublicKey subjectPublicKey, PublicKey issuerPublicKey,
+                                                  X500Name issuerName, BigInteger issuerSerialNumber)
+                throws CryptoException {
+            X509ExtensionSet extensions = new X509ExtensionSet();
+
+            try {
+                extensions.addExtension(X509ExtensionType.BASIC_CONSTRAINTS.oid(), true, X509Ext.wrapInOctetString(
+                        new BasicConstraints(false).getEncoded(ASN1Encoding.DER)));
+
+                // the key identifiers are filled in by the updater, as for a single key pair
+                extensions.addExtension(X509ExtensionType.SUBJECT_KEY_IDENTIFIER.oid(), false,
+                                        X509Ext.wrapInOctetString(
+                                                new SubjectKeyIdentifier(new byte[0]).getEncoded(ASN1Encoding.DER)));
+                extensions.addExtension(X509ExtensionType.AUTHORITY_KEY_IDENTIFIER.oid(), false,
+                                        X509Ext.wrapInOctetString(new AuthorityKeyIdentifier(new byte[0]).getEncoded(
+                                                ASN1Encoding.DER)));
+
+                X509ExtensionSetUpdater.update(extensions, subjectPublicKey, issuerPublicKey, issuerName,
+                                               issuerSerialNumber);
+            } catch (IOException ex) {
+                throw new CryptoException(ex);
+            }
+
+            return extensions;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSeparator;
+import javax.swing.JSpinner;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.SpinnerNumberModel;
+
+import org.kse.gui.CurrentDirectory;
+import org.kse.gui.FileChooserFactory;
+import org.kse.gui.MiGUtil;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+import org.kse.utilities.DialogViewer;
+import org.kse.utilities.ssl.SslScanTarget;
+import org.kse.utilities.ssl.SslScanner;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Dialog used to enter the SSL endpoints to scan, as a list of hosts, host
+ * and port pairs or IPv4 ranges in CIDR notation.
+ */
+public class DScanSsl extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlTargets;
+    private JTextArea jtaTargets;
+    private JScrollPane jspTargets;
+    private JButton jbLoadTargets;
+    private JLabel jlDefaultPort;
+    private JTextField jtfDefaultPort;
+    private JLabel jlThreads;
+    private JSpinner jspThreads;
+    private JLabel jlTimeout;
+    private JSpinner jspTimeout;
+    private JPanel jpButtons;
+    private JButton jbOK;
+    private JButton jbCancel;
+
+    private List<SslScanTarget> targets;
+
+    /**
+     * Creates new DScanSsl dialog.
+     *
+     * @param parent Parent frame
+     */
+    public DScanSsl(JFrame parent) {
+        super(parent, res.getString("DScanSsl.Title"), Dialog.ModalityType.DOCUMENT_MODAL);
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlTargets = new JLabel(res.getString("DScanSsl.jlTargets.text"));
+
+        jtaTargets = new JTextArea(12, 40);
+        jtaTargets.setFont(new Font(Font.MONOSPACED, Font.PLAIN, jtaTargets.getFont().getSize()));
+        jtaTargets.setToolTipText(res.getString("DScanSsl.jtaTargets.tooltip"));
+
+        jspTargets = PlatformUtil.createScrollPane(jtaTargets, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                   JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+
+        jbLoadTargets = new JButton(res.getString("DScanSsl.jbLoadTargets.text"));
+        PlatformUtil.setMnemonic(jbLoadTargets, res.getString("DScanSsl.jbLoadTargets.mnemonic").charAt(0));
+        jbLoadTargets.setToolTipText(res.getString("DScanSsl.jbLoadTargets.tooltip"));
+
+        jlDefaultPort = new JLabel(res.getString("DScanSsl.jlDefaultPort.text"));
+
+        jtfDefaultPort = new JTextField("443", 6);
+        jtfDefaultPort.setToolTipText(res.getString("DScanSsl.jtfDefaultPort.tooltip"));
+
+        jlThreads = new JLabel(res.getString("DScanSsl.jlThreads.text"));
+
+        jspThreads = new JSpinner(new SpinnerNumberModel(SslScanner.DEFAULT_THREADS, 1, 512, 1));
+        jspThreads.setToolTipText(res.getString("DScanSsl.jspThreads.tooltip"));
+
+        jlTimeout = new JLabel(res.getString("DScanSsl.jlTimeout.text"));
+
+        jspTimeout = new JSpinner(new SpinnerNumberModel(
+                (int) TimeUnit.MILLISECONDS.toSeconds(SslScanner.DEFAULT_TIMEOUT_MILLIS), 1, 300, 1));
+        jspTimeout.setToolTipText(res.getString("DScanSsl.jspTimeout.tooltip"));
+
+        jbOK = new JButton(res.getString("DScanSsl.jbOK.text"));
+
+        jbCancel = new JButton(res.getString("DScanSsl.jbCancel.text"));
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+
+        jpButtons = PlatformUtil.createDialogButtonPanel(jbOK, jbCancel, "insets 0");
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[indent]unrel[right]unrel[grow]", ""));
+        MiGUtil.addSeparator(pane, res.getString("DScanSsl.jlTargetSettings.text"));
+        pane.add(jlTargets, "skip, top");
+        pane.add(jspTargets, "grow, push, wrap");
+        pane.add(jbLoadTargets, "skip 2, left, wrap para");
+        pane.add(jlDefaultPort, "skip");
+        pane.add(jtfDefaultPort, "left, wrap para");
+        MiGUtil.addSeparator(pane, res.getString("DScanSsl.jlScanSettings.text"));
+        pane.add(jlThreads, "skip");
+        pane.add(jspThreads, "left, wrap");
+        pane.add(jlTimeout, "skip");
+        pane.add(jspTimeout, "left, wrap para");
+        pane.add(new JSeparator(), "spanx, growx, wrap");
+        pane.add(jpButtons, "right, spanx");
+
+        jbLoadTargets.addActionListener(evt -> loadTargetsPressed());
+        jbOK.addActionListener(evt -> okPressed());
+        jbCancel.addActionListener(evt -> cancelPressed());
+
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setResizable(true);
+
+        pack();
+    }
+
+    /**
+     * Get the endpoints to scan.
+     *
+     * @return Targets or null if the dialog was cancelled
+     */
+    public List<SslScanTarget> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Get the number of endpoints to scan at the same time.
+     *
+     * @return Number of threads
+     */
+    public int getThreads() {
+        return (Integer) jspThreads.getValue();
+    }
+
+    /**
+     * Get the timeout for each endpoint.
+     *
+     * @return Timeout in milliseconds
+     */
+    public int getTimeoutMillis() {
+        return (int) TimeUnit.SECONDS.toMillis((Integer) jspTimeout.getValue());
+    }
+
+    private void loadTargetsPressed() {
+        JFileChooser chooser = FileChooserFactory.getAllFileChooser();
+        chooser.setCurrentDirectory(CurrentDirectory.get());
+        chooser.setDialogTitle(res.getString("DScanSsl.LoadTargets.Title"));
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = chooser.showOpenDialog(this);
+        if (rtnValue != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = chooser.getSelectedFile();
+        CurrentDirectory.updateForFile(file);
+
+        try {
+            jtaTargets.setText(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            jtaTargets.setCaretPosition(0);
+        } catch (IOException ex) {
+            DError.displayError(this, ex);
+        }
+    }
+
+    private void okPressed() {
+        int defaultPort;
+        try {
+            defaultPort = Integer.parseInt(jtfDefaultPort.getText().trim());
+        } catch (NumberFormatException ex) {
+            defaultPort = -1;
+        }
+
+        if (defaultPort < 1 || defaultPort > 65535) {
+            JOptionPane.showMessageDialog(this, res.getString("DScanSsl.PortReq.message"), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        List<SslScanTarget> targets;
+        try {
+            targets = SslScanTarget.parse(jtaTargets.getText(), defaultPort);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), getTitle(), JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        if (targets.isEmpty()) {
+            JOptionPane.showMessageDialog(this, res.getString("DScanSsl.TargetsReq.message"), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        this.targets = targets;
+        closeDialog();
+    }
+
+    private void cancelPressed() {
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+
+    // for quick testing
+    public static void main(String[] args) throws Exception {
+        DialogViewer.run(new DScanSsl(new javax.swing.JFrame()));
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableColumn;
+
+import org.kse.gui.CurrentDirectory;
+import org.kse.gui.FileChooserFactory;
+import org.kse.gui.JavaFXFileChooser;
+import org.kse.gui.KseFrame;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+import org.kse.utilities.ssl.SslScanReport;
+import org.kse.utilities.ssl.SslScanResult;
+import org.kse.utilities.ssl.SslScanTarget;
+import org.kse.utilities.ssl.SslScanner;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Scans SSL endpoints in the background and shows the results in a sortable
+ * table as they arrive. The results can be exported as CSV or JSON, the
+ * certificates of the endpoints can be viewed and imported in bulk.
+ */
+public class DScanningSsl extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlProgress;
+    private JProgressBar jpbProgress;
+    private SslScanResultsTableModel resultsModel;
+    private JTable jtResults;
+    private JScrollPane jspResults;
+    private JButton jbView;
+    private JButton jbImport;
+    private JButton jbExportCsv;
+    private JButton jbExportJson;
+    private JButton jbCancel;
+
+    private KseFrame kseFrame;
+    private SslScanner scanner;
+    private List<SslScanTarget> targets;
+    private List<X509Certificate> certificatesToImport;
+
+    private Thread scan;
+    private volatile boolean aborted;
+    private boolean finished;
+    private long startTime;
+    private int failures;
+
+    /**
+     * Creates a new DScanningSsl dialog.
+     *
+     * @param parent   The parent frame
+     * @param kseFrame KeyStore Explorer frame
+     * @param scanner  The configured scanner
+     * @param targets  The endpoints to scan
+     */
+    public DScanningSsl(JFrame parent, KseFrame kseFrame, SslScanner scanner, List<SslScanTarget> targets) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.kseFrame = kseFrame;
+        this.scanner = scanner;
+        this.targets = targets;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlProgress = new JLabel(MessageFormat.format(res.getString("DScanningSsl.jlProgress.text"), 0,
+                                                     targets.size(), 0, 0));
+
+        jpbProgress = new JProgressBar(0, targets.size());
+        jpbProgress.setStringPainted(true);
+
+        resultsModel = new SslScanResultsTableModel();
+        jtResults = new JTable(resultsModel);
+        jtResults.setAutoCreateRowSorter(true);
+        jtResults.setShowGrid(false);
+        jtResults.setRowMargin(0);
+        jtResults.getColumnModel().setColumnMargin(0);
+        jtResults.getTableHeader().setReorderingAllowed(false);
+        jtResults.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+
+        int[] widths = { 160, 50, 60, 70, 200, 160, 130, 200, 60 };
+        for (int i = 0; i < widths.length; i++) {
+            TableColumn column = jtResults.getColumnModel().getColumn(i);
+            column.setPreferredWidth(widths[i]);
+        }
+
+        jtResults.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent evt) {
+                if (evt.getClickCount() > 1) {
+                    viewPressed();
+                }
+            }
+        });
+        jtResults.getSelectionModel().addListSelectionListener(evt -> updateButtons());
+
+        jspResults = PlatformUtil.createScrollPane(jtResults, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                   JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        jspResults.getViewport().setBackground(jtResults.getBackground());
+
+        jbView = new JButton(res.getString("DScanningSsl.jbView.text"));
+        PlatformUtil.setMnemonic(jbView, res.getString("DScanningSsl.jbView.mnemonic").charAt(0));
+        jbView.setToolTipText(res.getString("DScanningSsl.jbView.tooltip"));
+        jbView.addActionListener(evt -> viewPressed());
+
+        jbImport = new JButton(res.getString("DScanningSsl.jbImport.text"));
+        PlatformUtil.setMnemonic(jbImport, res.getString("DScanningSsl.jbImport.mnemonic").charAt(0));
+        jbImport.setToolTipText(res.getString("DScanningSsl.jbImport.tooltip"));
+        jbImport.addActionListener(evt -> importPressed());
+
+        jbExportCsv = new JButton(res.getString("DScanningSsl.jbExportCsv.text"));
+        PlatformUtil.setMnemonic(jbExportCsv, res.getString("DScanningSsl.jbExportCsv.mnemonic").charAt(0));
+        jbExportCsv.setToolTipText(res.getString("DScanningSsl.jbExportCsv.tooltip"));
+        jbExportCsv.addActionListener(evt -> exportPressed(false));
+
+        jbExportJson = new JButton(res.getString("DScanningSsl.jbExportJson.text"));
+        PlatformUtil.setMnemonic(jbExportJson, res.getString("DScanningSsl.jbExportJson.mnemonic").charAt(0));
+        jbExportJson.setToolTipText(res.getString("DScanningSsl.jbExportJson.tooltip"));
+        jbExportJson.addActionListener(evt -> exportPressed(true));
+
+        jbCancel = new JButton(res.getString("DScanningSsl.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                closeDialog();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", "[][][grow][]"));
+        pane.add(jlProgress, "wrap");
+        pane.add(jpbProgress, "growx, wrap");
+        pane.add(jspResults, "grow, w 960, h 400, wrap unrel");
+        pane.add(jbView, "split 5, tag other");
+        pane.add(jbImport, "tag other");
+        pane.add(jbExportCsv, "tag other");
+        pane.add(jbExportJson, "tag other");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setTitle(res.getString("DScanningSsl.Title"));
+        setResizable(true);
+
+        updateButtons();
+
+        pack();
+    }
+
+    /**
+     * Start the scan in the background.
+     */
+    public void startScan() {
+        startTime = System.nanoTime();
+
+        scan = new Thread(() -> {
+            try {
+                scanner.scan(targets, this::resultReceived);
+                SwingUtilities.invokeLater(this::scanFinished);
+            } catch (InterruptedException ex) {
+                // cancelled
+            }
+        }, "SslScan");
+        scan.setDaemon(true);
+        scan.start();
+    }
+
+    /**
+     * Get the certificates the user chose to import into the active KeyStore.
+     *
+     * @return End entity certificates of the chosen endpoints or null if none were chosen
+     */
+    public List<X509Certificate> getCertificatesToImport() {
+        return certificatesToImport;
+    }
+
+    private void resultReceived(SslScanResult result) {
+        SwingUtilities.invokeLater(() -> {
+            if (aborted || !isShowing()) {
+                return;
+            }
+
+            resultsModel.add(result);
+            if (result.getStatus() != SslScanResult.Status.OK) {
+                failures++;
+            }
+            jpbProgress.setValue(resultsModel.getRowCount());
+            updateProgressText();
+            updateButtons();
+        });
+    }
+
+    private void scanFinished() {
+        if (aborted) {
+            return;
+        }
+        finished = true;
+        updateProgressText();
+        jbCancel.setText(res.getString("DScanningSsl.jbClose.text"));
+    }
+
+    private void updateProgressText() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        jlProgress.setText(MessageFormat.format(res.getString("DScanningSsl.jlProgress.text"),
+                                                resultsModel.getRowCount(), targets.size(), failures,
+                                                elapsedMillis));
+    }
+
+    private void updateButtons() {
+        SslScanResult selected = getSelectedResult();
+        jbView.setEnabled(selected != null && selected.getServerCertificates() != null);
+        jbImport.setEnabled(resultsModel.getRowCount() - failures > 0);
+    }
+
+    private SslScanResult getSelectedResult() {
+        int row = jtResults.getSelectedRow();
+        if (row < 0) {
+            return null;
+        }
+        return resultsModel.getResult(jtResults.convertRowIndexToModel(row));
+    }
+
+    private void viewPressed() {
+        SslScanResult result = getSelectedResult();
+        if (result == null || result.getServerCertificates() == null) {
+            return;
+        }
+
+        try {
+            DViewCertificate dViewCertificate = new DViewCertificate(this, MessageFormat.format(
+                    res.getString("DScanningSsl.CertDetails.Title"), result.getTarget().getHost(),
+                    Integer.toString(result.getTarget().getPort())), result.getSslInfos(), kseFrame,
+                                                                     DViewCertificate.EXPORT);
+            dViewCertificate.setLocationRelativeTo(this);
+            dViewCertificate.setVisible(true);
+        } catch (Exception ex) {
+            DError.displayError(this, ex);
+        }
+    }
+
+    private void importPressed() {
+        // the selected endpoints or, without a selection, all of them
+        int[] rows = jtResults.getSelectedRows();
+        List<SslScanResult> results = new ArrayList<>();
+        if (rows.length == 0) {
+            results.addAll(resultsModel.getResults());
+        } else {
+            for (int row : rows) {
+                results.add(resultsModel.getResult(jtResults.convertRowIndexToModel(row)));
+            }
+        }
+
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (SslScanResult result : results) {
+            X509Certificate cert = result.getServerCertificate();
+            if (cert != null && !certificates.contains(cert)) {
+                certificates.add(cert);
+            }
+        }
+
+        if (certificates.isEmpty()) {
+            return;
+        }
+
+        int selected = JOptionPane.showConfirmDialog(this, MessageFormat.format(
+                res.getString("DScanningSsl.ImportCertificates.message"), certificates.size()),
+                                                     res.getString("DScanningSsl.ImportCertificates.Title"),
+                                                     JOptionPane.YES_NO_OPTION);
+        if (selected != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        certificatesToImport = certificates;
+        closeDialog();
+    }
+
+    private void exportPressed(boolean json) {
+        String title = res.getString(json ? "DScanningSsl.ExportJson.Title" : "DScanningSsl.ExportCsv.Title");
+
+        JFileChooser chooser = json ? FileChooserFactory.getJsonFileChooser() : FileChooserFactory.getCsvFileChooser();
+        chooser.setCurrentDirectory(CurrentDirectory.get());
+        chooser.setDialogTitle(title);
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = JavaFXFileChooser.isFxAvailable() ?
+                       chooser.showSaveDialog(this) :
+                       chooser.showDialog(this, res.getString("DScanningSsl.ChooseExportFile.button"));
+
+        if (rtnValue != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File chosenFile = chooser.getSelectedFile();
+        CurrentDirectory.updateForFile(chosenFile);
+
+        String extension = "." + (json ? FileChooserFactory.JSON_EXT : FileChooserFactory.CSV_EXT);
+        if (!chosenFile.getName().toLowerCase().endsWith(extension)) {
+            chosenFile = new File(chosenFile.getPath() + extension);
+        }
+
+        if (chosenFile.isFile()) {
+            String message = MessageFormat.format(res.getString("DScanningSsl.OverWriteFile.message"), chosenFile);
+
+            int selected = JOptionPane.showConfirmDialog(this, message, title, JOptionPane.YES_NO_OPTION);
+            if (selected != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+
+        List<SslScanResult> results = resultsModel.getResults();
+
+        try (Writer writer = Files.newBufferedWriter(chosenFile.toPath(), StandardCharsets.UTF_8)) {
+            if (json) {
+                SslScanReport.writeJson(results, writer);
+            } else {
+                SslScanReport.writeCsv(results, writer);
+            }
+        } catch (IOException ex) {
+            DError.displayError(this, ex);
+            return;
+        }
+
+        JOptionPane.showMessageDialog(this, MessageFormat.format(
+                res.getString("DScanningSsl.ExportSuccessful.message"), results.size()), title,
+                                      JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void cancelPressed() {
+        if (finished) {
+            closeDialog();
+            return;
+        }
+
+        // keep the results so far, they can still be exported and imported
+        stopScan();
+        jbCancel.setText(res.getString("DScanningSsl.jbClose.text"));
+        finished = true;
+    }
+
+    private void stopScan() {
+        aborted = true;
+        if (scan != null) {
+            scan.interrupt();
+        }
+    }
+
+    private void closeDialog() {
+        stopScan();
+        setVisible(false);
+        dispose();
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.util.ResourceBundle;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSeparator;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+
+import org.kse.gui.CurrentDirectory;
+import org.kse.gui.FileChooserFactory;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.utilities.DialogViewer;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Dialog used to enter a query and where to search for it: the open
+ * KeyStores and the KeyStore and certificate files of a directory tree.
+ */
+public class DSearchKeyStores extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlQuery;
+    private JTextField jtfQuery;
+    private JCheckBox jcbOpenKeyStores;
+    private JCheckBox jcbDirectory;
+    private JTextField jtfDirectory;
+    private JButton jbBrowse;
+    private JPanel jpButtons;
+    private JButton jbOK;
+    private JButton jbCancel;
+
+    private String query;
+
+    /**
+     * Creates new DSearchKeyStores dialog.
+     *
+     * @param parent    Parent frame
+     * @param directory Directory searched last time, may be null
+     */
+    public DSearchKeyStores(JFrame parent, String directory) {
+        super(parent, res.getString("DSearchKeyStores.Title"), Dialog.ModalityType.DOCUMENT_MODAL);
+        initComponents(directory);
+    }
+
+    private void initComponents(String directory) {
+        jlQuery = new JLabel(res.getString("DSearchKeyStores.jlQuery.text"));
+
+        jtfQuery = new JTextField(40);
+        jtfQuery.setToolTipText(res.getString("DSearchKeyStores.jtfQuery.tooltip"));
+
+        jcbOpenKeyStores = new JCheckBox(res.getString("DSearchKeyStores.jcbOpenKeyStores.text"), true);
+        jcbOpenKeyStores.setToolTipText(res.getString("DSearchKeyStores.jcbOpenKeyStores.tooltip"));
+
+        jcbDirectory = new JCheckBox(res.getString("DSearchKeyStores.jcbDirectory.text"), directory != null);
+        jcbDirectory.setToolTipText(res.getString("DSearchKeyStores.jcbDirectory.tooltip"));
+
+        jtfDirectory = new JTextField(directory, 30);
+        jtfDirectory.setToolTipText(res.getString("DSearchKeyStores.jtfDirectory.tooltip"));
+
+        jbBrowse = new JButton(res.getString("DSearchKeyStores.jbBrowse.text"));
+        PlatformUtil.setMnemonic(jbBrowse, res.getString("DSearchKeyStores.jbBrowse.mnemonic").charAt(0));
+        jbBrowse.setToolTipText(res.getString("DSearchKeyStores.jbBrowse.tooltip"));
+
+        jbOK = new JButton(res.getString("DSearchKeyStores.jbOK.text"));
+
+        jbCancel = new JButton(res.getString("DSearchKeyStores.jbCancel.text"));
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+
+        jpButtons = PlatformUtil.createDialogButtonPanel(jbOK, jbCancel, "insets 0");
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[right]unrel[grow][]", ""));
+        pane.add(jlQuery, "");
+        pane.add(jtfQuery, "growx, spanx, wrap para");
+        pane.add(jcbOpenKeyStores, "skip, spanx, wrap");
+        pane.add(jcbDirectory, "skip, spanx, wrap");
+        pane.add(jtfDirectory, "skip, growx");
+        pane.add(jbBrowse, "wrap para");
+        pane.add(new JSeparator(), "spanx, growx, wrap");
+        pane.add(jpButtons, "right, spanx");
+
+        jcbDirectory.addItemListener(evt -> updateDirectoryControls());
+        jbBrowse.addActionListener(evt -> browsePressed());
+        jtfQuery.addActionListener(evt -> okPressed());
+        jbOK.addActionListener(evt -> okPressed());
+        jbCancel.addActionListener(evt -> cancelPressed());
+
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        updateDirectoryControls();
+
+        setResizable(false);
+
+        getRootPane().setDefaultButton(jbOK);
+
+        pack();
+    }
+
+    /**
+     * Get the query.
+     *
+     * @return Query or null if the dialog was cancelled
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Should the open KeyStores be searched?
+     *
+     * @return True if they should
+     */
+    public boolean isOpenKeyStoresSearched() {
+        return jcbOpenKeyStores.isSelected();
+    }
+
+    /**
+     * Get the directory tree to search.
+     *
+     * @return Root of the directory tree or null if no directory should be searched
+     */
+    public File getDirectory() {
+        return jcbDirectory.isSelected() ? new File(jtfDirectory.getText().trim()) : null;
+    }
+
+    private void updateDirectoryControls() {
+        jtfDirectory.setEnabled(jcbDirectory.isSelected());
+        jbBrowse.setEnabled(jcbDirectory.isSelected());
+    }
+
+    private void browsePressed() {
+        JFileChooser chooser = FileChooserFactory.getDirectoryChooser();
+        String directory = jtfDirectory.getText().trim();
+        chooser.setCurrentDirectory(directory.isEmpty() ? CurrentDirectory.get() : new File(directory));
+        chooser.setDialogTitle(res.getString("DSearchKeyStores.ChooseDirectory.Title"));
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = chooser.showDialog(this, res.getString("DSearchKeyStores.ChooseDirectory.button"));
+        if (rtnValue == JFileChooser.APPROVE_OPTION) {
+            jtfDirectory.setText(chooser.getSelectedFile().getPath());
+        }
+    }
+
+    private void okPressed() {
+        String query = jtfQuery.getText().trim();
+
+        if (query.isEmpty()) {
+            JOptionPane.showMessageDialog(this, res.getString("DSearchKeyStores.QueryReq.message"), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        if (!jcbOpenKeyStores.isSelected() && !jcbDirectory.isSelected()) {
+            JOptionPane.showMessageDialog(this, res.getString("DSearchKeyStores.SourceReq.message"), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        if (jcbDirectory.isSelected() && !getDirectory().isDirectory()) {
+            JOptionPane.showMessageDialog(this, res.getString("DSearchKeyStores.DirectoryReq.message"), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        this.query = query;
+        closeDialog();
+    }
+
+    private void cancelPressed() {
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+
+    // for quick testing
+    public static void main(String[] args) throws Exception {
+        DialogViewer.run(new DSearchKeyStores(new javax.swing.JFrame(), null));
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableColumn;
+
+import org.kse.crypto.keystore.KeyStoreSearchIndex;
+import org.kse.crypto.keystore.KeyStoreSearchResult;
+import org.kse.crypto.keystore.KeyStoreSearcher;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Searches the open KeyStores and the KeyStore and certificate files of a
+ * directory tree and shows the matching entries in a sortable table as they
+ * are found. A matching entry can be shown in its KeyStore.
+ */
+public class DSearchingKeyStores extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlProgress;
+    private JProgressBar jpbProgress;
+    private KeyStoreSearchResultsTableModel resultsModel;
+    private JTable jtResults;
+    private JScrollPane jspResults;
+    private JButton jbShow;
+    private JButton jbCancel;
+
+    private KeyStoreSearcher searcher;
+    private String query;
+    private File directory;
+    private List<KeyStoreSearchResult> openResults;
+    private Set<File> openFiles;
+
+    private KeyStoreSearchResult selectedResult;
+    private KeyStoreSearchIndex.Entry selectedEntry;
+
+    private Thread search;
+    private volatile boolean aborted;
+    private boolean finished;
+    private long startTime;
+    private int files;
+    private int searched;
+    private int read;
+    private int locked;
+    private int failed;
+
+    /**
+     * Creates a new DSearchingKeyStores dialog.
+     *
+     * @param parent      The parent frame
+     * @param searcher    The configured searcher
+     * @param query       The query
+     * @param directory   Root of the directory tree to search or null to only show the open KeyStores
+     * @param openResults Results of the open KeyStores, searched already
+     * @param openFiles   Files of the open KeyStores, which are not searched again
+     */
+    public DSearchingKeyStores(JFrame parent, KeyStoreSearcher searcher, String query, File directory,
+                               List<KeyStoreSearchResult> openResults, Set<File> openFiles) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.searcher = searcher;
+        this.query = query;
+        this.directory = directory;
+        this.openResults = openResults;
+        this.openFiles = openFiles;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlProgress = new JLabel(" ");
+
+        jpbProgress = new JProgressBar();
+        jpbProgress.setStringPainted(true);
+
+        resultsModel = new KeyStoreSearchResultsTableModel();
+        jtResults = new JTable(resultsModel);
+        jtResults.setAutoCreateRowSorter(true);
+        jtResults.setShowGrid(false);
+        jtResults.setRowMargin(0);
+        jtResults.getColumnModel().setColumnMargin(0);
+        jtResults.getTableHeader().setReorderingAllowed(false);
+        jtResults.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+
+        int[] widths = { 260, 140, 260, 140, 130, 120 };
+        for (int i = 0; i < widths.length; i++) {
+            TableColumn column = jtResults.getColumnModel().getColumn(i);
+            column.setPreferredWidth(widths[i]);
+        }
+
+        jtResults.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent evt) {
+                if (evt.getClickCount() > 1) {
+                    showPressed();
+                }
+            }
+        });
+        jtResults.getSelectionModel().addListSelectionListener(evt -> updateButtons());
+
+        jspResults = PlatformUtil.createScrollPane(jtResults, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                   JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        jspResults.getViewport().setBackground(jtResults.getBackground());
+
+        jbShow = new JButton(res.getString("DSearchingKeyStores.jbShow.text"));
+        PlatformUtil.setMnemonic(jbShow, res.getString("DSearchingKeyStores.jbShow.mnemonic").charAt(0));
+        jbShow.setToolTipText(res.getString("DSearchingKeyStores.jbShow.tooltip"));
+        jbShow.addActionListener(evt -> showPressed());
+
+        jbCancel = new JButton(res.getString("DSearchingKeyStores.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                closeDialog();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", "[][][grow][]"));
+        pane.add(jlProgress, "wrap");
+        pane.add(jpbProgress, "growx, wrap");
+        pane.add(jspResults, "grow, w 960, h 400, wrap unrel");
+        pane.add(jbShow, "split 2, tag other");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setTitle(MessageFormat.format(res.getString("DSearchingKeyStores.Title"), query));
+        setResizable(true);
+
+        updateButtons();
+
+        pack();
+    }
+
+    /**
+     * Show the results of the open KeyStores and start the search of the
+     * directory tree in the background.
+     */
+    public void startSearch() {
+        startTime = System.nanoTime();
+
+        for (KeyStoreSearchResult result : openResults) {
+            resultsModel.add(result);
+        }
+
+        if (directory == null) {
+            searchFinished();
+            return;
+        }
+
+        search = new Thread(() -> {
+            try {
+                List<File> candidates = searcher.listFiles(directory).stream()
+                                                .filter(file -> !openFiles.contains(file.getAbsoluteFile()))
+                                                .collect(Collectors.toList());
+                SwingUtilities.invokeLater(() -> filesListed(candidates.size()));
+
+                searcher.search(candidates, query, this::resultReceived);
+                SwingUtilities.invokeLater(this::searchFinished);
+            } catch (IOException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    searchFinished();
+                    DError.displayError(this, ex);
+                });
+            } catch (InterruptedException ex) {
+                // cancelled
+            }
+        }, "KeyStoreSearch");
+        search.setDaemon(true);
+        search.start();
+
+        jpbProgress.setIndeterminate(true);
+        updateProgressText();
+    }
+
+    /**
+     * Get the KeyStore the user chose to show.
+     *
+     * @return Result of the chosen KeyStore or null if none was chosen
+     */
+    public KeyStoreSearchResult getSelectedResult() {
+        return selectedResult;
+    }
+
+    /**
+     * Get the entry the user chose to show.
+     *
+     * @return Chosen entry or null if none was chosen or its KeyStore could not be searched
+     */
+    public KeyStoreSearchIndex.Entry getSelectedEntry() {
+        return selectedEntry;
+    }
+
+    private void filesListed(int files) {
+        if (aborted) {
+            return;
+        }
+
+        this.files = files;
+        jpbProgress.setIndeterminate(false);
+        jpbProgress.setMaximum(files);
+        updateProgressText();
+    }
+
+    private void resultReceived(KeyStoreSearchResult result) {
+        SwingUtilities.invokeLater(() -> {
+            if (aborted || !isShowing()) {
+                return;
+            }
+
+            resultsModel.add(result);
+
+            searched++;
+            switch (result.getStatus()) {
+            case INDEXED:
+                read++;
+                break;
+            case LOCKED:
+                locked++;
+                break;
+            case FAILED:
+                failed++;
+                break;
+            default:
+                break;
+            }
+
+            jpbProgress.setValue(searched);
+            updateProgressText();
+        });
+    }
+
+    private void searchFinished() {
+        if (aborted) {
+            return;
+        }
+        finished = true;
+        jpbProgress.setIndeterminate(false);
+        jpbProgress.setMaximum(Math.max(1, files));
+        jpbProgress.setValue(Math.max(1, files));
+        updateProgressText();
+        jbCancel.setText(res.getString("DSearchingKeyStores.jbClose.text"));
+    }
+
+    private void updateProgressText() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        jlProgress.setText(MessageFormat.format(res.getString("DSearchingKeyStores.jlProgress.text"),
+                                                resultsModel.getRowCount() - locked - failed, searched, files, read,
+                                                locked, failed, elapsedMillis));
+    }
+
+    private void updateButtons() {
+        jbShow.setEnabled(jtResults.getSelectedRow() >= 0);
+    }
+
+    private void showPressed() {
+        int row = jtResults.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+
+        int modelRow = jtResults.convertRowIndexToModel(row);
+        selectedResult = resultsModel.getResult(modelRow);
+        selectedEntry = resultsModel.getEntry(modelRow);
+        closeDialog();
+    }
+
+    private void cancelPressed() {
+        if (finished) {
+            closeDialog();
+            return;
+        }
+
+        // keep the results so far, they can still be shown
+        stopSearch();
+        jbCancel.setText(res.getString("DSearchingKeyStores.jbClose.text"));
+        jpbProgress.setIndeterminate(false);
+        finished = true;
+    }
+
+    private void stopSearch() {
+        aborted = true;
+        if (search != null) {
+            search.interrupt();
+        }
+    }
+
+    private void closeDialog() {
+        stopSearch();
+        setVisible(false);
+        dispose();
+    }
+}
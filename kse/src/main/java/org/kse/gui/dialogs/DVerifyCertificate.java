@@ -81,7 +81,7 @@ public class DVerifyCertificate extends JEscDialog {
 
     private static final String CANCEL_KEY = "CANCEL_KEY";
 
-    private String certificateAlias;
+    private String title;
 
     private JRadioButton jrbCrlCheckDistPoint;
     private JRadioButton jrbCrlCheckFile;
@@ -115,7 +115,21 @@ public class DVerifyCertificate extends JEscDialog {
      */
     public DVerifyCertificate(JFrame parent, String certificateAlias, KseFrame kseFrame) {
         super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
-        this.certificateAlias = certificateAlias;
+        this.title = MessageFormat.format(res.getString("DVerifyCertificate.Title"), certificateAlias);
+        this.kseFrame = kseFrame;
+        initComponents();
+    }
+
+    /**
+     * Creates a new DVerifyCertificate dialog for verifying all entries of the
+     * active keystore.
+     *
+     * @param parent   The parent frame
+     * @param kseFrame KeyStore Explorer application frame
+     */
+    public DVerifyCertificate(JFrame parent, KseFrame kseFrame) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.title = res.getString("DVerifyCertificate.AllEntries.Title");
         this.kseFrame = kseFrame;
         initComponents();
     }
@@ -237,7 +251,7 @@ public class DVerifyCertificate extends JEscDialog {
                 closeDialog();
             }
         });
-        setTitle(MessageFormat.format(res.getString("DVerifyCertificate.Title"), certificateAlias));
+        setTitle(title);
 
         setResizable(false);
 
@@ -280,7 +294,6 @@ public class DVerifyCertificate extends JEscDialog {
     }
 
     private void okPressed() {
-        String title = MessageFormat.format(res.getString("DVerifyCertificate.Title"), certificateAlias);
         if (jrbCrlCheckDistPoint.isSelected()) {
             verifyOption = VerifyOptions.CRL_DIST;
         } else if (jrbCrlCheckFile.isSelected()) {
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableColumn;
+
+import org.kse.crypto.verify.KeyStoreVerifier;
+import org.kse.crypto.verify.VerificationReport;
+import org.kse.crypto.verify.VerificationResult;
+import org.kse.gui.CurrentDirectory;
+import org.kse.gui.FileChooserFactory;
+import org.kse.gui.JavaFXFileChooser;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Verifies all entries of a keystore in the background and shows the results
+ * in a sortable table as they arrive. The results can be exported as CSV or
+ * JSON, also while the verification is still running.
+ */
+public class DVerifyingKeyStore extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlProgress;
+    private JProgressBar jpbProgress;
+    private VerificationResultsTableModel resultsModel;
+    private JTable jtResults;
+    private JScrollPane jspResults;
+    private JButton jbExportCsv;
+    private JButton jbExportJson;
+    private JButton jbCancel;
+
+    private KeyStoreVerifier verifier;
+    private Map<String, X509Certificate[]> chains;
+
+    private Thread verification;
+    private volatile boolean aborted;
+    private boolean finished;
+    private long startTime;
+    private int problems;
+
+    /**
+     * Creates a new DVerifyingKeyStore dialog.
+     *
+     * @param parent   The parent frame
+     * @param verifier The configured verifier
+     * @param chains   The certificate chains of the entries to verify, by alias
+     */
+    public DVerifyingKeyStore(JFrame parent, KeyStoreVerifier verifier, Map<String, X509Certificate[]> chains) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.verifier = verifier;
+        this.chains = chains;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlProgress = new JLabel(MessageFormat.format(res.getString("DVerifyingKeyStore.jlProgress.text"), 0,
+                                                     chains.size(), 0, 0));
+
+        jpbProgress = new JProgressBar(0, chains.size());
+        jpbProgress.setStringPainted(true);
+
+        resultsModel = new VerificationResultsTableModel();
+        jtResults = new JTable(resultsModel);
+        jtResults.setAutoCreateRowSorter(true);
+        jtResults.setShowGrid(false);
+        jtResults.setRowMargin(0);
+        jtResults.getColumnModel().setColumnMargin(0);
+        jtResults.getTableHeader().setReorderingAllowed(false);
+        jtResults.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+
+        int[] widths = { 120, 200, 80, 300, 60 };
+        for (int i = 0; i < widths.length; i++) {
+            TableColumn column = jtResults.getColumnModel().getColumn(i);
+            column.setPreferredWidth(widths[i]);
+        }
+
+        jspResults = PlatformUtil.createScrollPane(jtResults, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                   JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        jspResults.getViewport().setBackground(jtResults.getBackground());
+
+        jbExportCsv = new JButton(res.getString("DVerifyingKeyStore.jbExportCsv.text"));
+        PlatformUtil.setMnemonic(jbExportCsv, res.getString("DVerifyingKeyStore.jbExportCsv.mnemonic").charAt(0));
+        jbExportCsv.setToolTipText(res.getString("DVerifyingKeyStore.jbExportCsv.tooltip"));
+        jbExportCsv.addActionListener(evt -> exportPressed(false));
+
+        jbExportJson = new JButton(res.getString("DVerifyingKeyStore.jbExportJson.text"));
+        PlatformUtil.setMnemonic(jbExportJson, res.getString("DVerifyingKeyStore.jbExportJson.mnemonic").charAt(0));
+        jbExportJson.setToolTipText(res.getString("DVerifyingKeyStore.jbExportJson.tooltip"));
+        jbExportJson.addActionListener(evt -> exportPressed(true));
+
+        jbCancel = new JButton(res.getString("DVerifyingKeyStore.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                closeDialog();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", "[][][grow][]"));
+        pane.add(jlProgress, "wrap");
+        pane.add(jpbProgress, "growx, wrap");
+        pane.add(jspResults, "grow, w 760, h 360, wrap unrel");
+        pane.add(jbExportCsv, "split 3, tag other");
+        pane.add(jbExportJson, "tag other");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setTitle(res.getString("DVerifyingKeyStore.Title"));
+        setResizable(true);
+
+        pack();
+    }
+
+    /**
+     * Start the verification in the background.
+     */
+    public void startVerification() {
+        startTime = System.nanoTime();
+
+        verification = new Thread(() -> {
+            try {
+                verifier.verify(chains, this::resultReceived);
+                SwingUtilities.invokeLater(this::verificationFinished);
+            } catch (InterruptedException ex) {
+                // cancelled
+            } catch (Exception ex) {
+                verificationFailed(ex);
+            }
+        }, "KeyStoreVerification");
+        verification.setDaemon(true);
+        verification.start();
+    }
+
+    private void resultReceived(VerificationResult result) {
+        SwingUtilities.invokeLater(() -> {
+            if (aborted || !isShowing()) {
+                return;
+            }
+
+            resultsModel.add(result);
+            if (result.getStatus() != VerificationResult.Status.VALID) {
+                problems++;
+            }
+            jpbProgress.setValue(resultsModel.getRowCount());
+            updateProgressText();
+        });
+    }
+
+    private void verificationFinished() {
+        if (aborted) {
+            return;
+        }
+        finished = true;
+        updateProgressText();
+        jbCancel.setText(res.getString("DVerifyingKeyStore.jbClose.text"));
+    }
+
+    private void verificationFailed(final Exception ex) {
+        SwingUtilities.invokeLater(() -> {
+            if (!aborted && isShowing()) {
+                DError dError = new DError(DVerifyingKeyStore.this, ex);
+                dError.setLocationRelativeTo(DVerifyingKeyStore.this);
+                dError.setVisible(true);
+                verificationFinished();
+            }
+        });
+    }
+
+    private void updateProgressText() {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        jlProgress.setText(MessageFormat.format(res.getString("DVerifyingKeyStore.jlProgress.text"),
+                                                resultsModel.getRowCount(), chains.size(), problems, elapsedMillis));
+    }
+
+    private void exportPressed(boolean json) {
+        String title = res.getString(json ? "DVerifyingKeyStore.ExportJson.Title" :
+                                     "DVerifyingKeyStore.ExportCsv.Title");
+
+        JFileChooser chooser = json ? FileChooserFactory.getJsonFileChooser() : FileChooserFactory.getCsvFileChooser();
+        chooser.setCurrentDirectory(CurrentDirectory.get());
+        chooser.setDialogTitle(title);
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = JavaFXFileChooser.isFxAvailable() ?
+                       chooser.showSaveDialog(this) :
+                       chooser.showDialog(this, res.getString("DVerifyingKeyStore.ChooseExportFile.button"));
+
+        if (rtnValue != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File chosenFile = chooser.getSelectedFile();
+        CurrentDirectory.updateForFile(chosenFile);
+
+        String extension = "." + (json ? FileChooserFactory.JSON_EXT : FileChooserFactory.CSV_EXT);
+        if (!chosenFile.getName().toLowerCase().endsWith(extension)) {
+            chosenFile = new File(chosenFile.getPath() + extension);
+        }
+
+        if (chosenFile.isFile()) {
+            String message = MessageFormat.format(res.getString("DVerifyingKeyStore.OverWriteFile.message"),
+                                                  chosenFile);
+
+            int selected = JOptionPane.showConfirmDialog(this, message, title, JOptionPane.YES_NO_OPTION);
+            if (selected != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+
+        List<VerificationResult> results = resultsModel.getResults();
+
+        try (Writer writer = Files.newBufferedWriter(chosenFile.toPath(), StandardCharsets.UTF_8)) {
+            if (json) {
+                VerificationReport.writeJson(results, writer);
+            } else {
+                VerificationReport.writeCsv(results, writer);
+            }
+        } catch (IOException ex) {
+            DError.displayError(this, ex);
+            return;
+        }
+
+        JOptionPane.showMessageDialog(this, MessageFormat.format(
+                res.getString("DVerifyingKeyStore.ExportSuccessful.message"), results.size()), title,
+                                      JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void cancelPressed() {
+        if (finished) {
+            closeDialog();
+            return;
+        }
+
+        // keep the results so far, they can still be exported
+        stopVerification();
+        jbCancel.setText(res.getString("DVerifyingKeyStore.jbClose.text"));
+        finished = true;
+    }
+
+    private void stopVerification() {
+        aborted = true;
+        if (verification != null) {
+            verification.interrupt();
+        }
+    }
+
+    private void closeDialog() {
+        stopVerification();
+        setVisible(false);
+        dispose();
+    }
+}
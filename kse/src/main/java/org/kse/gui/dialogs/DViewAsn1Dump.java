@@ -30,7 +30,6 @@ import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.ResourceBundle;
 
@@ -70,7 +69,7 @@ public class DViewAsn1Dump extends JEscFrame {
     private JTextArea jtaAsn1Dump;
 
     private X509Certificate certificate;
-    private X509CRL crl;
+    private byte[] crl;
     private X509Ext extension;
     private PrivateKey privateKey;
     private PublicKey publicKey;
@@ -96,11 +95,11 @@ public class DViewAsn1Dump extends JEscFrame {
      * Creates new DViewAsn1Dump dialog where the parent is a dialog.
      *
      * @param parent Parent dialog
-     * @param crl    CRL to display dump for
+     * @param crl    DER encoded CRL to display dump for
      * @throws Asn1Exception A problem was encountered getting the extension's ASN.1 dump
      * @throws IOException   If an I/O problem occurred
      */
-    public DViewAsn1Dump(JDialog parent, X509CRL crl) throws Asn1Exception, IOException {
+    public DViewAsn1Dump(JDialog parent, byte[] crl) throws Asn1Exception, IOException {
         super(res.getString("DViewAsn1Dump.Crl.Title"));
         this.crl = crl;
         this.setIconImages(parent.getOwner().getIconImages());
@@ -37,15 +37,13 @@ import java.security.interfaces.ECPublicKey;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
-import java.util.TreeSet;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -69,6 +67,7 @@ import org.kse.crypto.CryptoException;
 import org.kse.crypto.KeyInfo;
 import org.kse.crypto.keypair.KeyPairUtil;
 import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.CertificateHierarchy;
 import org.kse.crypto.x509.X500NameUtils;
 import org.kse.crypto.x509.X509CertUtil;
 import org.kse.crypto.x509.X509CertificateGenerator;
@@ -89,6 +88,7 @@ import org.kse.gui.preferences.data.KsePreferences;
 import org.kse.utilities.DialogViewer;
 import org.kse.utilities.StringUtils;
 import org.kse.utilities.asn1.Asn1Exception;
+import org.kse.utilities.ssl.SslConnectionInfos;
 
 import net.miginfocom.swing.MigLayout;
 
@@ -143,8 +143,11 @@ public class DViewCertificate extends JEscDialog {
     private JButton jbExport;
     private JButton jbOK;
     private JButton jbVerify;
+    private JButton jbConnection;
 
     private X509Certificate[] chain;
+    private Map<X509Certificate, CertificateDetails> certificateDetails = new HashMap<>();
+    private SslConnectionInfos sslInfos;
 
     /**
      * Creates a new DViewCertificate dialog.
@@ -165,6 +168,26 @@ public class DViewCertificate extends JEscDialog {
         initComponents(certs);
     }
 
+    /**
+     * Creates a new DViewCertificate dialog for the certificates of an SSL connection.
+     *
+     * @param parent       Parent frame
+     * @param title        The dialog title
+     * @param sslInfos     SSL connection whose server certificates are displayed
+     * @param kseFrame     Reference to main class with currently opened keystores and their contents
+     * @param importExport Show import button/export button/no extra button?
+     * @throws CryptoException A problem was encountered getting the certificates' details
+     */
+    public DViewCertificate(Window parent, String title, SslConnectionInfos sslInfos, KseFrame kseFrame,
+                            int importExport) throws CryptoException {
+        super(parent, title, Dialog.ModalityType.MODELESS);
+        this.kseFrame = kseFrame;
+        this.importExport = importExport;
+        this.chain = sslInfos.getServerCertificates();
+        this.sslInfos = sslInfos;
+        initComponents(chain);
+    }
+
     private void initComponents(X509Certificate[] certs) throws CryptoException {
         jlHierarchy = new JLabel(res.getString("DViewCertificate.jlHierarchy.text"));
 
@@ -274,6 +297,11 @@ public class DViewCertificate extends JEscDialog {
         jbVerify.setVisible(importExport != NONE);
         PlatformUtil.setMnemonic(jbVerify, res.getString("DViewCertificate.jbVerify.mnemonic").charAt(0));
 
+        jbConnection = new JButton(res.getString("DViewCertificate.jbConnection.text"));
+        jbConnection.setToolTipText(res.getString("DViewCertificate.jbConnection.tooltip"));
+        jbConnection.setVisible(sslInfos != null);
+        PlatformUtil.setMnemonic(jbConnection, res.getString("DViewCertificate.jbConnection.mnemonic").charAt(0));
+
         Container pane = getContentPane();
         pane.setLayout(new MigLayout("insets dialog, fill", "[right]unrel[]", "[]unrel[]"));
         pane.add(jlHierarchy, "");
@@ -304,7 +332,8 @@ public class DViewCertificate extends JEscDialog {
         pane.add(jbExtensions, "");
         pane.add(jbPem, "");
         pane.add(jbVerify, "hidemode 1");
-        pane.add(jbAsn1, "wrap");
+        pane.add(jbAsn1, "");
+        pane.add(jbConnection, "hidemode 1, wrap");
         pane.add(new JSeparator(), "spanx, growx, wrap 15:push");
         pane.add(jbOK, "spanx, tag ok");
 
@@ -382,6 +411,8 @@ public class DViewCertificate extends JEscDialog {
             }
         });
 
+        jbConnection.addActionListener(evt -> connectionPressed());
+
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent evt) {
@@ -411,80 +442,23 @@ public class DViewCertificate extends JEscDialog {
     private DefaultMutableTreeNode createCertificateNodes(X509Certificate[] certs) {
         DefaultMutableTreeNode certsNode = new DefaultMutableTreeNode();
 
-        Set<X509Certificate> originalSet = new TreeSet<>(new X509CertificateComparator());
-        Collections.addAll(originalSet, certs);
-        Set<X509Certificate> certSet = new TreeSet<>(new X509CertificateComparator());
-        Collections.addAll(certSet, certs);
-
-        // first find certs with no issuer in set and add them to the tree
-        certSet.stream().filter(cert -> !isIssuerInSet(cert, certSet))
-               .forEach(cert -> certsNode.add(new DefaultMutableTreeNode(cert)));
-        certSet.removeIf(cert -> !isIssuerInSet(cert, originalSet));
-
-        // then add root certs
-        certSet.stream().filter(X509CertUtil::isCertificateSelfSigned)
-               .forEach(cert -> certsNode.add(new DefaultMutableTreeNode(cert)));
-        certSet.removeIf(X509CertUtil::isCertificateSelfSigned);
+        CertificateHierarchy hierarchy = new CertificateHierarchy(certs, new X509CertificateComparator());
 
-        // then attach the other certs to their issuers
-        while (!certSet.isEmpty()) {
-
-            List<X509Certificate> toBeRemoved = new ArrayList<>();
-            for (X509Certificate cert : certSet) {
-
-                DefaultMutableTreeNode issuerNode = findIssuer(cert, certsNode);
-
-                if (issuerNode != null) {
-                    issuerNode.add(new DefaultMutableTreeNode(cert));
-                    toBeRemoved.add(cert);
-                }
-            }
-            certSet.removeAll(toBeRemoved);
+        for (X509Certificate root : hierarchy.getRoots()) {
+            certsNode.add(createCertificateNode(root, hierarchy));
         }
 
         return certsNode;
     }
 
-    private DefaultMutableTreeNode findIssuer(X509Certificate cert, DefaultMutableTreeNode node) {
-        // If certificate is self-signed then finding an issuer is irrelevant
-        if (cert.getIssuerX500Principal().equals(cert.getSubjectX500Principal())) {
-            return null;
-        }
-
-        if (node.getUserObject() instanceof X509Certificate) {
-            X509Certificate possibleIssuerCert = (X509Certificate) node.getUserObject();
-
-            if (X509CertUtil.isIssuedBy(cert, possibleIssuerCert)) {
-                return node;
-            }
-        }
-
-        for (int i = 0; i < node.getChildCount(); i++) {
-            DefaultMutableTreeNode issuerNode = findIssuer(cert, (DefaultMutableTreeNode) node.getChildAt(i));
-
-            if (issuerNode != null) {
-                return issuerNode;
-            }
-        }
-
-        return null;
-    }
-
-    private boolean isIssuerInSet(X509Certificate cert, Set<X509Certificate> certSet) {
-        // Matches on certificate's distinguished name
+    private DefaultMutableTreeNode createCertificateNode(X509Certificate cert, CertificateHierarchy hierarchy) {
+        DefaultMutableTreeNode certNode = new DefaultMutableTreeNode(cert);
 
-        // If certificate is self-signed then finding an issuer is irrelevant
-        if (cert.getIssuerX500Principal().equals(cert.getSubjectX500Principal())) {
-            return false;
+        for (X509Certificate issuedCert : hierarchy.getIssued(cert)) {
+            certNode.add(createCertificateNode(issuedCert, hierarchy));
         }
 
-        for (X509Certificate possibleIssuer : certSet) {
-            if (X509CertUtil.isIssuedBy(cert, possibleIssuer)) {
-                return true;
-            }
-        }
-
-        return false;
+        return certNode;
     }
 
     private void expandTree(JTree tree, TreePath parent) {
@@ -541,28 +515,27 @@ public class DViewCertificate extends JEscDialog {
             jbAsn1.setEnabled(true);
 
             try {
-                Date currentDate = new Date();
+                CertificateDetails details = getDetails(cert);
 
-                Date startDate = cert.getNotBefore();
-                Date endDate = cert.getNotAfter();
+                Date currentDate = new Date();
 
-                boolean notYetValid = currentDate.before(startDate);
-                boolean noLongerValid = currentDate.after(endDate);
+                boolean notYetValid = currentDate.before(cert.getNotBefore());
+                boolean noLongerValid = currentDate.after(cert.getNotAfter());
 
-                jtfVersion.setText(Integer.toString(cert.getVersion()));
+                jtfVersion.setText(details.version);
                 jtfVersion.setCaretPosition(0);
 
-                jdnSubject.setDistinguishedName(X500NameUtils.x500PrincipalToX500Name(cert.getSubjectX500Principal()));
+                jdnSubject.setDistinguishedName(details.subject);
 
-                jdnIssuer.setDistinguishedName(X500NameUtils.x500PrincipalToX500Name(cert.getIssuerX500Principal()));
+                jdnIssuer.setDistinguishedName(details.issuer);
 
-                jtfSerialNumberHex.setText(X509CertUtil.getSerialNumberAsHex(cert));
+                jtfSerialNumberHex.setText(details.serialNumberHex);
                 jtfSerialNumberHex.setCaretPosition(0);
 
-                jtfSerialNumberDec.setText(X509CertUtil.getSerialNumberAsDec(cert));
+                jtfSerialNumberDec.setText(details.serialNumberDec);
                 jtfSerialNumberDec.setCaretPosition(0);
 
-                jtfValidFrom.setText(StringUtils.formatDate(startDate));
+                jtfValidFrom.setText(details.validFrom);
 
                 if (notYetValid) {
                     jtfValidFrom.setText(
@@ -574,7 +547,7 @@ public class DViewCertificate extends JEscDialog {
                 }
                 jtfValidFrom.setCaretPosition(0);
 
-                jtfValidUntil.setText(StringUtils.formatDate(endDate));
+                jtfValidUntil.setText(details.validUntil);
 
                 if (noLongerValid) {
                     jtfValidUntil.setText(
@@ -586,44 +559,18 @@ public class DViewCertificate extends JEscDialog {
                 }
                 jtfValidUntil.setCaretPosition(0);
 
-                KeyInfo keyInfo = KeyPairUtil.getKeyInfo(cert.getPublicKey());
-                jtfPublicKey.setText(keyInfo.getAlgorithm());
-                Integer keySize = keyInfo.getSize();
-
-                if (keySize != null) {
-                    jtfPublicKey.setText(MessageFormat.format(res.getString("DViewCertificate.jtfPublicKey.text"),
-                                                              jtfPublicKey.getText(), "" + keySize));
-                } else {
-                    jtfPublicKey.setText(MessageFormat.format(res.getString("DViewCertificate.jtfPublicKey.text"),
-                                                              jtfPublicKey.getText(), "?"));
-                }
-                if (cert.getPublicKey() instanceof ECPublicKey) {
-                    jtfPublicKey.setText(jtfPublicKey.getText() + " (" + keyInfo.getDetailedAlgorithm() + ")");
-                }
+                jtfPublicKey.setText(details.publicKey);
                 jtfPublicKey.setCaretPosition(0);
 
-                jtfSignatureAlgorithm.setText(X509CertUtil.getCertificateSignatureAlgorithm(cert));
+                jtfSignatureAlgorithm.setText(details.signatureAlgorithm);
                 jtfSignatureAlgorithm.setCaretPosition(0);
 
-                byte[] encodedCertificate;
-                try {
-                    encodedCertificate = cert.getEncoded();
-                } catch (CertificateEncodingException ex) {
-                    throw new CryptoException(res.getString("DViewCertificate.NoGetEncodedCert.exception.message"), ex);
-                }
-
-                jcfFingerprint.setEncodedCertificate(encodedCertificate);
-
+                // select the algorithm first, so that the fingerprint is only calculated once
                 jcfFingerprint.setFingerprintAlg(preferences.getCertificateFingerprintAlgorithm());
 
-                Set<?> critExts = cert.getCriticalExtensionOIDs();
-                Set<?> nonCritExts = cert.getNonCriticalExtensionOIDs();
+                jcfFingerprint.setEncodedCertificate(details.encoded);
 
-                if ((critExts != null && !critExts.isEmpty()) || (nonCritExts != null && !nonCritExts.isEmpty())) {
-                    jbExtensions.setEnabled(true);
-                } else {
-                    jbExtensions.setEnabled(false);
-                }
+                jbExtensions.setEnabled(details.hasExtensions);
             } catch (CryptoException e) {
                 DError.displayError(this, e);
                 dispose();
@@ -631,6 +578,17 @@ public class DViewCertificate extends JEscDialog {
         }
     }
 
+    private CertificateDetails getDetails(X509Certificate cert) throws CryptoException {
+        CertificateDetails details = certificateDetails.get(cert);
+
+        if (details == null) {
+            details = new CertificateDetails(cert);
+            certificateDetails.put(cert, details);
+        }
+
+        return details;
+    }
+
     private void pubKeyDetailsPressed() {
         try {
             X509Certificate cert = getSelectedCertificate();
@@ -678,6 +636,12 @@ public class DViewCertificate extends JEscDialog {
         }
     }
 
+    private void connectionPressed() {
+        DViewSslConnection dViewSslConnection = new DViewSslConnection(this, sslInfos);
+        dViewSslConnection.setLocationRelativeTo(this);
+        dViewSslConnection.setVisible(true);
+    }
+
     private void importPressed() {
         X509Certificate cert = getSelectedCertificate();
         new ImportTrustedCertificateAction(kseFrame, cert).actionPerformed(null);
@@ -732,6 +696,58 @@ public class DViewCertificate extends JEscDialog {
         }
     }
 
+    /**
+     * Displayed details of a certificate, created when the certificate is first selected.
+     */
+    private static class CertificateDetails {
+        private final String version;
+        private final X500Name subject;
+        private final X500Name issuer;
+        private final String serialNumberHex;
+        private final String serialNumberDec;
+        private final String validFrom;
+        private final String validUntil;
+        private final String publicKey;
+        private final String signatureAlgorithm;
+        private final byte[] encoded;
+        private final boolean hasExtensions;
+
+        private CertificateDetails(X509Certificate cert) throws CryptoException {
+            version = Integer.toString(cert.getVersion());
+            subject = X500NameUtils.x500PrincipalToX500Name(cert.getSubjectX500Principal());
+            issuer = X500NameUtils.x500PrincipalToX500Name(cert.getIssuerX500Principal());
+            serialNumberHex = X509CertUtil.getSerialNumberAsHex(cert);
+            serialNumberDec = X509CertUtil.getSerialNumberAsDec(cert);
+            validFrom = StringUtils.formatDate(cert.getNotBefore());
+            validUntil = StringUtils.formatDate(cert.getNotAfter());
+
+            KeyInfo keyInfo = KeyPairUtil.getKeyInfo(cert.getPublicKey());
+            Integer keySize = keyInfo.getSize();
+
+            String keyDescription = MessageFormat.format(res.getString("DViewCertificate.jtfPublicKey.text"),
+                                                         keyInfo.getAlgorithm(),
+                                                         keySize != null ? "" + keySize : "?");
+            if (cert.getPublicKey() instanceof ECPublicKey) {
+                keyDescription += " (" + keyInfo.getDetailedAlgorithm() + ")";
+            }
+            publicKey = keyDescription;
+
+            signatureAlgorithm = X509CertUtil.getCertificateSignatureAlgorithm(cert);
+
+            try {
+                encoded = cert.getEncoded();
+            } catch (CertificateEncodingException ex) {
+                throw new CryptoException(res.getString("DViewCertificate.NoGetEncodedCert.exception.message"), ex);
+            }
+
+            Set<?> critExts = cert.getCriticalExtensionOIDs();
+            Set<?> nonCritExts = cert.getNonCriticalExtensionOIDs();
+
+            hasExtensions = (critExts != null && !critExts.isEmpty()) ||
+                            (nonCritExts != null && !nonCritExts.isEmpty());
+        }
+    }
+
     public static void main(String[] args) throws Exception {
         DialogViewer.prepare();
         KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA", KSE.BC);
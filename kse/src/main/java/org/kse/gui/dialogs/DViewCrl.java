@@ -30,11 +30,8 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.security.cert.X509CRL;
-import java.security.cert.X509CRLEntry;
 import java.text.MessageFormat;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.ResourceBundle;
 import java.util.Set;
 
@@ -42,6 +39,7 @@ import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
 import javax.swing.JTable;
@@ -51,11 +49,13 @@ import javax.swing.RowSorter;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
 import javax.swing.table.TableColumn;
-import javax.swing.table.TableRowSorter;
 
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.kse.crypto.crl.CrlEntryReader;
 import org.kse.crypto.signing.SignatureType;
-import org.kse.crypto.x509.X500NameUtils;
 import org.kse.crypto.x509.X509CertUtil;
+import org.kse.crypto.x509.X509ExtensionSet;
 import org.kse.gui.CursorUtil;
 import org.kse.gui.components.JEscDialog;
 import org.kse.gui.PlatformUtil;
@@ -63,6 +63,7 @@ import org.kse.gui.crypto.JDistinguishedName;
 import org.kse.gui.dialogs.extensions.DViewExtensions;
 import org.kse.gui.error.DError;
 import org.kse.utilities.DialogViewer;
+import org.kse.utilities.SerialNumbers;
 import org.kse.utilities.StringUtils;
 import org.kse.utilities.asn1.Asn1Exception;
 
@@ -92,20 +93,22 @@ public class DViewCrl extends JEscDialog {
     private JLabel jlRevokedCerts;
     private JScrollPane jspRevokedCertsTable;
     private JTable jtRevokedCerts;
+    private JTextField jtfFindSerialNumber;
+    private JButton jbFindSerialNumber;
     private JButton jbCrlEntryExtensions;
 
-    private X509CRL crl;
+    private CrlEntryReader crlEntries;
 
     /**
      * Creates a new DViewCrl dialog.
      *
      * @param parent Parent frame
      * @param title  The dialog title
-     * @param crl    CRL to display
+     * @param crl    CRL to display, as loaded by {@link X509CertUtil#loadCrlEntries(byte[])}
      */
-    public DViewCrl(JFrame parent, String title, X509CRL crl) {
+    public DViewCrl(JFrame parent, String title, CrlEntryReader crl) {
         super(parent, title, Dialog.ModalityType.DOCUMENT_MODAL);
-        this.crl = crl;
+        this.crlEntries = crl;
         initComponents();
     }
 
@@ -115,11 +118,11 @@ public class DViewCrl extends JEscDialog {
      * @param parent   Parent dialog
      * @param title    The dialog title
      * @param modality Dialog modality
-     * @param crl      CRL to display
+     * @param crl      CRL to display, as loaded by {@link X509CertUtil#loadCrlEntries(byte[])}
      */
-    public DViewCrl(JDialog parent, String title, Dialog.ModalityType modality, X509CRL crl) {
+    public DViewCrl(JDialog parent, String title, Dialog.ModalityType modality, CrlEntryReader crl) {
         super(parent, title, modality);
-        this.crl = crl;
+        this.crlEntries = crl;
         initComponents();
     }
 
@@ -180,13 +183,13 @@ public class DViewCrl extends JEscDialog {
         });
 
         jlRevokedCerts = new JLabel(MessageFormat.format(res.getString("DViewCrl.jlRevokedCerts.text"),
-                                                         getCrlEntrySize()));
+                                                         crlEntries.size()));
 
         RevokedCertsTableModel rcModel = new RevokedCertsTableModel();
 
         jtRevokedCerts = new JTable(rcModel);
 
-        RowSorter<RevokedCertsTableModel> sorter = new TableRowSorter<>(rcModel);
+        RowSorter<RevokedCertsTableModel> sorter = new RevokedCertsRowSorter(rcModel);
         jtRevokedCerts.setRowSorter(sorter);
 
         jtRevokedCerts.setShowGrid(false);
@@ -232,6 +235,24 @@ public class DViewCrl extends JEscDialog {
         jspRevokedCertsTable.getViewport().setBackground(jtRevokedCerts.getBackground());
         jspRevokedCertsTable.setPreferredSize(new Dimension(300, 200));
 
+        jtfFindSerialNumber = new JTextField(20);
+        jtfFindSerialNumber.setToolTipText(res.getString("DViewCrl.jtfFindSerialNumber.tooltip"));
+        jtfFindSerialNumber.setEnabled(crlEntries.size() > 0);
+        jtfFindSerialNumber.addActionListener(evt -> findSerialNumberPressed());
+
+        jbFindSerialNumber = new JButton(res.getString("DViewCrl.jbFindSerialNumber.text"));
+        PlatformUtil.setMnemonic(jbFindSerialNumber, res.getString("DViewCrl.jbFindSerialNumber.mnemonic").charAt(0));
+        jbFindSerialNumber.setToolTipText(res.getString("DViewCrl.jbFindSerialNumber.tooltip"));
+        jbFindSerialNumber.setEnabled(crlEntries.size() > 0);
+        jbFindSerialNumber.addActionListener(evt -> {
+            try {
+                CursorUtil.setCursorBusy(DViewCrl.this);
+                findSerialNumberPressed();
+            } finally {
+                CursorUtil.setCursorFree(DViewCrl.this);
+            }
+        });
+
         jbCrlEntryExtensions = new JButton(res.getString("DViewCrl.jbCrlEntryExtensions.text"));
 
         PlatformUtil.setMnemonic(jbCrlEntryExtensions,
@@ -268,7 +289,9 @@ public class DViewCrl extends JEscDialog {
         pane.add(new JSeparator(), "spanx, growx, wrap");
         pane.add(jlRevokedCerts, "split, wrap");
         pane.add(jspRevokedCertsTable, "split, spanx, growx, wrap");
-        pane.add(jbCrlEntryExtensions, "split, spanx, right, wrap");
+        pane.add(jtfFindSerialNumber, "split, spanx");
+        pane.add(jbFindSerialNumber, "");
+        pane.add(jbCrlEntryExtensions, "gapleft push, wrap");
         pane.add(new JSeparator(), "spanx, growx, wrap");
         pane.add(jbOK, "split, spanx, right, tag ok");
 
@@ -290,19 +313,21 @@ public class DViewCrl extends JEscDialog {
         SwingUtilities.invokeLater(() -> jbOK.requestFocus());
     }
 
-    private int getCrlEntrySize() {
-        Set<? extends X509CRLEntry> revokedCertificates = crl.getRevokedCertificates();
-        if (revokedCertificates == null) {
-            return 0;
+    private X509ExtensionSet getSelectedCrlEntryExtensions() {
+        int row = jtRevokedCerts.getSelectedRow();
+
+        if (row == -1) {
+            return null;
         }
-        return revokedCertificates.size();
+
+        return crlEntries.getEntryExtensions(jtRevokedCerts.convertRowIndexToModel(row));
     }
 
     private void populateDialog() {
         Date currentDate = new Date();
 
-        Date effectiveDate = crl.getThisUpdate();
-        Date updateDate = crl.getNextUpdate();
+        Date effectiveDate = crlEntries.getThisUpdate();
+        Date updateDate = crlEntries.getNextUpdate();
 
         boolean effective = currentDate.before(effectiveDate);
 
@@ -312,10 +337,10 @@ public class DViewCrl extends JEscDialog {
             updateAvailable = currentDate.after(updateDate);
         }
 
-        jtfVersion.setText(Integer.toString(crl.getVersion()));
+        jtfVersion.setText(Integer.toString(crlEntries.getVersion()));
         jtfVersion.setCaretPosition(0);
 
-        jdnIssuer.setDistinguishedName(X500NameUtils.x500PrincipalToX500Name(crl.getIssuerX500Principal()));
+        jdnIssuer.setDistinguishedName(crlEntries.getIssuer());
 
         jtfEffectiveDate.setText(StringUtils.formatDate(effectiveDate));
 
@@ -343,25 +368,30 @@ public class DViewCrl extends JEscDialog {
         }
         jtfNextUpdate.setCaretPosition(0);
 
-        SignatureType sigAlg = SignatureType.resolveOid(crl.getSigAlgOID(), crl.getSigAlgParams());
-        String sigAlgName = (sigAlg != null) ? sigAlg.friendly() : crl.getSigAlgName();
+        AlgorithmIdentifier sigAlgId = crlEntries.getSignatureAlgorithm();
+        byte[] sigAlgParams = null;
+        try {
+            if (sigAlgId.getParameters() != null) {
+                sigAlgParams = sigAlgId.getParameters().toASN1Primitive().getEncoded(ASN1Encoding.DER);
+            }
+        } catch (IOException ex) {
+            // resolve the algorithm without its parameters
+        }
+        SignatureType sigAlg = SignatureType.resolveOid(sigAlgId.getAlgorithm().getId(), sigAlgParams);
+        String sigAlgName = (sigAlg != null) ? sigAlg.friendly() : sigAlgId.getAlgorithm().getId();
 
         jtfSignatureAlgorithm.setText(sigAlgName);
         jtfSignatureAlgorithm.setCaretPosition(0);
 
-        Set<?> critExts = crl.getCriticalExtensionOIDs();
-        Set<?> nonCritExts = crl.getNonCriticalExtensionOIDs();
+        X509ExtensionSet crlExtensions = crlEntries.getExtensions();
+        Set<?> critExts = crlExtensions.getCriticalExtensionOIDs();
+        Set<?> nonCritExts = crlExtensions.getNonCriticalExtensionOIDs();
 
         jbCrlExtensions.setEnabled(
                 (critExts != null && !critExts.isEmpty()) || (nonCritExts != null && !nonCritExts.isEmpty()));
 
-        Set<? extends X509CRLEntry> revokedCertsSet = crl.getRevokedCertificates();
-        if (revokedCertsSet == null) {
-            revokedCertsSet = new HashSet<>();
-        }
-        X509CRLEntry[] revokedCerts = revokedCertsSet.toArray(new X509CRLEntry[0]);
         RevokedCertsTableModel revokedCertsTableModel = (RevokedCertsTableModel) jtRevokedCerts.getModel();
-        revokedCertsTableModel.load(revokedCerts);
+        revokedCertsTableModel.load(crlEntries);
 
         if (revokedCertsTableModel.getRowCount() > 0) {
             jtRevokedCerts.changeSelection(0, 0, false, false);
@@ -372,21 +402,7 @@ public class DViewCrl extends JEscDialog {
         int row = jtRevokedCerts.getSelectedRow();
 
         if (row != -1) {
-            BigInteger serialNumber = (BigInteger) jtRevokedCerts.getValueAt(row, 0);
-
-            Set<?> revokedCertsSet = crl.getRevokedCertificates();
-
-            X509CRLEntry x509CrlEntry = null;
-
-            for (Object o : revokedCertsSet) {
-                X509CRLEntry entry = (X509CRLEntry) o;
-                if (serialNumber.equals(entry.getSerialNumber())) {
-                    x509CrlEntry = entry;
-                    break;
-                }
-            }
-
-            if (x509CrlEntry.hasExtensions()) {
+            if (crlEntries.hasExtensions(jtRevokedCerts.convertRowIndexToModel(row))) {
                 jbCrlEntryExtensions.setEnabled(true);
                 return;
             }
@@ -396,14 +412,15 @@ public class DViewCrl extends JEscDialog {
     }
 
     private void crlExtensionsPressed() {
-        DViewExtensions dViewExtensions = new DViewExtensions(this, res.getString("DViewCrl.Extensions.Title"), crl);
+        DViewExtensions dViewExtensions = new DViewExtensions(this, res.getString("DViewCrl.Extensions.Title"),
+                                                              crlEntries.getExtensions());
         dViewExtensions.setLocationRelativeTo(this);
         dViewExtensions.setVisible(true);
     }
 
     private void asn1DumpPressed() {
         try {
-            DViewAsn1Dump dViewAsn1Dump = new DViewAsn1Dump(this, crl);
+            DViewAsn1Dump dViewAsn1Dump = new DViewAsn1Dump(this, crlEntries.getEncoded());
             dViewAsn1Dump.setLocationRelativeTo(this);
             dViewAsn1Dump.setVisible(true);
         } catch (Asn1Exception | IOException e) {
@@ -411,6 +428,32 @@ public class DViewCrl extends JEscDialog {
         }
     }
 
+    private void findSerialNumberPressed() {
+        String serialNumberStr = jtfFindSerialNumber.getText().replaceAll("\\s", "");
+        if (serialNumberStr.isEmpty()) {
+            return;
+        }
+
+        BigInteger serialNumber;
+        try {
+            serialNumber = SerialNumbers.parse(serialNumberStr);
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, res.getString("DViewCrl.InvalidSerialNumber.message"), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        RevokedCertsRowSorter sorter = (RevokedCertsRowSorter) jtRevokedCerts.getRowSorter();
+        int entry = sorter.findSerialNumber(serialNumber);
+        if (entry == -1) {
+            JOptionPane.showMessageDialog(this, res.getString("DViewCrl.SerialNumberNotRevoked.message"), getTitle(),
+                                          JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        jtRevokedCerts.changeSelection(jtRevokedCerts.convertRowIndexToView(entry), 0, false, false);
+    }
+
     private void crlEntryExtensionsPressed() {
         displayCrlEntryExtensions();
     }
@@ -433,30 +476,14 @@ public class DViewCrl extends JEscDialog {
     }
 
     private void displayCrlEntryExtensions() {
-        int row = jtRevokedCerts.getSelectedRow();
-
-        if (row != -1) {
-            BigInteger serialNumber = (BigInteger) jtRevokedCerts.getValueAt(row, 0);
-
-            Set<?> revokedCertsSet = crl.getRevokedCertificates();
-
-            X509CRLEntry x509CrlEntry = null;
-
-            for (Object o : revokedCertsSet) {
-                X509CRLEntry entry = (X509CRLEntry) o;
-                if (serialNumber.equals(entry.getSerialNumber())) {
-                    x509CrlEntry = entry;
-                    break;
-                }
-            }
-
-            if (x509CrlEntry.hasExtensions()) {
-                DViewExtensions dViewExtensions = new DViewExtensions(this,
-                                                                      res.getString("DViewCrl.EntryExtensions.Title"),
-                                                                      x509CrlEntry);
-                dViewExtensions.setLocationRelativeTo(this);
-                dViewExtensions.setVisible(true);
-            }
+        X509ExtensionSet crlEntryExtensions = getSelectedCrlEntryExtensions();
+
+        if (crlEntryExtensions != null && (!crlEntryExtensions.getCriticalExtensionOIDs().isEmpty() ||
+                                           !crlEntryExtensions.getNonCriticalExtensionOIDs().isEmpty())) {
+            DViewExtensions dViewExtensions = new DViewExtensions(this, res.getString("DViewCrl.EntryExtensions.Title"),
+                                                                  crlEntryExtensions);
+            dViewExtensions.setLocationRelativeTo(this);
+            dViewExtensions.setVisible(true);
         }
     }
 
@@ -486,6 +513,6 @@ public class DViewCrl extends JEscDialog {
                      "NnDBrnJ3rf7k\n" +
                      "-----END X509 CRL-----";
 
-        DialogViewer.run(new DViewCrl(new JFrame(), "CRL", X509CertUtil.loadCRL(crl.getBytes())));
+        DialogViewer.run(new DViewCrl(new JFrame(), "CRL", X509CertUtil.loadCrlEntries(crl.getBytes())));
     }
 }
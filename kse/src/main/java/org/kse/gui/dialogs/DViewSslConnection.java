@@ -0,0 +1,245 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.Window;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JSeparator;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableColumn;
+
+import org.kse.gui.CurrentDirectory;
+import org.kse.gui.FileChooserFactory;
+import org.kse.gui.JavaFXFileChooser;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+import org.kse.utilities.ssl.SslConnectionInfos;
+import org.kse.utilities.ssl.SslConnectionReport;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Displays the parameters of an SSL connection and how long each phase of
+ * establishing it took, e.g. DNS lookup, TCP connect and TLS handshake. The
+ * timings can be exported as CSV or JSON.
+ */
+public class DViewSslConnection extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private JLabel jlProtocol;
+    private JTextField jtfProtocol;
+    private JLabel jlCipherSuite;
+    private JTextField jtfCipherSuite;
+    private JLabel jlSni;
+    private JTextField jtfSni;
+    private JLabel jlOcspStapling;
+    private JTextField jtfOcspStapling;
+    private JLabel jlTotal;
+    private JTextField jtfTotal;
+    private JTable jtPhases;
+    private JScrollPane jspPhases;
+    private JButton jbExportCsv;
+    private JButton jbExportJson;
+    private JButton jbOK;
+
+    private SslConnectionInfos sslInfos;
+
+    /**
+     * Creates a new DViewSslConnection dialog.
+     *
+     * @param parent   The parent window
+     * @param sslInfos The SSL connection
+     */
+    public DViewSslConnection(Window parent, SslConnectionInfos sslInfos) {
+        super(parent, MessageFormat.format(res.getString("DViewSslConnection.Title"), sslInfos.getPeerHost(),
+                                           Integer.toString(sslInfos.getPeerPort())),
+              Dialog.ModalityType.DOCUMENT_MODAL);
+        this.sslInfos = sslInfos;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlProtocol = new JLabel(res.getString("DViewSslConnection.jlProtocol.text"));
+        jtfProtocol = createField(sslInfos.getProtocol());
+
+        jlCipherSuite = new JLabel(res.getString("DViewSslConnection.jlCipherSuite.text"));
+        jtfCipherSuite = createField(sslInfos.getCipherSuite());
+
+        jlSni = new JLabel(res.getString("DViewSslConnection.jlSni.text"));
+        jtfSni = createField(res.getString(sslInfos.isSniEnabled() ? "DViewSslConnection.Sni.enabled"
+                                                                   : "DViewSslConnection.Sni.disabled"));
+
+        jlOcspStapling = new JLabel(res.getString("DViewSslConnection.jlOcspStapling.text"));
+        byte[] ocspResponse = sslInfos.getStapledOcspResponse();
+        jtfOcspStapling = createField(ocspResponse == null ?
+                                      res.getString("DViewSslConnection.OcspStapling.none") :
+                                      MessageFormat.format(res.getString("DViewSslConnection.OcspStapling.stapled"),
+                                                           ocspResponse.length));
+
+        jlTotal = new JLabel(res.getString("DViewSslConnection.jlTotal.text"));
+        jtfTotal = createField(MessageFormat.format(res.getString("DViewSslConnection.Total.text"),
+                                                    SslConnectionReport.millis(sslInfos.getTotalNanos())));
+
+        jtPhases = new JTable(new SslConnectionPhasesTableModel(sslInfos.getPhases()));
+        jtPhases.setShowGrid(false);
+        jtPhases.setRowMargin(0);
+        jtPhases.getColumnModel().setColumnMargin(0);
+        jtPhases.getTableHeader().setReorderingAllowed(false);
+        jtPhases.setAutoResizeMode(JTable.AUTO_RESIZE_SUBSEQUENT_COLUMNS);
+
+        int[] widths = { 220, 90, 80, 80, 60 };
+        for (int i = 0; i < widths.length; i++) {
+            TableColumn column = jtPhases.getColumnModel().getColumn(i);
+            column.setPreferredWidth(widths[i]);
+        }
+
+        jspPhases = PlatformUtil.createScrollPane(jtPhases, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                  JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        jspPhases.getViewport().setBackground(jtPhases.getBackground());
+
+        jbExportCsv = new JButton(res.getString("DViewSslConnection.jbExportCsv.text"));
+        PlatformUtil.setMnemonic(jbExportCsv, res.getString("DViewSslConnection.jbExportCsv.mnemonic").charAt(0));
+        jbExportCsv.setToolTipText(res.getString("DViewSslConnection.jbExportCsv.tooltip"));
+        jbExportCsv.addActionListener(evt -> exportPressed(false));
+
+        jbExportJson = new JButton(res.getString("DViewSslConnection.jbExportJson.text"));
+        PlatformUtil.setMnemonic(jbExportJson, res.getString("DViewSslConnection.jbExportJson.mnemonic").charAt(0));
+        jbExportJson.setToolTipText(res.getString("DViewSslConnection.jbExportJson.tooltip"));
+        jbExportJson.addActionListener(evt -> exportPressed(true));
+
+        jbOK = new JButton(res.getString("DViewSslConnection.jbOK.text"));
+        jbOK.addActionListener(evt -> okPressed());
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[right]unrel[grow]", "[]unrel[]"));
+        pane.add(jlProtocol, "");
+        pane.add(jtfProtocol, "growx, wrap");
+        pane.add(jlCipherSuite, "");
+        pane.add(jtfCipherSuite, "growx, wrap");
+        pane.add(jlSni, "");
+        pane.add(jtfSni, "growx, wrap");
+        pane.add(jlOcspStapling, "");
+        pane.add(jtfOcspStapling, "growx, wrap");
+        pane.add(jlTotal, "");
+        pane.add(jtfTotal, "growx, wrap");
+        pane.add(jspPhases, "spanx, grow, w 540, h 180, wrap unrel");
+        pane.add(jbExportCsv, "spanx, split 3, tag other");
+        pane.add(jbExportJson, "tag other");
+        pane.add(jbOK, "tag ok");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                closeDialog();
+            }
+        });
+
+        setResizable(true);
+
+        getRootPane().setDefaultButton(jbOK);
+
+        pack();
+
+        SwingUtilities.invokeLater(() -> jbOK.requestFocus());
+    }
+
+    private JTextField createField(String text) {
+        JTextField field = new JTextField(text, 30);
+        field.setEditable(false);
+        field.setCaretPosition(0);
+        return field;
+    }
+
+    private void exportPressed(boolean json) {
+        String title = res.getString(json ? "DViewSslConnection.ExportJson.Title"
+                                          : "DViewSslConnection.ExportCsv.Title");
+
+        JFileChooser chooser = json ? FileChooserFactory.getJsonFileChooser() : FileChooserFactory.getCsvFileChooser();
+        chooser.setCurrentDirectory(CurrentDirectory.get());
+        chooser.setDialogTitle(title);
+        chooser.setMultiSelectionEnabled(false);
+
+        int rtnValue = JavaFXFileChooser.isFxAvailable() ?
+                       chooser.showSaveDialog(this) :
+                       chooser.showDialog(this, res.getString("DViewSslConnection.ChooseExportFile.button"));
+
+        if (rtnValue != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File chosenFile = chooser.getSelectedFile();
+        CurrentDirectory.updateForFile(chosenFile);
+
+        String extension = "." + (json ? FileChooserFactory.JSON_EXT : FileChooserFactory.CSV_EXT);
+        if (!chosenFile.getName().toLowerCase().endsWith(extension)) {
+            chosenFile = new File(chosenFile.getPath() + extension);
+        }
+
+        if (chosenFile.isFile()) {
+            String message = MessageFormat.format(res.getString("DViewSslConnection.OverWriteFile.message"),
+                                                  chosenFile);
+
+            int selected = JOptionPane.showConfirmDialog(this, message, title, JOptionPane.YES_NO_OPTION);
+            if (selected != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+
+        try (Writer writer = Files.newBufferedWriter(chosenFile.toPath(), StandardCharsets.UTF_8)) {
+            if (json) {
+                SslConnectionReport.writeJson(sslInfos, writer);
+            } else {
+                SslConnectionReport.writeCsv(sslInfos, writer);
+            }
+        } catch (IOException ex) {
+            DError.displayError(this, ex);
+        }
+    }
+
+    private void okPressed() {
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+}
@@ -91,6 +91,52 @@ public class DialogHelper {
             }
         }
 
+        populateSigAlgs(sigAlgs, jcbSignatureAlgorithm);
+    }
+
+    /**
+     * Populate a JComboBox with signature algorithms for a key pair that has not been generated yet.
+     *
+     * @param keyPairType           The key pair type
+     * @param keySize               The key size (RSA only)
+     * @param curveName             The curve name (EdDSA only)
+     * @param jcbSignatureAlgorithm The combo box to populate
+     */
+    public static void populateSigAlgs(KeyPairType keyPairType, int keySize, String curveName,
+                                       JComboBox<SignatureType> jcbSignatureAlgorithm) {
+
+        List<SignatureType> sigAlgs;
+
+        switch (keyPairType) {
+        case DSA:
+            sigAlgs = SignatureType.dsaSignatureTypes();
+            break;
+        case EC:
+        case ECDSA:
+            sigAlgs = SignatureType.ecdsaSignatureTypes();
+            break;
+        case EDDSA:
+            if (EdDSACurves.ED448.jce().equals(curveName)) {
+                sigAlgs = Collections.singletonList(SignatureType.ED448);
+            } else {
+                sigAlgs = Collections.singletonList(SignatureType.ED25519);
+            }
+            break;
+        case ED25519:
+            sigAlgs = Collections.singletonList(SignatureType.ED25519);
+            break;
+        case ED448:
+            sigAlgs = Collections.singletonList(SignatureType.ED448);
+            break;
+        case RSA:
+        default:
+            sigAlgs = SignatureType.rsaSignatureTypes(keySize);
+        }
+
+        populateSigAlgs(sigAlgs, jcbSignatureAlgorithm);
+    }
+
+    private static void populateSigAlgs(List<SignatureType> sigAlgs, JComboBox<SignatureType> jcbSignatureAlgorithm) {
         jcbSignatureAlgorithm.removeAllItems();
 
         for (SignatureType sigAlg : sigAlgs) {
@@ -0,0 +1,683 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.ProviderException;
+import java.security.PublicKey;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.DSAParams;
+import java.security.interfaces.DSAPrivateKey;
+import java.security.interfaces.DSAPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.ResourceBundle;
+import java.util.TreeSet;
+
+import javax.crypto.SecretKey;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.KeyInfo;
+import org.kse.crypto.digest.DigestType;
+import org.kse.crypto.digest.DigestUtil;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.keystore.KeyStoreType;
+import org.kse.crypto.keystore.KeyStoreUtil;
+import org.kse.crypto.secretkey.SecretKeyType;
+import org.kse.crypto.secretkey.SecretKeyUtil;
+import org.kse.crypto.x509.X500NameUtils;
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.gui.passwordmanager.Password;
+import org.kse.utilities.StringUtils;
+import org.kse.utilities.history.KeyStoreHistory;
+import org.kse.utilities.history.KeyStoreState;
+import org.kse.utilities.io.IndentChar;
+import org.kse.utilities.io.IndentSequence;
+
+/**
+ * Creates the tree of the properties of a KeyStore and its text for the
+ * clipboard. The details of an entry are only created on request.
+ */
+class KeyStorePropertiesTree {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final String NEWLINE = "\n";
+
+    private KeyStoreHistory history;
+    private KeyStoreState currentState;
+    private IndentSequence INDENT = new IndentSequence(IndentChar.SPACE, 4);
+
+    /**
+     * Creates the details below the node of a KeyStore entry.
+     */
+    private interface EntryDetailsCreator {
+        void create(DefaultMutableTreeNode entryNode, String alias) throws CryptoException;
+    }
+
+    /**
+     * Node of a KeyStore entry. Until it is expanded it only has a placeholder child.
+     */
+    static class EntryNode extends DefaultMutableTreeNode {
+        private static final long serialVersionUID = 1L;
+
+        private final transient EntryDetailsCreator detailsCreator;
+        boolean loading;
+
+        EntryNode(String alias, EntryDetailsCreator detailsCreator) {
+            super(alias);
+            this.detailsCreator = detailsCreator;
+            add(new DefaultMutableTreeNode(res.getString("DProperties.properties.Loading")));
+        }
+
+        /**
+         * Create the details of the entry below a new node, leaving this node as it is.
+         *
+         * @return New node with the details of the entry as children
+         * @throws CryptoException If a problem occurred while getting the properties
+         */
+        DefaultMutableTreeNode createDetails() throws CryptoException {
+            DefaultMutableTreeNode details = new DefaultMutableTreeNode(getUserObject());
+            detailsCreator.create(details, (String) getUserObject());
+            return details;
+        }
+    }
+
+    /**
+     * Construct the tree for the current state of a KeyStore.
+     *
+     * @param history KeyStore history
+     */
+    KeyStorePropertiesTree(KeyStoreHistory history) {
+        this.history = history;
+        this.currentState = history.getCurrentState();
+    }
+
+    /**
+     * Create the root node of the tree. Only the entry nodes are created, their
+     * details are created by {@link EntryNode#createDetails()}.
+     *
+     * @return Root node
+     * @throws CryptoException If a problem occurred while getting the properties
+     */
+    DefaultMutableTreeNode createRootNode() throws CryptoException {
+        KeyStore keyStore = currentState.getKeyStore();
+
+        String root = MessageFormat.format(res.getString("DProperties.properties.Root"), history.getName());
+        DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(root);
+
+        String file = history.getPath();
+        DefaultMutableTreeNode fileNode = new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.File"), file));
+        rootNode.add(fileNode);
+
+        String type = keyStore.getType();
+        DefaultMutableTreeNode typeNode = new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Type"), type));
+        rootNode.add(typeNode);
+
+        String provider = keyStore.getProvider().getName();
+        DefaultMutableTreeNode providerNode = new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Provider"), provider));
+        rootNode.add(providerNode);
+
+        TreeSet<String> aliases = getAliasesInAlphaOrder();
+
+        createKeysNodes(rootNode, aliases);
+
+        createKeyPairsNodes(rootNode, aliases);
+
+        createTrustedCertificatesNodes(rootNode, aliases);
+
+        return rootNode;
+    }
+
+    private TreeSet<String> getAliasesInAlphaOrder() throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            TreeSet<String> aliases = new TreeSet<>();
+
+            Enumeration<String> enumAliases = keyStore.aliases();
+
+            while (enumAliases.hasMoreElements()) {
+                String alias = enumAliases.nextElement();
+
+                if (KeyStoreUtil.isSupportedEntryType(alias, keyStore)) {
+                    aliases.add(alias);
+                }
+            }
+            return aliases;
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createTrustedCertificatesNodes(DefaultMutableTreeNode parentNode, TreeSet<String> aliases)
+            throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            DefaultMutableTreeNode trustCertsNode = new DefaultMutableTreeNode(
+                    res.getString("DProperties.properties.TrustedCertificates"));
+            parentNode.add(trustCertsNode);
+
+            boolean trustCertsPresent = false;
+
+            for (String alias : aliases) {
+                if (KeyStoreUtil.isTrustedCertificateEntry(alias, keyStore)) {
+                    trustCertsNode.add(new EntryNode(alias, this::createTrustedCertificateNodes));
+
+                    trustCertsPresent = true;
+                }
+            }
+
+            if (!trustCertsPresent) {
+                DefaultMutableTreeNode emptyTrustCertsNode = new DefaultMutableTreeNode(
+                        res.getString("DProperties.properties.None"));
+                trustCertsNode.add(emptyTrustCertsNode);
+            }
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createTrustedCertificateNodes(DefaultMutableTreeNode trustedCertificateNode, String alias)
+            throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            createLastModifiedNode(trustedCertificateNode, alias);
+
+            X509Certificate trustedCertificate = X509CertUtil.convertCertificate(keyStore.getCertificate(alias));
+
+            populateCertificateNode(trustedCertificateNode, trustedCertificate);
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void populateCertificateNode(DefaultMutableTreeNode certificateNode, X509Certificate certificate)
+            throws CryptoException {
+        try {
+            String version = MessageFormat.format(res.getString("DProperties.properties.Version"),
+                                                  "" + certificate.getVersion());
+            certificateNode.add(new DefaultMutableTreeNode(version));
+
+            String subject = MessageFormat.format(res.getString("DProperties.properties.Subject"),
+                                                  X500NameUtils.x500PrincipalToX500Name(
+                                                          certificate.getSubjectX500Principal()));
+            certificateNode.add(new DefaultMutableTreeNode(subject));
+
+            String issuer = MessageFormat.format(res.getString("DProperties.properties.Issuer"),
+                                                 X500NameUtils.x500PrincipalToX500Name(
+                                                         certificate.getIssuerX500Principal()));
+            certificateNode.add(new DefaultMutableTreeNode(issuer));
+
+            String serialNumber = MessageFormat.format(res.getString("DProperties.properties.SerialNumber"),
+                                                       X509CertUtil.getSerialNumberAsHex(certificate));
+            certificateNode.add(new DefaultMutableTreeNode(serialNumber));
+
+            Date validFromDate = certificate.getNotBefore();
+            String validFrom = MessageFormat.format(res.getString("DProperties.properties.ValidFrom"),
+                                                    StringUtils.formatDate(validFromDate));
+            certificateNode.add(new DefaultMutableTreeNode(validFrom));
+
+            Date validUntilDate = certificate.getNotAfter();
+            String validUntil = MessageFormat.format(res.getString("DProperties.properties.ValidUntil"),
+                                                     StringUtils.formatDate(validUntilDate));
+            certificateNode.add(new DefaultMutableTreeNode(validUntil));
+
+            createPublicKeyNodes(certificateNode, certificate);
+
+            String signatureAlgorithm = MessageFormat.format(res.getString("DProperties.properties.SignatureAlgorithm"),
+                                                             X509CertUtil.getCertificateSignatureAlgorithm(
+                                                                     certificate));
+            certificateNode.add(new DefaultMutableTreeNode(signatureAlgorithm));
+
+            byte[] cert = certificate.getEncoded();
+
+            String md5 = MessageFormat.format(res.getString("DProperties.properties.Md5Fingerprint"),
+                                              DigestUtil.getFriendlyMessageDigest(cert, DigestType.MD5));
+            certificateNode.add(new DefaultMutableTreeNode(md5));
+
+            String sha1 = MessageFormat.format(res.getString("DProperties.properties.Sha1Fingerprint"),
+                                               DigestUtil.getFriendlyMessageDigest(cert, DigestType.SHA1));
+            certificateNode.add(new DefaultMutableTreeNode(sha1));
+        } catch (CertificateEncodingException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createPublicKeyNodes(DefaultMutableTreeNode parentNode, X509Certificate certificate)
+            throws CryptoException {
+        createPublicKeyNodes(parentNode, certificate.getPublicKey());
+    }
+
+    private void createPublicKeyNodes(DefaultMutableTreeNode parentNode, PublicKey publicKey) throws CryptoException {
+        DefaultMutableTreeNode publicKeyNode = new DefaultMutableTreeNode(
+                res.getString("DProperties.properties.PublicKey"));
+        parentNode.add(publicKeyNode);
+
+        KeyInfo keyInfo = KeyPairUtil.getKeyInfo(publicKey);
+        String keyAlg = keyInfo.getAlgorithm();
+
+        publicKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Algorithm"), keyAlg)));
+
+        Integer keySize = keyInfo.getSize();
+
+        if (keySize != null) {
+            publicKeyNode.add(new DefaultMutableTreeNode(
+                    MessageFormat.format(res.getString("DProperties.properties.KeySize"), "" + keyInfo.getSize())));
+        } else {
+            publicKeyNode.add(new DefaultMutableTreeNode(
+                    MessageFormat.format(res.getString("DProperties.properties.KeySize"), "?")));
+        }
+
+        String keyFormat = publicKey.getFormat();
+
+        publicKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Format"), keyFormat)));
+
+        String keyEncoded = "0x" + new BigInteger(1, publicKey.getEncoded()).toString(16).toUpperCase();
+
+        publicKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Encoded"), keyEncoded)));
+
+        if (publicKey instanceof RSAPublicKey) {
+            RSAPublicKey rsaPublicKey = (RSAPublicKey) publicKey;
+
+            String publicExponent = MessageFormat.format(
+                    res.getString("DProperties.properties.public.rsa.PublicExponent"),
+                    "0x" + rsaPublicKey.getPublicExponent().toString(16).toUpperCase());
+            publicKeyNode.add(new DefaultMutableTreeNode(publicExponent));
+
+            String modulus = MessageFormat.format(res.getString("DProperties.properties.public.rsa.Modulus"),
+                                                  "0x" + rsaPublicKey.getModulus().toString(16).toUpperCase());
+            publicKeyNode.add(new DefaultMutableTreeNode(modulus));
+
+        } else if (publicKey instanceof DSAPublicKey) {
+            DSAPublicKey dsaPublicKey = (DSAPublicKey) publicKey;
+
+            DSAParams dsaParams = dsaPublicKey.getParams();
+
+            String primeModulusP = MessageFormat.format(
+                    res.getString("DProperties.properties.public.dsa.PrimeModulusP"),
+                    "0x" + dsaParams.getP().toString(16).toUpperCase());
+            publicKeyNode.add(new DefaultMutableTreeNode(primeModulusP));
+
+            String primeQ = MessageFormat.format(res.getString("DProperties.properties.public.dsa.PrimeQ"),
+                                                 "0x" + dsaParams.getQ().toString(16).toUpperCase());
+            publicKeyNode.add(new DefaultMutableTreeNode(primeQ));
+
+            String generatorG = MessageFormat.format(res.getString("DProperties.properties.public.dsa.GeneratorG"),
+                                                     "0x" + dsaParams.getG().toString(16).toUpperCase());
+            publicKeyNode.add(new DefaultMutableTreeNode(generatorG));
+
+            String publicKeyY = MessageFormat.format(res.getString("DProperties.properties.public.dsa.PublicKeyY"),
+                                                     "0x" + dsaPublicKey.getY().toString(16).toUpperCase());
+            publicKeyNode.add(new DefaultMutableTreeNode(publicKeyY));
+        }
+    }
+
+    private void createKeyPairsNodes(DefaultMutableTreeNode parentNode, TreeSet<String> aliases)
+            throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            DefaultMutableTreeNode keyPairsNode = new DefaultMutableTreeNode(
+                    res.getString("DProperties.properties.KeyPairs"));
+            parentNode.add(keyPairsNode);
+
+            boolean keyPairsPresent = false;
+
+            for (String alias : aliases) {
+                if (KeyStoreUtil.isKeyPairEntry(alias, keyStore)) {
+                    keyPairsNode.add(new EntryNode(alias, this::createKeyPairNodes));
+
+                    keyPairsPresent = true;
+                }
+            }
+
+            if (!keyPairsPresent) {
+                DefaultMutableTreeNode emptyKeyPairNode = new DefaultMutableTreeNode(
+                        res.getString("DProperties.properties.None"));
+                keyPairsNode.add(emptyKeyPairNode);
+            }
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createKeyPairNodes(DefaultMutableTreeNode keyPairNode, String alias) throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            createLastModifiedNode(keyPairNode, alias);
+
+            createPrivateKeyNodes(keyPairNode, alias);
+
+            X509Certificate[] certificates = X509CertUtil.convertCertificates(keyStore.getCertificateChain(alias));
+
+            DefaultMutableTreeNode certificatesNode = new DefaultMutableTreeNode(
+                    res.getString("DProperties.properties.Certificates"));
+            keyPairNode.add(certificatesNode);
+
+            for (X509Certificate certificate : certificates) {
+                DefaultMutableTreeNode certificateNode = new DefaultMutableTreeNode(
+                        X509CertUtil.getShortName(certificate));
+                certificatesNode.add(certificateNode);
+
+                populateCertificateNode(certificateNode, certificate);
+            }
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createPrivateKeyNodes(DefaultMutableTreeNode parentNode, String alias) throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            Password password = getEntryPassword(alias);
+
+            if (password == null) {
+                DefaultMutableTreeNode privateKeyNode = new DefaultMutableTreeNode(
+                        res.getString("DProperties.properties.PrivateKey"));
+                parentNode.add(privateKeyNode);
+
+                DefaultMutableTreeNode lockedNode = new DefaultMutableTreeNode(
+                        res.getString("DProperties.properties.Locked"));
+                privateKeyNode.add(lockedNode);
+
+                return;
+            }
+
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey(alias, password.toCharArray());
+
+            createPrivateKeyNodes(parentNode, privateKey);
+        } catch (NoSuchAlgorithmException | KeyStoreException | UnrecoverableKeyException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createPrivateKeyNodes(DefaultMutableTreeNode parentNode, PrivateKey privateKey)
+            throws CryptoException {
+        DefaultMutableTreeNode privateKeyNode = new DefaultMutableTreeNode(
+                res.getString("DProperties.properties.PrivateKey"));
+        parentNode.add(privateKeyNode);
+        currentState.getKeyStore();
+
+        KeyInfo keyInfo = KeyPairUtil.getKeyInfo(privateKey);
+        String keyAlg = keyInfo.getAlgorithm();
+
+        privateKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Algorithm"), keyAlg)));
+
+        Integer keySize = keyInfo.getSize();
+
+        if (keySize != null) {
+            privateKeyNode.add(new DefaultMutableTreeNode(
+                    MessageFormat.format(res.getString("DProperties.properties.KeySize"), "" + keyInfo.getSize())));
+        } else {
+            privateKeyNode.add(new DefaultMutableTreeNode(
+                    MessageFormat.format(res.getString("DProperties.properties.KeySize"), "?")));
+        }
+
+        String keyFormat = privateKey.getFormat();
+
+        privateKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Format"), keyFormat)));
+
+        String keyEncoded;
+        byte[] encodedKey = privateKey.getEncoded();
+        if (encodedKey != null) {
+            keyEncoded = "0x" + new BigInteger(1, privateKey.getEncoded()).toString(16).toUpperCase();
+        } else {
+            keyEncoded = "*****";
+        }
+
+        privateKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Encoded"), keyEncoded)));
+
+        if (privateKey instanceof RSAPrivateCrtKey) {
+            RSAPrivateCrtKey rsaPrivateKey = (RSAPrivateCrtKey) privateKey;
+
+            String publicExponent = MessageFormat.format(
+                    res.getString("DProperties.properties.private.rsa.PublicExponent"),
+                    "0x" + rsaPrivateKey.getPublicExponent().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(publicExponent));
+
+            String modulus = MessageFormat.format(res.getString("DProperties.properties.private.rsa.Modulus"),
+                                                  "0x" + rsaPrivateKey.getModulus().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(modulus));
+
+            String primeP = MessageFormat.format(res.getString("DProperties.properties.private.rsa.PrimeP"),
+                                                 "0x" + rsaPrivateKey.getPrimeP().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(primeP));
+
+            String primeQ = MessageFormat.format(res.getString("DProperties.properties.private.rsa.PrimeQ"),
+                                                 "0x" + rsaPrivateKey.getPrimeQ().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(primeQ));
+
+            String primeExponentP = MessageFormat.format(
+                    res.getString("DProperties.properties.private.rsa.PrimeExponentP"),
+                    "0x" + rsaPrivateKey.getPrimeExponentP().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(primeExponentP));
+
+            String primeExponentQ = MessageFormat.format(
+                    res.getString("DProperties.properties.private.rsa.PrimeExponentQ"),
+                    "0x" + rsaPrivateKey.getPrimeExponentQ().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(primeExponentQ));
+
+            String crtCoefficient = MessageFormat.format(
+                    res.getString("DProperties.properties.private.rsa.CrtCoefficient"),
+                    "0x" + rsaPrivateKey.getCrtCoefficient().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(crtCoefficient));
+
+            String privateExponent = MessageFormat.format(
+                    res.getString("DProperties.properties.private.rsa.PrivateExponent"),
+                    "0x" + rsaPrivateKey.getPrivateExponent().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(privateExponent));
+
+        } else if (privateKey instanceof DSAPrivateKey) {
+            DSAPrivateKey dsaPrivateKey = (DSAPrivateKey) privateKey;
+
+            DSAParams dsaParams = dsaPrivateKey.getParams();
+
+            String primeModulusP = MessageFormat.format(
+                    res.getString("DProperties.properties.private.dsa.PrimeModulusP"),
+                    "0x" + dsaParams.getP().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(primeModulusP));
+
+            String primeQ = MessageFormat.format(res.getString("DProperties.properties.private.dsa.PrimeQ"),
+                                                 "0x" + dsaParams.getQ().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(primeQ));
+
+            String generatorG = MessageFormat.format(res.getString("DProperties.properties.private.dsa.GeneratorG"),
+                                                     "0x" + dsaParams.getG().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(generatorG));
+
+            String secretExponentX = MessageFormat.format(
+                    res.getString("DProperties.properties.private.dsa.SecretExponentX"),
+                    "0x" + dsaPrivateKey.getX().toString(16).toUpperCase());
+            privateKeyNode.add(new DefaultMutableTreeNode(secretExponentX));
+        }
+
+    }
+
+    private Password getEntryPassword(String alias) {
+
+        return currentState.getEntryPassword(alias);
+    }
+
+    private void createKeysNodes(DefaultMutableTreeNode parentNode, TreeSet<String> aliases)
+            throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            DefaultMutableTreeNode keysNode = new DefaultMutableTreeNode(res.getString("DProperties.properties.Keys"));
+            parentNode.add(keysNode);
+
+            boolean keysPresent = false;
+
+            for (String alias : aliases) {
+                if (KeyStoreUtil.isKeyEntry(alias, keyStore)) {
+                    keysNode.add(new EntryNode(alias, this::createKeyNodes));
+
+                    keysPresent = true;
+                }
+            }
+
+            if (!keysPresent) {
+                DefaultMutableTreeNode emptyKeyNode = new DefaultMutableTreeNode(
+                        res.getString("DProperties.properties.None"));
+                keysNode.add(emptyKeyNode);
+            }
+        } catch (KeyStoreException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createKeyNodes(DefaultMutableTreeNode keyNode, String alias) throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            createLastModifiedNode(keyNode, alias);
+
+            Password password = getEntryPassword(alias);
+
+            if (password == null) {
+                DefaultMutableTreeNode lockedNode = new DefaultMutableTreeNode(
+                        res.getString("DProperties.properties.Locked"));
+                keyNode.add(lockedNode);
+
+                return;
+            }
+
+            Key key = keyStore.getKey(alias, password.toCharArray());
+
+            if (key instanceof PublicKey) {
+                createPublicKeyNodes(keyNode, (PublicKey) key);
+            } else if (key instanceof PrivateKey) {
+                createPrivateKeyNodes(keyNode, (PrivateKey) key);
+            } else if (key instanceof SecretKey) {
+                createSecretKeyNodes(keyNode, (SecretKey) key);
+            }
+        } catch (NoSuchAlgorithmException | KeyStoreException | UnrecoverableKeyException ex) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), ex);
+        }
+    }
+
+    private void createSecretKeyNodes(DefaultMutableTreeNode parentNode, SecretKey secretKey) {
+        DefaultMutableTreeNode secretKeyNode = new DefaultMutableTreeNode(
+                res.getString("DProperties.properties.SecretKey"));
+        parentNode.add(secretKeyNode);
+
+        KeyInfo keyInfo = SecretKeyUtil.getKeyInfo(secretKey);
+        String keyAlg = keyInfo.getAlgorithm();
+
+        // Try and get friendly algorithm name for secret key
+        SecretKeyType secretKeyType = SecretKeyType.resolveJce(keyAlg);
+
+        if (secretKeyType != null) {
+            keyAlg = secretKeyType.friendly();
+        }
+
+        secretKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Algorithm"), keyAlg)));
+
+        Integer keySize = keyInfo.getSize();
+
+        if (keySize != null) {
+            secretKeyNode.add(new DefaultMutableTreeNode(
+                    MessageFormat.format(res.getString("DProperties.properties.KeySize"), "" + keyInfo.getSize())));
+        } else {
+            secretKeyNode.add(new DefaultMutableTreeNode(
+                    MessageFormat.format(res.getString("DProperties.properties.KeySize"), "?")));
+        }
+
+        String keyFormat = secretKey.getFormat();
+
+        secretKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Format"), keyFormat)));
+
+        String keyEncoded = "0x" + new BigInteger(1, secretKey.getEncoded()).toString(16).toUpperCase();
+
+        secretKeyNode.add(new DefaultMutableTreeNode(
+                MessageFormat.format(res.getString("DProperties.properties.Encoded"), keyEncoded)));
+    }
+
+    private void createLastModifiedNode(DefaultMutableTreeNode parentNode, String alias) throws CryptoException {
+        try {
+            KeyStore keyStore = currentState.getKeyStore();
+
+            if (KeyStoreType.resolveJce(keyStore.getType()) != KeyStoreType.PKCS12) {
+                String lastModified = MessageFormat.format(res.getString("DProperties.properties.LastModified"),
+                                                           StringUtils.formatDate(keyStore.getCreationDate(alias)));
+                parentNode.add(new DefaultMutableTreeNode(lastModified));
+            }
+        } catch (ProviderException e) {
+            // some keystore types do not provide creation dates for their entries => simply create no node
+        } catch (KeyStoreException e) {
+            throw new CryptoException(res.getString("DProperties.NoGetProperties.exception.message"), e);
+        }
+    }
+
+    /**
+     * Get the text of a tree with one line per node, indented by level. The
+     * details of the entries are included whether their nodes were expanded
+     * or not.
+     *
+     * @param rootNode Root node
+     * @return Text of the tree
+     * @throws CryptoException If a problem occurred while getting the properties
+     */
+    String getContents(TreeNode rootNode) throws CryptoException {
+        StringBuilder properties = new StringBuilder();
+        appendNodeContents(rootNode, 0, properties);
+        return properties.toString();
+    }
+
+    private void appendNodeContents(TreeNode node, int level, StringBuilder properties) throws CryptoException {
+        properties.append(INDENT.toString(level));
+        properties.append(node.toString().trim());
+        properties.append(NEWLINE);
+
+        // the details of an entry are created for the text only, whether its node was expanded or not
+        TreeNode parent = node instanceof EntryNode ? ((EntryNode) node).createDetails() : node;
+
+        for (int i = 0; i < parent.getChildCount(); i++) {
+            appendNodeContents(parent.getChildAt(i), level + 1, properties);
+        }
+    }
+}
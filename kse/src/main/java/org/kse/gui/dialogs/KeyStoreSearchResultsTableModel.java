@@ -0,0 +1,187 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.kse.crypto.keystore.KeyStoreSearchIndex;
+import org.kse.crypto.keystore.KeyStoreSearchResult;
+
+/**
+ * The table model used to display the entries found by a KeyStore search,
+ * one row per matching entry. KeyStores that could not be searched are shown
+ * with a row of their own.
+ */
+public class KeyStoreSearchResultsTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final int EXPIRY_COLUMN = 4;
+
+    private String[] columnNames;
+    private List<KeyStoreSearchResult> results = new ArrayList<>();
+    private List<KeyStoreSearchIndex.Entry> entries = new ArrayList<>();
+
+    /**
+     * Construct a new KeyStoreSearchResultsTableModel.
+     */
+    public KeyStoreSearchResultsTableModel() {
+        columnNames = new String[6];
+        columnNames[0] = res.getString("KeyStoreSearchResultsTableModel.KeyStoreColumn");
+        columnNames[1] = res.getString("KeyStoreSearchResultsTableModel.AliasColumn");
+        columnNames[2] = res.getString("KeyStoreSearchResultsTableModel.SubjectColumn");
+        columnNames[3] = res.getString("KeyStoreSearchResultsTableModel.SerialNumberColumn");
+        columnNames[4] = res.getString("KeyStoreSearchResultsTableModel.ExpiryColumn");
+        columnNames[5] = res.getString("KeyStoreSearchResultsTableModel.StatusColumn");
+    }
+
+    /**
+     * Append the rows of a result to the table.
+     *
+     * @param result The search result of a KeyStore
+     */
+    public void add(KeyStoreSearchResult result) {
+        int firstRow = results.size();
+
+        if (result.getStatus() == KeyStoreSearchResult.Status.LOCKED ||
+            result.getStatus() == KeyStoreSearchResult.Status.FAILED) {
+            results.add(result);
+            entries.add(null);
+        } else {
+            for (KeyStoreSearchIndex.Entry entry : result.getMatches()) {
+                results.add(result);
+                entries.add(entry);
+            }
+        }
+
+        if (results.size() > firstRow) {
+            fireTableRowsInserted(firstRow, results.size() - 1);
+        }
+    }
+
+    /**
+     * Get the result at the given row position.
+     *
+     * @param row The row position in the model
+     * @return The search result of the KeyStore
+     */
+    public KeyStoreSearchResult getResult(int row) {
+        return results.get(row);
+    }
+
+    /**
+     * Get the entry at the given row position.
+     *
+     * @param row The row position in the model
+     * @return The matching entry or null for a KeyStore that could not be searched
+     */
+    public KeyStoreSearchIndex.Entry getEntry(int row) {
+        return entries.get(row);
+    }
+
+    /**
+     * Get the number of columns in the table.
+     *
+     * @return The number of columns
+     */
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Get the number of rows in the table.
+     *
+     * @return The number of rows
+     */
+    @Override
+    public int getRowCount() {
+        return results.size();
+    }
+
+    /**
+     * Get the name of the column at the given position.
+     *
+     * @param col The column position
+     * @return The column name
+     */
+    @Override
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    /**
+     * Get the cell value at the given row and column position.
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return The cell value
+     */
+    @Override
+    public Object getValueAt(int row, int col) {
+        KeyStoreSearchResult result = results.get(row);
+        KeyStoreSearchIndex.Entry entry = entries.get(row);
+
+        switch (col) {
+        case 0:
+            return result.getName();
+        case 1:
+            return entry == null ? null : entry.getAlias();
+        case 2:
+            return entry == null ? null : entry.getSubject();
+        case 3:
+            return entry == null ? null : entry.getSerialNumber();
+        case 4:
+            return entry == null ? null : entry.getNotAfter();
+        default:
+            String status = res.getString("KeyStoreSearchResultsTableModel.Status." + result.getStatus().name());
+            return result.getMessage() == null ? status : status + ": " + result.getMessage();
+        }
+    }
+
+    /**
+     * Get the class at of the cells at the given column position.
+     *
+     * @param col The column position
+     * @return The column cells' class
+     */
+    @Override
+    public Class<?> getColumnClass(int col) {
+        return col == EXPIRY_COLUMN ? Date.class : String.class;
+    }
+
+    /**
+     * Is the cell at the given row and column position editable?
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return True if the cell is editable, false otherwise
+     */
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingWorker;
+
+import org.kse.crypto.crl.CrlEntryReader;
+
+/**
+ * Row sorter for the revoked certificates table of DViewCrl. Unlike
+ * TableRowSorter it does not keep an object per row: the sort orders are
+ * arrays of entry numbers, computed by the CRL entry reader in the background
+ * and kept per column, so that switching between columns and directions is
+ * instant once a column has been sorted. Until the order of a column is
+ * available the rows are shown in CRL order.
+ */
+public class RevokedCertsRowSorter extends RowSorter<RevokedCertsTableModel> {
+    private final RevokedCertsTableModel model;
+
+    private List<SortKey> sortKeys;
+
+    // ascending entry numbers per column, null until sorted
+    private final int[][] orders = new int[2][];
+
+    // null while the rows are in model order
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    private SwingWorker<int[], Void> worker;
+
+    /**
+     * Construct sorter. Rows are sorted by serial number by default.
+     *
+     * @param model The table model
+     */
+    public RevokedCertsRowSorter(RevokedCertsTableModel model) {
+        this.model = model;
+        this.sortKeys = Collections.singletonList(new SortKey(0, SortOrder.ASCENDING));
+    }
+
+    /**
+     * Find the model row of a revoked serial number. The serial number order
+     * is computed here if the table has not been sorted by serial number yet.
+     *
+     * @param serialNumber Serial number
+     * @return Model row or -1 if the serial number is not revoked
+     */
+    public int findSerialNumber(BigInteger serialNumber) {
+        CrlEntryReader entries = model.getEntries();
+        if (entries == null) {
+            return -1;
+        }
+        if (orders[0] == null) {
+            orders[0] = entries.sortBySerialNumber();
+        }
+        return entries.find(serialNumber, orders[0]);
+    }
+
+    @Override
+    public RevokedCertsTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder sortOrder = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column &&
+            sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            sortOrder = SortOrder.DESCENDING;
+        }
+        setSortKeys(Collections.singletonList(new SortKey(column, sortOrder)));
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        checkIndex(index);
+        return viewToModel == null ? index : viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        checkIndex(index);
+        return modelToView == null ? index : modelToView[index];
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = keys == null || keys.isEmpty() ? Collections.emptyList() :
+                                Collections.singletonList(keys.get(0));
+        if (newKeys.equals(sortKeys)) {
+            return;
+        }
+
+        sortKeys = newKeys;
+        fireSortOrderChanged();
+        sort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        reset();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        reset();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        reset();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        reset();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        // entries of a CRL do not change
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        // entries of a CRL do not change
+    }
+
+    private void reset() {
+        if (worker != null) {
+            worker.cancel(true);
+            worker = null;
+        }
+        orders[0] = null;
+        orders[1] = null;
+        viewToModel = null;
+        modelToView = null;
+
+        sort();
+    }
+
+    private void sort() {
+        if (sortKeys.isEmpty() || sortKeys.get(0).getSortOrder() == SortOrder.UNSORTED) {
+            apply(null, false);
+            return;
+        }
+
+        int column = sortKeys.get(0).getColumn();
+        boolean descending = sortKeys.get(0).getSortOrder() == SortOrder.DESCENDING;
+
+        if (orders[column] != null) {
+            apply(orders[column], descending);
+            return;
+        }
+
+        CrlEntryReader entries = model.getEntries();
+        if (entries == null || entries.size() == 0) {
+            return;
+        }
+
+        if (worker != null) {
+            worker.cancel(true);
+        }
+
+        worker = new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                return column == 0 ? entries.sortBySerialNumber() : entries.sortByRevocationDate();
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || worker != this) {
+                    return;
+                }
+                worker = null;
+
+                try {
+                    orders[column] = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    return;
+                }
+
+                // the sort keys may have changed in the meantime
+                sort();
+            }
+        };
+        worker.execute();
+    }
+
+    private void apply(int[] ascending, boolean descending) {
+        int rowCount = model.getRowCount();
+
+        int[] lastViewToModel = viewToModel;
+        if (lastViewToModel == null) {
+            lastViewToModel = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                lastViewToModel[i] = i;
+            }
+        }
+
+        if (ascending == null) {
+            viewToModel = null;
+            modelToView = null;
+        } else {
+            viewToModel = new int[rowCount];
+            modelToView = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                int modelIndex = descending ? ascending[rowCount - 1 - i] : ascending[i];
+                viewToModel[i] = modelIndex;
+                modelToView[modelIndex] = i;
+            }
+        }
+
+        fireRowSorterChanged(lastViewToModel);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= model.getRowCount()) {
+            throw new IndexOutOfBoundsException("Invalid index");
+        }
+    }
+}
@@ -20,26 +20,39 @@
 package org.kse.gui.dialogs;
 
 import java.math.BigInteger;
-import java.security.cert.X509CRLEntry;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.TreeMap;
 
 import javax.swing.table.AbstractTableModel;
 
+import org.kse.crypto.crl.CrlEntryReader;
+
 /**
- * The table model used to display an array of X.509 CRL entries sorted by
- * serial number.
+ * The table model used to display the revoked certificate entries of a CRL.
+ * Rows are in CRL order and are only decoded when they are displayed, sorting
+ * is left to {@link RevokedCertsRowSorter}.
  */
 public class RevokedCertsTableModel extends AbstractTableModel {
     private static final long serialVersionUID = 1L;
 
     private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
 
+    // enough decoded rows for a few screens
+    private static final int DECODED_ROWS = 1000;
+
     private String[] columnNames;
-    private Object[][] data;
+    private CrlEntryReader entries;
+
+    private final Map<Integer, Object[]> decoded = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > DECODED_ROWS;
+        }
+    };
 
     /**
      * Construct a new RevokedCertsTableModel.
@@ -48,35 +61,29 @@ public class RevokedCertsTableModel extends AbstractTableModel {
         columnNames = new String[2];
         columnNames[0] = res.getString("RevokedCertsTableModel.SerialNumberColumn");
         columnNames[1] = res.getString("RevokedCertsTableModel.RevocationDateColumn");
-
-        data = new Object[0][0];
     }
 
     /**
-     * Load the RevokedCertsTableModel with an array of X.509 CRL entries.
+     * Load the RevokedCertsTableModel with the entries of a CRL.
      *
-     * @param revokedCerts The X.509 CRL entries
+     * @param entries The CRL entries
      */
-    public void load(X509CRLEntry[] revokedCerts) {
-        TreeMap<BigInteger, X509CRLEntry> sortedRevokedCerts = new TreeMap<>();
-
-        for (X509CRLEntry revokedCert : revokedCerts) {
-            sortedRevokedCerts.put(revokedCert.getSerialNumber(), revokedCert);
-        }
-
-        data = new Object[sortedRevokedCerts.size()][2];
-
-        int i = 0;
-        for (Iterator<?> itr = sortedRevokedCerts.entrySet().iterator(); itr.hasNext(); i++) {
-            X509CRLEntry x509CrlEntry = (X509CRLEntry) ((Map.Entry<?, ?>) itr.next()).getValue();
-
-            data[i][0] = x509CrlEntry.getSerialNumber();
-            data[i][1] = x509CrlEntry.getRevocationDate();
-        }
+    public void load(CrlEntryReader entries) {
+        this.entries = entries;
+        decoded.clear();
 
         fireTableDataChanged();
     }
 
+    /**
+     * Get the CRL entries of the table.
+     *
+     * @return The CRL entries or null if none have been loaded
+     */
+    public CrlEntryReader getEntries() {
+        return entries;
+    }
+
     /**
      * Get the number of columns in the table.
      *
@@ -94,7 +101,7 @@ public class RevokedCertsTableModel extends AbstractTableModel {
      */
     @Override
     public int getRowCount() {
-        return data.length;
+        return entries == null ? 0 : entries.size();
     }
 
     /**
@@ -117,7 +124,12 @@ public class RevokedCertsTableModel extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int row, int col) {
-        return data[row][col];
+        Object[] values = decoded.get(row);
+        if (values == null) {
+            values = new Object[] { entries.getSerialNumber(row), entries.getRevocationDate(row) };
+            decoded.put(row, values);
+        }
+        return values[col];
     }
 
     /**
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.kse.utilities.ssl.SslCapability;
+
+/**
+ * The table model used to display the capabilities of an SSL endpoint in the
+ * order the probes finish.
+ */
+public class SslCapabilitiesTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final int TIME_COLUMN = 5;
+
+    private String[] columnNames;
+    private List<SslCapability> capabilities = new ArrayList<>();
+
+    /**
+     * Construct a new SslCapabilitiesTableModel.
+     */
+    public SslCapabilitiesTableModel() {
+        columnNames = new String[6];
+        columnNames[0] = res.getString("SslCapabilitiesTableModel.TypeColumn");
+        columnNames[1] = res.getString("SslCapabilitiesTableModel.ProtocolColumn");
+        columnNames[2] = res.getString("SslCapabilitiesTableModel.NameColumn");
+        columnNames[3] = res.getString("SslCapabilitiesTableModel.StatusColumn");
+        columnNames[4] = res.getString("SslCapabilitiesTableModel.DetailsColumn");
+        columnNames[5] = res.getString("SslCapabilitiesTableModel.TimeColumn");
+    }
+
+    /**
+     * Append a probe result to the table.
+     *
+     * @param capability The probe result
+     */
+    public void add(SslCapability capability) {
+        capabilities.add(capability);
+        fireTableRowsInserted(capabilities.size() - 1, capabilities.size() - 1);
+    }
+
+    /**
+     * Get all probe results, in the order they were added.
+     *
+     * @return The probe results
+     */
+    public List<SslCapability> getCapabilities() {
+        return new ArrayList<>(capabilities);
+    }
+
+    /**
+     * Get the number of columns in the table.
+     *
+     * @return The number of columns
+     */
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Get the number of rows in the table.
+     *
+     * @return The number of rows
+     */
+    @Override
+    public int getRowCount() {
+        return capabilities.size();
+    }
+
+    /**
+     * Get the name of the column at the given position.
+     *
+     * @param col The column position
+     * @return The column name
+     */
+    @Override
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    /**
+     * Get the cell value at the given row and column position.
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return The cell value
+     */
+    @Override
+    public Object getValueAt(int row, int col) {
+        SslCapability capability = capabilities.get(row);
+
+        switch (col) {
+        case 0:
+            return res.getString("SslCapabilitiesTableModel.Kind." + capability.getKind().name());
+        case 1:
+            return capability.getProtocol();
+        case 2:
+            return capability.getName();
+        case 3:
+            return res.getString("SslCapabilitiesTableModel.Status." + capability.getStatus().name());
+        case 4:
+            return capability.getDetails();
+        default:
+            return capability.getDurationMillis();
+        }
+    }
+
+    /**
+     * Get the class at of the cells at the given column position.
+     *
+     * @param col The column position
+     * @return The column cells' class
+     */
+    @Override
+    public Class<?> getColumnClass(int col) {
+        if (col == TIME_COLUMN) {
+            return Long.class;
+        }
+        return String.class;
+    }
+
+    /**
+     * Is the cell at the given row and column position editable?
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return True if the cell is editable, false otherwise
+     */
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.util.List;
+import java.util.ResourceBundle;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.kse.utilities.ssl.SslConnectionPhase;
+import org.kse.utilities.ssl.SslConnectionReport;
+
+/**
+ * The table model used to display the phase timings of an SSL connection.
+ */
+public class SslConnectionPhasesTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final int START_COLUMN = 2;
+    private static final int DURATION_COLUMN = 3;
+
+    private String[] columnNames;
+    private List<SslConnectionPhase> phases;
+
+    /**
+     * Construct a new SslConnectionPhasesTableModel.
+     *
+     * @param phases The phases in the order they happened
+     */
+    public SslConnectionPhasesTableModel(List<SslConnectionPhase> phases) {
+        this.phases = phases;
+
+        columnNames = new String[5];
+        columnNames[0] = res.getString("SslConnectionPhasesTableModel.PhaseColumn");
+        columnNames[1] = res.getString("SslConnectionPhasesTableModel.AttemptColumn");
+        columnNames[2] = res.getString("SslConnectionPhasesTableModel.StartColumn");
+        columnNames[3] = res.getString("SslConnectionPhasesTableModel.DurationColumn");
+        columnNames[4] = res.getString("SslConnectionPhasesTableModel.ResultColumn");
+    }
+
+    /**
+     * Get the number of columns in the table.
+     *
+     * @return The number of columns
+     */
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Get the number of rows in the table.
+     *
+     * @return The number of rows
+     */
+    @Override
+    public int getRowCount() {
+        return phases.size();
+    }
+
+    /**
+     * Get the name of the column at the given position.
+     *
+     * @param col The column position
+     * @return The column name
+     */
+    @Override
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    /**
+     * Get the cell value at the given row and column position.
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return The cell value
+     */
+    @Override
+    public Object getValueAt(int row, int col) {
+        SslConnectionPhase phase = phases.get(row);
+
+        switch (col) {
+        case 0:
+            return res.getString("SslConnectionPhasesTableModel.Phase." + phase.getType().name());
+        case 1:
+            return res.getString(phase.isSniFallback() ? "SslConnectionPhasesTableModel.Attempt.SniFallback"
+                                                       : "SslConnectionPhasesTableModel.Attempt.Initial");
+        case 2:
+            return SslConnectionReport.millis(phase.getStartNanos());
+        case 3:
+            return SslConnectionReport.millis(phase.getDurationNanos());
+        default:
+            return res.getString(phase.isFailed() ? "SslConnectionPhasesTableModel.Result.Failed"
+                                                  : "SslConnectionPhasesTableModel.Result.OK");
+        }
+    }
+
+    /**
+     * Get the class at of the cells at the given column position.
+     *
+     * @param col The column position
+     * @return The column cells' class
+     */
+    @Override
+    public Class<?> getColumnClass(int col) {
+        switch (col) {
+        case START_COLUMN:
+        case DURATION_COLUMN:
+            return Double.class;
+        default:
+            return String.class;
+        }
+    }
+
+    /**
+     * Is the cell at the given row and column position editable?
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return True if the cell is editable, false otherwise
+     */
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+}
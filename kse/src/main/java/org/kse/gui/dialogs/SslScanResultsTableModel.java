@@ -0,0 +1,191 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.utilities.ssl.SslConnectionInfos;
+import org.kse.utilities.ssl.SslScanResult;
+
+/**
+ * The table model used to display SSL scan results in the order they arrive.
+ */
+public class SslScanResultsTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private static final int PORT_COLUMN = 1;
+    private static final int EXPIRY_COLUMN = 6;
+    private static final int TIME_COLUMN = 8;
+
+    private String[] columnNames;
+    private List<SslScanResult> results = new ArrayList<>();
+
+    /**
+     * Construct a new SslScanResultsTableModel.
+     */
+    public SslScanResultsTableModel() {
+        columnNames = new String[9];
+        columnNames[0] = res.getString("SslScanResultsTableModel.HostColumn");
+        columnNames[1] = res.getString("SslScanResultsTableModel.PortColumn");
+        columnNames[2] = res.getString("SslScanResultsTableModel.StatusColumn");
+        columnNames[3] = res.getString("SslScanResultsTableModel.ProtocolColumn");
+        columnNames[4] = res.getString("SslScanResultsTableModel.CipherSuiteColumn");
+        columnNames[5] = res.getString("SslScanResultsTableModel.SubjectColumn");
+        columnNames[6] = res.getString("SslScanResultsTableModel.ExpiryColumn");
+        columnNames[7] = res.getString("SslScanResultsTableModel.DetailsColumn");
+        columnNames[8] = res.getString("SslScanResultsTableModel.TimeColumn");
+    }
+
+    /**
+     * Append a result to the table.
+     *
+     * @param result The scan result
+     */
+    public void add(SslScanResult result) {
+        results.add(result);
+        fireTableRowsInserted(results.size() - 1, results.size() - 1);
+    }
+
+    /**
+     * Get the result at the given row position.
+     *
+     * @param row The row position in the model
+     * @return The scan result
+     */
+    public SslScanResult getResult(int row) {
+        return results.get(row);
+    }
+
+    /**
+     * Get all results, in the order they were added.
+     *
+     * @return The scan results
+     */
+    public List<SslScanResult> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Get the number of columns in the table.
+     *
+     * @return The number of columns
+     */
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Get the number of rows in the table.
+     *
+     * @return The number of rows
+     */
+    @Override
+    public int getRowCount() {
+        return results.size();
+    }
+
+    /**
+     * Get the name of the column at the given position.
+     *
+     * @param col The column position
+     * @return The column name
+     */
+    @Override
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    /**
+     * Get the cell value at the given row and column position.
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return The cell value
+     */
+    @Override
+    public Object getValueAt(int row, int col) {
+        SslScanResult result = results.get(row);
+        SslConnectionInfos sslInfos = result.getSslInfos();
+        X509Certificate cert = result.getServerCertificate();
+
+        switch (col) {
+        case 0:
+            return result.getTarget().getHost();
+        case 1:
+            return result.getTarget().getPort();
+        case 2:
+            return res.getString("SslScanResultsTableModel.Status." + result.getStatus().name());
+        case 3:
+            return sslInfos == null ? null : sslInfos.getProtocol();
+        case 4:
+            return sslInfos == null ? null : sslInfos.getCipherSuite();
+        case 5:
+            return cert == null ? null : X509CertUtil.getCertificateAlias(cert);
+        case 6:
+            return cert == null ? null : cert.getNotAfter();
+        case 7:
+            return result.getMessage();
+        default:
+            return result.getDurationMillis();
+        }
+    }
+
+    /**
+     * Get the class at of the cells at the given column position.
+     *
+     * @param col The column position
+     * @return The column cells' class
+     */
+    @Override
+    public Class<?> getColumnClass(int col) {
+        switch (col) {
+        case PORT_COLUMN:
+            return Integer.class;
+        case EXPIRY_COLUMN:
+            return Date.class;
+        case TIME_COLUMN:
+            return Long.class;
+        default:
+            return String.class;
+        }
+    }
+
+    /**
+     * Is the cell at the given row and column position editable?
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return True if the cell is editable, false otherwise
+     */
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+}
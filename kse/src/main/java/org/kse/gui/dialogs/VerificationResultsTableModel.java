@@ -0,0 +1,155 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.kse.crypto.verify.VerificationResult;
+
+/**
+ * The table model used to display keystore verification results in the order
+ * they arrive.
+ */
+public class VerificationResultsTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private String[] columnNames;
+    private List<VerificationResult> results = new ArrayList<>();
+
+    /**
+     * Construct a new VerificationResultsTableModel.
+     */
+    public VerificationResultsTableModel() {
+        columnNames = new String[5];
+        columnNames[0] = res.getString("VerificationResultsTableModel.AliasColumn");
+        columnNames[1] = res.getString("VerificationResultsTableModel.SubjectColumn");
+        columnNames[2] = res.getString("VerificationResultsTableModel.StatusColumn");
+        columnNames[3] = res.getString("VerificationResultsTableModel.DetailsColumn");
+        columnNames[4] = res.getString("VerificationResultsTableModel.TimeColumn");
+    }
+
+    /**
+     * Append a result to the table.
+     *
+     * @param result The verification result
+     */
+    public void add(VerificationResult result) {
+        results.add(result);
+        fireTableRowsInserted(results.size() - 1, results.size() - 1);
+    }
+
+    /**
+     * Get all results, in the order they were added.
+     *
+     * @return The verification results
+     */
+    public List<VerificationResult> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Get the number of columns in the table.
+     *
+     * @return The number of columns
+     */
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Get the number of rows in the table.
+     *
+     * @return The number of rows
+     */
+    @Override
+    public int getRowCount() {
+        return results.size();
+    }
+
+    /**
+     * Get the name of the column at the given position.
+     *
+     * @param col The column position
+     * @return The column name
+     */
+    @Override
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    /**
+     * Get the cell value at the given row and column position.
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return The cell value
+     */
+    @Override
+    public Object getValueAt(int row, int col) {
+        VerificationResult result = results.get(row);
+
+        switch (col) {
+        case 0:
+            return result.getAlias();
+        case 1:
+            return result.getSubject();
+        case 2:
+            return res.getString("VerificationResultsTableModel.Status." + result.getStatus().name());
+        case 3:
+            return result.getMessage();
+        default:
+            return result.getDurationMillis();
+        }
+    }
+
+    /**
+     * Get the class at of the cells at the given column position.
+     *
+     * @param col The column position
+     * @return The column cells' class
+     */
+    @Override
+    public Class<?> getColumnClass(int col) {
+        if (col == 4) {
+            return Long.class;
+        } else {
+            return String.class;
+        }
+    }
+
+    /**
+     * Is the cell at the given row and column position editable?
+     *
+     * @param row The row position
+     * @param col The column position
+     * @return True if the cell is editable, false otherwise
+     */
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+}
@@ -29,10 +29,8 @@ import java.awt.GridLayout;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.security.cert.X509Extension;
 import java.text.MessageFormat;
@@ -56,9 +54,9 @@ import javax.swing.event.HyperlinkListener;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableRowSorter;
 
-import org.apache.commons.io.IOUtils;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.CrlEntryReader;
 import org.kse.crypto.x509.X509CertUtil;
 import org.kse.crypto.x509.X509Ext;
 import org.kse.crypto.x509.X509ExtensionSet;
@@ -73,6 +71,8 @@ import org.kse.gui.dialogs.DViewCertificate;
 import org.kse.gui.dialogs.DViewCrl;
 import org.kse.gui.error.DError;
 import org.kse.utilities.asn1.Asn1Exception;
+import org.kse.utilities.net.FetchResult;
+import org.kse.utilities.net.HttpFetcher;
 import org.kse.utilities.oid.ObjectIdComparator;
 
 /**
@@ -355,9 +355,9 @@ public class DViewExtensions extends JEscDialog implements HyperlinkListener {
                     String path = url.getPath();
                     if (path.endsWith(".cer") || path.endsWith(".crt") || path.endsWith(".pem")
                             || path.endsWith(".der")) {
-                        downloadCert(url);
+                        download(url, false);
                     } else if (url.getPath().endsWith(".crl")) {
-                        downloadCrl(url);
+                        download(url, true);
                     } else {
                         Desktop.getDesktop().browse(url.toURI());
                     }
@@ -368,55 +368,45 @@ public class DViewExtensions extends JEscDialog implements HyperlinkListener {
         }
     }
 
-    private boolean isRedirect(int status) {
-		// normally, 3xx is redirect
-    	if (status != HttpURLConnection.HTTP_OK) {
-			if (status == HttpURLConnection.HTTP_MOVED_TEMP || status == HttpURLConnection.HTTP_MOVED_PERM
-					|| status == HttpURLConnection.HTTP_SEE_OTHER)
-				return true;
-		}
-    	return false;
+    private void download(URL url, boolean crl) throws URISyntaxException {
+        HttpFetcher.getInstance().get(url.toURI(), HttpFetcher.DEFAULT_TIMEOUT).whenComplete(
+                (result, ex) -> SwingUtilities.invokeLater(() -> {
+                    try {
+                        if (ex != null) {
+                            throw HttpFetcher.toIOException(ex);
+                        }
+                        if (crl) {
+                            showDownloadedCrl(result);
+                        } else {
+                            showDownloadedCert(result);
+                        }
+                    } catch (IOException | CryptoException e) {
+                        DError.displayError(this, e);
+                    }
+                }));
     }
 
-    private void downloadCrl(URL url) throws IOException, CryptoException {
-    	HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
-		int status = urlConn.getResponseCode();
-		if (isRedirect(status)) {
-			String newUrl = urlConn.getHeaderField("Location");
-			url = new URL(newUrl);
-			urlConn = (HttpURLConnection) url.openConnection();
-		}
-        try (InputStream is = urlConn.getInputStream()) {
-            X509CRL crl = X509CertUtil.loadCRL(IOUtils.toByteArray(is));
-            if (crl != null) {
-                DViewCrl dViewCrl = new DViewCrl(this,
-                                                 MessageFormat.format(res.getString("DViewExtensions.ViewCrl.Title"),
-                                                                      url.toString()), ModalityType.DOCUMENT_MODAL,
-                                                 crl);
-                dViewCrl.setLocationRelativeTo(this);
-                dViewCrl.setVisible(true);
-            }
+    private void showDownloadedCrl(FetchResult result) throws CryptoException {
+        CrlEntryReader crl = X509CertUtil.loadCrlEntries(result.getBody());
+        if (crl != null) {
+            DViewCrl dViewCrl = new DViewCrl(this,
+                                             MessageFormat.format(res.getString("DViewExtensions.ViewCrl.Title"),
+                                                                  result.getUri().toString()),
+                                             ModalityType.DOCUMENT_MODAL, crl);
+            dViewCrl.setLocationRelativeTo(this);
+            dViewCrl.setVisible(true);
         }
     }
 
-    private void downloadCert(URL url) throws IOException, CryptoException {
-    	HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
-		int status = urlConn.getResponseCode();
-		if (isRedirect(status)) {
-			String newUrl = urlConn.getHeaderField("Location");
-			url = new URL(newUrl);
-			urlConn = (HttpURLConnection) url.openConnection();
-		}
-        try (InputStream is = urlConn.getInputStream()) {
-            X509Certificate[] certs = X509CertUtil.loadCertificates(IOUtils.toByteArray(is));
-            if (certs != null && certs.length > 0) {
-                int importExport = kseFrame == null ? DViewCertificate.NONE : DViewCertificate.IMPORT_EXPORT;
-                DViewCertificate dViewCertificate = new DViewCertificate(this,
-                        MessageFormat.format(res.getString("DViewExtensions.ViewCert.Title"), url.toString()), certs,
-                        kseFrame, importExport);
-                dViewCertificate.setLocationRelativeTo(this);
-                dViewCertificate.setVisible(true);
-            }
+    private void showDownloadedCert(FetchResult result) throws CryptoException {
+        X509Certificate[] certs = X509CertUtil.loadCertificates(result.getBody());
+        if (certs != null && certs.length > 0) {
+            int importExport = kseFrame == null ? DViewCertificate.NONE : DViewCertificate.IMPORT_EXPORT;
+            DViewCertificate dViewCertificate = new DViewCertificate(this,
+                    MessageFormat.format(res.getString("DViewExtensions.ViewCert.Title"), result.getUri().toString()),
+                    certs, kseFrame, importExport);
+            dViewCertificate.setLocationRelativeTo(this);
+            dViewCertificate.setVisible(true);
         }
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs.sign;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JProgressBar;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.csr.CsrBatch;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Loads and verifies a batch of CSRs in a background thread - a process
+ * which the user may cancel at any time by pressing the cancel button.
+ */
+public class DLoadingCsrs extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/sign/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    private JLabel jlLoadingCsrs;
+    private JProgressBar jpbLoadingCsrs;
+    private JButton jbCancel;
+
+    private File source;
+    private int threads;
+    private volatile CsrBatch batch;
+    private Thread loader;
+
+    /**
+     * Creates a new DLoadingCsrs dialog.
+     *
+     * @param parent  The parent frame
+     * @param source  Directory or ZIP archive with the CSRs
+     * @param threads Number of threads to load the CSRs with
+     */
+    public DLoadingCsrs(JFrame parent, File source, int threads) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.source = source;
+        this.threads = threads;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlLoadingCsrs = new JLabel(MessageFormat.format(res.getString("DLoadingCsrs.jlLoadingCsrs.text"),
+                                                        source.getName()));
+
+        jpbLoadingCsrs = new JProgressBar();
+        jpbLoadingCsrs.setIndeterminate(true);
+
+        jbCancel = new JButton(res.getString("DLoadingCsrs.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", ""));
+        pane.add(jlLoadingCsrs, "center, wrap");
+        pane.add(jpbLoadingCsrs, "growx, wmin 350, wrap unrel");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        setTitle(res.getString("DLoadingCsrs.Title"));
+        setResizable(false);
+
+        pack();
+    }
+
+    /**
+     * Start loading the CSRs in a separate thread.
+     */
+    public void startLoading() {
+        loader = new Thread(new LoadCsrs(), "CsrLoader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Get the loaded batch.
+     *
+     * @return The batch or null if the user cancelled the dialog or loading failed
+     */
+    public CsrBatch getBatch() {
+        return batch;
+    }
+
+    private void cancelPressed() {
+        if (loader != null && loader.isAlive()) {
+            loader.interrupt();
+        }
+        batch = null;
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+
+    private class LoadCsrs implements Runnable {
+        @Override
+        public void run() {
+            try {
+                CsrBatch loaded = CsrBatch.load(source, threads);
+
+                SwingUtilities.invokeLater(() -> {
+                    if (DLoadingCsrs.this.isShowing()) {
+                        batch = loaded;
+                        closeDialog();
+                    }
+                });
+            } catch (InterruptedException ex) {
+                // cancelled
+            } catch (final CryptoException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    if (DLoadingCsrs.this.isShowing()) {
+                        DError.displayError(DLoadingCsrs.this, ex);
+                        closeDialog();
+                    }
+                });
+            }
+        }
+    }
+}
@@ -24,17 +24,18 @@ import java.awt.Container;
 import java.awt.Dialog;
 import java.awt.HeadlessException;
 import java.awt.event.KeyEvent;
-import java.io.IOException;
 import java.math.BigInteger;
 import java.security.PrivateKey;
-import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
 import java.util.Date;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
@@ -45,11 +46,8 @@ import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import javax.swing.UnsupportedLookAndFeelException;
 
-import org.bouncycastle.asn1.ASN1Primitive;
-import org.bouncycastle.asn1.x509.CRLNumber;
-import org.bouncycastle.asn1.x509.Extension;
-import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.RevocationDatabase;
 import org.kse.crypto.keypair.KeyPairType;
 import org.kse.crypto.signing.SignatureType;
 import org.kse.crypto.x509.X500NameUtils;
@@ -87,6 +85,8 @@ public class DSignCrl extends JEscDialog {
     private JComboBox<SignatureType> jcbSignatureAlgorithm;
     private JLabel jlCrlNumber;
     private JTextField jtfCrlNumber;
+    private JLabel jlDeltaCrl;
+    private JCheckBox jcbDeltaCrl;
 
     private JRevokedCerts jpRevokedCertsTable;
 
@@ -96,11 +96,12 @@ public class DSignCrl extends JEscDialog {
     private KeyPairType signKeyPairType;
     private PrivateKey signPrivateKey;
     private X509Certificate caCert;
-    private X509CRL crlOld;
+    private RevocationDatabase database;
     private Date effectiveDate;
     private Date nextUpdate;
     private SignatureType signatureType;
     private BigInteger crlNumber;
+    private boolean deltaCrl;
 
     private JFrame parent;
     private KseFrame kseFrame;
@@ -113,20 +114,20 @@ public class DSignCrl extends JEscDialog {
      * @param signKeyPairType Key pair type
      * @param signPrivateKey  Private key certificate
      * @param caCert          Public key certificate
-     * @param crlOld          An old crl to copy the information of the revoked
-     *                        certificates.
+     * @param database        Revocation database of the CA to copy the revoked
+     *                        certificates and the last CRL number from, or null
      * @throws CryptoException A problem was encountered with the supplied private
      *                         key
      */
     public DSignCrl(JFrame parent, KseFrame kseFrame, KeyPairType signKeyPairType, PrivateKey signPrivateKey,
-                    X509Certificate caCert, X509CRL crlOld) throws CryptoException {
+                    X509Certificate caCert, RevocationDatabase database) throws CryptoException {
         super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
         this.parent = parent;
         this.kseFrame = kseFrame;
         this.signKeyPairType = signKeyPairType;
         this.signPrivateKey = signPrivateKey;
         this.caCert = caCert;
-        this.crlOld = crlOld;
+        this.database = database;
         setTitle(res.getString("DSignCrl.Title"));
         initComponents();
     }
@@ -170,7 +171,12 @@ public class DSignCrl extends JEscDialog {
         jtfCrlNumber = new JTextField("1", 5);
         jtfCrlNumber.setToolTipText(res.getString("DSignCrl.jtfCrlNumber.tooltip"));
 
-        jpRevokedCertsTable = new JRevokedCerts(parent, kseFrame, caCert, crlOld);
+        jlDeltaCrl = new JLabel(res.getString("DSignCrl.jlDeltaCrl.text"));
+        jcbDeltaCrl = new JCheckBox();
+        jcbDeltaCrl.setToolTipText(res.getString("DSignCrl.jcbDeltaCrl.tooltip"));
+        jcbDeltaCrl.setEnabled(false);
+
+        jpRevokedCertsTable = new JRevokedCerts(parent, kseFrame, caCert, database);
 
         jbOK = new JButton(res.getString("DSignCrl.jbOK.text"));
         jbCancel = new JButton(res.getString("DSignCrl.jbCancel.text"));
@@ -196,6 +202,8 @@ public class DSignCrl extends JEscDialog {
         pane.add(jcbSignatureAlgorithm, "wrap");
         pane.add(jlCrlNumber, "");
         pane.add(jtfCrlNumber, "wrap");
+        pane.add(jlDeltaCrl, "");
+        pane.add(jcbDeltaCrl, "wrap");
         pane.add(jpRevokedCertsTable, "spanx, growx, wrap unrel");
         pane.add(jpButtons, "right, spanx");
 
@@ -225,27 +233,26 @@ public class DSignCrl extends JEscDialog {
             jdnCrlIssuer.setDistinguishedName(X500NameUtils.x500PrincipalToX500Name(caCert.getSubjectX500Principal()));
         }
 
-        if (crlOld == null) {
+        if (database == null || database.getLastCrlNumber() == null) {
             Date startDate = jdtEffectiveDate.getDateTime();
             jdtNextUpdate.setDateTime(jvpValidityPeriod.getValidityEnd(startDate));
         } else {
-            Date firstDate = crlOld.getThisUpdate();
-            Date secondDate = crlOld.getNextUpdate();
-            long diffInMillies = Math.abs(secondDate.getTime() - firstDate.getTime());
-            int diff = (int) TimeUnit.DAYS.convert(diffInMillies, TimeUnit.MILLISECONDS);
-            jvpValidityPeriod.setValue(diff);
+            Date firstDate = database.getLastThisUpdate();
+            Date secondDate = database.getLastNextUpdate();
+            if (secondDate != null) {
+                long diffInMillies = Math.abs(secondDate.getTime() - firstDate.getTime());
+                int diff = (int) TimeUnit.DAYS.convert(diffInMillies, TimeUnit.MILLISECONDS);
+                jvpValidityPeriod.setValue(diff);
+            }
             Date startDate = jdtEffectiveDate.getDateTime();
             jdtNextUpdate.setDateTime(jvpValidityPeriod.getValidityEnd(startDate));
 
-            byte[] crlNumEnc = crlOld.getExtensionValue(Extension.cRLNumber.getId());
-            if (crlNumEnc != null) {
-                try {
-                    ASN1Primitive primitive = JcaX509ExtensionUtils.parseExtensionValue(crlNumEnc);
-                    BigInteger nextCrlNum = CRLNumber.getInstance(primitive).getCRLNumber().add(BigInteger.ONE);
-                    jtfCrlNumber.setText(nextCrlNum.toString());
-                } catch (IOException e) {
-                    // ignore
-                }
+            jtfCrlNumber.setText(database.getLastCrlNumber().add(BigInteger.ONE).toString());
+
+            if (database.getBaseCrlNumber() != null) {
+                jcbDeltaCrl.setEnabled(true);
+                jcbDeltaCrl.setText(MessageFormat.format(res.getString("DSignCrl.jcbDeltaCrl.text"),
+                                                         database.getBaseCrlNumber()));
             }
         }
     }
@@ -285,9 +292,20 @@ public class DSignCrl extends JEscDialog {
             return;
         }
 
+        // full and delta CRLs share one monotonically increasing sequence (RFC 5280, 5.2.3)
+        if (database != null && database.getLastCrlNumber() != null &&
+            crlNumber.compareTo(database.getLastCrlNumber()) <= 0) {
+            JOptionPane.showMessageDialog(this, MessageFormat.format(
+                                                  res.getString("DSignCrl.CrlNumberNotIncreasing.message"),
+                                                  database.getLastCrlNumber()), getTitle(),
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
         effectiveDate = jdtEffectiveDate.getDateTime();
         nextUpdate = jdtNextUpdate.getDateTime();
         signatureType = (SignatureType) jcbSignatureAlgorithm.getSelectedItem();
+        deltaCrl = jcbDeltaCrl.isEnabled() && jcbDeltaCrl.isSelected();
         closeDialog();
     }
 
@@ -307,10 +325,28 @@ public class DSignCrl extends JEscDialog {
         return crlNumber;
     }
 
+    /**
+     * Was a delta CRL to the last full CRL in the revocation database chosen?
+     *
+     * @return True for a delta CRL, false for a full CRL
+     */
+    public boolean isDeltaCrl() {
+        return deltaCrl;
+    }
+
     public Map<BigInteger, RevokedEntry> getMapRevokedEntry() {
         return jpRevokedCertsTable.getMapRevokedEntry();
     }
 
+    /**
+     * Get the serial numbers of the certificates that were released from hold in the dialog.
+     *
+     * @return Serial numbers of the released certificates
+     */
+    public Set<BigInteger> getReleasedSerials() {
+        return jpRevokedCertsTable.getReleasedSerials();
+    }
+
     public static void main(String[] args) throws HeadlessException, UnsupportedLookAndFeelException, CryptoException {
         DialogViewer.run(new DSignCrl(new JFrame(), null, KeyPairType.RSA, null, null, null));
     }
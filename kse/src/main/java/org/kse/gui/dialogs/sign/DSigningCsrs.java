@@ -0,0 +1,340 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs.sign;
+
+import java.awt.Container;
+import java.awt.Dialog;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.X509Certificate;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.AbstractAction;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.csr.CsrBatch;
+import org.kse.crypto.x509.CertificateIssuer;
+import org.kse.crypto.x509.X509CertUtil;
+import org.kse.crypto.x509.X509ExtensionSet;
+import org.kse.gui.PlatformUtil;
+import org.kse.gui.components.JEscDialog;
+import org.kse.gui.error.DError;
+import org.kse.utilities.pem.PemInfo;
+import org.kse.utilities.pem.PemUtil;
+
+import net.miginfocom.swing.MigLayout;
+
+/**
+ * Signs a batch of CSRs with the same profile on a pool of worker threads and
+ * writes a CA reply per CSR and a report of the batch to an output directory.
+ * The certificates are issued by a {@link CertificateIssuer}, which gives
+ * each worker its own signer.
+ */
+public class DSigningCsrs extends JEscDialog {
+    private static final long serialVersionUID = 1L;
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/sign/resources");
+
+    private static final String CANCEL_KEY = "CANCEL_KEY";
+
+    /** Name of the report file written to the output directory. */
+    public static final String REPORT_FILE_NAME = "csr-batch-report.csv";
+
+    private JLabel jlSigningCsrs;
+    private JProgressBar jpbSigningCsrs;
+    private JLabel jlThroughput;
+    private JList<String> jlstSigned;
+    private DefaultListModel<String> signedModel;
+    private JScrollPane jspSigned;
+    private JButton jbCancel;
+
+    private CsrBatch batch;
+    private List<CsrBatch.Csr> csrs;
+    private BigInteger[] serialNumbers;
+    private String[] replyNames;
+    private File outputDirectory;
+    private CertificateIssuer issuer;
+    private Date validityStart;
+    private Date validityEnd;
+    private X509ExtensionSet extensionTemplate;
+    private X509Certificate[] signingChain;
+    private int threads;
+
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile boolean aborted;
+    private ExecutorService executor;
+    private long startTime;
+    private boolean successful;
+
+    /**
+     * Creates a new DSigningCsrs dialog.
+     *
+     * @param parent            The parent frame
+     * @param batch             The batch the CSRs belong to
+     * @param csrs              The valid CSRs of the batch to sign
+     * @param serialNumbers     The unique serial numbers, in the same order as the CSRs
+     * @param replyNames        The unique CA reply file names, in the same order as the CSRs; existing
+     *                          files are not overwritten
+     * @param outputDirectory   The directory to write the CA replies and the report to
+     * @param issuer            The issuer of the certificates, with the extension template as its extensions
+     * @param validityStart     The validity start of the certificates
+     * @param validityEnd       The validity end of the certificates
+     * @param extensionTemplate The extensions shared by the certificates, each CSR adds the subject
+     *                          alternative name it requests
+     * @param signingChain      The chain of the signing key pair (issuer CA)
+     * @param threads           The number of worker threads
+     */
+    public DSigningCsrs(JFrame parent, CsrBatch batch, List<CsrBatch.Csr> csrs, BigInteger[] serialNumbers,
+                        String[] replyNames, File outputDirectory, CertificateIssuer issuer, Date validityStart,
+                        Date validityEnd, X509ExtensionSet extensionTemplate, X509Certificate[] signingChain,
+                        int threads) {
+        super(parent, Dialog.ModalityType.DOCUMENT_MODAL);
+        this.batch = batch;
+        this.csrs = csrs;
+        this.serialNumbers = serialNumbers;
+        this.replyNames = replyNames;
+        this.outputDirectory = outputDirectory;
+        this.issuer = issuer;
+        this.validityStart = validityStart;
+        this.validityEnd = validityEnd;
+        this.extensionTemplate = extensionTemplate;
+        this.signingChain = signingChain;
+        this.threads = threads;
+        initComponents();
+    }
+
+    private void initComponents() {
+        jlSigningCsrs = new JLabel(MessageFormat.format(res.getString("DSigningCsrs.jlSigningCsrs.text"),
+                                                        csrs.size(), threads));
+
+        jpbSigningCsrs = new JProgressBar(0, csrs.size());
+        jpbSigningCsrs.setStringPainted(true);
+
+        jlThroughput = new JLabel(MessageFormat.format(res.getString("DSigningCsrs.jlThroughput.text"), 0,
+                                                       csrs.size(), 0));
+
+        signedModel = new DefaultListModel<>();
+        jlstSigned = new JList<>(signedModel);
+        jlstSigned.setVisibleRowCount(8);
+        jlstSigned.setToolTipText(res.getString("DSigningCsrs.jlstSigned.tooltip"));
+
+        jspSigned = PlatformUtil.createScrollPane(jlstSigned, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+                                                  JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+
+        jbCancel = new JButton(res.getString("DSigningCsrs.jbCancel.text"));
+        jbCancel.addActionListener(evt -> cancelPressed());
+        jbCancel.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), CANCEL_KEY);
+        jbCancel.getActionMap().put(CANCEL_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        Container pane = getContentPane();
+        pane.setLayout(new MigLayout("insets dialog, fill", "[grow]", ""));
+        pane.add(jlSigningCsrs, "center, wrap");
+        pane.add(jpbSigningCsrs, "growx, wrap");
+        pane.add(jlThroughput, "wrap");
+        pane.add(jspSigned, "grow, wmin 350, wrap unrel");
+        pane.add(jbCancel, "tag cancel");
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                cancelPressed();
+            }
+        });
+
+        setTitle(res.getString("DSigningCsrs.Title"));
+        setResizable(false);
+
+        pack();
+    }
+
+    /**
+     * Start signing the CSRs on the worker threads.
+     */
+    public void startSigning() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "CsrSigner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        startTime = System.nanoTime();
+
+        for (int i = 0; i < csrs.size(); i++) {
+            executor.submit(new SignCsr(i));
+        }
+        executor.shutdown();
+    }
+
+    private void cancelPressed() {
+        aborted = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        closeDialog();
+    }
+
+    private void closeDialog() {
+        setVisible(false);
+        dispose();
+    }
+
+    /**
+     * Were all CSRs processed? Individual CSRs may still have failed, see
+     * their status.
+     *
+     * @return True if the batch completed, false if it was cancelled
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    private void csrProcessed(CsrBatch.Csr csr, long durationNanos) {
+        int done = completed.incrementAndGet();
+        long elapsedNanos = System.nanoTime() - startTime;
+        long perMinute = elapsedNanos > 0 ? Math.round(done * (double) TimeUnit.MINUTES.toNanos(1) / elapsedNanos) : 0;
+
+        if (done == csrs.size()) {
+            try {
+                writeReport();
+            } catch (IOException ex) {
+                reportFailed(ex);
+                return;
+            }
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            if (aborted || !isShowing()) {
+                return;
+            }
+
+            String text = csr.getStatus() == CsrBatch.Status.SIGNED ?
+                          MessageFormat.format(res.getString("DSigningCsrs.CsrSigned.text"), csr.getName(),
+                                               TimeUnit.NANOSECONDS.toMillis(durationNanos)) :
+                          MessageFormat.format(res.getString("DSigningCsrs.CsrFailed.text"), csr.getName(),
+                                               csr.getError());
+            signedModel.addElement(text);
+            jlstSigned.ensureIndexIsVisible(signedModel.size() - 1);
+            jpbSigningCsrs.setValue(done);
+            jlThroughput.setText(MessageFormat.format(res.getString("DSigningCsrs.jlThroughput.text"), done,
+                                                      csrs.size(), perMinute));
+
+            if (done == csrs.size()) {
+                successful = true;
+                closeDialog();
+            }
+        });
+    }
+
+    private void writeReport() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(new File(outputDirectory, REPORT_FILE_NAME).toPath(),
+                                                     StandardCharsets.UTF_8)) {
+            batch.writeReport(writer);
+        }
+    }
+
+    private void reportFailed(final Exception ex) {
+        if (aborted) {
+            return;
+        }
+        aborted = true;
+
+        SwingUtilities.invokeLater(() -> {
+            if (isShowing()) {
+                DError dError = new DError(DSigningCsrs.this, ex);
+                dError.setLocationRelativeTo(DSigningCsrs.this);
+                dError.setVisible(true);
+                closeDialog();
+            }
+        });
+    }
+
+    private class SignCsr implements Runnable {
+        private final int index;
+
+        SignCsr(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            if (aborted) {
+                return;
+            }
+
+            CsrBatch.Csr csr = csrs.get(index);
+            long start = System.nanoTime();
+
+            try {
+                // the template holds no subject alternative name, it is requested by each CSR
+                byte[] cert = issuer.issue(new CertificateIssuer.Request(csr.getSubject(), csr.getPublicKey(),
+                                                                         serialNumbers[index], validityStart,
+                                                                         validityEnd,
+                                                                         csr.getOwnExtensions(extensionTemplate)));
+
+                String caReply = PemUtil.encode(new PemInfo("CERTIFICATE", null, cert)) +
+                                 X509CertUtil.getCertsEncodedX509Pem(signingChain);
+
+                Files.write(new File(outputDirectory, replyNames[index]).toPath(),
+                            caReply.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.CREATE_NEW);
+
+                csr.signed(serialNumbers[index], replyNames[index]);
+            } catch (CryptoException | IOException ex) {
+                csr.failed(ex.getMessage());
+            }
+
+            csrProcessed(csr, System.nanoTime() - start);
+        }
+    }
+}
@@ -23,6 +23,8 @@ package org.kse.gui.dialogs.sign;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -44,16 +46,19 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
+import javax.swing.AbstractAction;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.KeyStroke;
 import javax.swing.RowSorter;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.border.CompoundBorder;
@@ -66,6 +71,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.bouncycastle.asn1.x509.CRLReason;
 import org.kse.crypto.CryptoException;
+import org.kse.crypto.crl.RevocationDatabase;
 import org.kse.crypto.filetype.CryptoFileType;
 import org.kse.crypto.filetype.CryptoFileUtil;
 import org.kse.crypto.x509.X509CertUtil;
@@ -85,6 +91,8 @@ public class JRevokedCerts extends JPanel {
     private static final long serialVersionUID = 1L;
     private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/sign/resources");
 
+    private static final String RELEASE_KEY = "RELEASE_KEY";
+
     private JLabel jlRevokedCerts;
     private JScrollPane jspRevokedCertsTable;
     private JKseTable jtRevokedCerts;
@@ -98,8 +106,9 @@ public class JRevokedCerts extends JPanel {
     private KseFrame kseFrame;
 
     private Map<BigInteger, RevokedEntry> mapRevokedEntry;
+    private Set<BigInteger> releasedSerials;
     private X509Certificate caCert;
-    private X509CRL crlOld;
+    private RevocationDatabase database;
 
     /**
      * Creates a new JRevokedCerts
@@ -107,15 +116,16 @@ public class JRevokedCerts extends JPanel {
      * @param parent   The parent frame
      * @param kseFrame KeyStore Explorer application frame
      * @param caCert   certificate signing the list of revoked certificates
-     * @param crlOld   CRL old
+     * @param database Revocation database of the CA or null
      */
-    public JRevokedCerts(JFrame parent, KseFrame kseFrame, X509Certificate caCert, X509CRL crlOld) {
+    public JRevokedCerts(JFrame parent, KseFrame kseFrame, X509Certificate caCert, RevocationDatabase database) {
         super();
         this.parent = parent;
         this.kseFrame = kseFrame;
         this.caCert = caCert;
-        this.crlOld = crlOld;
+        this.database = database;
         this.mapRevokedEntry = new HashMap<>();
+        this.releasedSerials = new HashSet<>();
         initComponents();
     }
 
@@ -180,6 +190,17 @@ public class JRevokedCerts extends JPanel {
         jbRevKeyStore.addActionListener(evt -> revKeyStorePressed());
         jbRevLoadCrl.addActionListener(evt -> revLoadCrlPressed());
 
+        jtRevokedCerts.getInputMap(JComponent.WHEN_FOCUSED)
+                      .put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), RELEASE_KEY);
+        jtRevokedCerts.getActionMap().put(RELEASE_KEY, new AbstractAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void actionPerformed(ActionEvent evt) {
+                releasePressed();
+            }
+        });
+
         populate();
 
         this.setLayout(new BorderLayout(5, 5));
@@ -191,29 +212,71 @@ public class JRevokedCerts extends JPanel {
     }
 
     private void populate() {
-        if (crlOld != null) {
-            Set<? extends X509CRLEntry> revokedCertsSet = crlOld.getRevokedCertificates();
-            if (revokedCertsSet == null) {
-                revokedCertsSet = new HashSet<>();
+        if (database != null) {
+            for (RevocationDatabase.Entry entry : database.getRevoked()) {
+                mapRevokedEntry.put(entry.getSerialNumber(),
+                                    new RevokedEntry(entry.getSerialNumber(), entry.getRevocationDate(),
+                                                     entry.getReason()));
             }
-            X509CRLEntry[] revokedCerts = revokedCertsSet.toArray(new X509CRLEntry[0]);
-            for (X509CRLEntry entry : revokedCerts) {
-                if (entry.getRevocationReason() == null) {
-                    mapRevokedEntry.put(entry.getSerialNumber(),
-                                        new RevokedEntry(entry.getSerialNumber(), entry.getRevocationDate(),
-                                                         CRLReason.unspecified));
-                } else {
-                    mapRevokedEntry.put(entry.getSerialNumber(),
-                                        new RevokedEntry(entry.getSerialNumber(), entry.getRevocationDate(),
-                                                         entry.getRevocationReason().ordinal()));
-                }
+            reload();
+        }
+    }
+
+    private void populate(X509CRL crl) {
+        Set<? extends X509CRLEntry> revokedCertsSet = crl.getRevokedCertificates();
+        if (revokedCertsSet == null) {
+            revokedCertsSet = new HashSet<>();
+        }
+        X509CRLEntry[] revokedCerts = revokedCertsSet.toArray(new X509CRLEntry[0]);
+        for (X509CRLEntry entry : revokedCerts) {
+            if (entry.getRevocationReason() == null) {
+                mapRevokedEntry.put(entry.getSerialNumber(),
+                                    new RevokedEntry(entry.getSerialNumber(), entry.getRevocationDate(),
+                                                     CRLReason.unspecified));
+            } else {
+                mapRevokedEntry.put(entry.getSerialNumber(),
+                                    new RevokedEntry(entry.getSerialNumber(), entry.getRevocationDate(),
+                                                     entry.getRevocationReason().ordinal()));
             }
-            RevokedCertsTableModel revokedCertsTableModel = (RevokedCertsTableModel) jtRevokedCerts.getModel();
-            revokedCertsTableModel.load(mapRevokedEntry);
-            if (revokedCertsTableModel.getRowCount() > 0) {
-                jtRevokedCerts.changeSelection(0, 0, false, false);
+        }
+        reload();
+    }
+
+    private void reload() {
+        RevokedCertsTableModel revokedCertsTableModel = (RevokedCertsTableModel) jtRevokedCerts.getModel();
+        revokedCertsTableModel.load(mapRevokedEntry);
+        if (revokedCertsTableModel.getRowCount() > 0) {
+            jtRevokedCerts.changeSelection(0, 0, false, false);
+        }
+    }
+
+    private void releasePressed() {
+        int[] selectedRows = jtRevokedCerts.getSelectedRows();
+        if (selectedRows.length == 0) {
+            return;
+        }
+
+        RevokedCertsTableModel revokedCertsTableModel = (RevokedCertsTableModel) jtRevokedCerts.getModel();
+        BigInteger[] serials = new BigInteger[selectedRows.length];
+        for (int i = 0; i < selectedRows.length; i++) {
+            serials[i] = (BigInteger) revokedCertsTableModel.getValueAt(
+                    jtRevokedCerts.convertRowIndexToModel(selectedRows[i]), 0);
+        }
+
+        // only certificates on hold can be released, all other revocations are permanent
+        for (BigInteger serial : serials) {
+            if (mapRevokedEntry.get(serial).getReason() != CRLReason.certificateHold) {
+                JOptionPane.showMessageDialog(parent, res.getString("JRevokedCerts.certNotOnHold.message"),
+                                              res.getString("DSignCrl.Title"), JOptionPane.WARNING_MESSAGE);
+                return;
             }
         }
+
+        for (BigInteger serial : serials) {
+            mapRevokedEntry.remove(serial);
+            releasedSerials.add(serial);
+        }
+        reload();
     }
 
     private void revCertFilePressed() {
@@ -269,8 +332,7 @@ public class JRevokedCerts extends JPanel {
             if (loadCrl != null) {
                 try {
                     loadCrl.verify(caCert.getPublicKey());
-                    crlOld = loadCrl;
-                    populate();
+                    populate(loadCrl);
                 } catch (InvalidKeyException | CRLException | NoSuchAlgorithmException | NoSuchProviderException | SignatureException e) {
                     JOptionPane.showMessageDialog(parent, res.getString("JRevokedCerts.crlNotSignedCA.message"),
                                                   res.getString("DSignCrl.Title"), JOptionPane.WARNING_MESSAGE);
@@ -401,4 +463,16 @@ public class JRevokedCerts extends JPanel {
         return mapRevokedEntry;
     }
 
+    /**
+     * Get the serial numbers of the certificates that were released from hold
+     * and not revoked again afterwards.
+     *
+     * @return Serial numbers of the released certificates
+     */
+    public Set<BigInteger> getReleasedSerials() {
+        Set<BigInteger> released = new HashSet<>(releasedSerials);
+        released.removeAll(mapRevokedEntry.keySet());
+        return released;
+    }
+
 }
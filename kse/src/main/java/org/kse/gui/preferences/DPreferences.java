@@ -32,6 +32,7 @@ import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.Security;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
 import java.util.TreeSet;
@@ -63,6 +64,7 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeSelectionModel;
 
 import org.kse.crypto.SecurityProvider;
+import org.kse.crypto.keypair.KeyPairPool;
 import org.kse.gui.CurrentDirectory;
 import org.kse.gui.CursorUtil;
 import org.kse.gui.FileChooserFactory;
@@ -73,6 +75,7 @@ import org.kse.gui.dnchooser.DistinguishedNameChooser;
 import org.kse.gui.password.PasswordQualityConfig;
 import org.kse.gui.preferences.data.AutoUpdateCheckSettings;
 import org.kse.gui.preferences.data.CaCertsSettings;
+import org.kse.gui.preferences.data.KeyGenerationSettings;
 import org.kse.gui.preferences.data.KsePreferences;
 import org.kse.gui.preferences.data.LanguageItem;
 import org.kse.gui.preferences.data.Pkcs12EncryptionSetting;
@@ -125,6 +128,11 @@ public class DPreferences extends JEscDialog {
     private JLabel jlSnRandomBytes;
     private JSpinner jspSnRandomBytes;
     private JLabel jlSnRandomBytesPostfix;
+    private JLabel jlKeyPairPool;
+    private JCheckBox jcbEnableKeyPairPool;
+    private JSpinner jspKeyPairPoolDepth;
+    private JLabel jlKeyPairPoolPostfix;
+    private JLabel jlKeyPairPoolStatus;
     private JPanel jpInternetProxy;
     private JRadioButton jrbNoProxy;
     private JRadioButton jrbSystemProxySettings;
@@ -490,6 +498,21 @@ public class DPreferences extends JEscDialog {
         jspSnRandomBytes.setToolTipText(res.getString("DPreferences.jlSnRandomBytes.tooltip"));
         jlSnRandomBytesPostfix = new JLabel(res.getString("DPreferences.jlSnRandomBytesPostfix.text"));
 
+        KeyGenerationSettings keyGenerationSettings = preferences.getKeyGenerationDefaults();
+        jlKeyPairPool = new JLabel(res.getString("DPreferences.jlKeyPairPool.text"));
+        jcbEnableKeyPairPool = new JCheckBox(res.getString("DPreferences.jcbEnableKeyPairPool.text"));
+        jcbEnableKeyPairPool.setSelected(keyGenerationSettings.isKeyPairPoolEnabled());
+        jcbEnableKeyPairPool.setToolTipText(res.getString("DPreferences.jcbEnableKeyPairPool.tooltip"));
+        var poolSpinnerModel = new SpinnerNumberModel(keyGenerationSettings.getKeyPairPoolDepth(), 1, 32, 1);
+        jspKeyPairPoolDepth = new JSpinner(poolSpinnerModel);
+        jspKeyPairPoolDepth.setEnabled(keyGenerationSettings.isKeyPairPoolEnabled());
+        jspKeyPairPoolDepth.setToolTipText(res.getString("DPreferences.jspKeyPairPoolDepth.tooltip"));
+        jlKeyPairPoolPostfix = new JLabel(res.getString("DPreferences.jlKeyPairPoolPostfix.text"));
+        KeyPairPool keyPairPool = KeyPairPool.getInstance();
+        jlKeyPairPoolStatus = new JLabel(MessageFormat.format(res.getString("DPreferences.jlKeyPairPoolStatus.text"),
+                                                              keyPairPool.getAvailable(), keyPairPool.getDepth(),
+                                                              keyPairPool.getHits(), keyPairPool.getMisses()));
+
         // layout
         jpUI = new JPanel();
         rightJPanel.add(jpUI, "jpCard2");
@@ -516,11 +539,18 @@ public class DPreferences extends JEscDialog {
         jpUI.add(jcbPkcs12Encryption, "spanx, wrap unrel");
         jpUI.add(jlSnRandomBytes, "");
         jpUI.add(jspSnRandomBytes, "split 2");
-        jpUI.add(jlSnRandomBytesPostfix, "");
+        jpUI.add(jlSnRandomBytesPostfix, "wrap unrel");
+        jpUI.add(jlKeyPairPool, "");
+        jpUI.add(jcbEnableKeyPairPool, "split 3");
+        jpUI.add(jspKeyPairPoolDepth, "");
+        jpUI.add(jlKeyPairPoolPostfix, "wrap rel");
+        jpUI.add(jlKeyPairPoolStatus, "skip, wrap");
 
         jcbEnableAutoUpdateChecks
                 .addItemListener(evt -> jspAutoUpdateCheckInterval.setEnabled(jcbEnableAutoUpdateChecks.isSelected()));
 
+        jcbEnableKeyPairPool.addItemListener(evt -> jspKeyPairPoolDepth.setEnabled(jcbEnableKeyPairPool.isSelected()));
+
         jcbEnablePasswordQuality.addItemListener(evt -> {
             jcbEnforceMinimumPasswordQuality.setEnabled(jcbEnablePasswordQuality.isSelected());
             jlMinimumPasswordQuality
@@ -903,9 +933,9 @@ public class DPreferences extends JEscDialog {
                         JOptionPane.WARNING_MESSAGE);
                 return false;
             }
-            if (!pacProxySelector.equals(defaultProxySelector)) {
-                ProxySelector.setDefault(pacProxySelector);
-            }
+            // the script may have changed at the same URL, so it is always loaded again
+            pacProxySelector.reload();
+            ProxySelector.setDefault(pacProxySelector);
         }
         return true;
     }
@@ -1096,6 +1126,24 @@ public class DPreferences extends JEscDialog {
         return ((Number) jspSnRandomBytes.getValue()).intValue();
     }
 
+    /**
+     * Read enable status of the key pair pool
+     *
+     * @return True if key pairs are pre-generated in the background
+     */
+    public boolean isKeyPairPoolEnabled() {
+        return jcbEnableKeyPairPool.isSelected();
+    }
+
+    /**
+     * Read number of key pairs to keep ready in the key pair pool
+     *
+     * @return Key pair pool depth
+     */
+    public int getKeyPairPoolDepth() {
+        return ((Number) jspKeyPairPoolDepth.getValue()).intValue();
+    }
+
     /**
      * Check if columns have changed
      *
@@ -138,6 +138,17 @@ public class PreferencesManager {
         return new File(System.getProperty("user.home"), ".kse" + File.separator + CONFIG_FILE_NAME);
     }
 
+    /**
+     * Get the directory that contains the config file. Other persistent data
+     * of KSE (caches, libraries) is stored next to the config file.
+     *
+     * @return Config directory, which does not necessarily exist yet
+     * @throws IOException If the path could not be determined
+     */
+    public static File getConfigDirectory() throws IOException {
+        return determineConfigFilePath().getParentFile();
+    }
+
     private static File determinePasswordsFilePath() throws IOException {
         // location of passwords file should be right next to the config file
         return new File(determineConfigFilePath().getParentFile(), PASSWORDS_FILE_NAME).getCanonicalFile();
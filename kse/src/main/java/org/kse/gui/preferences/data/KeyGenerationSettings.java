@@ -37,6 +37,9 @@ public class KeyGenerationSettings {
     private SecretKeyType secretKeyType = SecretKeyType.AES;
     private int secretKeySize = 128;
 
+    private boolean keyPairPoolEnabled = false;
+    private int keyPairPoolDepth = 4;
+
 
     public KeyPairType getKeyPairType() {
         return keyPairType;
@@ -93,4 +96,20 @@ public class KeyGenerationSettings {
     public void setSecretKeySize(int secretKeySize) {
         this.secretKeySize = secretKeySize;
     }
+
+    public boolean isKeyPairPoolEnabled() {
+        return keyPairPoolEnabled;
+    }
+
+    public void setKeyPairPoolEnabled(boolean keyPairPoolEnabled) {
+        this.keyPairPoolEnabled = keyPairPoolEnabled;
+    }
+
+    public int getKeyPairPoolDepth() {
+        return keyPairPoolDepth;
+    }
+
+    public void setKeyPairPoolDepth(int keyPairPoolDepth) {
+        this.keyPairPoolDepth = keyPairPoolDepth;
+    }
 }
@@ -49,6 +49,7 @@ public class KsePreferences {
     private int tabLayout = JTabbedPane.WRAP_TAB_LAYOUT;
     private List<String> recentFiles = new ArrayList<>();
     private String currentDirectory = null;
+    private String keyStoreSearchDirectory = null;
     private String lookAndFeelClass = null;
     private boolean lookAndFeelDecorated = false;
     private boolean showTipsOnStartUp = true;
@@ -132,6 +133,14 @@ public class KsePreferences {
         this.currentDirectory = currentDirectory;
     }
 
+    public String getKeyStoreSearchDirectory() {
+        return keyStoreSearchDirectory;
+    }
+
+    public void setKeyStoreSearchDirectory(String keyStoreSearchDirectory) {
+        this.keyStoreSearchDirectory = keyStoreSearchDirectory;
+    }
+
     public String getLookAndFeelClass() {
         return lookAndFeelClass;
     }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.asn1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Minimal DER encoding of tag-length-values and times, for code that
+ * assembles large or many structures from pre-encoded fragments instead of
+ * building ASN.1 objects.
+ */
+public class DerUtil {
+
+    public static final int TAG_UTC_TIME = 0x17;
+    public static final int TAG_GENERALIZED_TIME = 0x18;
+
+    private static final DateTimeFormatter UTC_TIME_FORMAT = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'");
+    private static final DateTimeFormatter GENERALIZED_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss'Z'");
+
+    private DerUtil() {
+    }
+
+    /**
+     * Encode a tag-length-value.
+     *
+     * @param tag      Tag
+     * @param contents Encoded content, concatenated in this order
+     * @return DER encoding
+     */
+    public static byte[] tlv(int tag, byte[]... contents) {
+        int length = 0;
+        for (byte[] content : contents) {
+            length += content.length;
+        }
+
+        byte[] der = new byte[headerLength(length) + length];
+        int pos = 0;
+        der[pos++] = (byte) tag;
+        if (length < 0x80) {
+            der[pos++] = (byte) length;
+        } else {
+            int lengthOctets = headerLength(length) - 2;
+            der[pos++] = (byte) (0x80 | lengthOctets);
+            for (int i = lengthOctets - 1; i >= 0; i--) {
+                der[pos++] = (byte) (length >>> (8 * i));
+            }
+        }
+
+        for (byte[] content : contents) {
+            System.arraycopy(content, 0, der, pos, content.length);
+            pos += content.length;
+        }
+        return der;
+    }
+
+    /**
+     * Encode a time as in X.509 (RFC 5280): UTCTime up to 2049 and
+     * GeneralizedTime from 2050 on, in whole seconds.
+     *
+     * @param date Time
+     * @return DER encoding
+     */
+    public static byte[] encodeTime(Date date) {
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(Math.floorDiv(date.getTime(), 1000), 0, ZoneOffset.UTC);
+
+        String encoded;
+        int tag;
+        if (dateTime.getYear() >= 1950 && dateTime.getYear() < 2050) {
+            encoded = UTC_TIME_FORMAT.format(dateTime);
+            tag = TAG_UTC_TIME;
+        } else {
+            encoded = GENERALIZED_TIME_FORMAT.format(dateTime);
+            tag = TAG_GENERALIZED_TIME;
+        }
+
+        byte[] content = new byte[encoded.length()];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) encoded.charAt(i);
+        }
+        return tlv(tag, content);
+    }
+
+    /**
+     * Get the length of the DER header for content of the supplied length.
+     *
+     * @param contentLength Length of the content
+     * @return Length of tag and length octets
+     */
+    public static int headerLength(long contentLength) {
+        if (contentLength < 0x80) {
+            return 2;
+        }
+        int octets = 0;
+        for (long length = contentLength; length > 0; length >>>= 8) {
+            octets++;
+        }
+        return 2 + octets;
+    }
+
+    /**
+     * Write a DER header, i.e. tag and length octets, for content that is
+     * written to the stream afterwards.
+     *
+     * @param out           Stream to write to
+     * @param tag           Tag
+     * @param contentLength Length of the content that follows
+     * @throws IOException If the header could not be written
+     */
+    public static void writeHeader(OutputStream out, int tag, long contentLength) throws IOException {
+        out.write(tag);
+        if (contentLength < 0x80) {
+            out.write((int) contentLength);
+            return;
+        }
+        int octets = headerLength(contentLength) - 2;
+        out.write(0x80 | octets);
+        for (int i = octets - 1; i >= 0; i--) {
+            out.write((int) (contentLength >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Concatenate two encodings.
+     *
+     * @param first  First encoding
+     * @param second Second encoding
+     * @return Both encodings
+     */
+    public static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
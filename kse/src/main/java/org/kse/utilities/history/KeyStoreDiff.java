@@ -0,0 +1,284 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.history;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.keystore.KeyStoreType;
+import org.kse.gui.passwordmanager.Password;
+
+/**
+ * Entry level difference between a KeyStore state and an externally modified
+ * copy of the same KeyStore file. The difference can be applied to another
+ * state in order to merge the external changes into the history.
+ */
+public class KeyStoreDiff {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/history/resources");
+
+    /**
+     * Kind of change for a single entry.
+     */
+    public enum Change {
+        ADDED, REMOVED, MODIFIED
+    }
+
+    private final KeyStore externalKeyStore;
+    private final Password externalPassword;
+    private final Map<String, Password> knownEntryPasswords;
+    private final Map<String, Change> changes = new TreeMap<>();
+
+    private KeyStoreDiff(KeyStore externalKeyStore, Password externalPassword,
+                         Map<String, Password> knownEntryPasswords) {
+        this.externalKeyStore = externalKeyStore;
+        this.externalPassword = externalPassword;
+        this.knownEntryPasswords = knownEntryPasswords;
+    }
+
+    /**
+     * Compute the entry level difference between a state and an external KeyStore.
+     *
+     * @param baseState        State the external KeyStore is compared with
+     * @param externalKeyStore KeyStore as re-read from the file
+     * @param externalPassword Password the external KeyStore was loaded with
+     * @return The difference
+     * @throws CryptoException If the KeyStores could not be accessed
+     */
+    public static KeyStoreDiff compute(KeyStoreState baseState, KeyStore externalKeyStore, Password externalPassword)
+            throws CryptoException {
+        KeyStore baseKeyStore = baseState.getKeyStore();
+
+        try {
+            Set<String> baseAliases = new HashSet<>(Collections.list(baseKeyStore.aliases()));
+            Set<String> externalAliases = new HashSet<>(Collections.list(externalKeyStore.aliases()));
+
+            Map<String, Password> entryPasswords = new TreeMap<>();
+            for (String alias : baseAliases) {
+                Password entryPassword = baseState.getEntryPassword(alias);
+                if (entryPassword != null && !entryPassword.isNulled()) {
+                    entryPasswords.put(alias, new Password(entryPassword)); // Copy as may be cleared
+                }
+            }
+
+            KeyStoreDiff diff = new KeyStoreDiff(externalKeyStore, externalPassword, entryPasswords);
+
+            for (String alias : baseAliases) {
+                if (!externalAliases.contains(alias)) {
+                    diff.changes.put(alias, Change.REMOVED);
+                } else if (!diff.isEntryEqual(alias, baseKeyStore)) {
+                    diff.changes.put(alias, Change.MODIFIED);
+                }
+            }
+
+            for (String alias : externalAliases) {
+                if (!baseAliases.contains(alias)) {
+                    diff.changes.put(alias, Change.ADDED);
+                }
+            }
+
+            return diff;
+        } catch (GeneralSecurityException ex) {
+            throw new CryptoException(res.getString("NoCompareKeyStores.exception.message"), ex);
+        }
+    }
+
+    /**
+     * Are there any differences?
+     *
+     * @return True if the KeyStores contain the same entries
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Get all changed entries, sorted by alias.
+     *
+     * @return Changes keyed by alias
+     */
+    public Map<String, Change> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * Get the aliases of all entries with the supplied kind of change.
+     *
+     * @param change Kind of change
+     * @return Aliases, sorted
+     */
+    public List<String> getAliases(Change change) {
+        List<String> aliases = new ArrayList<>();
+        for (Map.Entry<String, Change> entry : changes.entrySet()) {
+            if (entry.getValue() == change) {
+                aliases.add(entry.getKey());
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Apply the external changes to the supplied state, which is usually the
+     * basis for the next state of the history.
+     *
+     * @param state State to modify
+     * @return Aliases of entries that could not be merged because their key
+     *         could not be recovered from the external KeyStore
+     * @throws CryptoException If the KeyStore could not be updated
+     */
+    public List<String> applyTo(KeyStoreState state) throws CryptoException {
+        KeyStore keyStore = state.getKeyStore();
+        boolean hasEntryPasswords = KeyStoreType.resolveJce(keyStore.getType()).hasEntryPasswords();
+        List<String> skipped = new ArrayList<>();
+
+        try {
+            for (Map.Entry<String, Change> entry : changes.entrySet()) {
+                String alias = entry.getKey();
+
+                if (entry.getValue() == Change.REMOVED) {
+                    if (keyStore.containsAlias(alias)) {
+                        keyStore.deleteEntry(alias);
+                        state.removeEntryPassword(alias);
+                    }
+                    continue;
+                }
+
+                if (externalKeyStore.isCertificateEntry(alias)) {
+                    if (keyStore.containsAlias(alias)) {
+                        keyStore.deleteEntry(alias);
+                        state.removeEntryPassword(alias);
+                    }
+                    keyStore.setCertificateEntry(alias, externalKeyStore.getCertificate(alias));
+                    continue;
+                }
+
+                // Leave the entry untouched if its key cannot be recovered from the external KeyStore
+                Password password = findEntryPassword(alias);
+                if (password == null) {
+                    skipped.add(alias);
+                    continue;
+                }
+
+                Key key = externalKeyStore.getKey(alias, password.toCharArray());
+                Password newPassword = hasEntryPasswords ? password : new Password((char[]) null);
+
+                if (keyStore.containsAlias(alias)) {
+                    keyStore.deleteEntry(alias);
+                    state.removeEntryPassword(alias);
+                }
+                keyStore.setKeyEntry(alias, key, newPassword.toCharArray(), externalKeyStore.getCertificateChain(alias));
+                state.setEntryPassword(alias, new Password(newPassword));
+            }
+        } catch (GeneralSecurityException ex) {
+            throw new CryptoException(res.getString("NoMergeKeyStores.exception.message"), ex);
+        }
+
+        return skipped;
+    }
+
+    private boolean isEntryEqual(String alias, KeyStore baseKeyStore) throws GeneralSecurityException {
+        if (baseKeyStore.isCertificateEntry(alias) != externalKeyStore.isCertificateEntry(alias)) {
+            return false;
+        }
+
+        if (baseKeyStore.isCertificateEntry(alias)) {
+            return isCertificateEqual(baseKeyStore.getCertificate(alias), externalKeyStore.getCertificate(alias));
+        }
+
+        Certificate[] baseChain = baseKeyStore.getCertificateChain(alias);
+        Certificate[] externalChain = externalKeyStore.getCertificateChain(alias);
+
+        if ((baseChain == null) != (externalChain == null)) {
+            return false;
+        }
+
+        if (baseChain != null) {
+            if (baseChain.length != externalChain.length) {
+                return false;
+            }
+
+            for (int i = 0; i < baseChain.length; i++) {
+                if (!isCertificateEqual(baseChain[i], externalChain[i])) {
+                    return false;
+                }
+            }
+        }
+
+        // Key material can only be compared if the entry is unlocked in the base state
+        Password password = knownEntryPasswords.get(alias);
+        if (password == null) {
+            return true;
+        }
+
+        Key baseKey = getKeyQuietly(baseKeyStore, alias, password);
+        if (baseKey == null) {
+            return true;
+        }
+
+        Key externalKey = getKeyQuietly(externalKeyStore, alias, password);
+        if (externalKey == null) {
+            externalKey = getKeyQuietly(externalKeyStore, alias, externalPassword);
+        }
+
+        return externalKey != null && Arrays.equals(baseKey.getEncoded(), externalKey.getEncoded());
+    }
+
+    private static boolean isCertificateEqual(Certificate cert1, Certificate cert2)
+            throws CertificateEncodingException {
+        if (cert1 == null || cert2 == null) {
+            return cert1 == cert2;
+        }
+        return Arrays.equals(cert1.getEncoded(), cert2.getEncoded());
+    }
+
+    private Password findEntryPassword(String alias) throws KeyStoreException {
+        // Try the entry password known from the history first, then the KeyStore password
+        Password[] candidates = { knownEntryPasswords.get(alias), externalPassword, new Password((char[]) null) };
+
+        for (Password candidate : candidates) {
+            if (candidate != null && !candidate.isNulled() && getKeyQuietly(externalKeyStore, alias, candidate) != null) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private static Key getKeyQuietly(KeyStore keyStore, String alias, Password password) {
+        try {
+            return keyStore.getKey(alias, password.toCharArray());
+        } catch (GeneralSecurityException | IllegalStateException ex) {
+            return null;
+        }
+    }
+}
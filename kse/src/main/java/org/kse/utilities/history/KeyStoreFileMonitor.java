@@ -0,0 +1,321 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.history;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.KeyStore;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.keystore.KeyStoreUtil;
+import org.kse.gui.passwordmanager.Password;
+
+/**
+ * Watches the files behind open KeyStore histories for modifications made by
+ * other programs. When a file changes it is re-read in the background and the
+ * entry level difference to the saved state of the history is reported to a
+ * listener.
+ */
+public class KeyStoreFileMonitor {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/history/resources");
+
+    // Tools often write a file in several steps, so wait until it has settled
+    private static final long SETTLE_DELAY_MS = 500;
+
+    /**
+     * Receives the results of the monitor. Methods are called on a background
+     * thread.
+     */
+    public interface Listener {
+
+        /**
+         * The file of a history was changed by another program.
+         *
+         * @param history KeyStore history
+         * @param diff    Difference between the saved state and the file
+         */
+        void keyStoreFileChanged(KeyStoreHistory history, KeyStoreDiff diff);
+
+        /**
+         * The file of a history was changed but could not be re-read, e.g.
+         * because its password was changed as well.
+         *
+         * @param history KeyStore history
+         * @param ex      Cause
+         */
+        void keyStoreFileReloadFailed(KeyStoreHistory history, Exception ex);
+    }
+
+    private final Listener listener;
+
+    private final Map<KeyStoreHistory, FileStamp> stamps = new HashMap<>();
+    private final Map<KeyStoreHistory, ScheduledFuture<?>> pendingReloads = new HashMap<>();
+    private final Map<Path, WatchKey> watchedDirectories = new HashMap<>();
+
+    private WatchService watchService;
+    private ScheduledExecutorService reloadExecutor;
+
+    /**
+     * Construct monitor.
+     *
+     * @param listener Listener to report changes to
+     */
+    public KeyStoreFileMonitor(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Start watching the file of the supplied history or, if it is already
+     * watched, remember the current state of the file as known. Must be called
+     * after the KeyStore was opened or saved, so that own writes are not
+     * reported.
+     *
+     * @param history KeyStore history
+     */
+    public synchronized void register(KeyStoreHistory history) {
+        File file = history.getFile();
+        if (file == null) {
+            return;
+        }
+
+        try {
+            start();
+
+            Path directory = file.getAbsoluteFile().toPath().getParent();
+            if (directory != null && !watchedDirectories.containsKey(directory)) {
+                watchedDirectories.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+            }
+
+            stamps.put(history, FileStamp.of(file));
+            releaseUnusedDirectories();
+        } catch (IOException ex) {
+            // File system does not support watching, external changes are not detected
+            stamps.remove(history);
+        }
+    }
+
+    /**
+     * Stop watching the file of the supplied history.
+     *
+     * @param history KeyStore history
+     */
+    public synchronized void unregister(KeyStoreHistory history) {
+        stamps.remove(history);
+
+        ScheduledFuture<?> pending = pendingReloads.remove(history);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+
+        releaseUnusedDirectories();
+    }
+
+    /**
+     * Stop watching all files and release the background threads.
+     */
+    public synchronized void stop() {
+        stamps.clear();
+        pendingReloads.clear();
+        watchedDirectories.clear();
+
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+            reloadExecutor = null;
+        }
+
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+            watchService = null;
+        }
+    }
+
+    private void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+
+        reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KeyStoreFileMonitor-Reload");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        Thread watcher = new Thread(new WatchLoop(watchService), "KeyStoreFileMonitor-Watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void releaseUnusedDirectories() {
+        watchedDirectories.entrySet().removeIf(entry -> {
+            for (KeyStoreHistory history : stamps.keySet()) {
+                if (entry.getKey().equals(history.getFile().getAbsoluteFile().toPath().getParent())) {
+                    return false;
+                }
+            }
+            entry.getValue().cancel();
+            return true;
+        });
+    }
+
+    private synchronized void fileEvent(Path directory, Path fileName) {
+        if (reloadExecutor == null) {
+            return;
+        }
+
+        for (KeyStoreHistory history : stamps.keySet()) {
+            Path path = history.getFile().getAbsoluteFile().toPath();
+
+            if (directory.equals(path.getParent()) && fileName.equals(path.getFileName())) {
+                ScheduledFuture<?> pending = pendingReloads.get(history);
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+                pendingReloads.put(history, reloadExecutor.schedule(() -> reload(history), SETTLE_DELAY_MS,
+                                                                    TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    private void reload(KeyStoreHistory history) {
+        File file;
+        KeyStoreState savedState;
+
+        synchronized (this) {
+            pendingReloads.remove(history);
+
+            FileStamp known = stamps.get(history);
+            file = history.getFile();
+            if (known == null || file == null || !file.isFile()) {
+                return;
+            }
+
+            FileStamp current = FileStamp.of(file);
+            if (current.equals(known)) {
+                return; // Our own save or a touch without changes
+            }
+            stamps.put(history, current);
+
+            savedState = history.getSavedState();
+        }
+
+        if (savedState == null || savedState.getPassword() == null || savedState.getPassword().isNulled()) {
+            return;
+        }
+
+        try {
+            Password password = new Password(savedState.getPassword()); // Copy as load may null it
+            KeyStore externalKeyStore = KeyStoreUtil.load(file, password);
+
+            if (externalKeyStore == null) {
+                throw new CryptoException(MessageFormat.format(res.getString("NoReloadKeyStore.exception.message"),
+                                                               file.getName()));
+            }
+
+            KeyStoreDiff diff = KeyStoreDiff.compute(savedState, externalKeyStore, password);
+
+            if (!diff.isEmpty()) {
+                listener.keyStoreFileChanged(history, diff);
+            }
+        } catch (CryptoException | IOException ex) {
+            listener.keyStoreFileReloadFailed(history, ex);
+        }
+    }
+
+    private class WatchLoop implements Runnable {
+        private final WatchService service;
+
+        WatchLoop(WatchService service) {
+            this.service = service;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    Path directory = (Path) key.watchable();
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() != OVERFLOW) {
+                            fileEvent(directory, (Path) event.context());
+                        }
+                    }
+
+                    key.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                // monitor stopped
+            }
+        }
+    }
+
+    private static class FileStamp {
+        private final long lastModified;
+        private final long length;
+
+        private FileStamp(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        static FileStamp of(File file) {
+            return new FileStamp(file.lastModified(), file.length());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(lastModified) * 31 + Long.hashCode(length);
+        }
+    }
+}
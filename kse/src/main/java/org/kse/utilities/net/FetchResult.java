@@ -0,0 +1,87 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.net.URI;
+
+/**
+ * Body and content headers of a successful HTTP response.
+ */
+public class FetchResult {
+    private final URI uri;
+    private final byte[] body;
+    private final String contentType;
+    private final String contentEncoding;
+    private final boolean fromCache;
+
+    FetchResult(URI uri, byte[] body, String contentType, String contentEncoding, boolean fromCache) {
+        this.uri = uri;
+        this.body = body;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+        this.fromCache = fromCache;
+    }
+
+    /**
+     * Get the URI the content was finally fetched from, after redirects.
+     *
+     * @return URI
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Get the response body.
+     *
+     * @return Body, empty if there was none
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Get the Content-Type header.
+     *
+     * @return Content type or null if the response had none
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Get the Content-Encoding header.
+     *
+     * @return Content encoding or null if the response had none
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Was the content served from the HTTP cache (including after a
+     * successful revalidation)?
+     *
+     * @return True if served from the cache
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a shell expression as used by the PAC function shExpMatch().
+ * <p>
+ * Browsers convert shell expressions to regular expressions by escaping dots and replacing "*" and "?", so any
+ * other regex syntax in a pattern is still interpreted. The common cases, plain globs and alternatives of globs
+ * like "(*.example.com|example.com)", are compiled into a list of literal segments that are matched without
+ * backtracking. All other patterns fall back to a precompiled regular expression with identical semantics.
+ * </p>
+ */
+final class GlobMatcher {
+
+    private static final String REGEX_CHARS = "\\[]{}()|+^$";
+
+    private final Glob[] globs;
+    private final Pattern regex;
+
+    /**
+     * One alternative of a shell expression, split at the "*" wildcards. Segments may contain "?".
+     */
+    private static final class Glob {
+        final String[] segments;
+        final boolean wildcard;
+        final int minLength;
+
+        Glob(String glob) {
+            List<String> parts = new ArrayList<>();
+            int start = 0;
+            for (int i = glob.indexOf('*'); i >= 0; i = glob.indexOf('*', start)) {
+                parts.add(glob.substring(start, i));
+                start = i + 1;
+            }
+            parts.add(glob.substring(start));
+
+            segments = parts.toArray(new String[0]);
+            wildcard = segments.length > 1;
+            minLength = glob.length() - (segments.length - 1);
+        }
+
+        boolean matches(String text) {
+            int length = text.length();
+            if (!wildcard) {
+                return length == minLength && matchesAt(text, 0, segments[0]);
+            }
+            if (length < minLength) {
+                return false;
+            }
+
+            String first = segments[0];
+            String last = segments[segments.length - 1];
+            int end = length - last.length();
+            if (!matchesAt(text, 0, first) || !matchesAt(text, end, last)) {
+                return false;
+            }
+
+            // leftmost match of each inner segment leaves the most room for the following ones
+            int pos = first.length();
+            for (int i = 1; i < segments.length - 1; i++) {
+                pos = indexOf(text, segments[i], pos, end);
+                if (pos < 0) {
+                    return false;
+                }
+                pos += segments[i].length();
+            }
+            return pos <= end;
+        }
+
+        private static int indexOf(String text, String segment, int from, int end) {
+            for (int i = from; i + segment.length() <= end; i++) {
+                if (matchesAt(text, i, segment)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean matchesAt(String text, int offset, String segment) {
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c != '?' && c != text.charAt(offset + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private GlobMatcher(Glob[] globs, Pattern regex) {
+        this.globs = globs;
+        this.regex = regex;
+    }
+
+    /**
+     * Compile a shell expression.
+     *
+     * @param pattern Shell expression with "*" and "?" wildcards
+     * @return Compiled matcher
+     * @throws java.util.regex.PatternSyntaxException If the pattern contains invalid regex syntax
+     */
+    static GlobMatcher compile(String pattern) {
+        String inner = pattern;
+        if (pattern.length() > 1 && pattern.charAt(0) == '(' && pattern.charAt(pattern.length() - 1) == ')') {
+            inner = pattern.substring(1, pattern.length() - 1);
+        } else if (pattern.indexOf('|') >= 0) {
+            // top-level alternatives bind to the anchors, e.g. "^a|b$", leave that to the regex engine
+            return new GlobMatcher(null, Pattern.compile(toRegex(pattern)));
+        }
+
+        String[] alternatives = inner.split("\\|", -1);
+        Glob[] globs = new Glob[alternatives.length];
+        for (int i = 0; i < alternatives.length; i++) {
+            if (containsRegexChars(alternatives[i])) {
+                return new GlobMatcher(null, Pattern.compile(toRegex(pattern)));
+            }
+            globs[i] = new Glob(alternatives[i]);
+        }
+        return new GlobMatcher(globs, null);
+    }
+
+    /**
+     * Convert a shell expression to the equivalent regular expression.
+     *
+     * @param pattern Shell expression
+     * @return Regular expression
+     */
+    static String toRegex(String pattern) {
+        StringBuilder sb = new StringBuilder("^");
+        for (int i = 0; i < pattern.length(); ++i) {
+            switch (pattern.charAt(i)) {
+            case '.':
+                sb.append("\\.");
+                break;
+            case '*':
+                sb.append(".*");
+                break;
+            case '?':
+                sb.append('.');
+                break;
+            default:
+                sb.append(pattern.charAt(i));
+            }
+        }
+        return sb.append('$').toString();
+    }
+
+    private static boolean containsRegexChars(String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            if (REGEX_CHARS.indexOf(glob.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Match a string against the shell expression.
+     *
+     * @param text Hostname or URL
+     * @return True, if the whole string matches
+     */
+    boolean matches(String text) {
+        if (regex != null) {
+            return regex.matcher(text).matches();
+        }
+        for (Glob glob : globs) {
+            if (glob.matches(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory HTTP cache for GET responses (RFC 9111, private cache). Entries
+ * are evicted least recently used first once the total size of the cached
+ * bodies exceeds the limit. Stale entries that carry a validator (ETag or
+ * Last-Modified) are kept, so that they can be revalidated with a
+ * conditional request.
+ */
+class HttpCache {
+
+    // heuristic freshness without explicit expiry: 10% of the time since last modification, at most a day
+    private static final long MAX_HEURISTIC_FRESHNESS = 24 * 60 * 60 * 1000L;
+
+    private final long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    private final LinkedHashMap<URI, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    static class Entry {
+        final byte[] body;
+        final String contentType;
+        final String contentEncoding;
+        final String eTag;
+        final String lastModified;
+        final long freshUntil;
+
+        Entry(byte[] body, String contentType, String contentEncoding, String eTag, String lastModified,
+              long freshUntil) {
+            this.body = body;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.freshUntil = freshUntil;
+        }
+
+        boolean isFresh(long now) {
+            return now < freshUntil;
+        }
+
+        boolean hasValidator() {
+            return eTag != null || lastModified != null;
+        }
+
+        Entry withFreshness(long freshUntil) {
+            return new Entry(body, contentType, contentEncoding, eTag, lastModified, freshUntil);
+        }
+    }
+
+    /**
+     * Construct cache.
+     *
+     * @param maxBytes Maximum total size of the cached bodies
+     */
+    HttpCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized Entry get(URI uri, long now) {
+        Entry entry = entries.get(uri);
+        if (entry != null && entry.isFresh(now)) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * Store a response if its headers allow it.
+     *
+     * @return The stored entry or null if the response is not storable
+     */
+    synchronized Entry put(URI uri, byte[] body, HttpHeaders headers, long now) {
+        remove(uri);
+
+        long freshUntil = freshUntil(headers, now);
+        String eTag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+
+        // a single entry may use a quarter of the cache at most
+        if (freshUntil < 0 || body.length > maxBytes / 4) {
+            return null;
+        }
+
+        Entry entry = new Entry(body, headers.firstValue("Content-Type").orElse(null),
+                                headers.firstValue("Content-Encoding").orElse(null), eTag, lastModified, freshUntil);
+        if (!entry.isFresh(now) && !entry.hasValidator()) {
+            return null;
+        }
+
+        entries.put(uri, entry);
+        bytes += body.length;
+
+        Iterator<Map.Entry<URI, Entry>> itr = entries.entrySet().iterator();
+        while (bytes > maxBytes && itr.hasNext()) {
+            bytes -= itr.next().getValue().body.length;
+            itr.remove();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Refresh an entry after a successful revalidation (304 Not Modified).
+     */
+    synchronized Entry refresh(URI uri, Entry entry, HttpHeaders headers, long now) {
+        long freshUntil = freshUntil(headers, now);
+        Entry refreshed = entry.withFreshness(Math.max(freshUntil, now));
+        if (entries.containsKey(uri)) {
+            entries.put(uri, refreshed);
+        }
+        return refreshed;
+    }
+
+    synchronized void remove(URI uri) {
+        Entry removed = entries.remove(uri);
+        if (removed != null) {
+            bytes -= removed.body.length;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Determine until when a response is fresh.
+     *
+     * @return Time in millis, -1 if the response must not be stored
+     */
+    static long freshUntil(HttpHeaders headers, long now) {
+        for (String cacheControl : headers.allValues("Cache-Control")) {
+            for (String directive : cacheControl.split(",")) {
+                String name = directive.trim().toLowerCase(Locale.ENGLISH);
+
+                if (name.equals("no-store")) {
+                    return -1;
+                } else if (name.equals("no-cache")) {
+                    return now;
+                } else if (name.startsWith("max-age=")) {
+                    try {
+                        String value = name.substring("max-age=".length()).replace("\"", "");
+                        return now + Long.parseLong(value) * 1000;
+                    } catch (NumberFormatException ex) {
+                        return now;
+                    }
+                }
+            }
+        }
+
+        Optional<String> expires = headers.firstValue("Expires");
+        if (expires.isPresent()) {
+            Long expiresMillis = parseDate(expires.get());
+            return expiresMillis == null ? now : expiresMillis;
+        }
+
+        Optional<String> lastModified = headers.firstValue("Last-Modified");
+        if (lastModified.isPresent()) {
+            Long lastModifiedMillis = parseDate(lastModified.get());
+            if (lastModifiedMillis != null && lastModifiedMillis < now) {
+                return now + Math.min((now - lastModifiedMillis) / 10, MAX_HEURISTIC_FRESHNESS);
+            }
+        }
+
+        return now;
+    }
+
+    private static Long parseDate(String date) {
+        try {
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.awt.KeyboardFocusManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+
+import org.kse.gui.dialogs.DFetching;
+
+/**
+ * Shared, asynchronous HTTP client for fetching OCSP responses, CRLs,
+ * certificates, time stamps and PAC scripts. All requests go through one
+ * pooled {@link HttpClient}, so connections to the same server are reused.
+ * <p>
+ * Every request has a timeout. Identical requests that are in flight at the
+ * same time are sent only once and share the response. GET responses are
+ * kept in an HTTP cache that honours the response's caching headers and
+ * revalidates stale content with conditional requests.
+ * <p>
+ * The client asks the default {@link ProxySelector} for each request, so
+ * changes of the proxy settings apply immediately. The HTTP client supports
+ * HTTP proxies only, so requests for which a SOCKS proxy is selected are sent
+ * with a {@link HttpURLConnection} instead.
+ */
+public class HttpFetcher {
+    private static final ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/net/resources");
+
+    /** Timeout for a complete request if the caller does not need another one */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final long CACHE_SIZE = 16 * 1024 * 1024;
+
+    private static HttpFetcher instance;
+    private static HttpFetcher directInstance;
+
+    private final HttpClient client;
+    private final ProxySelector proxySelector;
+    private final SSLContext sslContext;
+    private final ExecutorService executor;
+    private final HttpCache cache = new HttpCache(CACHE_SIZE);
+    private final Map<String, CompletableFuture<FetchResult>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Construct fetcher that connects via the configured proxy.
+     *
+     * @param sslContext SSL context for HTTPS or null for the default
+     */
+    public HttpFetcher(SSLContext sslContext) {
+        this(new DefaultProxySelector(), sslContext);
+    }
+
+    /**
+     * Construct fetcher.
+     *
+     * @param proxySelector Proxy selector or null to connect directly
+     * @param sslContext    SSL context for HTTPS or null for the default
+     */
+    public HttpFetcher(ProxySelector proxySelector, SSLContext sslContext) {
+        this.proxySelector = proxySelector;
+        this.sslContext = sslContext;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "HttpFetcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                                               .connectTimeout(CONNECT_TIMEOUT)
+                                               .followRedirects(HttpClient.Redirect.NORMAL)
+                                               .proxy(proxySelector == null ? HttpClient.Builder.NO_PROXY :
+                                                      proxySelector)
+                                               .executor(executor);
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        }
+        client = builder.build();
+    }
+
+    /**
+     * Get the shared fetcher that connects via the configured proxy.
+     *
+     * @return The fetcher
+     */
+    public static synchronized HttpFetcher getInstance() {
+        if (instance == null) {
+            instance = new HttpFetcher(null);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the shared fetcher that always connects directly, e.g. for loading
+     * the PAC script that determines the proxy.
+     *
+     * @return The fetcher
+     */
+    public static synchronized HttpFetcher getDirectInstance() {
+        if (directInstance == null) {
+            directInstance = new HttpFetcher(null, null);
+        }
+        return directInstance;
+    }
+
+    /**
+     * Fetch content with a GET request, from the cache if possible.
+     *
+     * @param uri     HTTP(S) URI
+     * @param timeout Timeout for the whole request
+     * @return Future of the content; fails with an IOException if the request
+     *         fails or the response status is not 2xx
+     */
+    public CompletableFuture<FetchResult> get(URI uri, Duration timeout) {
+        long now = System.currentTimeMillis();
+        HttpCache.Entry cached = cache.get(uri, now);
+
+        if (cached != null && cached.isFresh(now)) {
+            return CompletableFuture.completedFuture(toResult(uri, cached));
+        }
+
+        return deduplicate("GET " + uri, () -> {
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(timeout).GET();
+
+            if (cached != null && cached.eTag != null) {
+                request.header("If-None-Match", cached.eTag);
+            }
+            if (cached != null && cached.lastModified != null) {
+                request.header("If-Modified-Since", cached.lastModified);
+            }
+
+            return send(request.build(), null).thenApply(response -> {
+                long received = System.currentTimeMillis();
+
+                if (response.statusCode() == 304 && cached != null) {
+                    return toResult(response.uri(), cache.refresh(uri, cached, response.headers(), received));
+                }
+
+                checkStatus(response);
+                cache.put(uri, response.body(), response.headers(), received);
+                return toResult(response, false);
+            });
+        });
+    }
+
+    /**
+     * Send data with a POST request. The response is never cached.
+     *
+     * @param uri         HTTP(S) URI
+     * @param contentType Content type of the data
+     * @param accept      Accepted content type of the response or null
+     * @param body        Data to send
+     * @param timeout     Timeout for the whole request
+     * @return Future of the content; fails with an IOException if the request
+     *         fails or the response status is not 2xx
+     */
+    public CompletableFuture<FetchResult> post(URI uri, String contentType, String accept, byte[] body,
+                                               Duration timeout) {
+        String key = "POST " + uri + " " + contentType + " " + digest(body);
+
+        return deduplicate(key, () -> {
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                                                     .timeout(timeout)
+                                                     .header("Content-Type", contentType)
+                                                     .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            if (accept != null) {
+                request.header("Accept", accept);
+            }
+
+            return send(request.build(), body).thenApply(response -> {
+                checkStatus(response);
+                return toResult(response, false);
+            });
+        });
+    }
+
+    /**
+     * Download content into a file, bypassing the cache. Meant for large
+     * content that is cached elsewhere, such as CRLs.
+     *
+     * @param uri     HTTP(S) URI
+     * @param file    File to write to, replaced if it exists
+     * @param timeout Timeout until the response headers are received
+     * @return Future of the file; fails with an IOException if the request
+     *         fails or the response status is not 2xx
+     */
+    public CompletableFuture<Path> download(URI uri, Path file, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+
+        return selectSocksProxy(uri).thenCompose(socksProxy -> {
+            if (socksProxy == null) {
+                return client.sendAsync(request, HttpResponse.BodyHandlers.ofFile(file, StandardOpenOption.CREATE,
+                                                                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                                                                  StandardOpenOption.WRITE));
+            }
+            return CompletableFuture.supplyAsync(() -> sendViaProxy(request, null, file, socksProxy), executor);
+        }).thenApply(response -> {
+            checkStatus(response);
+            return response.body();
+        });
+    }
+
+    /**
+     * Wait for a fetch to complete. On the event dispatch thread an application
+     * modal progress dialog is shown while waiting, so the UI is repainted but
+     * takes no input that could start another action, and the user can cancel.
+     *
+     * @param future Future of a fetch
+     * @param <T>    Result type
+     * @return Result of the fetch
+     * @throws IOException If the fetch failed or was cancelled or the waiting thread was interrupted
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        if (!future.isDone() && !GraphicsEnvironment.isHeadless() && EventQueue.isDispatchThread()) {
+            DFetching dFetching = new DFetching(
+                    KeyboardFocusManager.getCurrentKeyboardFocusManager().getActiveWindow(), future);
+            dFetching.setLocationRelativeTo(dFetching.getOwner());
+            dFetching.setVisible(true);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (CancellationException ex) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException ex) {
+            throw toIOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Clear the HTTP cache.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Get the number of GET requests that were answered from the cache
+     * without contacting the server.
+     *
+     * @return Number of cache hits
+     */
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * Get the number of GET requests that needed the server.
+     *
+     * @return Number of cache misses
+     */
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, byte[] body) {
+        return selectSocksProxy(request.uri()).thenCompose(socksProxy -> {
+            if (socksProxy == null) {
+                return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+            }
+            return CompletableFuture.supplyAsync(() -> sendViaProxy(request, body, null, socksProxy), executor);
+        });
+    }
+
+    private CompletableFuture<Proxy> selectSocksProxy(URI uri) {
+        if (proxySelector == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // selecting may load a PAC script, so not on the caller's thread
+        return CompletableFuture.supplyAsync(() -> {
+            List<Proxy> proxies = proxySelector.select(uri);
+
+            // like the HTTP client, only the first proxy is used
+            if (proxies == null || proxies.isEmpty() || proxies.get(0).type() != Proxy.Type.SOCKS) {
+                return null;
+            }
+            return proxies.get(0);
+        }, executor);
+    }
+
+    /**
+     * Send a request through a proxy the HTTP client does not support. The
+     * response body is only read for a 2xx status, into the file if there is
+     * one and into a byte array otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> HttpResponse<T> sendViaProxy(HttpRequest request, byte[] body, Path file, Proxy proxy) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) request.uri().toURL().openConnection(proxy);
+            try {
+                if (sslContext != null && connection instanceof HttpsURLConnection) {
+                    ((HttpsURLConnection) connection).setSSLSocketFactory(sslContext.getSocketFactory());
+                }
+                connection.setConnectTimeout((int) CONNECT_TIMEOUT.toMillis());
+                connection.setReadTimeout((int) request.timeout().orElse(DEFAULT_TIMEOUT).toMillis());
+                connection.setUseCaches(false);
+                connection.setRequestMethod(request.method());
+                request.headers().map().forEach(
+                        (name, values) -> values.forEach(value -> connection.addRequestProperty(name, value)));
+
+                if (body != null) {
+                    connection.setDoOutput(true);
+                    try (OutputStream os = connection.getOutputStream()) {
+                        os.write(body);
+                    }
+                }
+
+                int status = connection.getResponseCode();
+                Object responseBody = file;
+                if (status >= 200 && status <= 299) {
+                    try (InputStream is = connection.getInputStream()) {
+                        if (file != null) {
+                            Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+                        } else {
+                            responseBody = is.readAllBytes();
+                        }
+                    }
+                } else if (file == null) {
+                    responseBody = new byte[0];
+                }
+
+                Map<String, List<String>> headers = new HashMap<>();
+                connection.getHeaderFields().forEach((name, values) -> {
+                    // the status line is returned with a null name
+                    if (name != null) {
+                        headers.put(name, values);
+                    }
+                });
+
+                return new UrlConnectionResponse<>(request, status, HttpHeaders.of(headers, (name, value) -> true),
+                                                   connection.getURL().toURI(), (T) responseBody);
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException | URISyntaxException ex) {
+            throw new CompletionException(toIOException(ex));
+        }
+    }
+
+    private CompletableFuture<FetchResult> deduplicate(String key, Supplier<CompletableFuture<FetchResult>> send) {
+        CompletableFuture<FetchResult> shared = new CompletableFuture<>();
+        CompletableFuture<FetchResult> existing = inFlight.putIfAbsent(key, shared);
+
+        if (existing != null) {
+            return existing.copy();
+        }
+
+        send.get().whenComplete((result, ex) -> {
+            // removed first, so that requests after completion are sent again
+            inFlight.remove(key, shared);
+            if (ex != null) {
+                shared.completeExceptionally(toIOException(ex));
+            } else {
+                shared.complete(result);
+            }
+        });
+
+        // callers get copies, so that one caller cancelling does not affect the others
+        return shared.copy();
+    }
+
+    private static void checkStatus(HttpResponse<?> response) {
+        int status = response.statusCode();
+        if (status < 200 || status > 299) {
+            throw new CompletionException(new IOException(
+                    MessageFormat.format(res.getString("HttpStatus.exception.message"), response.uri(), status)));
+        }
+    }
+
+    private static FetchResult toResult(HttpResponse<byte[]> response, boolean fromCache) {
+        HttpHeaders headers = response.headers();
+        return new FetchResult(response.uri(), response.body(), headers.firstValue("Content-Type").orElse(null),
+                               headers.firstValue("Content-Encoding").orElse(null), fromCache);
+    }
+
+    private static FetchResult toResult(URI uri, HttpCache.Entry entry) {
+        return new FetchResult(uri, entry.body, entry.contentType, entry.contentEncoding, true);
+    }
+
+    /**
+     * Get the I/O exception behind the failure of a fetch, for callers that
+     * handle the completion of a fetch themselves instead of awaiting it.
+     *
+     * @param ex Exception the fetch was completed with
+     * @return Underlying I/O exception
+     */
+    public static IOException toIOException(Throwable ex) {
+        while ((ex instanceof CompletionException || ex instanceof ExecutionException) && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        if (ex instanceof IOException) {
+            return (IOException) ex;
+        }
+        return new IOException(ex.getMessage(), ex);
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Response to a request sent with a URL connection.
+     */
+    private static class UrlConnectionResponse<T> implements HttpResponse<T> {
+        private final HttpRequest request;
+        private final int statusCode;
+        private final HttpHeaders headers;
+        private final URI uri;
+        private final T body;
+
+        UrlConnectionResponse(HttpRequest request, int statusCode, HttpHeaders headers, URI uri, T body) {
+            this.request = request;
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.uri = uri;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<T>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return headers;
+        }
+
+        @Override
+        public T body() {
+            return body;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return uri;
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+
+    /**
+     * Delegates to the current default proxy selector, which is replaced when
+     * the proxy settings change.
+     */
+    private static class DefaultProxySelector extends ProxySelector {
+        @Override
+        public List<Proxy> select(URI uri) {
+            ProxySelector proxySelector = ProxySelector.getDefault();
+            if (proxySelector == null) {
+                return List.of(Proxy.NO_PROXY);
+            }
+            return proxySelector.select(uri);
+        }
+
+        @Override
+        public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            ProxySelector proxySelector = ProxySelector.getDefault();
+            if (proxySelector != null) {
+                proxySelector.connectFailed(uri, sa, ioe);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe in-memory cache with a maximum number of entries and an
+ * optional time to live. Once full, the least recently used entry is
+ * evicted. Expired entries count as misses and are removed on access.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+class LruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private long hits;
+    private long misses;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class Entry<V> {
+        final V value;
+        final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Construct cache.
+     *
+     * @param maxEntries Maximum number of entries
+     * @param ttlMillis  Default time to live of an entry, 0 for entries that do not expire
+     */
+    LruCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get a cached value.
+     *
+     * @param key Key
+     * @param now Current time in millis
+     * @return Value or null if there is no fresh entry for the key
+     */
+    synchronized V get(K key, long now) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now >= entry.expires) {
+            entries.remove(key);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Store a value with the default time to live.
+     *
+     * @param key   Key
+     * @param value Value
+     * @param now   Current time in millis
+     */
+    synchronized void put(K key, V value, long now) {
+        put(key, value, now, ttlMillis);
+    }
+
+    /**
+     * Store a value.
+     *
+     * @param key       Key
+     * @param value     Value
+     * @param now       Current time in millis
+     * @param ttlMillis Time to live, 0 for an entry that does not expire
+     */
+    synchronized void put(K key, V value, long now, long ttlMillis) {
+        entries.put(key, new Entry<>(value, ttlMillis > 0 ? now + ttlMillis : Long.MAX_VALUE));
+
+        Iterator<Map.Entry<K, Entry<V>>> itr = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && itr.hasNext()) {
+            itr.next();
+            itr.remove();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name resolution for the PAC helper functions.
+ * <p>
+ * Results of host lookups are cached with separate time to live values for resolved and unresolvable hosts. The
+ * address of the local machine is kept as a snapshot that is refreshed periodically by a background thread. With
+ * prefetch enabled, the same thread resolves hosts again that were looked up since its last run, so hosts used
+ * regularly by the PAC script never expire and evaluations do not wait for the resolver.
+ * </p>
+ */
+final class PacDnsCache {
+
+    static final long POSITIVE_TTL_MILLIS = 60 * 1000L;
+    static final long NEGATIVE_TTL_MILLIS = 10 * 1000L;
+    static final long REFRESH_INTERVAL_MILLIS = 30 * 1000L;
+
+    private static final int MAX_ENTRIES = 1024;
+
+    /**
+     * Resolves a host name, an empty host name stands for the local machine.
+     */
+    interface Lookup {
+        String lookup(String host) throws UnknownHostException;
+    }
+
+    private final Lookup lookup;
+    private final boolean prefetch;
+    private final LruCache<String, String> cache = new LruCache<>(MAX_ENTRIES, POSITIVE_TTL_MILLIS);
+    private final Set<String> recentHosts = ConcurrentHashMap.newKeySet();
+
+    private volatile String localAddress;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Construct a cache that uses the system resolver.
+     *
+     * @param prefetch Resolve hosts again in the background before their entries expire
+     */
+    PacDnsCache(boolean prefetch) {
+        this(host -> host.isEmpty() ? InetAddress.getLocalHost().getHostAddress()
+                                    : InetAddress.getByName(host).getHostAddress(), prefetch);
+    }
+
+    /**
+     * Construct a cache.
+     *
+     * @param lookup   Resolver to use
+     * @param prefetch Resolve hosts again in the background before their entries expire
+     */
+    PacDnsCache(Lookup lookup, boolean prefetch) {
+        this.lookup = lookup;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Resolve a host name.
+     *
+     * @param host Host name
+     * @param now  Current time in millis
+     * @return IP address or an empty string if the host is not resolvable
+     */
+    String resolve(String host, long now) {
+        String key = host.toLowerCase(Locale.ROOT);
+
+        String address = cache.get(key, now);
+        if (address == null) {
+            address = lookup(key);
+            store(key, address, now);
+        }
+
+        if (prefetch && !address.isEmpty()) {
+            recentHosts.add(key);
+            startRefresh();
+        }
+        return address;
+    }
+
+    /**
+     * Get the IP address of the local machine.
+     *
+     * @return IP address or an empty string if it cannot be determined
+     */
+    String getLocalAddress() {
+        String address = localAddress;
+        if (address == null) {
+            address = lookup("");
+            localAddress = address;
+            startRefresh();
+        }
+        return address;
+    }
+
+    /**
+     * Refresh the local address snapshot and prefetch all hosts that were resolved since the last refresh.
+     *
+     * @param now Current time in millis
+     */
+    void refresh(long now) {
+        localAddress = lookup("");
+
+        List<String> hosts = new ArrayList<>(recentHosts);
+        recentHosts.removeAll(hosts);
+        for (String host : hosts) {
+            store(host, lookup(host), now);
+        }
+    }
+
+    private String lookup(String host) {
+        try {
+            return lookup.lookup(host);
+        } catch (UnknownHostException e) {
+            return "";
+        }
+    }
+
+    private void store(String host, String address, long now) {
+        cache.put(host, address, now, address.isEmpty() ? NEGATIVE_TTL_MILLIS : POSITIVE_TTL_MILLIS);
+    }
+
+    private synchronized void startRefresh() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PacDnsCache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> refresh(System.currentTimeMillis()), REFRESH_INTERVAL_MILLIS,
+                                         REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -1,7 +1,5 @@
 package org.kse.utilities.net;
 
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.time.Clock;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -30,6 +28,12 @@ public class PacHelperFunctions {
     static final List<String> MONTHS = Arrays.asList("JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP",
             "OCT", "NOV", "DEC");
 
+    // PAC scripts use a small, fixed set of patterns, so compiled matchers are shared by all evaluations
+    private static final int MAX_GLOB_CACHE_ENTRIES = 1024;
+    private static final LruCache<String, GlobMatcher> GLOB_CACHE = new LruCache<>(MAX_GLOB_CACHE_ENTRIES, 0);
+
+    private static final PacDnsCache DNS_CACHE = new PacDnsCache(true);
+
     private PacHelperFunctions() {
         // hide default c-tor
     }
@@ -77,6 +81,7 @@ public class PacHelperFunctions {
 
     /**
      * Resolves the given DNS hostname into an IPv4 address, and returns it in the dot separated format as a string.
+     * Results are cached for a short time, unresolvable hosts for a shorter one.
      *
      * @param host A host name
      * @return The resolved IPv4 address for the given hostname or an empty string if an error has occurred
@@ -85,21 +90,17 @@ public class PacHelperFunctions {
         if (StringUtils.isBlank(host)) {
             return "";
         }
-        try {
-            return InetAddress.getByName(host).getHostAddress();
-        } catch (UnknownHostException e) {
-            return "";
-        }
+        return DNS_CACHE.resolve(host, System.currentTimeMillis());
     }
 
     /**
      * Returns the IPv4 address of the host that the application is running on,
-     * as a string in the dot-separated integer format.
+     * as a string in the dot-separated integer format. The address is refreshed periodically in the background.
      *
      * @return IPv4 address of local machine or an empty string if an error has occurred
      */
     public static String myIpAddress() {
-        return IpAddress.getIpAddress();
+        return DNS_CACHE.getLocalAddress();
     }
 
     /**
@@ -168,29 +169,13 @@ public class PacHelperFunctions {
      * @return True, if url matches the pattern
      */
     public static boolean shExpMatch(String url, String pattern) {
-        StringBuilder sb = new StringBuilder("^");
-        for (int i = 0; i < pattern.length(); ++i) {
-            switch (pattern.charAt(i)) {
-            case '.':
-                sb.append("\\.");
-                break;
-            case '*':
-                sb.append(".*");
-                break;
-            case '?':
-                sb.append('.');
-                break;
-            default:
-                sb.append(pattern.charAt(i));
-            }
-        }
-        String regex = sb.append('$').toString();
-
-        if (url == null) {
-            return "".matches(regex);
+        GlobMatcher matcher = GLOB_CACHE.get(pattern, 0);
+        if (matcher == null) {
+            matcher = GlobMatcher.compile(pattern);
+            GLOB_CACHE.put(pattern, matcher, 0);
         }
 
-        return url.matches(regex);
+        return matcher.matches(url == null ? "" : url);
     }
 
     /**
@@ -24,25 +24,27 @@ import static java.util.Collections.singletonList;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
-import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.ProxySelector;
 import java.net.SocketAddress;
 import java.net.URI;
-import java.net.URL;
-import java.net.URLConnection;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.script.Invocable;
 import javax.script.ScriptEngine;
@@ -56,13 +58,49 @@ import org.openjdk.nashorn.api.scripting.NashornScriptEngineFactory;
 
 /**
  * Proxy Selector for Proxy Automatic Configuration (PAC).
+ * <p>
+ * The selector is thread-safe. The script is compiled once, and as the script
+ * engine is not thread-safe, calls into the script are serialised. Results are
+ * kept in a bounded cache with a time to live. If FindProxyForURL never looks
+ * at its url argument, results are cached per scheme, host and port, otherwise
+ * per URL.
+ * </p>
+ * <p>
+ * Loading and compiling a script takes seconds, so {@link #preload()} starts it on a background thread and
+ * select calls made in the meantime wait for it. Compiled scripts are shared by all selectors for the same URL
+ * that are created within an hour. {@link #reload()} drops the compiled script, so that an edited script at the
+ * same URL is picked up when the proxy settings are applied again.
+ * </p>
  */
 public class PacProxySelector extends ProxySelector {
     private static final ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/net/resources");
 
-    private Invocable pacScript;
+    private static final int MAX_CACHE_ENTRIES = 512;
+    private static final long CACHE_TTL_MILLIS = 5 * 60 * 1000L;
+    private static final long SCRIPT_REUSE_MILLIS = 60 * 60 * 1000L;
+
+    private static final Pattern FUNCTION_PARAMETER = Pattern.compile("function\\s*\\w*\\s*\\(\\s*(\\w+)");
+
+    private static final ConcurrentHashMap<URI, CompletableFuture<CompiledPacScript>> compiledScripts =
+            new ConcurrentHashMap<>();
+
+    private volatile CompiledPacScript pacScript;
     private final URI pacURI;
-    private final Map<URI, List<Proxy>> uriToProxiesCache = new HashMap<>();
+    private final LruCache<String, List<Proxy>> proxiesCache = new LruCache<>(MAX_CACHE_ENTRIES, CACHE_TTL_MILLIS);
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong evaluationNanos = new AtomicLong();
+
+    private static class CompiledPacScript {
+        final Invocable invocable;
+        final boolean usesUrl;
+        final long compiled = System.currentTimeMillis();
+
+        CompiledPacScript(Invocable invocable, boolean usesUrl) {
+            this.invocable = invocable;
+            this.usesUrl = usesUrl;
+        }
+    }
 
     /**
      * Class filter to restrict access to JRE from PAC script
@@ -87,7 +125,29 @@ public class PacProxySelector extends ProxySelector {
 
         this.pacURI = pacURI;
 
-        // As load and compile of pac scripts is time-consuming we do this on first call to select
+        // As load and compile of pac scripts is time-consuming we do this on preload or first call to select
+    }
+
+    /**
+     * Start loading and compiling the PAC script in the background, unless a compiled
+     * script for the same URL is available already.
+     */
+    public void preload() {
+        getPacScriptFuture();
+    }
+
+    /**
+     * Drop the compiled script for this selector's URL and the cached results, and start loading and
+     * compiling the script again in the background.
+     */
+    public void reload() {
+        pacScript = null;
+        proxiesCache.clear();
+
+        // installed before the load starts, so that a failing load can remove it again
+        CompletableFuture<CompiledPacScript> future = new CompletableFuture<>();
+        compiledScripts.put(pacURI, future);
+        loadInBackground(pacURI, future);
     }
 
     /**
@@ -98,26 +158,37 @@ public class PacProxySelector extends ProxySelector {
      */
     @Override
     public List<Proxy> select(URI uri) {
-        if (pacScript == null) {
-            try {
-                pacScript = compilePacScript(loadPacScript(pacURI));
-            } catch (PacProxyException ex) {
-                ex.printStackTrace();
-                return singletonList(Proxy.NO_PROXY);
-            }
+        CompiledPacScript script;
+        try {
+            script = getPacScript();
+        } catch (PacProxyException ex) {
+            ex.printStackTrace();
+            return singletonList(Proxy.NO_PROXY);
         }
 
-        if (uriToProxiesCache.containsKey(uri)) {
-            return uriToProxiesCache.get(uri);
+        String cacheKey = script.usesUrl || uri.getHost() == null ? uri.toString() : hostKey(uri);
+        long now = System.currentTimeMillis();
+
+        List<Proxy> cachedProxies = proxiesCache.get(cacheKey, now);
+        if (cachedProxies != null) {
+            return cachedProxies;
         }
 
         String pacFunctionReturn = null;
 
+        long start = System.nanoTime();
         try {
-            pacFunctionReturn = (String) pacScript.invokeFunction("FindProxyForURL", uri.toString(), uri.getHost());
+            // the script engine is not thread-safe
+            synchronized (script.invocable) {
+                pacFunctionReturn = (String) script.invocable.invokeFunction("FindProxyForURL", uri.toString(),
+                                                                             uri.getHost());
+            }
         } catch (Exception ex) {
             ex.printStackTrace();
             return singletonList(Proxy.NO_PROXY);
+        } finally {
+            evaluations.incrementAndGet();
+            evaluationNanos.addAndGet(System.nanoTime() - start);
         }
 
         if (pacFunctionReturn == null) {
@@ -130,43 +201,146 @@ public class PacProxySelector extends ProxySelector {
             proxies.add(Proxy.NO_PROXY);
         }
 
-        uriToProxiesCache.put(uri, proxies);
+        proxies = Collections.unmodifiableList(proxies);
+        proxiesCache.put(cacheKey, proxies, now);
 
         return proxies;
     }
 
-    private String loadPacScript(URI pacURI) throws PacProxyException {
-        URLConnection connection = null;
+    private CompiledPacScript getPacScript() throws PacProxyException {
+        CompiledPacScript script = pacScript;
+        if (script != null) {
+            return script;
+        }
 
-        // Save existing default proxy selector...
-        ProxySelector defaultProxySelector = ProxySelector.getDefault();
+        try {
+            pacScript = getPacScriptFuture().get();
+            return pacScript;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PacProxyException(
+                    MessageFormat.format(res.getString("NoLoadPacScript.exception.message"), pacURI), ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof PacProxyException) {
+                throw (PacProxyException) ex.getCause();
+            }
+            throw new PacProxyException(res.getString("NoCompilePacScript.exception.message"), ex.getCause());
+        }
+    }
 
+    private CompletableFuture<CompiledPacScript> getPacScriptFuture() {
+        CompletableFuture<CompiledPacScript> created = new CompletableFuture<>();
+        CompletableFuture<CompiledPacScript> future = compiledScripts.compute(pacURI, (uri, existing) -> {
+            if (existing == null || isOutdated(existing)) {
+                return created;
+            }
+            return existing;
+        });
+
+        if (future == created) {
+            loadInBackground(pacURI, created);
+        }
+        return future;
+    }
+
+    private static boolean isOutdated(CompletableFuture<CompiledPacScript> future) {
+        if (future.isCompletedExceptionally()) {
+            return true;
+        }
+        CompiledPacScript script = future.getNow(null);
+        return script != null && System.currentTimeMillis() - script.compiled > SCRIPT_REUSE_MILLIS;
+    }
+
+    private static void loadInBackground(URI pacURI, CompletableFuture<CompiledPacScript> future) {
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(compilePacScript(loadPacScript(pacURI)));
+            } catch (Throwable ex) {
+                // a failed attempt is repeated on the next call, the waiting callers get the error
+                compiledScripts.remove(pacURI, future);
+                future.completeExceptionally(ex);
+            }
+        }, "PacProxySelector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static String hostKey(URI uri) {
+        String key = uri.getScheme() + "://" + uri.getHost().toLowerCase();
+        return uri.getPort() == -1 ? key : key + ":" + uri.getPort();
+    }
+
+    /**
+     * Get the number of select calls answered from the cache.
+     *
+     * @return Cache hits
+     */
+    public long getCacheHits() {
+        return proxiesCache.getHits();
+    }
+
+    /**
+     * Get the number of select calls that were not answered from the cache.
+     *
+     * @return Cache misses
+     */
+    public long getCacheMisses() {
+        return proxiesCache.getMisses();
+    }
+
+    /**
+     * Get the share of select calls answered from the cache.
+     *
+     * @return Hit ratio between 0 and 1
+     */
+    public double getCacheHitRatio() {
+        long hits = getCacheHits();
+        long total = hits + getCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Get the number of calls into the PAC script.
+     *
+     * @return Number of FindProxyForURL evaluations
+     */
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * Get the average time of a call into the PAC script, including the wait for the script engine.
+     *
+     * @return Average evaluation time in nanoseconds, 0 if there was none yet
+     */
+    public long getAverageEvaluationNanos() {
+        long count = evaluations.get();
+        return count == 0 ? 0 : evaluationNanos.get() / count;
+    }
+
+    private static String loadPacScript(URI pacURI) throws PacProxyException {
         try {
-            // ...and set use of no proxy selector. We don't want to try and use any proxy to get the pac script
-            ProxySelector.setDefault(new NoProxySelector());
+            String scheme = pacURI.getScheme();
 
-            URL latestVersionUrl = pacURI.toURL();
-            connection = latestVersionUrl.openConnection();
+            // We don't want to try and use any proxy to get the pac script
+            if ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) {
+                FetchResult result = HttpFetcher.await(
+                        HttpFetcher.getDirectInstance().get(pacURI, HttpFetcher.DEFAULT_TIMEOUT));
+                return new String(result.getBody());
+            }
 
-            try (InputStreamReader isr = new InputStreamReader(connection.getInputStream());
+            try (InputStreamReader isr = new InputStreamReader(pacURI.toURL().openStream());
                  StringWriter sw = new StringWriter()) {
                 IOUtils.copy(isr, sw);
                 return sw.toString();
             }
-        } catch (IOException ex) {
+        } catch (IOException | IllegalArgumentException ex) {
             throw new PacProxyException(
                     MessageFormat.format(res.getString("NoLoadPacScript.exception.message"), pacURI), ex);
-        } finally {
-            // Restore saved default proxy selector
-            ProxySelector.setDefault(defaultProxySelector);
-
-            if ((connection instanceof HttpURLConnection)) {
-                ((HttpURLConnection) connection).disconnect();
-            }
         }
     }
 
-    private Invocable compilePacScript(String pacScript) throws PacProxyException {
+    private static CompiledPacScript compilePacScript(String pacScript) throws PacProxyException {
         // Nashorn was removed in Java 15, the standalone Nashorn uses different packages and is compiled for Java 11
         NashornScriptEngineFactory nashornScriptEngineFactory = new NashornScriptEngineFactory();
         ScriptEngine jsEngine = nashornScriptEngineFactory.getScriptEngine(new PacClassFilter());
@@ -193,12 +367,30 @@ public class PacProxySelector extends ProxySelector {
 
             jsEngine.eval(pacScript);
 
-            return (Invocable) jsEngine;
+            Object source = jsEngine.eval(
+                    "typeof FindProxyForURL == 'function' ? String(FindProxyForURL) : null");
+
+            return new CompiledPacScript((Invocable) jsEngine, !(source instanceof String) || usesUrl((String) source));
         } catch (ScriptException ex) {
             throw new PacProxyException(res.getString("NoCompilePacScript.exception.message"), ex);
         }
     }
 
+    /**
+     * Does the source of FindProxyForURL refer to its first parameter? If it
+     * cannot be told, it is assumed that it does.
+     */
+    static boolean usesUrl(String functionSource) {
+        Matcher matcher = FUNCTION_PARAMETER.matcher(functionSource);
+        int bodyStart = functionSource.indexOf('{');
+        if (!matcher.find() || bodyStart < 0) {
+            return true;
+        }
+
+        String body = functionSource.substring(bodyStart);
+        return Pattern.compile("\\b(" + matcher.group(1) + "|arguments|eval)\\b").matcher(body).find();
+    }
+
     private List<Proxy> parsePacProxies(String pacFunctionReturn) {
         ArrayList<Proxy> proxies = new ArrayList<>();
 
@@ -52,7 +52,9 @@ public class ProxySettingsUpdater {
             String pacUrl = proxySettings.getPacUrl();
             if (pacUrl != null) {
                 try {
-                    ProxySelector.setDefault(new PacProxySelector(new URI(pacUrl)));
+                    PacProxySelector pacProxySelector = new PacProxySelector(new URI(pacUrl));
+                    pacProxySelector.preload();
+                    ProxySelector.setDefault(pacProxySelector);
                 } catch (URISyntaxException e) {
                     DError.displayError(new JFrame(), e);
                     ProxySelector.setDefault(new NoProxySelector());
@@ -34,8 +34,16 @@ public class RetrieveSslInfosHandshakeListener implements HandshakeCompletedList
 
     @Override
     public void handshakeCompleted(HandshakeCompletedEvent event) {
+        sessionEstablished(event.getSession());
+    }
 
-        SSLSession session = event.getSession();
+    /**
+     * Retrieve the SSL infos from an established session. Can be called directly
+     * after a synchronous handshake instead of registering this listener.
+     *
+     * @param session Session of the completed handshake
+     */
+    public void sessionEstablished(SSLSession session) {
         sslConnectionInfos.setPeerHost(session.getPeerHost());
         sslConnectionInfos.setPeerPort(session.getPeerPort());
         sslConnectionInfos.setProtocol(session.getProtocol());
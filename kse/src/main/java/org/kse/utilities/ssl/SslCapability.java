@@ -0,0 +1,101 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+/**
+ * Result of probing an SSL endpoint for one protocol version, cipher suite
+ * or named group.
+ */
+public class SslCapability {
+
+    /**
+     * What was probed.
+     */
+    public enum Kind {
+        PROTOCOL,
+        CIPHER_SUITE,
+        NAMED_GROUP
+    }
+
+    /**
+     * Outcome of the probe.
+     */
+    public enum Status {
+        /** The handshake succeeded */
+        SUPPORTED,
+        /** The server rejected the handshake */
+        NOT_SUPPORTED,
+        /** This Java runtime cannot offer the protocol, suite or group */
+        NOT_TESTABLE,
+        /** The connection failed for another reason, e.g. a timeout */
+        ERROR
+    }
+
+    private final Kind kind;
+    private final String protocol;
+    private final String name;
+    private final Status status;
+    private final String details;
+    private final long durationMillis;
+
+    /**
+     * Construct capability.
+     *
+     * @param kind           What was probed
+     * @param protocol       Protocol version of the handshake
+     * @param name           Protocol, cipher suite or named group
+     * @param status         Outcome
+     * @param details        Negotiated cipher suite or error message, may be null
+     * @param durationMillis Duration of the probe
+     */
+    public SslCapability(Kind kind, String protocol, String name, Status status, String details,
+                         long durationMillis) {
+        this.kind = kind;
+        this.protocol = protocol;
+        this.name = name;
+        this.status = status;
+        this.details = details;
+        this.durationMillis = durationMillis;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.jr.ob.JSON;
+
+/**
+ * Writes the capabilities of an SSL endpoint as CSV (RFC 4180) or JSON.
+ */
+public class SslCapabilityReport {
+
+    private static final String[] COLUMNS = { "type", "protocol", "name", "status", "details", "timeMs" };
+
+    private SslCapabilityReport() {
+    }
+
+    /**
+     * Write capabilities as CSV with a header line.
+     *
+     * @param capabilities Probe results
+     * @param writer       Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeCsv(List<SslCapability> capabilities, Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        for (SslCapability capability : capabilities) {
+            Object[] values = values(capability);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(SslScanReport.csvField(values[i] == null ? null : values[i].toString()));
+            }
+            writer.write("\r\n");
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Write capabilities as a JSON object with the endpoint, the total scan
+     * time and an array of the probe results.
+     *
+     * @param host         Endpoint host
+     * @param port         Endpoint port
+     * @param totalMillis  Total scan time
+     * @param capabilities Probe results
+     * @param writer       Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeJson(String host, int port, long totalMillis, List<SslCapability> capabilities,
+                                 Writer writer) throws IOException {
+        List<Map<String, Object>> entries = new ArrayList<>(capabilities.size());
+
+        for (SslCapability capability : capabilities) {
+            Object[] values = values(capability);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                entry.put(COLUMNS[i], values[i]);
+            }
+            entries.add(entry);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("host", host);
+        report.put("port", port);
+        report.put("totalMs", totalMillis);
+        report.put("capabilities", entries);
+
+        JSON.std.with(JSON.Feature.PRETTY_PRINT_OUTPUT).with(JSON.Feature.WRITE_NULL_PROPERTIES).write(report, writer);
+        writer.flush();
+    }
+
+    private static Object[] values(SslCapability capability) {
+        return new Object[] { capability.getKind().name(), capability.getProtocol(), capability.getName(),
+                              capability.getStatus().name(), capability.getDetails(),
+                              capability.getDurationMillis() };
+    }
+}
@@ -20,6 +20,8 @@
 package org.kse.utilities.ssl;
 
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Data transfer class for SSL infos.
@@ -33,6 +35,9 @@ public class SslConnectionInfos {
     boolean sniEnabled;
     X509Certificate[] serverCertificates;
     X509Certificate[] clientCertificates;
+    byte[] stapledOcspResponse;
+    List<SslConnectionPhase> phases = new ArrayList<>();
+    long totalNanos;
 
     public String getPeerHost() {
         return peerHost;
@@ -89,4 +94,53 @@ public class SslConnectionInfos {
     public void setClientCertificates(X509Certificate[] clientCertificates) {
         this.clientCertificates = clientCertificates;
     }
+
+    /**
+     * Get the OCSP response the server stapled to its certificate.
+     *
+     * @return DER encoded OCSP response or null if none was stapled
+     */
+    public byte[] getStapledOcspResponse() {
+        return stapledOcspResponse;
+    }
+
+    public void setStapledOcspResponse(byte[] stapledOcspResponse) {
+        this.stapledOcspResponse = stapledOcspResponse;
+    }
+
+    /**
+     * Get the timings of the connection phases, including those of a retry without SNI.
+     *
+     * @return Phases in the order they happened
+     */
+    public List<SslConnectionPhase> getPhases() {
+        return phases;
+    }
+
+    public void setPhases(List<SslConnectionPhase> phases) {
+        this.phases = phases;
+    }
+
+    /**
+     * Get the total time of all phases of a type.
+     *
+     * @param type Phase
+     * @return Time in nanoseconds
+     */
+    public long getPhaseNanos(SslConnectionPhase.Type type) {
+        return phases.stream().filter(p -> p.getType() == type).mapToLong(SslConnectionPhase::getDurationNanos).sum();
+    }
+
+    /**
+     * Get the total time of the examination.
+     *
+     * @return Time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+/**
+ * Timing of one phase of an SSL connection.
+ */
+public class SslConnectionPhase {
+
+    /**
+     * Phases of an SSL connection.
+     */
+    public enum Type {
+        /** Host name resolution */
+        DNS_LOOKUP,
+        /** TCP connection to the host or the proxy */
+        TCP_CONNECT,
+        /** CONNECT request to an HTTP proxy */
+        PROXY_TUNNEL,
+        /** Handshake until the server certificate (and a stapled OCSP response) was received */
+        SERVER_CERTIFICATE,
+        /** Rest of the handshake after the server certificate */
+        HANDSHAKE_COMPLETION,
+        /** Wait for a rejection of the client certificate after a TLS 1.3 handshake */
+        CLIENT_AUTH_CHECK
+    }
+
+    private final Type type;
+    private final boolean sniFallback;
+    private final long startNanos;
+    private final long durationNanos;
+    private final boolean failed;
+
+    /**
+     * Construct phase.
+     *
+     * @param type          Phase
+     * @param sniFallback   True if the phase belongs to the retry without SNI
+     * @param startNanos    Start relative to the start of the examination
+     * @param durationNanos Duration
+     * @param failed        True if the connection failed in this phase
+     */
+    public SslConnectionPhase(Type type, boolean sniFallback, long startNanos, long durationNanos, boolean failed) {
+        this.type = type;
+        this.sniFallback = sniFallback;
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.failed = failed;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isSniFallback() {
+        return sniFallback;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
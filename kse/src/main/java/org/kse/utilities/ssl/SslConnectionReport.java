@@ -0,0 +1,113 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.jr.ob.JSON;
+
+/**
+ * Writes the phase timings of an SSL connection as CSV (RFC 4180) or JSON.
+ */
+public class SslConnectionReport {
+
+    private static final String[] COLUMNS = { "phase", "sniFallback", "startMs", "durationMs", "failed" };
+
+    private SslConnectionReport() {
+    }
+
+    /**
+     * Write the phases as CSV with a header line.
+     *
+     * @param sslInfos SSL infos
+     * @param writer   Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeCsv(SslConnectionInfos sslInfos, Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        for (SslConnectionPhase phase : sslInfos.getPhases()) {
+            Object[] values = values(phase);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(SslScanReport.csvField(values[i].toString()));
+            }
+            writer.write("\r\n");
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Write the connection parameters and phases as a JSON object.
+     *
+     * @param sslInfos SSL infos
+     * @param writer   Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeJson(SslConnectionInfos sslInfos, Writer writer) throws IOException {
+        List<Map<String, Object>> phases = new ArrayList<>();
+
+        for (SslConnectionPhase phase : sslInfos.getPhases()) {
+            Object[] values = values(phase);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                entry.put(COLUMNS[i], values[i]);
+            }
+            phases.add(entry);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("host", sslInfos.getPeerHost());
+        report.put("port", sslInfos.getPeerPort());
+        report.put("protocol", sslInfos.getProtocol());
+        report.put("cipherSuite", sslInfos.getCipherSuite());
+        report.put("sniEnabled", sslInfos.isSniEnabled());
+        report.put("ocspStapled", sslInfos.getStapledOcspResponse() != null);
+        report.put("totalMs", millis(sslInfos.getTotalNanos()));
+        report.put("phases", phases);
+
+        JSON.std.with(JSON.Feature.PRETTY_PRINT_OUTPUT).with(JSON.Feature.WRITE_NULL_PROPERTIES).write(report, writer);
+        writer.flush();
+    }
+
+    /**
+     * Convert nanoseconds to milliseconds with microsecond resolution.
+     *
+     * @param nanos Nanoseconds
+     * @return Milliseconds
+     */
+    public static double millis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    private static Object[] values(SslConnectionPhase phase) {
+        return new Object[] { phase.getType().name(), phase.isSniFallback(), millis(phase.getStartNanos()),
+                              millis(phase.getDurationNanos()), phase.isFailed() };
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.kse.crypto.CryptoException;
+
+/**
+ * Enumerates the protocol versions, cipher suites and named groups an SSL
+ * endpoint supports by doing one handshake per candidate. First every
+ * protocol version this runtime knows is tried, then every known cipher suite
+ * with each supported protocol and finally every named group with TLS 1.3.
+ * The handshakes of each step run concurrently, limited by the number of
+ * connections per host, and all share one SSL context that does not resume
+ * sessions.
+ * <p>
+ * The candidates include weak protocols and suites that the runtime has
+ * disabled, as those are what an audit looks for. They are reported as not
+ * testable unless the runtime's disabled algorithms allow them.
+ */
+public class SslEnumerator {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/ssl/resources");
+
+    public static final int DEFAULT_CONNECTIONS_PER_HOST = 8;
+
+    private static final String TLS13 = "TLSv1.3";
+
+    // weak suites that runtimes know by name, but neither support nor enable by default
+    private static final String[] LEGACY_CIPHER_SUITES = { "SSL_RSA_WITH_3DES_EDE_CBC_SHA",
+                                                           "SSL_DHE_RSA_WITH_3DES_EDE_CBC_SHA",
+                                                           "TLS_ECDHE_RSA_WITH_3DES_EDE_CBC_SHA",
+                                                           "TLS_ECDHE_ECDSA_WITH_3DES_EDE_CBC_SHA",
+                                                           "SSL_RSA_WITH_RC4_128_SHA", "SSL_RSA_WITH_RC4_128_MD5",
+                                                           "TLS_ECDHE_RSA_WITH_RC4_128_SHA",
+                                                           "TLS_ECDHE_ECDSA_WITH_RC4_128_SHA",
+                                                           "SSL_RSA_WITH_DES_CBC_SHA", "SSL_DHE_RSA_WITH_DES_CBC_SHA",
+                                                           "SSL_RSA_EXPORT_WITH_RC4_40_MD5",
+                                                           "SSL_RSA_EXPORT_WITH_DES40_CBC_SHA",
+                                                           "SSL_DHE_RSA_EXPORT_WITH_DES40_CBC_SHA",
+                                                           "SSL_RSA_WITH_NULL_MD5", "SSL_RSA_WITH_NULL_SHA",
+                                                           "TLS_RSA_WITH_NULL_SHA256", "TLS_ECDHE_RSA_WITH_NULL_SHA",
+                                                           "TLS_ECDHE_ECDSA_WITH_NULL_SHA",
+                                                           "SSL_DH_anon_WITH_RC4_128_MD5",
+                                                           "SSL_DH_anon_WITH_3DES_EDE_CBC_SHA",
+                                                           "TLS_DH_anon_WITH_AES_128_CBC_SHA",
+                                                           "TLS_DH_anon_WITH_AES_128_GCM_SHA256",
+                                                           "TLS_DH_anon_WITH_AES_256_GCM_SHA384",
+                                                           "TLS_ECDH_anon_WITH_AES_128_CBC_SHA" };
+
+    private static final String[] NAMED_GROUPS = { "x25519", "x448", "secp256r1", "secp384r1", "secp521r1",
+                                                   "ffdhe2048", "ffdhe3072", "ffdhe4096", "ffdhe6144",
+                                                   "ffdhe8192" };
+
+    // SSLParameters.setNamedGroups only exists since Java 20
+    private static final Method SET_NAMED_GROUPS = namedGroupsMethod();
+
+    private final int connectionsPerHost;
+    private final int timeoutMillis;
+    private final SSLSocketFactory factory;
+    private final String[] protocols;
+    private final String[] cipherSuites;
+
+    /**
+     * Construct enumerator.
+     *
+     * @param connectionsPerHost Maximum number of concurrent handshakes with the endpoint
+     * @param timeoutMillis      Timeout for connecting and for each read during a handshake
+     * @throws CryptoException If no TLS implementation is available
+     */
+    public SslEnumerator(int connectionsPerHost, int timeoutMillis) throws CryptoException {
+        this.connectionsPerHost = Math.max(1, connectionsPerHost);
+        this.timeoutMillis = timeoutMillis;
+
+        try {
+            SSLContext context = SslUtils.createProbingContext();
+            factory = context.getSocketFactory();
+            protocols = context.getSupportedSSLParameters().getProtocols();
+            cipherSuites = getKnownCipherSuites(context);
+        } catch (GeneralSecurityException ex) {
+            throw new CryptoException(res.getString("NoEnumerateSsl.exception.message"), ex);
+        }
+    }
+
+    private static String[] getKnownCipherSuites(SSLContext context) {
+        Set<String> suites = new LinkedHashSet<>(Arrays.asList(context.getSupportedSSLParameters().getCipherSuites()));
+
+        // only names the runtime accepts, any other would fail the protocol probes
+        SSLEngine engine = context.createSSLEngine();
+        for (String suite : LEGACY_CIPHER_SUITES) {
+            try {
+                engine.setEnabledCipherSuites(new String[] { suite });
+                suites.add(suite);
+            } catch (IllegalArgumentException ex) {
+                // unknown to this runtime
+            }
+        }
+
+        return suites.toArray(new String[0]);
+    }
+
+    /**
+     * Can this Java runtime restrict a handshake to one named group?
+     *
+     * @return True if named groups can be enumerated
+     */
+    public static boolean isNamedGroupEnumerationAvailable() {
+        return SET_NAMED_GROUPS != null;
+    }
+
+    /**
+     * Enumerate the capabilities of an endpoint. Blocks until all probes have
+     * finished. Can be cancelled by interrupting the calling thread.
+     *
+     * @param host     Endpoint host
+     * @param port     Endpoint port
+     * @param listener Receives each probe result as soon as it is available,
+     *                 called from the worker threads
+     * @throws InterruptedException If the calling thread was interrupted
+     */
+    public void enumerate(String host, int port, Consumer<SslCapability> listener) throws InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(connectionsPerHost, runnable -> {
+            Thread thread = new Thread(runnable, "SslEnumerator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // protocol versions, each with all its suites
+            List<Callable<SslCapability>> probes = new ArrayList<>();
+            for (String protocol : getProtocols()) {
+                String[] suites = getCipherSuites(protocol);
+                probes.add(() -> probe(SslCapability.Kind.PROTOCOL, host, port, protocol, suites, null, protocol));
+            }
+            List<SslCapability> protocols = run(executor, probes, listener);
+
+            List<String> supportedProtocols = new ArrayList<>();
+            for (SslCapability capability : protocols) {
+                if (capability.getStatus() == SslCapability.Status.SUPPORTED) {
+                    supportedProtocols.add(capability.getProtocol());
+                }
+            }
+
+            // cipher suites, for each supported protocol
+            probes.clear();
+            for (String protocol : supportedProtocols) {
+                for (String suite : getCipherSuites(protocol)) {
+                    probes.add(() -> probe(SslCapability.Kind.CIPHER_SUITE, host, port, protocol,
+                                           new String[] { suite }, null, suite));
+                }
+            }
+            run(executor, probes, listener);
+
+            // named groups, only TLS 1.3 guarantees that the group is actually used for the key exchange
+            probes.clear();
+            String[] tls13Suites = getCipherSuites(TLS13);
+            for (String group : NAMED_GROUPS) {
+                if (SET_NAMED_GROUPS == null || !supportedProtocols.contains(TLS13)) {
+                    listener.accept(new SslCapability(SslCapability.Kind.NAMED_GROUP, TLS13, group,
+                                                      SslCapability.Status.NOT_TESTABLE, null, 0));
+                } else {
+                    probes.add(() -> probe(SslCapability.Kind.NAMED_GROUP, host, port, TLS13, tls13Suites, group,
+                                           group));
+                }
+            }
+            run(executor, probes, listener);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<SslCapability> run(ExecutorService executor, List<Callable<SslCapability>> probes,
+                                           Consumer<SslCapability> listener) throws InterruptedException {
+        List<Callable<SslCapability>> reporting = new ArrayList<>(probes.size());
+        for (Callable<SslCapability> probe : probes) {
+            reporting.add(() -> {
+                SslCapability capability = probe.call();
+                listener.accept(capability);
+                return capability;
+            });
+        }
+
+        List<SslCapability> capabilities = new ArrayList<>(probes.size());
+        for (Future<SslCapability> future : executor.invokeAll(reporting)) {
+            try {
+                capabilities.add(future.get());
+            } catch (ExecutionException ex) {
+                // probes report their failures as results
+            }
+        }
+        return capabilities;
+    }
+
+    /**
+     * Get the protocol versions this runtime knows, including those it has
+     * disabled, newest first.
+     *
+     * @return Protocols
+     */
+    public List<String> getProtocols() {
+        List<String> candidates = new ArrayList<>(Arrays.asList(protocols));
+        candidates.remove("SSLv2Hello");
+        return candidates;
+    }
+
+    /**
+     * Get the cipher suites this runtime knows, including weak ones it has
+     * disabled, that are usable with a protocol version.
+     *
+     * @param protocol Protocol
+     * @return Cipher suites in order of preference
+     */
+    public String[] getCipherSuites(String protocol) {
+        List<String> suites = new ArrayList<>();
+
+        for (String suite : cipherSuites) {
+            if (suite.endsWith("_SCSV")) {
+                continue;
+            }
+
+            // TLS 1.3 suites do not name the key exchange
+            boolean tls13Suite = !suite.contains("_WITH_");
+            boolean tls12Suite = suite.contains("_GCM_") || suite.contains("_CHACHA20_") ||
+                                 suite.endsWith("_SHA256") || suite.endsWith("_SHA384");
+
+            if (TLS13.equals(protocol)) {
+                if (tls13Suite) {
+                    suites.add(suite);
+                }
+            } else if ("TLSv1.2".equals(protocol)) {
+                if (!tls13Suite) {
+                    suites.add(suite);
+                }
+            } else if (!tls13Suite && !tls12Suite) {
+                suites.add(suite);
+            }
+        }
+
+        return suites.toArray(new String[0]);
+    }
+
+    private SslCapability probe(SslCapability.Kind kind, String host, int port, String protocol, String[] suites,
+                                String group, String name) {
+        long start = System.nanoTime();
+
+        if (suites.length == 0) {
+            return new SslCapability(kind, protocol, name, SslCapability.Status.NOT_TESTABLE, null, 0);
+        }
+
+        try (Socket plainSocket = SslUtils.connect(host, port, timeoutMillis)) {
+            plainSocket.setSoTimeout(timeoutMillis);
+
+            SSLSocket sslSocket = (SSLSocket) new CustomSslSocketFactory(factory, null, true).createSocket(
+                    plainSocket, host, port, true);
+
+            try (sslSocket) {
+                SSLParameters parameters = sslSocket.getSSLParameters();
+                parameters.setProtocols(new String[] { protocol });
+                parameters.setCipherSuites(suites);
+                if (group != null) {
+                    SET_NAMED_GROUPS.invoke(parameters, (Object) new String[] { group });
+                }
+                sslSocket.setSSLParameters(parameters);
+
+                sslSocket.startHandshake();
+
+                String cipherSuite = sslSocket.getSession().getCipherSuite();
+                sslSocket.getSession().invalidate();
+
+                return new SslCapability(kind, protocol, name, SslCapability.Status.SUPPORTED,
+                                         kind == SslCapability.Kind.CIPHER_SUITE ? null : cipherSuite,
+                                         elapsedMillis(start));
+            }
+        } catch (SSLException ex) {
+            // thrown before anything was sent if the runtime has disabled the protocol or all offered suites
+            String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+            SslCapability.Status status = message.startsWith("No appropriate") ?
+                                          SslCapability.Status.NOT_TESTABLE :
+                                          SslCapability.Status.NOT_SUPPORTED;
+            return new SslCapability(kind, protocol, name, status, message, elapsedMillis(start));
+        } catch (IOException ex) {
+            String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+            return new SslCapability(kind, protocol, name, SslCapability.Status.ERROR, message,
+                                     elapsedMillis(start));
+        } catch (ReflectiveOperationException | IllegalArgumentException ex) {
+            return new SslCapability(kind, protocol, name, SslCapability.Status.NOT_TESTABLE, null, 0);
+        }
+    }
+
+    private static Method namedGroupsMethod() {
+        try {
+            return SSLParameters.class.getMethod("setNamedGroups", String[].class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
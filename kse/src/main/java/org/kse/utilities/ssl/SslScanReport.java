@@ -0,0 +1,137 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.cert.X509Certificate;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.jr.ob.JSON;
+
+/**
+ * Writes the results of an SSL scan as CSV (RFC 4180) or JSON.
+ */
+public class SslScanReport {
+
+    private static final String[] COLUMNS = { "host", "port", "status", "protocol", "cipherSuite", "subject",
+                                              "issuer", "serialNumber", "notAfter", "details", "timeMs", "dnsMs",
+                                              "connectMs", "handshakeMs", "sniFallback" };
+
+    private SslScanReport() {
+    }
+
+    /**
+     * Write results as CSV with a header line.
+     *
+     * @param results Scan results
+     * @param writer  Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeCsv(List<SslScanResult> results, Writer writer) throws IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        for (SslScanResult result : results) {
+            Object[] values = values(result);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvField(values[i] == null ? null : values[i].toString()));
+            }
+            writer.write("\r\n");
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Write results as a JSON array of objects.
+     *
+     * @param results Scan results
+     * @param writer  Writer to write to
+     * @throws IOException If writing failed
+     */
+    public static void writeJson(List<SslScanResult> results, Writer writer) throws IOException {
+        List<Map<String, Object>> entries = new ArrayList<>(results.size());
+
+        for (SslScanResult result : results) {
+            Object[] values = values(result);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            for (int i = 0; i < values.length; i++) {
+                entry.put(COLUMNS[i], values[i]);
+            }
+            entries.add(entry);
+        }
+
+        JSON.std.with(JSON.Feature.PRETTY_PRINT_OUTPUT).with(JSON.Feature.WRITE_NULL_PROPERTIES).write(entries, writer);
+        writer.flush();
+    }
+
+    private static Object[] values(SslScanResult result) {
+        SslConnectionInfos sslInfos = result.getSslInfos();
+        X509Certificate cert = result.getServerCertificate();
+
+        return new Object[] { result.getTarget().getHost(), result.getTarget().getPort(), result.getStatus().name(),
+                              sslInfos == null ? null : sslInfos.getProtocol(),
+                              sslInfos == null ? null : sslInfos.getCipherSuite(),
+                              cert == null ? null : cert.getSubjectX500Principal().getName(),
+                              cert == null ? null : cert.getIssuerX500Principal().getName(),
+                              cert == null ? null : cert.getSerialNumber().toString(16).toUpperCase(),
+                              cert == null ? null : formatDate(cert), result.getMessage(),
+                              result.getDurationMillis(),
+                              sslInfos == null ? null : millis(sslInfos, SslConnectionPhase.Type.DNS_LOOKUP),
+                              sslInfos == null ? null : millis(sslInfos, SslConnectionPhase.Type.TCP_CONNECT),
+                              sslInfos == null ? null : millis(sslInfos, SslConnectionPhase.Type.SERVER_CERTIFICATE,
+                                                               SslConnectionPhase.Type.HANDSHAKE_COMPLETION),
+                              sslInfos == null ? null : !sslInfos.isSniEnabled() };
+    }
+
+    private static double millis(SslConnectionInfos sslInfos, SslConnectionPhase.Type... types) {
+        long nanos = 0;
+        for (SslConnectionPhase.Type type : types) {
+            nanos += sslInfos.getPhaseNanos(type);
+        }
+        return SslConnectionReport.millis(nanos);
+    }
+
+    private static String formatDate(X509Certificate cert) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(cert.getNotAfter());
+    }
+
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 &&
+            value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
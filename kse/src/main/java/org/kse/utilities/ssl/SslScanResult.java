@@ -0,0 +1,105 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Outcome of the scan of a single SSL endpoint.
+ */
+public class SslScanResult {
+
+    /**
+     * Scan status of an endpoint.
+     */
+    public enum Status {
+        /** Handshake completed and the server certificates were received */
+        OK,
+        /** Connection or handshake failed or timed out */
+        FAILED
+    }
+
+    private final SslScanTarget target;
+    private final Status status;
+    private final SslConnectionInfos sslInfos;
+    private final String message;
+    private final long durationMillis;
+
+    /**
+     * Construct result.
+     *
+     * @param target         Scanned endpoint
+     * @param status         Scan status
+     * @param sslInfos       Negotiated parameters and certificates, null if the scan failed
+     * @param message        Details, may be null
+     * @param durationMillis Time the scan of the endpoint took
+     */
+    public SslScanResult(SslScanTarget target, Status status, SslConnectionInfos sslInfos, String message,
+                         long durationMillis) {
+        this.target = target;
+        this.status = status;
+        this.sslInfos = sslInfos;
+        this.message = message;
+        this.durationMillis = durationMillis;
+    }
+
+    public SslScanTarget getTarget() {
+        return target;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public SslConnectionInfos getSslInfos() {
+        return sslInfos;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Get the certificate chain the server presented.
+     *
+     * @return Certificates, end entity first, or null if there are none
+     */
+    public X509Certificate[] getServerCertificates() {
+        if (sslInfos == null || sslInfos.getServerCertificates() == null ||
+            sslInfos.getServerCertificates().length == 0) {
+            return null;
+        }
+        return sslInfos.getServerCertificates();
+    }
+
+    /**
+     * Get the server's end entity certificate.
+     *
+     * @return Certificate or null if there is none
+     */
+    public X509Certificate getServerCertificate() {
+        X509Certificate[] chain = getServerCertificates();
+        return chain == null ? null : chain[0];
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * Host and port of an SSL endpoint to scan.
+ */
+public class SslScanTarget {
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/ssl/resources");
+
+    /**
+     * Largest CIDR range that is expanded, i.e. a /16 network.
+     */
+    public static final int MAX_RANGE_SIZE = 1 << 16;
+
+    private final String host;
+    private final int port;
+
+    /**
+     * Construct target.
+     *
+     * @param host Host name or IP address
+     * @param port Port number
+     */
+    public SslScanTarget(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Parse a list of targets. Targets are separated by whitespace, commas or
+     * semicolons and have one of the forms "host", "host:port", "[IPv6]:port"
+     * or "a.b.c.d/prefix[:port]", where the latter is expanded to all host
+     * addresses of the IPv4 network. Lines starting with '#' are ignored.
+     * Duplicates are removed.
+     *
+     * @param text        Targets
+     * @param defaultPort Port of targets without one
+     * @return Targets in the order of the text
+     * @throws IllegalArgumentException If a target is not valid
+     */
+    public static List<SslScanTarget> parse(String text, int defaultPort) {
+        Set<SslScanTarget> targets = new LinkedHashSet<>();
+
+        for (String line : text.split("\\R")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            for (String token : line.split("[\\s,;]+")) {
+                if (!token.isEmpty()) {
+                    parseTarget(token, defaultPort, targets);
+                }
+            }
+        }
+
+        return new ArrayList<>(targets);
+    }
+
+    private static void parseTarget(String token, int defaultPort, Set<SslScanTarget> targets) {
+        String host = token;
+        int port = defaultPort;
+
+        if (token.startsWith("[")) {
+            // IPv6 address with optional port
+            int end = token.indexOf(']');
+            if (end < 0) {
+                throw invalid(token);
+            }
+            host = token.substring(1, end);
+            String rest = token.substring(end + 1);
+            if (!rest.isEmpty()) {
+                if (!rest.startsWith(":")) {
+                    throw invalid(token);
+                }
+                port = parsePort(rest.substring(1), token);
+            }
+        } else {
+            int colon = token.lastIndexOf(':');
+            if (colon >= 0 && token.indexOf(':') == colon) {
+                host = token.substring(0, colon);
+                port = parsePort(token.substring(colon + 1), token);
+            }
+        }
+
+        if (host.isEmpty()) {
+            throw invalid(token);
+        }
+
+        int slash = host.indexOf('/');
+        if (slash < 0) {
+            targets.add(new SslScanTarget(host, port));
+            return;
+        }
+
+        long network = parseIpv4(host.substring(0, slash), token);
+        int prefix;
+        try {
+            prefix = Integer.parseInt(host.substring(slash + 1));
+        } catch (NumberFormatException ex) {
+            throw invalid(token);
+        }
+        if (prefix < 0 || prefix > 32 || (1L << (32 - prefix)) > MAX_RANGE_SIZE) {
+            throw new IllegalArgumentException(
+                    MessageFormat.format(res.getString("ScanRangeTooLarge.exception.message"), token,
+                                         MAX_RANGE_SIZE));
+        }
+
+        long size = 1L << (32 - prefix);
+        long first = network & ~(size - 1);
+
+        // network and broadcast address are skipped, except for /31 and /32
+        long start = size > 2 ? first + 1 : first;
+        long end = size > 2 ? first + size - 2 : first + size - 1;
+
+        for (long address = start; address <= end; address++) {
+            targets.add(new SslScanTarget(formatIpv4(address), port));
+        }
+    }
+
+    private static int parsePort(String port, String token) {
+        try {
+            int value = Integer.parseInt(port);
+            if (value < 1 || value > 65535) {
+                throw invalid(token);
+            }
+            return value;
+        } catch (NumberFormatException ex) {
+            throw invalid(token);
+        }
+    }
+
+    private static long parseIpv4(String address, String token) {
+        String[] octets = address.split("\\.", -1);
+        if (octets.length != 4) {
+            throw invalid(token);
+        }
+
+        long value = 0;
+        for (String octet : octets) {
+            try {
+                int part = Integer.parseInt(octet);
+                if (part < 0 || part > 255) {
+                    throw invalid(token);
+                }
+                value = (value << 8) | part;
+            } catch (NumberFormatException ex) {
+                throw invalid(token);
+            }
+        }
+        return value;
+    }
+
+    private static String formatIpv4(long address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." +
+               (address & 0xFF);
+    }
+
+    private static IllegalArgumentException invalid(String token) {
+        return new IllegalArgumentException(
+                MessageFormat.format(res.getString("InvalidScanTarget.exception.message"), token));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SslScanTarget)) {
+            return false;
+        }
+        SslScanTarget other = (SslScanTarget) obj;
+        return port == other.port && host.equalsIgnoreCase(other.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * host.toLowerCase().hashCode() + port;
+    }
+
+    @Override
+    public String toString() {
+        return (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + port;
+    }
+}
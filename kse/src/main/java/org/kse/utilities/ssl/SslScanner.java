@@ -0,0 +1,122 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Scans many SSL endpoints concurrently and collects their certificate
+ * chains and negotiated parameters. The scan of an endpoint mostly waits for
+ * the network, so the worker pool is much larger than the number of cores.
+ */
+public class SslScanner {
+
+    /**
+     * Default number of endpoints that are scanned at the same time.
+     */
+    public static final int DEFAULT_THREADS = 64;
+
+    /**
+     * Default timeout for connecting to and reading from an endpoint.
+     */
+    public static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+
+    private final int threads;
+    private final int timeoutMillis;
+    private final KeyStore keyStore;
+    private final char[] password;
+
+    /**
+     * Construct scanner.
+     *
+     * @param threads       Number of endpoints that are scanned at the same time
+     * @param timeoutMillis Timeout for connecting to and reading from each endpoint
+     * @param keyStore      KeyStore with a key pair for SSL client authentication, may be null
+     * @param password      The password for the KeyStore
+     */
+    public SslScanner(int threads, int timeoutMillis, KeyStore keyStore, char[] password) {
+        this.threads = Math.max(1, threads);
+        this.timeoutMillis = timeoutMillis;
+        this.keyStore = keyStore;
+        this.password = password;
+    }
+
+    /**
+     * Scan the targets. Blocks until all targets have been scanned.
+     *
+     * @param targets  Endpoints to scan
+     * @param listener Receives the result of each endpoint as soon as it is available
+     * @throws InterruptedException If the calling thread was interrupted, in
+     *                              which case the remaining targets are skipped
+     */
+    public void scan(List<SslScanTarget> targets, Consumer<SslScanResult> listener) throws InterruptedException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "SslScanner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, targets.size())),
+                                                                threadFactory);
+
+        try {
+            for (SslScanTarget target : targets) {
+                executor.submit(() -> listener.accept(scan(target)));
+            }
+
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting, interruption ends the wait
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Scan a single endpoint.
+     *
+     * @param target Endpoint
+     * @return Result
+     */
+    public SslScanResult scan(SslScanTarget target) {
+        long start = System.nanoTime();
+
+        try {
+            SslConnectionInfos sslInfos = SslUtils.readSSLConnectionInfos(target.getHost(), target.getPort(),
+                                                                          keyStore, password, timeoutMillis);
+            return new SslScanResult(target, SslScanResult.Status.OK, sslInfos, null, elapsedMillis(start));
+        } catch (Exception ex) {
+            String message = ex.getMessage() == null ? ex.getClass().getSimpleName() : ex.getMessage();
+            return new SslScanResult(target, SslScanResult.Status.FAILED, null, message, elapsedMillis(start));
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -20,23 +20,39 @@
 package org.kse.utilities.ssl;
 
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 
-import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.ExtendedSSLSession;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLProtocolException;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
 import javax.net.ssl.X509KeyManager;
-import javax.net.ssl.X509TrustManager;
 
 import org.kse.crypto.CryptoException;
 
@@ -44,6 +60,11 @@ public class SslUtils {
 
     private static ResourceBundle res = ResourceBundle.getBundle("org/kse/utilities/ssl/resources");
 
+    // how long to wait for a rejection of the client certificate after a TLS 1.3 handshake
+    private static final int CLIENT_AUTH_PROBE_MILLIS = 1000;
+
+    private static final int MAX_PROXY_RESPONSE_HEADER = 8192;
+
     private SslUtils() {
     }
 
@@ -60,15 +81,24 @@ public class SslUtils {
      */
     public static SslConnectionInfos readSSLConnectionInfos(String host, int port, KeyStore keyStore, char[] password)
             throws CryptoException, IOException {
+        return readSSLConnectionInfos(host, port, keyStore, password, 0);
+    }
 
-        URL url = new URL(MessageFormat.format("https://{0}:{1}/", host, "" + port));
-        HttpsURLConnection connection = null;
-
-        System.setProperty("javax.net.debug", "ssl");
-
+    /**
+     * Load certificates from an SSL connection.
+     *
+     * @param host          Connection host
+     * @param port          Connection port
+     * @param keyStore      KeyStore with a key pair for SSL client authentication
+     * @param password      The password for the KeyStore
+     * @param timeoutMillis Timeout for connecting and for each read during the handshake, 0 for no timeout
+     * @return SSL infos
+     * @throws CryptoException Problem encountered while loading the certificate(s)
+     * @throws IOException     An I/O error occurred, e.g. a timeout
+     */
+    public static SslConnectionInfos readSSLConnectionInfos(String host, int port, KeyStore keyStore, char[] password,
+                                                            int timeoutMillis) throws CryptoException, IOException {
         try {
-            connection = (HttpsURLConnection) url.openConnection();
-
             // create a key manager for client authentication
             X509KeyManager km = null;
             if (keyStore != null) {
@@ -83,62 +113,296 @@ public class SslUtils {
             }
 
             // We are only interested in getting the SSL certificates even if they are invalid
-            // either in and of themselves or for the host name they are associated with
-
-            // 1) set connection's SSL Socket factory to have a very trusting trust manager
+            // either in and of themselves or for the host name they are associated with, so
+            // use a very trusting trust manager (no host name verification is done on a plain SSLSocket)
             SSLContext context = SSLContext.getInstance("TLS");
             X509TrustingManager tm = new X509TrustingManager();
             context.init(new KeyManager[] { km }, new TrustManager[] { tm }, null);
-
-            // 2) set a host name verifier that always verifies the host name
-            connection.setHostnameVerifier((hostname, sslSession) -> true);
-
-            // register our handshake completed listener in order to retrieve SSL connection infos later
             SSLSocketFactory factory = context.getSocketFactory();
-            RetrieveSslInfosHandshakeListener handshakeListener = new RetrieveSslInfosHandshakeListener();
-            boolean sniEnabled = true;
-            connection.setSSLSocketFactory(new CustomSslSocketFactory(factory, handshakeListener, sniEnabled));
 
+            PhaseRecorder recorder = new PhaseRecorder();
+            boolean sniEnabled = true;
+            SslConnectionInfos sslConnectionInfos;
             try {
-                connection.connect();
-            } catch (SSLProtocolException e) {
-                // handle server misconfiguration (works only in Java 8 or higher)
-                if (e.getMessage().contains("unrecognized_name")) {
+                sslConnectionInfos = handshake(factory, tm, recorder, host, port, sniEnabled, keyStore != null,
+                                               timeoutMillis);
+            } catch (SSLException e) {
+                // handle server misconfiguration
+                if (e.getMessage() != null && e.getMessage().contains("unrecognized_name")) {
                     sniEnabled = false;
-                    connection.setSSLSocketFactory(new CustomSslSocketFactory(factory, handshakeListener, sniEnabled));
-                    connection.connect();
+                    recorder.sniFallback = true;
+                    sslConnectionInfos = handshake(factory, tm, recorder, host, port, sniEnabled, keyStore != null,
+                                                   timeoutMillis);
                 } else {
                     throw e;
                 }
             }
 
-            // this is necessary in order to cause a handshake exception when the client cert is not accepted
-            if (keyStore != null) {
-                connection.getResponseMessage();
-            }
-
-            SslConnectionInfos sslConnectionInfos = handshakeListener.getSslConnectionInfos();
             sslConnectionInfos.setSniEnabled(sniEnabled);
+            sslConnectionInfos.setStapledOcspResponse(tm.stapledOcspResponse);
+            sslConnectionInfos.setPhases(recorder.phases);
+            sslConnectionInfos.setTotalNanos(System.nanoTime() - recorder.origin);
 
             return sslConnectionInfos;
 
         } catch (GeneralSecurityException ex) {
             throw new CryptoException(res.getString("NoLoadCertificate.exception.message"), ex);
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+        }
+    }
+
+    /**
+     * Connect and do the TLS handshake only, no application data is sent. Everything is
+     * local to the call, so any number of handshakes can run in parallel.
+     */
+    private static SslConnectionInfos handshake(SSLSocketFactory factory, X509TrustingManager tm,
+                                                PhaseRecorder recorder, String host, int port, boolean sniEnabled,
+                                                boolean clientAuth, int timeoutMillis) throws IOException {
+        Socket plainSocket = connect(host, port, timeoutMillis, recorder);
+
+        try {
+            plainSocket.setSoTimeout(timeoutMillis);
+
+            SSLSocket sslSocket = (SSLSocket) new CustomSslSocketFactory(factory, null, sniEnabled).createSocket(
+                    plainSocket, host, port, true);
+
+            try (sslSocket) {
+                tm.certificateReceived = 0;
+                long start = System.nanoTime();
+                boolean done = false;
+                try {
+                    sslSocket.startHandshake();
+                    done = true;
+                } finally {
+                    // the trust manager is called as soon as the server certificate is complete
+                    long certificateReceived = tm.certificateReceived;
+                    if (certificateReceived != 0) {
+                        recorder.record(SslConnectionPhase.Type.SERVER_CERTIFICATE, start, certificateReceived,
+                                        false);
+                        recorder.record(SslConnectionPhase.Type.HANDSHAKE_COMPLETION, certificateReceived,
+                                        System.nanoTime(), !done);
+                    } else {
+                        recorder.record(SslConnectionPhase.Type.SERVER_CERTIFICATE, start, System.nanoTime(), !done);
+                    }
+                }
+
+                // With TLS 1.3 the server checks the client certificate after the client has finished the
+                // handshake, so a rejection only arrives as an alert on the first read
+                if (clientAuth && "TLSv1.3".equals(sslSocket.getSession().getProtocol())) {
+                    start = System.nanoTime();
+                    done = false;
+                    try {
+                        awaitClientAuthResult(sslSocket, timeoutMillis);
+                        done = true;
+                    } finally {
+                        recorder.record(SslConnectionPhase.Type.CLIENT_AUTH_CHECK, start, System.nanoTime(), !done);
+                    }
+                }
+
+                // the listener is called directly instead of being registered because the JDK
+                // notifies registered listeners asynchronously from an extra thread
+                RetrieveSslInfosHandshakeListener handshakeListener = new RetrieveSslInfosHandshakeListener();
+                handshakeListener.sessionEstablished(sslSocket.getSession());
+                return handshakeListener.getSslConnectionInfos();
+            }
+        } catch (IOException ex) {
+            plainSocket.close();
+            throw ex;
+        }
+    }
+
+    private static void awaitClientAuthResult(SSLSocket sslSocket, int timeoutMillis) throws IOException {
+        int probeTimeout = timeoutMillis > 0 ? Math.min(timeoutMillis, CLIENT_AUTH_PROBE_MILLIS)
+                                             : CLIENT_AUTH_PROBE_MILLIS;
+        sslSocket.setSoTimeout(probeTimeout);
+        try {
+            sslSocket.getInputStream().read();
+        } catch (SocketTimeoutException ex) {
+            // no alert, the server accepted the client certificate and is waiting for a request
+        }
+    }
+
+    /**
+     * Create an SSL context that trusts every server and does not resume sessions, so that
+     * every connection made with it does a full handshake. The context can be shared by
+     * any number of concurrent connections.
+     *
+     * @return SSL context
+     * @throws GeneralSecurityException If no TLS implementation is available
+     */
+    static SSLContext createProbingContext() throws GeneralSecurityException {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] { new X509TrustingManager() }, null);
+
+        // connections invalidate their sessions, this only keeps the cache small
+        SSLSessionContext sessionContext = context.getClientSessionContext();
+        sessionContext.setSessionCacheSize(1);
+        sessionContext.setSessionTimeout(1);
+
+        return context;
+    }
+
+    /**
+     * Open a TCP connection to the host, directly or through the proxy that is
+     * configured for HTTPS connections to it.
+     *
+     * @param host          Connection host
+     * @param port          Connection port
+     * @param timeoutMillis Timeout for connecting, 0 for no timeout
+     * @return Connected socket
+     * @throws IOException If the connection failed
+     */
+    static Socket connect(String host, int port, int timeoutMillis) throws IOException {
+        return connect(host, port, timeoutMillis, new PhaseRecorder());
+    }
+
+    /**
+     * Open a TCP connection to the host, directly or through the proxy that is
+     * configured for HTTPS connections to it.
+     */
+    private static Socket connect(String host, int port, int timeoutMillis, PhaseRecorder recorder)
+            throws IOException {
+        Proxy proxy = Proxy.NO_PROXY;
+
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        if (proxySelector != null) {
+            try {
+                List<Proxy> proxies = proxySelector.select(new URI("https", null, host, port, null, null, null));
+                if (proxies != null && !proxies.isEmpty()) {
+                    proxy = proxies.get(0);
+                }
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                // connect directly
+            }
+        }
+
+        InetSocketAddress address;
+        if (proxy.type() == Proxy.Type.HTTP) {
+            address = (InetSocketAddress) proxy.address();
+        } else if (proxy.type() == Proxy.Type.SOCKS) {
+            // let a SOCKS proxy resolve the host name
+            address = InetSocketAddress.createUnresolved(host, port);
+        } else {
+            long start = System.nanoTime();
+            boolean done = false;
+            try {
+                address = new InetSocketAddress(InetAddress.getByName(host), port);
+                done = true;
+            } finally {
+                recorder.record(SslConnectionPhase.Type.DNS_LOOKUP, start, System.nanoTime(), !done);
+            }
+        }
+
+        Socket socket = proxy.type() == Proxy.Type.HTTP ? new Socket() : new Socket(proxy);
+        try {
+            long start = System.nanoTime();
+            boolean done = false;
+            try {
+                socket.connect(address, timeoutMillis);
+                done = true;
+            } finally {
+                recorder.record(SslConnectionPhase.Type.TCP_CONNECT, start, System.nanoTime(), !done);
+            }
+
+            if (proxy.type() == Proxy.Type.HTTP) {
+                socket.setSoTimeout(timeoutMillis);
+                start = System.nanoTime();
+                done = false;
+                try {
+                    tunnel(socket, host, port);
+                    done = true;
+                } finally {
+                    recorder.record(SslConnectionPhase.Type.PROXY_TUNNEL, start, System.nanoTime(), !done);
+                }
+            }
+
+            return socket;
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Establish a tunnel through an HTTP proxy with the CONNECT method.
+     */
+    private static void tunnel(Socket socket, String host, int port) throws IOException {
+        String authority = (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + port;
+
+        OutputStream out = socket.getOutputStream();
+        out.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n").getBytes(
+                StandardCharsets.US_ASCII));
+        out.flush();
+
+        // read the response header byte by byte so that nothing of the TLS handshake is consumed
+        InputStream in = socket.getInputStream();
+        StringBuilder header = new StringBuilder();
+        while (!header.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0 || header.length() > MAX_PROXY_RESPONSE_HEADER) {
+                throw new IOException(MessageFormat.format(res.getString("ProxyTunnelFailed.exception.message"),
+                                                           authority, header.toString().trim()));
             }
+            header.append((char) b);
+        }
+
+        String statusLine = header.substring(0, header.indexOf("\r\n"));
+        String[] status = statusLine.split(" ");
+        if (status.length < 2 || !status[1].startsWith("2")) {
+            throw new IOException(
+                    MessageFormat.format(res.getString("ProxyTunnelFailed.exception.message"), authority,
+                                         statusLine));
+        }
+    }
+
+    /**
+     * Collects the phase timings of one examination, including a retry without SNI.
+     */
+    private static class PhaseRecorder {
+        private final long origin = System.nanoTime();
+        private final List<SslConnectionPhase> phases = new ArrayList<>();
+        private boolean sniFallback;
+
+        private void record(SslConnectionPhase.Type type, long start, long end, boolean failed) {
+            phases.add(new SslConnectionPhase(type, sniFallback, start - origin, end - start, failed));
         }
     }
 
     /**
      * Implementation of the X509TrustManager. In this implementation we
      * always trust the server as we are only interested in getting its
-     * certificates for examination.
+     * certificates for examination. It notes when the server certificate
+     * arrived and keeps a stapled OCSP response.
      */
-    private static class X509TrustingManager implements X509TrustManager {
+    private static class X509TrustingManager extends X509ExtendedTrustManager {
+        private volatile long certificateReceived;
+        private volatile byte[] stapledOcspResponse;
+
         @Override
         public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            certificateReceived = System.nanoTime();
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            certificateReceived = System.nanoTime();
+
+            // for TLS 1.2 the JDK calls the trust manager only after the certificate status message
+            if (socket instanceof SSLSocket) {
+                SSLSession session = ((SSLSocket) socket).getHandshakeSession();
+                if (session instanceof ExtendedSSLSession) {
+                    List<byte[]> responses = ((ExtendedSSLSession) session).getStatusResponses();
+                    if (responses != null && !responses.isEmpty() && responses.get(0).length > 0) {
+                        stapledOcspResponse = responses.get(0);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            certificateReceived = System.nanoTime();
         }
 
         @Override
@@ -146,6 +410,18 @@ public class SslUtils {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public X509Certificate[] getAcceptedIssuers() {
             return new X509Certificate[0];
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CRLEntryHolder;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+
+/**
+ * Unit tests for CrlEncoder.
+ */
+public class CrlEncoderTest extends KeyPairTestsBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    // 2024-01-01, encoded as UTCTime
+    private static final Date THIS_UPDATE = new Date(1704067200000L);
+    private static final Date NEXT_UPDATE = new Date(THIS_UPDATE.getTime() + 24 * HOUR);
+
+    // 2051-01-01, encoded as GeneralizedTime
+    private static final Date FAR_FUTURE = new Date(2556144000000L);
+
+    private static X509Certificate caCert;
+
+    @BeforeAll
+    static void initCertificate() throws Exception {
+        caCert = new X509CertificateGenerator(X509CertificateVersion.VERSION3).generateSelfSigned(
+                new X500Name("CN=CA"), 24 * HOUR, rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(),
+                SignatureType.SHA256_RSA, BigInteger.ONE);
+    }
+
+    @Test
+    void fullCrlIsParsedByBouncyCastle() throws Exception {
+        try (RevocationDatabase database = RevocationDatabase.open(null)) {
+            database.revoke(BigInteger.valueOf(7), THIS_UPDATE, CRLReason.keyCompromise);
+            database.revoke(BigInteger.valueOf(3), FAR_FUTURE, CRLReason.certificateHold);
+            database.revoke(new BigInteger("123456789abcdef0", 16), THIS_UPDATE, CRLReason.unspecified);
+
+            X509CRLHolder crl = encode(THIS_UPDATE, NEXT_UPDATE, BigInteger.TEN, null, database.getRevoked());
+
+            assertThat(crl.isSignatureValid(verifierProvider())).isTrue();
+            assertThat(crl.getIssuer()).isEqualTo(new X500Name("CN=CA"));
+            assertThat(crl.getThisUpdate()).isEqualTo(THIS_UPDATE);
+            assertThat(crl.getNextUpdate()).isEqualTo(NEXT_UPDATE);
+            assertThat(CRLNumber.getInstance(crl.getExtension(Extension.cRLNumber).getParsedValue()).getCRLNumber())
+                    .isEqualTo(BigInteger.TEN);
+            assertThat(crl.getExtension(Extension.deltaCRLIndicator)).isNull();
+            assertThat(crl.getExtension(Extension.authorityKeyIdentifier)).isNotNull();
+
+            assertThat(entries(crl)).extracting(X509CRLEntryHolder::getSerialNumber,
+                                                X509CRLEntryHolder::getRevocationDate, CrlEncoderTest::getReason)
+                                    .containsExactly(
+                                            tuple(BigInteger.valueOf(3), FAR_FUTURE, CRLReason.certificateHold),
+                                            tuple(BigInteger.valueOf(7), THIS_UPDATE, CRLReason.keyCompromise),
+                                            tuple(new BigInteger("123456789abcdef0", 16), THIS_UPDATE,
+                                                  CRLReason.unspecified));
+        }
+    }
+
+    @Test
+    void deltaCrlIsParsedByBouncyCastle() throws Exception {
+        try (RevocationDatabase database = RevocationDatabase.open(null)) {
+            database.revoke(BigInteger.valueOf(1), THIS_UPDATE, CRLReason.certificateHold);
+            database.revoke(BigInteger.valueOf(2), THIS_UPDATE, CRLReason.superseded);
+            database.recordCrl(BigInteger.ONE, THIS_UPDATE, NEXT_UPDATE, null);
+
+            database.unrevoke(BigInteger.valueOf(1), NEXT_UPDATE);
+            database.revoke(BigInteger.valueOf(9), NEXT_UPDATE, CRLReason.keyCompromise);
+
+            X509CRLHolder crl = encode(NEXT_UPDATE, null, BigInteger.TWO, database.getBaseCrlNumber(),
+                                       database.getDeltaEntries());
+
+            assertThat(crl.isSignatureValid(verifierProvider())).isTrue();
+            assertThat(crl.getNextUpdate()).isNull();
+            assertThat(CRLNumber.getInstance(crl.getExtension(Extension.cRLNumber).getParsedValue()).getCRLNumber())
+                    .isEqualTo(BigInteger.TWO);
+            Extension deltaIndicator = crl.getExtension(Extension.deltaCRLIndicator);
+            assertThat(deltaIndicator.isCritical()).isTrue();
+            assertThat(ASN1Integer.getInstance(deltaIndicator.getParsedValue()).getValue()).isEqualTo(BigInteger.ONE);
+
+            assertThat(entries(crl)).extracting(X509CRLEntryHolder::getSerialNumber, CrlEncoderTest::getReason)
+                                    .containsExactly(tuple(BigInteger.valueOf(1), CRLReason.removeFromCRL),
+                                                     tuple(BigInteger.valueOf(9), CRLReason.keyCompromise));
+        }
+    }
+
+    @Test
+    void emptyCrlHasNoRevokedCertificates() throws Exception {
+        X509CRLHolder crl = encode(THIS_UPDATE, NEXT_UPDATE, BigInteger.ONE, null, List.of());
+
+        assertThat(crl.isSignatureValid(verifierProvider())).isTrue();
+        assertThat(crl.getRevokedCertificates()).isEmpty();
+    }
+
+    private static X509CRLHolder encode(Date thisUpdate, Date nextUpdate, BigInteger crlNumber,
+                                        BigInteger baseCrlNumber, List<RevocationDatabase.Entry> entries)
+            throws Exception {
+        ContentSigner signer = new JcaContentSignerBuilder(SignatureType.SHA256_RSA.jce())
+                .setProvider(KSE.BC)
+                .build(rsaKeyPair.getPrivate());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CrlEncoder(caCert, signer).encode(out, thisUpdate, nextUpdate, crlNumber, baseCrlNumber, entries);
+        return new X509CRLHolder(out.toByteArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<X509CRLEntryHolder> entries(X509CRLHolder crl) {
+        return (List<X509CRLEntryHolder>) List.copyOf(crl.getRevokedCertificates());
+    }
+
+    private static int getReason(X509CRLEntryHolder entry) {
+        Extension reason = entry.getExtension(Extension.reasonCode);
+        if (reason == null) {
+            return CRLReason.unspecified;
+        }
+        return CRLReason.getInstance(reason.getParsedValue()).getValue().intValue();
+    }
+
+    private static ContentVerifierProvider verifierProvider() throws Exception {
+        return new JcaContentVerifierProviderBuilder().setProvider(KSE.BC).build(caCert.getPublicKey());
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V2TBSCertListGenerator;
+import org.junit.jupiter.api.Test;
+import org.kse.crypto.CryptoException;
+
+/**
+ * Unit tests for CrlEntryReader.
+ */
+public class CrlEntryReaderTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    // after 2049 revocation dates are encoded as GeneralizedTime
+    private static final long YEAR_2060 = 2840140800000L;
+
+    private static final Date THIS_UPDATE = new Date(1700000000000L);
+
+    @Test
+    void decodesEntriesOnDemand() throws Exception {
+        CrlEntryReader reader = CrlEntryReader.scan(createCrl(BigInteger.valueOf(1000), BigInteger.valueOf(-5),
+                                                              BigInteger.valueOf(7)));
+
+        assertThat(reader.size()).isEqualTo(3);
+        assertThat(reader.getSerialNumber(1)).isEqualTo(BigInteger.valueOf(-5));
+        assertThat(reader.getRevocationDate(2)).isEqualTo(new Date(2 * HOUR));
+        assertThat(reader.hasExtensions(0)).isTrue();
+        assertThat(reader.hasExtensions(1)).isFalse();
+    }
+
+    @Test
+    void sortsAndFindsBySerialNumber() throws Exception {
+        BigInteger[] serials = { BigInteger.valueOf(1000), BigInteger.valueOf(7),
+                                 new BigInteger("123456789abcdef0", 16), BigInteger.valueOf(-5),
+                                 BigInteger.valueOf(-300), BigInteger.valueOf(128), BigInteger.valueOf(42) };
+        CrlEntryReader reader = CrlEntryReader.scan(createCrl(serials));
+
+        int[] bySerial = reader.sortBySerialNumber();
+
+        assertThat(bySerial).containsExactly(4, 3, 1, 6, 5, 0, 2);
+        for (int i = 0; i < serials.length; i++) {
+            assertThat(reader.find(serials[i], bySerial)).isEqualTo(i);
+        }
+        assertThat(reader.find(BigInteger.valueOf(8), bySerial)).isEqualTo(-1);
+    }
+
+    @Test
+    void sortsByRevocationDate() throws Exception {
+        CrlEntryReader reader = CrlEntryReader.scan(createCrl(BigInteger.ONE, BigInteger.TWO, BigInteger.TEN));
+
+        // the first entry is revoked in 2060, the others in 1970
+        assertThat(reader.getRevocationTime(0)).isEqualTo(YEAR_2060);
+        assertThat(reader.sortByRevocationDate()).containsExactly(1, 2, 0);
+    }
+
+    @Test
+    void readsCrlFields() throws Exception {
+        CrlEntryReader reader = CrlEntryReader.scan(createCrl(BigInteger.ONE, BigInteger.TWO));
+
+        assertThat(reader.getVersion()).isEqualTo(2);
+        assertThat(reader.getIssuer()).isEqualTo(new X500Name("CN=CA"));
+        assertThat(reader.getThisUpdate()).isEqualTo(THIS_UPDATE);
+        assertThat(reader.getNextUpdate()).isEqualTo(new Date(THIS_UPDATE.getTime() + HOUR));
+        assertThat(reader.getSignatureAlgorithm().getAlgorithm())
+                .isEqualTo(PKCSObjectIdentifiers.sha256WithRSAEncryption);
+        assertThat(reader.getExtensions().getNonCriticalExtensionOIDs())
+                .containsExactly(Extension.cRLNumber.getId());
+
+        assertThat(reader.getEntryExtensions(0).getNonCriticalExtensionOIDs())
+                .containsExactly(Extension.reasonCode.getId());
+        assertThat(reader.getEntryExtensions(1).getNonCriticalExtensionOIDs()).isEmpty();
+    }
+
+    @Test
+    void rejectsOtherStructures() throws Exception {
+        // a certification request has a version, two sequences and attributes where a CRL has its dates
+        ASN1EncodableVector info = new ASN1EncodableVector();
+        info.add(new ASN1Integer(0));
+        info.add(new X500Name("CN=Test"));
+        info.add(new DERSequence());
+        info.add(new DERTaggedObject(false, 0, new DERSet()));
+
+        ASN1EncodableVector csr = new ASN1EncodableVector();
+        csr.add(new DERSequence(info));
+        csr.add(new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption, DERNull.INSTANCE));
+        csr.add(new DERBitString(new byte[0]));
+
+        assertThatThrownBy(() -> CrlEntryReader.scan(new DERSequence(csr).getEncoded(ASN1Encoding.DER)))
+                .isInstanceOf(CryptoException.class);
+    }
+
+    @Test
+    void crlWithoutEntriesIsEmpty() throws Exception {
+        CrlEntryReader reader = CrlEntryReader.scan(createCrl());
+
+        assertThat(reader.size()).isZero();
+        assertThat(reader.sortBySerialNumber()).isEmpty();
+    }
+
+    /**
+     * Create an unsigned CRL with a CRL number. The first entry is revoked in 2060 with a reason
+     * code, entry i &gt; 0 is revoked i hours after the epoch.
+     */
+    private static byte[] createCrl(BigInteger... serials) throws Exception {
+        AlgorithmIdentifier sigAlg = new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption,
+                                                             DERNull.INSTANCE);
+
+        V2TBSCertListGenerator generator = new V2TBSCertListGenerator();
+        generator.setIssuer(new X500Name("CN=CA"));
+        generator.setSignature(sigAlg);
+        generator.setThisUpdate(new Time(THIS_UPDATE));
+        generator.setNextUpdate(new Time(new Date(THIS_UPDATE.getTime() + HOUR)));
+        generator.setExtensions(new Extensions(new Extension(Extension.cRLNumber, false,
+                                                             new CRLNumber(BigInteger.ONE).getEncoded())));
+        for (int i = 0; i < serials.length; i++) {
+            if (i == 0) {
+                generator.addCRLEntry(new ASN1Integer(serials[i]), new Time(new Date(YEAR_2060)),
+                                      CRLReason.keyCompromise);
+            } else {
+                generator.addCRLEntry(new ASN1Integer(serials[i]), new Time(new Date(i * HOUR)), 0);
+            }
+        }
+
+        ASN1EncodableVector vec = new ASN1EncodableVector();
+        vec.add(generator.generateTBSCertList());
+        vec.add(sigAlg);
+        vec.add(new DERBitString(new byte[0]));
+        return new DERSequence(vec).getEncoded(ASN1Encoding.DER);
+    }
+}
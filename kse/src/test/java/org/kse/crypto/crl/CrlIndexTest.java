@@ -0,0 +1,267 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.IssuingDistributionPoint;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V2TBSCertListGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.KSE;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+
+/**
+ * Unit tests for CrlIndex.
+ */
+public class CrlIndexTest extends KeyPairTestsBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final AlgorithmIdentifier SIGNATURE_ALGORITHM = new AlgorithmIdentifier(
+            PKCSObjectIdentifiers.sha256WithRSAEncryption, DERNull.INSTANCE);
+
+    private static X509Certificate caCert;
+
+    @BeforeAll
+    static void initCertificate() throws Exception {
+        caCert = new X509CertificateGenerator(X509CertificateVersion.VERSION3).generateSelfSigned(
+                new X500Name("CN=CA"), 24 * HOUR, rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(),
+                SignatureType.SHA256_RSA, BigInteger.ONE);
+    }
+
+    @Test
+    void findsRevokedSerialsInUnsortedCrl(@TempDir File directory) throws Exception {
+        Date now = new Date();
+        BigInteger[] serials = { BigInteger.valueOf(1000), BigInteger.valueOf(7), new BigInteger("123456789abcdef0", 16),
+                                 BigInteger.valueOf(-5), BigInteger.valueOf(42) };
+
+        byte[] crl = createCrl(now, new Date(now.getTime() + HOUR), serials);
+
+        CrlIndex index = CrlIndex.build(ByteBuffer.wrap(crl), caCert, -1, -1, new File(directory, "test.idx"));
+
+        assertThat(index.getRevokedCount()).isEqualTo(serials.length);
+        assertThat(index.isCurrent(now)).isTrue();
+        assertThat(index.isIssuedBy(caCert)).isTrue();
+
+        for (int i = 0; i < serials.length; i++) {
+            CrlIndex.RevokedEntry entry = index.find(serials[i]);
+            assertThat(entry).isNotNull();
+            assertThat(entry.getRevocationDate().getTime()).isEqualTo(i * HOUR);
+            assertThat(entry.getReason()).isEqualTo(CRLReason.keyCompromise);
+        }
+
+        assertThat(index.find(BigInteger.valueOf(8))).isNull();
+        assertThat(index.find(BigInteger.ONE.shiftLeft(200))).isNull();
+    }
+
+    @Test
+    void reopenedIndexMatches(@TempDir File directory) throws Exception {
+        Date now = new Date();
+        byte[] crl = createCrl(now, new Date(now.getTime() + HOUR), BigInteger.TEN);
+        File indexFile = new File(directory, "test.idx");
+
+        CrlIndex.build(ByteBuffer.wrap(crl), caCert, 100, 200, indexFile);
+        CrlIndex index = CrlIndex.open(indexFile);
+
+        assertThat(index.isFrom(100, 200)).isTrue();
+        assertThat(index.find(BigInteger.TEN)).isNotNull();
+        assertThat(index.isCurrent(new Date(now.getTime() + 2 * HOUR))).isFalse();
+    }
+
+    @Test
+    void tamperedCrlIsRejected(@TempDir File directory) throws Exception {
+        Date now = new Date();
+        byte[] crl = createCrl(now, new Date(now.getTime() + HOUR), BigInteger.TEN);
+        crl[crl.length - 1] ^= 1;
+
+        assertThatThrownBy(() -> CrlIndex.build(ByteBuffer.wrap(crl), caCert, -1, -1,
+                                                new File(directory, "test.idx"))).isInstanceOf(CryptoException.class);
+    }
+
+    @Test
+    void deltaCrlIsRejected(@TempDir File directory) throws Exception {
+        V2TBSCertListGenerator generator = createGenerator(new Date(), BigInteger.TEN);
+        generator.setExtensions(new Extensions(new Extension(Extension.deltaCRLIndicator, true,
+                                                             new ASN1Integer(1).getEncoded())));
+
+        assertRejected(sign(generator), directory, "delta CRL");
+    }
+
+    @Test
+    void crlScopedByIssuingDistributionPointIsRejected(@TempDir File directory) throws Exception {
+        IssuingDistributionPoint idp = new IssuingDistributionPoint(null, true, false);
+
+        V2TBSCertListGenerator generator = createGenerator(new Date(), BigInteger.TEN);
+        generator.setExtensions(new Extensions(new Extension(Extension.issuingDistributionPoint, true,
+                                                             idp.getEncoded())));
+
+        assertRejected(sign(generator), directory, "issuing distribution point");
+    }
+
+    @Test
+    void unknownCriticalExtensionsAreRejected(@TempDir File directory) throws Exception {
+        ASN1ObjectIdentifier unknown = new ASN1ObjectIdentifier("1.2.3.4");
+
+        V2TBSCertListGenerator generator = createGenerator(new Date(), BigInteger.TEN);
+        generator.setExtensions(new Extensions(new Extension(unknown, true, DERNull.INSTANCE.getEncoded())));
+        assertRejected(sign(generator), directory, "1.2.3.4");
+
+        generator = createGenerator(new Date());
+        generator.addCRLEntry(new ASN1Integer(BigInteger.TEN), new Time(new Date()), new Extensions(
+                new Extension(unknown, true, DERNull.INSTANCE.getEncoded())));
+        assertRejected(sign(generator), directory, "1.2.3.4");
+    }
+
+    @Test
+    void knownAndNonCriticalExtensionsAreAccepted(@TempDir File directory) throws Exception {
+        V2TBSCertListGenerator generator = createGenerator(new Date(), BigInteger.TEN);
+        generator.setExtensions(new Extensions(new Extension[] {
+                new Extension(Extension.cRLNumber, false, new ASN1Integer(7).getEncoded()),
+                new Extension(new ASN1ObjectIdentifier("1.2.3.4"), false, DERNull.INSTANCE.getEncoded()) }));
+
+        CrlIndex index = CrlIndex.build(ByteBuffer.wrap(sign(generator)), caCert, -1, -1,
+                                        new File(directory, "test.idx"));
+
+        assertThat(index.find(BigInteger.TEN)).isNotNull();
+    }
+
+    @Test
+    void entriesOfOtherCertificateIssuersAreSkipped(@TempDir File directory) throws Exception {
+        Date now = new Date();
+        GeneralNames otherIssuer = new GeneralNames(new GeneralName(new X500Name("CN=Other CA")));
+        GeneralNames crlIssuer = new GeneralNames(
+                new GeneralName(X500Name.getInstance(caCert.getSubjectX500Principal().getEncoded())));
+
+        V2TBSCertListGenerator generator = createGenerator(now, BigInteger.valueOf(1));
+        // the certificate issuer applies to the following entries as well
+        generator.addCRLEntry(new ASN1Integer(2), new Time(now), new Extensions(
+                new Extension(Extension.certificateIssuer, true, otherIssuer.getEncoded())));
+        generator.addCRLEntry(new ASN1Integer(3), new Time(now), CRLReason.keyCompromise);
+        generator.addCRLEntry(new ASN1Integer(4), new Time(now), new Extensions(
+                new Extension(Extension.certificateIssuer, true, crlIssuer.getEncoded())));
+        generator.addCRLEntry(new ASN1Integer(5), new Time(now), CRLReason.keyCompromise);
+
+        CrlIndex index = CrlIndex.build(ByteBuffer.wrap(sign(generator)), caCert, -1, -1,
+                                        new File(directory, "test.idx"));
+
+        assertThat(index.getRevokedCount()).isEqualTo(3);
+        assertThat(index.find(BigInteger.valueOf(1))).isNotNull();
+        assertThat(index.find(BigInteger.valueOf(2))).isNull();
+        assertThat(index.find(BigInteger.valueOf(3))).isNull();
+        assertThat(index.find(BigInteger.valueOf(4))).isNotNull();
+        assertThat(index.find(BigInteger.valueOf(5))).isNotNull();
+    }
+
+    @Test
+    void removeFromCrlEntriesAreSkipped(@TempDir File directory) throws Exception {
+        Date now = new Date();
+
+        V2TBSCertListGenerator generator = createGenerator(now, BigInteger.valueOf(1));
+        generator.addCRLEntry(new ASN1Integer(2), new Time(now), CRLReason.removeFromCRL);
+
+        CrlIndex index = CrlIndex.build(ByteBuffer.wrap(sign(generator)), caCert, -1, -1,
+                                        new File(directory, "test.idx"));
+
+        assertThat(index.getRevokedCount()).isEqualTo(1);
+        assertThat(index.find(BigInteger.valueOf(1))).isNotNull();
+        assertThat(index.find(BigInteger.valueOf(2))).isNull();
+    }
+
+    @Test
+    void crlIsNotCurrentBeforeThisUpdate(@TempDir File directory) throws Exception {
+        Date now = new Date();
+        byte[] crl = createCrl(new Date(now.getTime() + HOUR), new Date(now.getTime() + 2 * HOUR), BigInteger.TEN);
+
+        CrlIndex index = CrlIndex.build(ByteBuffer.wrap(crl), caCert, -1, -1, new File(directory, "test.idx"));
+
+        assertThat(index.isNotYetValid(now)).isTrue();
+        assertThat(index.isCurrent(now)).isFalse();
+        assertThat(index.isCurrent(new Date(now.getTime() + HOUR + 1000))).isTrue();
+    }
+
+    private static void assertRejected(byte[] crl, File directory, String message) {
+        assertThatThrownBy(() -> CrlIndex.build(ByteBuffer.wrap(crl), caCert, -1, -1,
+                                                new File(directory, "test.idx")))
+                .isInstanceOf(CryptoException.class).hasMessageContaining(message);
+    }
+
+    private static byte[] createCrl(Date thisUpdate, Date nextUpdate, BigInteger... serials) throws Exception {
+        V2TBSCertListGenerator generator = createGenerator(thisUpdate, serials);
+        generator.setNextUpdate(new Time(nextUpdate));
+        return sign(generator);
+    }
+
+    private static V2TBSCertListGenerator createGenerator(Date thisUpdate, BigInteger... serials) {
+        V2TBSCertListGenerator generator = new V2TBSCertListGenerator();
+        generator.setIssuer(X500Name.getInstance(caCert.getSubjectX500Principal().getEncoded()));
+        generator.setSignature(SIGNATURE_ALGORITHM);
+        generator.setThisUpdate(new Time(thisUpdate));
+        for (int i = 0; i < serials.length; i++) {
+            generator.addCRLEntry(new ASN1Integer(serials[i]), new Time(new Date(i * HOUR)),
+                                  CRLReason.keyCompromise);
+        }
+        return generator;
+    }
+
+    private static byte[] sign(V2TBSCertListGenerator generator) throws Exception {
+        TBSCertList tbsCertList = generator.generateTBSCertList();
+
+        Signature signature = Signature.getInstance("SHA256withRSA", KSE.BC);
+        signature.initSign(rsaKeyPair.getPrivate());
+        signature.update(tbsCertList.getEncoded(ASN1Encoding.DER));
+
+        ASN1EncodableVector vec = new ASN1EncodableVector();
+        vec.add(tbsCertList);
+        vec.add(SIGNATURE_ALGORITHM);
+        vec.add(new DERBitString(signature.sign()));
+        return new DERSequence(vec).getEncoded(ASN1Encoding.DER);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.crl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.util.Date;
+
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.crypto.CryptoException;
+
+/**
+ * Unit tests for RevocationDatabase.
+ */
+public class RevocationDatabaseTest {
+
+    private static final Date DATE = new Date(1700000000000L);
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void revocationsAreReplayed() throws Exception {
+        File file = new File(tempDir, "ca.crldb");
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            database.revoke(BigInteger.valueOf(3), DATE, CRLReason.keyCompromise);
+            database.revoke(BigInteger.valueOf(1), DATE, CRLReason.certificateHold);
+            database.unrevoke(BigInteger.ONE, DATE);
+            database.recordCrl(BigInteger.TEN, DATE, null, null);
+        }
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            assertThat(database.getRevokedCount()).isEqualTo(1);
+            assertThat(database.getRevoked()).extracting(RevocationDatabase.Entry::getSerialNumber)
+                                             .containsExactly(BigInteger.valueOf(3));
+            assertThat(database.get(BigInteger.ONE).isRevoked()).isFalse();
+            assertThat(database.getLastCrlNumber()).isEqualTo(BigInteger.TEN);
+            assertThat(database.getBaseCrlNumber()).isEqualTo(BigInteger.TEN);
+            assertThat(database.getLastNextUpdate()).isNull();
+        }
+    }
+
+    @Test
+    void deltaContainsChangesSinceFullCrl() throws Exception {
+        try (RevocationDatabase database = RevocationDatabase.open(null)) {
+            database.revoke(BigInteger.valueOf(1), DATE, CRLReason.certificateHold);
+            database.revoke(BigInteger.valueOf(2), DATE, CRLReason.superseded);
+            database.recordCrl(BigInteger.ONE, DATE, null, null);
+
+            database.unrevoke(BigInteger.valueOf(1), DATE);
+            database.revoke(BigInteger.valueOf(5), DATE, CRLReason.certificateHold);
+            database.unrevoke(BigInteger.valueOf(5), DATE);
+            database.revoke(BigInteger.valueOf(7), DATE, CRLReason.keyCompromise);
+            database.recordCrl(BigInteger.valueOf(2), DATE, null, BigInteger.ONE);
+
+            assertThat(database.getBaseCrlNumber()).isEqualTo(BigInteger.ONE);
+            assertThat(database.getDeltaEntries()).extracting(RevocationDatabase.Entry::getSerialNumber,
+                                                              RevocationDatabase.Entry::getReason)
+                                                  .containsExactly(tuple(BigInteger.ONE, CRLReason.removeFromCRL),
+                                                                   tuple(BigInteger.valueOf(7),
+                                                                         CRLReason.keyCompromise));
+        }
+    }
+
+    @Test
+    void onlyCertificatesOnHoldCanBeReleased() throws Exception {
+        try (RevocationDatabase database = RevocationDatabase.open(null)) {
+            database.revoke(BigInteger.ONE, DATE, CRLReason.keyCompromise);
+
+            assertThatThrownBy(() -> database.unrevoke(BigInteger.ONE, DATE)).isInstanceOf(CryptoException.class);
+            assertThatThrownBy(() -> database.unrevoke(BigInteger.TEN, DATE)).isInstanceOf(CryptoException.class);
+            assertThatThrownBy(() -> database.checkOnHold(BigInteger.ONE)).isInstanceOf(CryptoException.class);
+
+            database.revoke(BigInteger.TWO, DATE, CRLReason.certificateHold);
+            database.checkOnHold(BigInteger.TWO);
+        }
+    }
+
+    @Test
+    void transactionIsOnlyWrittenOnCommit() throws Exception {
+        File file = new File(tempDir, "ca.crldb");
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            database.revoke(BigInteger.ONE, DATE, CRLReason.certificateHold);
+
+            // e.g. signing the CRL failed
+            database.startTransaction();
+            database.unrevoke(BigInteger.ONE, DATE);
+            database.revoke(BigInteger.TEN, DATE, CRLReason.keyCompromise);
+            database.recordCrl(BigInteger.ONE, DATE, null, null);
+            assertThat(database.getRevokedCount()).isEqualTo(1);
+        }
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            assertThat(database.getRevoked()).extracting(RevocationDatabase.Entry::getSerialNumber)
+                                             .containsExactly(BigInteger.ONE);
+            assertThat(database.getLastCrlNumber()).isNull();
+
+            database.startTransaction();
+            database.revoke(BigInteger.TEN, DATE, CRLReason.keyCompromise);
+            database.recordCrl(BigInteger.ONE, DATE, null, null);
+            database.commit();
+        }
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            assertThat(database.getRevokedCount()).isEqualTo(2);
+            assertThat(database.getLastCrlNumber()).isEqualTo(BigInteger.ONE);
+        }
+    }
+
+    @Test
+    void incompleteLastRecordIsDropped() throws Exception {
+        File file = new File(tempDir, "ca.crldb");
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            database.revoke(BigInteger.ONE, DATE, CRLReason.unspecified);
+            database.revoke(BigInteger.TEN, DATE, CRLReason.unspecified);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            assertThat(database.getRevokedCount()).isEqualTo(1);
+            database.revoke(BigInteger.TEN, DATE, CRLReason.unspecified);
+        }
+
+        try (RevocationDatabase database = RevocationDatabase.open(file)) {
+            assertThat(database.getRevokedCount()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.csr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.crypto.CryptoException;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.csr.pkcs10.Pkcs10Util;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509ExtensionSet;
+
+/**
+ * Unit tests for CsrBatch.
+ */
+public class CsrBatchTest extends KeyPairTestsBase {
+
+    private static final String SAN = Extension.subjectAlternativeName.getId();
+    private static final String KEY_USAGE = Extension.keyUsage.getId();
+    private static final String BASIC_CONSTRAINTS = Extension.basicConstraints.getId();
+
+    @TempDir
+    File directory;
+
+    @Test
+    void templateDropsSubjectAlternativeName() throws Exception {
+        CsrBatch batch = loadBatch();
+        CsrBatch.Csr first = getCsr(batch, "a.csr");
+        CsrBatch.Csr second = getCsr(batch, "b.csr");
+        CsrBatch.Csr third = getCsr(batch, "c.csr");
+
+        // the requested extensions of the first CSR were transferred and a basic constraints extension added
+        X509ExtensionSet profile = first.getRequestedExtensions();
+        profile.addExtension(BASIC_CONSTRAINTS, true, wrap(new BasicConstraints(false).getEncoded()));
+
+        X509ExtensionSet template = CsrBatch.createExtensionTemplate(profile);
+
+        assertThat(getOids(template)).containsExactlyInAnyOrder(KEY_USAGE, BASIC_CONSTRAINTS);
+
+        X509ExtensionSet extensions = second.getOwnExtensions(template);
+        assertThat(getOids(extensions)).containsExactly(SAN);
+        assertThat(extensions.getExtensionValue(SAN)).isEqualTo(
+                second.getRequestedExtensions().getExtensionValue(SAN));
+
+        assertThat(getOids(third.getOwnExtensions(template))).isEmpty();
+        assertThat(first.getOwnExtensions(template).getExtensionValue(SAN)).isEqualTo(
+                first.getRequestedExtensions().getExtensionValue(SAN));
+    }
+
+    @Test
+    void extensionsNotInTemplateAreRejected() throws Exception {
+        CsrBatch batch = loadBatch();
+        CsrBatch.Csr first = getCsr(batch, "a.csr");
+        CsrBatch.Csr fourth = getCsr(batch, "d.csr");
+
+        // the key usage requested by the first CSR was changed in the dialog
+        X509ExtensionSet profile = first.getRequestedExtensions();
+        profile.addExtension(KEY_USAGE, true, wrap(new KeyUsage(KeyUsage.keyEncipherment).getEncoded()));
+
+        X509ExtensionSet template = CsrBatch.createExtensionTemplate(profile);
+
+        assertThatThrownBy(() -> first.getOwnExtensions(template)).isInstanceOf(CryptoException.class);
+        assertThatThrownBy(() -> fourth.getOwnExtensions(template)).isInstanceOf(CryptoException.class);
+        assertThat(getOids(getCsr(batch, "c.csr").getOwnExtensions(template))).isEmpty();
+    }
+
+    private CsrBatch loadBatch() throws Exception {
+        ExtensionsGenerator first = new ExtensionsGenerator();
+        first.addExtension(Extension.subjectAlternativeName, false, sanOf("a.example.com"));
+        first.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+        writeCsr("a.csr", "CN=a", first);
+
+        ExtensionsGenerator second = new ExtensionsGenerator();
+        second.addExtension(Extension.subjectAlternativeName, false, sanOf("b.example.com"));
+        writeCsr("b.csr", "CN=b", second);
+
+        writeCsr("c.csr", "CN=c", null);
+
+        ExtensionsGenerator fourth = new ExtensionsGenerator();
+        fourth.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        fourth.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign));
+        writeCsr("d.csr", "CN=d", fourth);
+
+        return CsrBatch.load(directory, 2);
+    }
+
+    private void writeCsr(String name, String subject, ExtensionsGenerator extensions) throws Exception {
+        byte[] csr = Pkcs10Util.generateCsr(new X500Principal(subject), rsaKeyPair.getPublic(),
+                                            rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, null, null,
+                                            extensions == null ? null : extensions.generate(), null).getEncoded();
+        Files.write(new File(directory, name).toPath(), csr);
+    }
+
+    private static CsrBatch.Csr getCsr(CsrBatch batch, String name) {
+        return batch.getValidCsrs().stream().filter(csr -> csr.getName().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static GeneralNames sanOf(String dnsName) {
+        return new GeneralNames(new GeneralName(GeneralName.dNSName, dnsName));
+    }
+
+    private static byte[] wrap(byte[] value) throws Exception {
+        return new DEROctetString(value).getEncoded();
+    }
+
+    private static Set<String> getOids(X509ExtensionSet extensions) {
+        Set<String> oids = new HashSet<>(extensions.getCriticalExtensionOIDs());
+        oids.addAll(extensions.getNonCriticalExtensionOIDs());
+        return oids;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.dh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.math.BigInteger;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.crypto.CryptoTestsBase;
+
+/**
+ * Unit tests for DHParametersGenerator and DHParametersLibrary.
+ */
+public class DHParametersGeneratorTest extends CryptoTestsBase {
+
+    @Test
+    void generatesSafePrime() throws Exception {
+        DHParametersGenerator generator = new DHParametersGenerator(512, 2);
+
+        ASN1Sequence sequence = ASN1Sequence.getInstance(generator.generate());
+        BigInteger p = ASN1Integer.getInstance(sequence.getObjectAt(0)).getValue();
+        BigInteger g = ASN1Integer.getInstance(sequence.getObjectAt(1)).getValue();
+
+        assertThat(p.bitLength()).isEqualTo(512);
+        assertThat(DHParametersGenerator.isSafePrime(p)).isTrue();
+        assertThat(g).isEqualTo(BigInteger.valueOf(2));
+        assertThat(generator.getCandidatesTested()).isPositive();
+    }
+
+    @Test
+    void libraryIndexesBySize(@TempDir File directory) throws Exception {
+        byte[] dhParameters = DHParametersGenerator.encode(BigInteger.valueOf(23), BigInteger.valueOf(2));
+
+        DHParametersLibrary library = new DHParametersLibrary(directory);
+        assertThat(library.get(2048)).isNull();
+
+        library.add(2048, dhParameters);
+
+        assertThat(library.count(2048)).isEqualTo(1);
+        assertThat(library.count(1024)).isZero();
+
+        DHParametersLibrary reloaded = new DHParametersLibrary(directory);
+        assertThat(reloaded.count(2048)).isEqualTo(1);
+        assertThat(reloaded.get(2048)).isEqualTo(dhParameters);
+    }
+}
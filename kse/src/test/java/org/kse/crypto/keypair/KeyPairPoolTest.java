@@ -0,0 +1,79 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keypair;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.KeyPair;
+
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.CryptoTestsBase;
+
+/**
+ * Unit tests for KeyPairPool.
+ */
+public class KeyPairPoolTest extends CryptoTestsBase {
+
+    @Test
+    void poolServesConfiguredKeyPairs() throws Exception {
+        KeyPairPool pool = new KeyPairPool();
+        pool.configure(true, KeyPairType.RSA, 512, 2);
+        awaitAvailable(pool, 2);
+
+        KeyPair keyPair = pool.take(KeyPairType.RSA, 512, null);
+
+        assertThat(keyPair).isNotNull();
+        assertThat(KeyPairUtil.getKeyInfo(keyPair.getPublic()).getSize()).isEqualTo(512);
+        assertThat(pool.getHits()).isEqualTo(1);
+        assertThat(pool.getMisses()).isZero();
+    }
+
+    @Test
+    void otherParametersAreMisses() throws Exception {
+        KeyPairPool pool = new KeyPairPool();
+        pool.configure(true, KeyPairType.RSA, 512, 1);
+        awaitAvailable(pool, 1);
+
+        assertThat(pool.take(KeyPairType.RSA, 1024, null)).isNull();
+        assertThat(pool.take(KeyPairType.RSA, 512, KSE.BC)).isNull();
+        assertThat(pool.getMisses()).isEqualTo(2);
+        assertThat(pool.getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void changedParametersDiscardKeyPairs() throws Exception {
+        KeyPairPool pool = new KeyPairPool();
+        pool.configure(true, KeyPairType.RSA, 512, 1);
+        awaitAvailable(pool, 1);
+
+        pool.configure(false, KeyPairType.RSA, 512, 1);
+
+        assertThat(pool.getAvailable()).isZero();
+        assertThat(pool.take(KeyPairType.RSA, 512, null)).isNull();
+    }
+
+    private static void awaitAvailable(KeyPairPool pool, int available) throws InterruptedException {
+        for (int i = 0; i < 300 && pool.getAvailable() < available; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(pool.getAvailable()).isEqualTo(available);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.crypto.keystore.KeyStoreSearchIndex.Entry;
+
+/**
+ * Unit tests for KeyStoreCorpusIndex.
+ */
+class KeyStoreCorpusIndexTest {
+
+    @Test
+    void indexWithLongStringsIsSavedAndLoaded(@TempDir File directory) throws Exception {
+        File indexFile = new File(directory, "index.bin");
+        File keyStoreFile = new File(directory, "large.jks");
+
+        // longer than the 64 KB that modified UTF-8 can encode
+        StringBuilder subject = new StringBuilder("CN=");
+        while (subject.length() <= 70_000) {
+            subject.append("éxample ");
+        }
+
+        KeyStoreCorpusIndex index = new KeyStoreCorpusIndex(indexFile);
+        index.put(keyStoreFile, 1234, 5678,
+                  Collections.singletonList(new Entry("alias", "AB:CD", subject.toString(), "01", 42,
+                                                      new String[] { "term" }, new String[0])));
+        index.save();
+
+        assertThat(directory.list()).containsExactly("index.bin");
+
+        List<Entry> entries = new KeyStoreCorpusIndex(indexFile).get(keyStoreFile, 1234, 5678);
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getAlias()).isEqualTo("alias");
+        assertThat(entries.get(0).getSubject()).isEqualTo(subject.toString());
+    }
+}
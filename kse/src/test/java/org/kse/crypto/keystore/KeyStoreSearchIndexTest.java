@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.digest.DigestType;
+import org.kse.crypto.digest.DigestUtil;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+import org.kse.crypto.x509.X509ExtensionSet;
+
+/**
+ * Unit tests for KeyStoreSearchIndex.
+ */
+class KeyStoreSearchIndexTest extends KeyPairTestsBase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static X509Certificate certificate(String subject, String dnsName, long serial) throws Exception {
+        X509ExtensionSet extensions = new X509ExtensionSet();
+        extensions.addExtension(Extension.subjectAlternativeName.getId(), false, new DEROctetString(
+                new GeneralNames(new GeneralName(GeneralName.dNSName, dnsName))).getEncoded(ASN1Encoding.DER));
+
+        Date now = new Date();
+        return new X509CertificateGenerator(X509CertificateVersion.VERSION3).generate(
+                new X500Name(subject), new X500Name("CN=Example CA,O=Example"), now, new Date(now.getTime() + DAY),
+                rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, BigInteger.valueOf(serial),
+                extensions, KSE.BC);
+    }
+
+    @Test
+    void searchesTextTermsAndIdentifiers() throws Exception {
+        X509Certificate web = certificate("CN=www.example.com,O=Web Team", "shop.example.org", 0xCAFE01);
+        X509Certificate mail = certificate("CN=mail.example.com,O=Mail Team", "smtp.example.org", 0x1234);
+
+        KeyStoreSearchIndex index = new KeyStoreSearchIndex();
+        index.put("web", web);
+        index.put("mail", mail);
+        index.put("secret", null);
+
+        assertThat(index.search("SECR")).containsExactly("secret");
+        assertThat(index.search("www.example")).containsExactly("web");
+        assertThat(index.search("shop")).containsExactly("web");
+        assertThat(index.search("example ca")).containsExactlyInAnyOrder("web", "mail");
+        assertThat(index.search("team smtp")).containsExactly("mail");
+        assertThat(index.search("0xcafe01")).containsExactly("web");
+        assertThat(index.search("4660")).contains("mail");
+        assertThat(index.search("no such entry")).isEmpty();
+
+        String sha1 = Hex.toHexString(DigestUtil.getMessageDigest(mail.getEncoded(), DigestType.SHA1));
+        assertThat(index.search(sha1.substring(0, 2) + ":" + sha1.substring(2, 4) + " " + sha1.substring(4, 8)))
+                .contains("mail");
+    }
+
+    @Test
+    void updateOnlyReindexesChangedEntries() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("a", certificate("CN=alpha", "alpha.example.com", 1));
+        keyStore.setCertificateEntry("b", certificate("CN=beta", "beta.example.com", 2));
+
+        KeyStoreSearchIndex index = new KeyStoreSearchIndex();
+        index.update(keyStore);
+        assertThat(index.search("example.com")).containsExactlyInAnyOrder("a", "b");
+
+        keyStore.deleteEntry("a");
+        keyStore.setCertificateEntry("b", certificate("CN=gamma", "gamma.example.com", 3));
+        index.update(keyStore);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("alpha")).isEmpty();
+        assertThat(index.search("beta")).isEmpty();
+        assertThat(index.search("gamma")).containsExactly("b");
+    }
+
+    @Test
+    void identifiersAreNormalized() {
+        assertThat(KeyStoreSearchIndex.normalizeIdentifier("0xAB:cd-ef 01")).isEqualTo("ABcdef01");
+    }
+}
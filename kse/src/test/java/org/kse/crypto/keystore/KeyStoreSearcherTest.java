@@ -0,0 +1,152 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.keystore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.keystore.KeyStoreSearchIndex.Entry;
+import org.kse.crypto.keystore.KeyStoreSearchResult.Status;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+import org.kse.crypto.x509.X509ExtensionSet;
+import org.kse.gui.passwordmanager.Password;
+
+/**
+ * Unit tests for KeyStoreSearcher.
+ */
+class KeyStoreSearcherTest extends KeyPairTestsBase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static X509Certificate certificate(String subject, long serial) throws Exception {
+        Date now = new Date();
+        return new X509CertificateGenerator(X509CertificateVersion.VERSION3).generate(
+                new X500Name(subject), new X500Name("CN=Example CA"), now, new Date(now.getTime() + DAY),
+                rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, BigInteger.valueOf(serial),
+                new X509ExtensionSet(), KSE.BC);
+    }
+
+    private static File saveKeyStore(File file, KeyStoreType type, String password, X509Certificate... certs)
+            throws Exception {
+        KeyStore keyStore = KeyStoreUtil.create(type);
+        for (X509Certificate cert : certs) {
+            keyStore.setCertificateEntry(cert.getSubjectX500Principal().getName().toLowerCase(Locale.ROOT), cert);
+        }
+        KeyStoreUtil.save(keyStore, file, new Password(password.toCharArray()));
+        return file;
+    }
+
+    private static List<String> aliases(KeyStoreSearchResult result) {
+        List<String> aliases = new ArrayList<>();
+        for (Entry entry : result.getMatches()) {
+            aliases.add(entry.getAlias());
+        }
+        return aliases;
+    }
+
+    @Test
+    void unchangedFilesAreSearchedInPersistedIndex(@TempDir File directory) throws Exception {
+        File corpus = new File(directory, "corpus");
+        File subDirectory = new File(corpus, "sub");
+        subDirectory.mkdirs();
+        File indexFile = new File(directory, "index.bin");
+
+        File jks = saveKeyStore(new File(subDirectory, "web.jks"), KeyStoreType.JKS, "changeit",
+                                certificate("CN=alpha.example.com", 0xA1));
+        File cer = new File(corpus, "beta.cer");
+        Files.write(cer.toPath(), certificate("CN=beta.example.com", 0xB2).getEncoded());
+        File txt = new File(corpus, "notes.txt");
+        Files.write(txt.toPath(), "not a certificate".getBytes());
+
+        KeyStoreSearcher searcher = new KeyStoreSearcher(new KeyStoreCorpusIndex(indexFile), 2, file -> null);
+        List<File> files = searcher.listFiles(corpus);
+        assertThat(files).containsExactlyInAnyOrder(jks, cer, txt);
+
+        List<KeyStoreSearchResult> results = Collections.synchronizedList(new ArrayList<>());
+        searcher.search(files, "example.com", results::add);
+        assertThat(results).extracting(KeyStoreSearchResult::getStatus).containsOnly(Status.INDEXED);
+        assertThat(indexFile).isFile();
+
+        // a new index instance reads the persisted metadata instead of the files
+        searcher = new KeyStoreSearcher(new KeyStoreCorpusIndex(indexFile), 2, file -> null);
+
+        KeyStoreSearchResult result = searcher.search(jks, "a1");
+        assertThat(result.getStatus()).isEqualTo(Status.CACHED);
+        assertThat(aliases(result)).containsExactly("cn=alpha.example.com");
+        assertThat(result.getMatches().get(0).getSubject()).isEqualTo("CN=alpha.example.com");
+
+        assertThat(aliases(searcher.search(cer, "beta"))).containsExactly("beta.example.com (Example CA)");
+        assertThat(searcher.search(txt, "beta").getMatches()).isEmpty();
+
+        saveKeyStore(jks, KeyStoreType.JKS, "changeit", certificate("CN=gamma.example.com", 0xC3));
+        jks.setLastModified(jks.lastModified() + 2000);
+
+        result = searcher.search(jks, "gamma");
+        assertThat(result.getStatus()).isEqualTo(Status.INDEXED);
+        assertThat(aliases(result)).containsExactly("cn=gamma.example.com");
+    }
+
+    @Test
+    void keyStoresWithUnknownPasswordAreLocked(@TempDir File directory) throws Exception {
+        File p12 = saveKeyStore(new File(directory, "locked.p12"), KeyStoreType.PKCS12, "secret",
+                                certificate("CN=delta.example.com", 0xD4));
+        KeyStoreCorpusIndex index = new KeyStoreCorpusIndex(null);
+
+        KeyStoreSearchResult result = new KeyStoreSearcher(index, 1, file -> null).search(p12, "delta");
+        assertThat(result.getStatus()).isEqualTo(Status.LOCKED);
+        assertThat(index.size()).isZero();
+
+        result = new KeyStoreSearcher(index, 1, file -> new Password("secret".toCharArray())).search(p12, "delta");
+        assertThat(result.getStatus()).isEqualTo(Status.INDEXED);
+        assertThat(aliases(result)).containsExactly("cn=delta.example.com");
+    }
+
+    @Test
+    void deletedFilesAreRemovedFromIndex(@TempDir File directory) throws Exception {
+        File cer = new File(directory, "epsilon.cer");
+        Files.write(cer.toPath(), certificate("CN=epsilon.example.com", 0xE5).getEncoded());
+
+        KeyStoreCorpusIndex index = new KeyStoreCorpusIndex(null);
+        KeyStoreSearcher searcher = new KeyStoreSearcher(index, 1, file -> null);
+        searcher.search(cer, "epsilon");
+        assertThat(index.size()).isEqualTo(1);
+
+        Files.delete(cer.toPath());
+        assertThat(searcher.listFiles(directory)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+}
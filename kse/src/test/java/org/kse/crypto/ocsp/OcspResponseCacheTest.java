@@ -0,0 +1,145 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.ocsp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.keypair.KeyPairType;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+
+/**
+ * Unit tests for OcspResponseCache.
+ */
+public class OcspResponseCacheTest extends KeyPairTestsBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static X509Certificate caCert;
+    private static X509Certificate otherCaCert;
+
+    @BeforeAll
+    static void initCertificates() throws Exception {
+        X509CertificateGenerator generator = new X509CertificateGenerator(X509CertificateVersion.VERSION3);
+        caCert = generator.generateSelfSigned(new X500Name("CN=CA"), 24 * HOUR, rsaKeyPair.getPublic(),
+                                              rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, BigInteger.ONE);
+
+        KeyPair otherKeyPair = KeyPairUtil.generateKeyPair(KeyPairType.RSA, 2048, KSE.BC);
+        otherCaCert = generator.generateSelfSigned(new X500Name("CN=Other CA"), 24 * HOUR,
+                                                   otherKeyPair.getPublic(), otherKeyPair.getPrivate(),
+                                                   SignatureType.SHA256_RSA, BigInteger.ONE);
+    }
+
+    @Test
+    void currentResponseIsServedFromCache() throws Exception {
+        Date now = new Date();
+        CertificateID certId = OcspUtil.createCertificateId(caCert, BigInteger.TEN);
+        OCSPResp response = createResponse(certId, now, new Date(now.getTime() + HOUR));
+
+        OcspResponseCache cache = new OcspResponseCache(null);
+
+        assertThat(cache.get(certId, caCert, now)).isNull();
+        assertThat(cache.put(response, caCert, now)).isTrue();
+        assertThat(cache.get(certId, caCert, now)).isSameAs(response);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredResponseIsEvicted() throws Exception {
+        Date now = new Date();
+        CertificateID certId = OcspUtil.createCertificateId(caCert, BigInteger.TEN);
+        OCSPResp response = createResponse(certId, now, new Date(now.getTime() + HOUR));
+
+        OcspResponseCache cache = new OcspResponseCache(null);
+        cache.put(response, caCert, now);
+
+        assertThat(cache.get(certId, caCert, new Date(now.getTime() + 2 * HOUR))).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void responseNotSignedByIssuerIsRejected() throws Exception {
+        Date now = new Date();
+        CertificateID certId = OcspUtil.createCertificateId(caCert, BigInteger.TEN);
+        OCSPResp response = createResponse(certId, now, new Date(now.getTime() + HOUR));
+
+        OcspResponseCache cache = new OcspResponseCache(null);
+
+        assertThat(cache.put(response, otherCaCert, now)).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void cacheSurvivesSaveAndLoad(@TempDir File directory) throws Exception {
+        Date now = new Date();
+        CertificateID certId = OcspUtil.createCertificateId(caCert, BigInteger.TEN);
+        OCSPResp response = createResponse(certId, now, new Date(now.getTime() + HOUR));
+        File file = new File(directory, "ocsp-cache.bin");
+
+        OcspResponseCache cache = new OcspResponseCache(file);
+        cache.put(response, caCert, now);
+        cache.save();
+
+        OcspResponseCache reloaded = new OcspResponseCache(file);
+        OCSPResp cached = reloaded.get(certId, caCert, now);
+
+        assertThat(cached).isNotNull();
+        assertThat(cached.getEncoded()).isEqualTo(response.getEncoded());
+    }
+
+    private static OCSPResp createResponse(CertificateID certId, Date thisUpdate, Date nextUpdate)
+            throws Exception {
+        BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(
+                rsaKeyPair.getPublic(),
+                new JcaDigestCalculatorProviderBuilder().setProvider(KSE.BC).build().get(RespID.HASH_SHA1));
+        builder.addResponse(certId, CertificateStatus.GOOD, thisUpdate, nextUpdate);
+
+        BasicOCSPResp basicResp = builder.build(
+                new JcaContentSignerBuilder("SHA256withRSA").setProvider(KSE.BC).build(rsaKeyPair.getPrivate()),
+                null, thisUpdate);
+
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResp);
+    }
+}
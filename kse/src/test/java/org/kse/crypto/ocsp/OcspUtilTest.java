@@ -0,0 +1,312 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.ocsp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.ocsp.OCSPResponse;
+import org.bouncycastle.asn1.ocsp.OCSPResponseStatus;
+import org.bouncycastle.asn1.ocsp.ResponseBytes;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+import org.kse.crypto.x509.X509ExtensionSet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests for OcspUtil.
+ */
+public class OcspUtilTest extends KeyPairTestsBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private enum Mode {
+        ANSWER_ALL,
+        ANSWER_FIRST,
+        REJECT_BATCHES,
+        MALFORMED_BATCHES,
+        UNVERIFIABLE_BATCHES
+    }
+
+    private static X509Certificate caCert;
+
+    private final List<Integer> requestSizes = Collections.synchronizedList(new ArrayList<>());
+    private volatile Mode mode = Mode.ANSWER_ALL;
+    private HttpServer server;
+    private String url;
+
+    @BeforeAll
+    static void initCertificates() throws Exception {
+        X509CertificateGenerator generator = new X509CertificateGenerator(X509CertificateVersion.VERSION3);
+        caCert = generator.generateSelfSigned(new X500Name("CN=CA"), 24 * HOUR, rsaKeyPair.getPublic(),
+                                              rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, BigInteger.ONE);
+    }
+
+    @BeforeEach
+    void startResponder() throws IOException {
+        OcspResponseCache.getInstance().clear();
+
+        // every test gets its own port and thus its own URL for the remembered batch rejections
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ocsp", this::respond);
+        server.start();
+        url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/ocsp";
+    }
+
+    @AfterEach
+    void stopResponder() {
+        server.stop(0);
+        OcspUtil.setClock(Clock.systemUTC());
+    }
+
+    @Test
+    void certificateIdsAreRequestedInBatchesOfFifty() throws Exception {
+        List<CertificateID> certIds = createCertificateIds(1000, 120);
+
+        Map<CertificateID, OCSPResp> responses = OcspUtil.getResponses(url, caCert, certIds);
+
+        assertThat(requestSizes).containsExactly(50, 50, 20);
+        assertThat(responses).hasSize(120);
+        for (CertificateID certId : certIds) {
+            assertThat(getCertificateIds(responses.get(certId))).contains(certId);
+        }
+    }
+
+    @Test
+    void rejectedBatchFallsBackToSingleRequests() throws Exception {
+        mode = Mode.REJECT_BATCHES;
+
+        Map<CertificateID, OCSPResp> responses = OcspUtil.getResponses(url, caCert, createCertificateIds(2000, 3));
+
+        assertThat(requestSizes).containsExactly(3, 1, 1, 1);
+        assertThat(responses).hasSize(3);
+
+        // the rejection is remembered for the responder
+        requestSizes.clear();
+        responses = OcspUtil.getResponses(url, caCert, createCertificateIds(3000, 2));
+
+        assertThat(requestSizes).containsExactly(1, 1);
+        assertThat(responses).hasSize(2);
+    }
+
+    @Test
+    void partiallyAnsweredBatchFallsBackToSingleRequests() throws Exception {
+        mode = Mode.ANSWER_FIRST;
+        List<CertificateID> certIds = createCertificateIds(4000, 3);
+
+        Map<CertificateID, OCSPResp> responses = OcspUtil.getResponses(url, caCert, certIds);
+
+        assertThat(requestSizes).containsExactly(3, 1, 1);
+        assertThat(responses).hasSize(3);
+        for (CertificateID certId : certIds) {
+            assertThat(getCertificateIds(responses.get(certId))).contains(certId);
+        }
+    }
+
+    @Test
+    void malformedBatchResponseFallsBackToSingleRequests() throws Exception {
+        mode = Mode.MALFORMED_BATCHES;
+
+        Map<CertificateID, OCSPResp> responses = OcspUtil.getResponses(url, caCert, createCertificateIds(9000, 2));
+
+        assertThat(requestSizes).containsExactly(2, 1, 1);
+        assertThat(responses).hasSize(2);
+    }
+
+    @Test
+    void unverifiableBatchResponseIsNoRejection() throws Exception {
+        mode = Mode.UNVERIFIABLE_BATCHES;
+
+        Map<CertificateID, OCSPResp> responses = OcspUtil.getResponses(url, caCert, createCertificateIds(10000, 2));
+
+        assertThat(requestSizes).containsExactly(2, 1, 1);
+        assertThat(responses).hasSize(2);
+
+        // batches are still sent to the responder
+        requestSizes.clear();
+        OcspUtil.getResponses(url, caCert, createCertificateIds(11000, 2));
+
+        assertThat(requestSizes).containsExactly(2, 1, 1);
+    }
+
+    @Test
+    void batchRejectionExpires() throws Exception {
+        Instant start = Instant.now();
+        OcspUtil.setClock(Clock.fixed(start, ZoneOffset.UTC));
+        mode = Mode.REJECT_BATCHES;
+        OcspUtil.getResponses(url, caCert, createCertificateIds(5000, 2));
+
+        // the responder has been fixed, but is still sent single requests for a while
+        mode = Mode.ANSWER_ALL;
+        requestSizes.clear();
+        OcspUtil.setClock(Clock.fixed(start.plus(Duration.ofMinutes(59)), ZoneOffset.UTC));
+        OcspUtil.getResponses(url, caCert, createCertificateIds(6000, 2));
+
+        assertThat(requestSizes).containsExactly(1, 1);
+
+        requestSizes.clear();
+        OcspUtil.setClock(Clock.fixed(start.plus(Duration.ofMinutes(61)), ZoneOffset.UTC));
+        OcspUtil.getResponses(url, caCert, createCertificateIds(7000, 2));
+
+        assertThat(requestSizes).containsExactly(2);
+    }
+
+    @Test
+    void responseOfDelegatedResponderWithOtherKeyTypeIsValid() throws Exception {
+        Date now = new Date();
+        KeyPair responderKeyPair = KeyPairUtil.generateECKeyPair("prime256v1", KSE.BC);
+
+        X509ExtensionSet extensions = new X509ExtensionSet();
+        extensions.addExtension(Extension.extendedKeyUsage.getId(), false, new DEROctetString(
+                new ExtendedKeyUsage(KeyPurposeId.id_kp_OCSPSigning)).getEncoded());
+        X509Certificate responderCert = new X509CertificateGenerator(X509CertificateVersion.VERSION3).generate(
+                new X500Name("CN=Responder"), new X500Name("CN=CA"), new Date(now.getTime() - HOUR),
+                new Date(now.getTime() + HOUR), responderKeyPair.getPublic(), rsaKeyPair.getPrivate(),
+                SignatureType.SHA256_RSA, BigInteger.valueOf(2), extensions, KSE.BC);
+
+        BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(responderKeyPair.getPublic(),
+                new JcaDigestCalculatorProviderBuilder().setProvider(KSE.BC).build().get(RespID.HASH_SHA1));
+        builder.addResponse(createCertificateIds(8000, 1).get(0), CertificateStatus.GOOD, now,
+                            new Date(now.getTime() + HOUR));
+        BasicOCSPResp basicResp = builder.build(
+                new JcaContentSignerBuilder("SHA256withECDSA").setProvider(KSE.BC)
+                                                              .build(responderKeyPair.getPrivate()),
+                new X509CertificateHolder[] { new JcaX509CertificateHolder(responderCert) }, now);
+
+        // verifying with the RSA key of the issuer fails before the responder is tried
+        assertThat(OcspUtil.isSignatureValid(basicResp, caCert, now)).isTrue();
+    }
+
+    private static List<CertificateID> createCertificateIds(int firstSerial, int count) throws Exception {
+        List<CertificateID> certIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            certIds.add(OcspUtil.createCertificateId(caCert, BigInteger.valueOf(firstSerial + i)));
+        }
+        return certIds;
+    }
+
+    private static List<CertificateID> getCertificateIds(OCSPResp response) throws Exception {
+        List<CertificateID> certIds = new ArrayList<>();
+        for (SingleResp singleResp : ((BasicOCSPResp) response.getResponseObject()).getResponses()) {
+            certIds.add(singleResp.getCertID());
+        }
+        return certIds;
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        byte[] response;
+        try (InputStream is = exchange.getRequestBody()) {
+            Req[] requests = new OCSPReq(is.readAllBytes()).getRequestList();
+            requestSizes.add(requests.length);
+            response = createResponse(requests).getEncoded();
+        } catch (Exception ex) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/ocsp-response");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    private OCSPResp createResponse(Req[] requests) throws Exception {
+        if (mode == Mode.REJECT_BATCHES && requests.length > 1) {
+            return new OCSPRespBuilder().build(OCSPRespBuilder.MALFORMED_REQUEST, null);
+        }
+        if (mode == Mode.MALFORMED_BATCHES && requests.length > 1) {
+            // successful, but the basic response cannot be parsed
+            return new OCSPResp(new OCSPResponse(new OCSPResponseStatus(OCSPResponseStatus.SUCCESSFUL),
+                                                 new ResponseBytes(OCSPObjectIdentifiers.id_pkix_ocsp_basic,
+                                                                   new DEROctetString(new byte[] { 1, 2, 3 }))));
+        }
+
+        Date now = new Date();
+        Date thisUpdate = new Date(now.getTime() - 60 * 1000L);
+        Date nextUpdate = new Date(now.getTime() + HOUR);
+
+        BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(rsaKeyPair.getPublic(),
+                new JcaDigestCalculatorProviderBuilder().setProvider(KSE.BC).build().get(RespID.HASH_SHA1));
+        int answered = mode == Mode.ANSWER_FIRST ? 1 : requests.length;
+        for (int i = 0; i < answered; i++) {
+            builder.addResponse(requests[i].getCertID(), CertificateStatus.GOOD, thisUpdate, nextUpdate);
+        }
+
+        // a key that is not the issuer's makes the signature unverifiable
+        KeyPair signingKeyPair = mode == Mode.UNVERIFIABLE_BATCHES && requests.length > 1 ? dsaKeyPair : rsaKeyPair;
+        String signatureAlgorithm = signingKeyPair == dsaKeyPair ? "SHA256withDSA" : "SHA256withRSA";
+
+        BasicOCSPResp basicResp = builder.build(
+                new JcaContentSignerBuilder(signatureAlgorithm).setProvider(KSE.BC)
+                                                               .build(signingKeyPair.getPrivate()),
+                null, now);
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResp);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.verify;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.keypair.KeyPairType;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+
+/**
+ * Unit tests for KeyStoreVerifier.
+ */
+public class KeyStoreVerifierTest extends KeyPairTestsBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static X509Certificate caCert;
+    private static X509Certificate validCert;
+    private static X509Certificate expiredCert;
+    private static X509Certificate foreignCert;
+
+    @BeforeAll
+    static void initCertificates() throws Exception {
+        X509CertificateGenerator generator = new X509CertificateGenerator(X509CertificateVersion.VERSION3);
+        X500Name caName = new X500Name("CN=CA");
+        caCert = generator.generateSelfSigned(caName, 24 * HOUR, rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(),
+                                              SignatureType.SHA256_RSA, BigInteger.ONE);
+
+        KeyPair leafKeyPair = KeyPairUtil.generateKeyPair(KeyPairType.RSA, 1024, KSE.BC);
+        Date now = new Date();
+        validCert = generator.generate(new X500Name("CN=Valid"), caName, new Date(now.getTime() - HOUR),
+                                       new Date(now.getTime() + HOUR), leafKeyPair.getPublic(),
+                                       rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, BigInteger.valueOf(2));
+        expiredCert = generator.generate(new X500Name("CN=Expired"), caName, new Date(now.getTime() - 2 * HOUR),
+                                         new Date(now.getTime() - HOUR), leafKeyPair.getPublic(),
+                                         rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, BigInteger.valueOf(3));
+        foreignCert = generator.generate(new X500Name("CN=Foreign"), new X500Name("CN=Other CA"),
+                                         new Date(now.getTime() - HOUR), new Date(now.getTime() + HOUR),
+                                         leafKeyPair.getPublic(), leafKeyPair.getPrivate(),
+                                         SignatureType.SHA256_RSA, BigInteger.valueOf(4));
+    }
+
+    @Test
+    void allEntriesAreVerified() throws Exception {
+        Map<String, X509Certificate[]> chains = new LinkedHashMap<>();
+        chains.put("ca", new X509Certificate[] { caCert });
+        chains.put("valid", new X509Certificate[] { validCert, caCert });
+        chains.put("expired", new X509Certificate[] { expiredCert });
+        chains.put("foreign", new X509Certificate[] { foreignCert });
+
+        KeyStoreVerifier verifier = new KeyStoreVerifier(Collections.singletonList(caCert), RevocationCheck.NONE,
+                                                         null, null, 3);
+        List<VerificationResult> results = new CopyOnWriteArrayList<>();
+        verifier.verify(chains, results::add);
+
+        assertThat(results).hasSize(4);
+        assertThat(statusOf(results, "ca")).isEqualTo(VerificationResult.Status.VALID);
+        assertThat(statusOf(results, "valid")).isEqualTo(VerificationResult.Status.VALID);
+        assertThat(statusOf(results, "expired")).isEqualTo(VerificationResult.Status.EXPIRED);
+        assertThat(statusOf(results, "foreign")).isEqualTo(VerificationResult.Status.INVALID);
+    }
+
+    @Test
+    void csvReportQuotesFields() throws Exception {
+        VerificationResult result = new VerificationResult("a,b", "CN=\"x\"", VerificationResult.Status.VALID,
+                                                           null, 5);
+        StringWriter writer = new StringWriter();
+
+        VerificationReport.writeCsv(Collections.singletonList(result), writer);
+
+        assertThat(writer.toString()).isEqualTo("alias,subject,status,details,timeMs\r\n" +
+                                                "\"a,b\",\"CN=\"\"x\"\"\",VALID,,5\r\n");
+    }
+
+    private static VerificationResult.Status statusOf(List<VerificationResult> results, String alias) {
+        return results.stream().filter(r -> r.getAlias().equals(alias)).findFirst().get().getStatus();
+    }
+}
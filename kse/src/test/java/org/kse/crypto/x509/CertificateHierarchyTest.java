@@ -0,0 +1,134 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.x509;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Comparator;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.CryptoTestsBase;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.publickey.KeyIdentifierGenerator;
+import org.kse.crypto.signing.SignatureType;
+
+/**
+ * Unit tests for CertificateHierarchy.
+ */
+public class CertificateHierarchyTest extends CryptoTestsBase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final Comparator<X509Certificate> BY_SUBJECT = Comparator.comparing(
+            cert -> cert.getSubjectX500Principal().getName());
+
+    private int serialNumber;
+
+    @Test
+    void chainsAndOrphans() throws Exception {
+        KeyPair rootKeyPair = generateKeyPair();
+        KeyPair intermediateKeyPair = generateKeyPair();
+        KeyPair eeKeyPair = generateKeyPair();
+
+        X509Certificate root = generate("CN=A Root", rootKeyPair.getPublic(), "CN=A Root", rootKeyPair);
+        X509Certificate intermediate = generate("CN=B Intermediate", intermediateKeyPair.getPublic(), "CN=A Root",
+                                                rootKeyPair);
+        X509Certificate ee1 = generate("CN=C EE", eeKeyPair.getPublic(), "CN=B Intermediate", intermediateKeyPair);
+        X509Certificate ee2 = generate("CN=D EE", eeKeyPair.getPublic(), "CN=B Intermediate", intermediateKeyPair);
+        X509Certificate orphan = generate("CN=E Orphan", eeKeyPair.getPublic(), "CN=Missing", rootKeyPair);
+
+        CertificateHierarchy hierarchy = new CertificateHierarchy(
+                new X509Certificate[] { ee2, orphan, ee1, intermediate, root, ee1 }, BY_SUBJECT);
+
+        assertThat(hierarchy.getRoots()).containsExactly(root, orphan);
+        assertThat(hierarchy.getIssued(root)).containsExactly(intermediate);
+        assertThat(hierarchy.getIssued(intermediate)).containsExactly(ee1, ee2);
+        assertThat(hierarchy.getIssued(ee1)).isEmpty();
+        assertThat(hierarchy.getIssuer(ee2)).isSameAs(intermediate);
+        // self-signed and orphaned certificates need no verification
+        assertThat(hierarchy.getVerifications()).isEqualTo(3);
+    }
+
+    @Test
+    void keyIdentifierSelectsIssuerWithSameSubject() throws Exception {
+        KeyPair oldCaKeyPair = generateKeyPair();
+        KeyPair newCaKeyPair = generateKeyPair();
+        KeyPair eeKeyPair = generateKeyPair();
+
+        X509Certificate oldCa = generate("CN=CA", oldCaKeyPair.getPublic(), "CN=CA", oldCaKeyPair);
+        X509Certificate newCa = generate("CN=CA", newCaKeyPair.getPublic(), "CN=CA", newCaKeyPair);
+        X509Certificate ee = generate("CN=EE", eeKeyPair.getPublic(), "CN=CA", newCaKeyPair);
+
+        CertificateHierarchy hierarchy = new CertificateHierarchy(new X509Certificate[] { oldCa, ee, newCa },
+                                                                  BY_SUBJECT);
+
+        assertThat(hierarchy.getRoots()).containsExactlyInAnyOrder(oldCa, newCa);
+        assertThat(hierarchy.getIssuer(ee)).isSameAs(newCa);
+        assertThat(hierarchy.getVerifications()).isEqualTo(1);
+    }
+
+    @Test
+    void crossCertifiedCasDoNotFormCycle() throws Exception {
+        KeyPair aKeyPair = generateKeyPair();
+        KeyPair bKeyPair = generateKeyPair();
+
+        X509Certificate aByB = generate("CN=A", aKeyPair.getPublic(), "CN=B", bKeyPair);
+        X509Certificate bByA = generate("CN=B", bKeyPair.getPublic(), "CN=A", aKeyPair);
+
+        CertificateHierarchy hierarchy = new CertificateHierarchy(new X509Certificate[] { aByB, bByA }, BY_SUBJECT);
+
+        assertThat(hierarchy.getRoots()).hasSize(1);
+        X509Certificate root = hierarchy.getRoots().get(0);
+        assertThat(hierarchy.getIssued(root)).containsExactly(root == aByB ? bByA : aByB);
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        return KeyPairUtil.generateECKeyPair("prime256v1", KSE.BC);
+    }
+
+    private X509Certificate generate(String subject, PublicKey publicKey, String issuer, KeyPair issuerKeyPair)
+            throws Exception {
+        X509ExtensionSet extensions = new X509ExtensionSet();
+        KeyIdentifierGenerator ski = new KeyIdentifierGenerator(publicKey);
+        extensions.addExtension(Extension.subjectKeyIdentifier.getId(), false, new DEROctetString(
+                new SubjectKeyIdentifier(ski.generate160BitHashId())).getEncoded(ASN1Encoding.DER));
+        KeyIdentifierGenerator aki = new KeyIdentifierGenerator(issuerKeyPair.getPublic());
+        extensions.addExtension(Extension.authorityKeyIdentifier.getId(), false, new DEROctetString(
+                new AuthorityKeyIdentifier(aki.generate160BitHashId())).getEncoded(ASN1Encoding.DER));
+
+        Date notBefore = new Date();
+        return new X509CertificateGenerator(X509CertificateVersion.VERSION3).generate(
+                new X500Name(subject), new X500Name(issuer), notBefore, new Date(notBefore.getTime() + DAY),
+                publicKey, issuerKeyPair.getPrivate(), SignatureType.SHA256_ECDSA,
+                BigInteger.valueOf(++serialNumber), extensions, KSE.BC);
+    }
+}
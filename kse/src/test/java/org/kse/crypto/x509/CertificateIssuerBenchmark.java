@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.x509;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.kse.KSE;
+import org.kse.crypto.keypair.KeyPairType;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.signing.SignatureType;
+
+/**
+ * Measures how many certificates per second are issued per CA key type, once
+ * with X509CertificateGenerator and once with CertificateIssuer on one and on
+ * all cores. Not a unit test; run with "gradlew benchmarkCertificateIssuer",
+ * optionally with the number of certificates and threads as arguments.
+ */
+public class CertificateIssuerBenchmark {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    public static void main(String[] args) throws Exception {
+        Security.addProvider(KSE.BC);
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // all certificates are for the same subject key, only the CA's signature is of interest here
+        KeyPair subjectKeyPair = KeyPairUtil.generateECKeyPair("prime256v1", KSE.BC);
+
+        System.out.printf("%d certificates, %d threads%n", count, threads);
+        System.out.printf("%-10s %15s %15s %15s%n", "CA key", "generator/s", "issuer/s", "parallel/s");
+
+        benchmark("RSA 2048", KeyPairUtil.generateKeyPair(KeyPairType.RSA, 2048, KSE.BC), SignatureType.SHA256_RSA,
+                  subjectKeyPair, count, threads);
+        benchmark("EC P-256", KeyPairUtil.generateECKeyPair("prime256v1", KSE.BC), SignatureType.SHA256_ECDSA,
+                  subjectKeyPair, count, threads);
+        benchmark("Ed25519", KeyPairUtil.generateECKeyPair("Ed25519", KSE.BC), SignatureType.ED25519,
+                  subjectKeyPair, count, threads);
+    }
+
+    private static void benchmark(String name, KeyPair caKeyPair, SignatureType signatureType,
+                                  KeyPair subjectKeyPair, int count, int threads) throws Exception {
+        X509CertificateGenerator generator = new X509CertificateGenerator(X509CertificateVersion.VERSION3);
+        X500Name caName = new X500Name("CN=Benchmark CA");
+        X509ExtensionSet extensions = new X509ExtensionSet();
+
+        Date notBefore = new Date();
+        Date notAfter = new Date(notBefore.getTime() + DAY);
+
+        List<CertificateIssuer.Request> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(new CertificateIssuer.Request(new X500Name("CN=Certificate " + i),
+                                                       subjectKeyPair.getPublic(), BigInteger.valueOf(i + 2),
+                                                       notBefore, notAfter));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            generator.generate(new X500Name("CN=Certificate " + i), caName, notBefore, notAfter,
+                               subjectKeyPair.getPublic(), caKeyPair.getPrivate(), signatureType,
+                               BigInteger.valueOf(i + 2), extensions, KSE.BC);
+        }
+        double generatorRate = rate(count, start);
+
+        X509Certificate caCert = generator.generateSelfSigned(caName, DAY, caKeyPair.getPublic(),
+                                                              caKeyPair.getPrivate(), signatureType, BigInteger.ONE);
+        CertificateIssuer issuer = new CertificateIssuer(X509CertificateVersion.VERSION3, caCert,
+                                                         caKeyPair.getPrivate(), signatureType, null, extensions);
+
+        AtomicLong bytes = new AtomicLong();
+
+        start = System.nanoTime();
+        for (CertificateIssuer.Request request : requests) {
+            bytes.addAndGet(issuer.issue(request).length);
+        }
+        double issuerRate = rate(count, start);
+
+        start = System.nanoTime();
+        issuer.issue(requests, threads, (index, certificate) -> bytes.addAndGet(certificate.length));
+        double parallelRate = rate(count, start);
+
+        System.out.printf("%-10s %15.0f %15.0f %15.0f%n", name, generatorRate, issuerRate, parallelRate);
+    }
+
+    private static double rate(int count, long start) {
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.crypto.x509;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kse.KSE;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.keypair.KeyPairUtil;
+import org.kse.crypto.publickey.KeyIdentifierGenerator;
+import org.kse.crypto.signing.SignatureType;
+
+/**
+ * Unit tests for CertificateIssuer.
+ */
+public class CertificateIssuerTest extends KeyPairTestsBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static X509Certificate caCert;
+
+    @BeforeAll
+    static void initCaCertificate() throws Exception {
+        caCert = new X509CertificateGenerator(X509CertificateVersion.VERSION3).generateSelfSigned(
+                new X500Name("CN=CA"), 24 * HOUR, rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(),
+                SignatureType.SHA256_RSA, BigInteger.ONE);
+    }
+
+    @Test
+    void issuedCertificateHasIssuerAndExtensions() throws Exception {
+        X509ExtensionSet extensions = new X509ExtensionSet();
+        extensions.addExtension(Extension.basicConstraints.getId(), true,
+                                new DEROctetString(new BasicConstraints(false)).getEncoded(ASN1Encoding.DER));
+        // placeholders, the key identifiers are calculated for each certificate and from the issuer
+        extensions.addExtension(Extension.subjectKeyIdentifier.getId(), false,
+                                new DEROctetString(new SubjectKeyIdentifier(new byte[20])).getEncoded(
+                                        ASN1Encoding.DER));
+        extensions.addExtension(Extension.authorityKeyIdentifier.getId(), false,
+                                new DEROctetString(new AuthorityKeyIdentifier(new byte[20])).getEncoded(
+                                        ASN1Encoding.DER));
+
+        CertificateIssuer issuer = new CertificateIssuer(X509CertificateVersion.VERSION3, caCert,
+                                                         rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, null,
+                                                         extensions);
+        KeyPair keyPair = KeyPairUtil.generateECKeyPair("prime256v1", KSE.BC);
+        Date notBefore = new Date(System.currentTimeMillis() / 1000 * 1000);
+        Date notAfter = new Date(notBefore.getTime() + HOUR);
+
+        X509Certificate cert = toCertificate(issuer.issue(
+                new CertificateIssuer.Request(new X500Name("CN=Leaf"), keyPair.getPublic(), BigInteger.TEN,
+                                              notBefore, notAfter)));
+
+        cert.verify(caCert.getPublicKey());
+        assertThat(cert.getVersion()).isEqualTo(3);
+        assertThat(cert.getIssuerX500Principal()).isEqualTo(caCert.getSubjectX500Principal());
+        assertThat(cert.getSubjectX500Principal().getName()).isEqualTo("CN=Leaf");
+        assertThat(cert.getSerialNumber()).isEqualTo(BigInteger.TEN);
+        assertThat(cert.getNotBefore()).isEqualTo(notBefore);
+        assertThat(cert.getNotAfter()).isEqualTo(notAfter);
+        assertThat(cert.getPublicKey()).isEqualTo(keyPair.getPublic());
+        assertThat(cert.getCriticalExtensionOIDs()).containsExactly(Extension.basicConstraints.getId());
+        assertThat(cert.getNonCriticalExtensionOIDs()).containsExactlyInAnyOrder(
+                Extension.subjectKeyIdentifier.getId(), Extension.authorityKeyIdentifier.getId());
+
+        byte[] ski = SubjectKeyIdentifier.getInstance(
+                X509Ext.unwrapExtension(cert.getExtensionValue(Extension.subjectKeyIdentifier.getId())))
+                                         .getKeyIdentifier();
+        assertThat(ski).isEqualTo(new KeyIdentifierGenerator(keyPair.getPublic()).generate160BitHashId());
+
+        byte[] aki = AuthorityKeyIdentifier.getInstance(
+                X509Ext.unwrapExtension(cert.getExtensionValue(Extension.authorityKeyIdentifier.getId())))
+                                           .getKeyIdentifier();
+        assertThat(aki).isEqualTo(new KeyIdentifierGenerator(caCert.getPublicKey()).generate160BitHashId());
+    }
+
+    @Test
+    void extensionsOfRequestAreAdded() throws Exception {
+        X509ExtensionSet extensions = new X509ExtensionSet();
+        extensions.addExtension(Extension.basicConstraints.getId(), true,
+                                new DEROctetString(new BasicConstraints(false)).getEncoded(ASN1Encoding.DER));
+
+        X509ExtensionSet requestExtensions = new X509ExtensionSet();
+        byte[] san = new DEROctetString(new GeneralNames(new GeneralName(GeneralName.dNSName, "leaf.example.com")))
+                .getEncoded(ASN1Encoding.DER);
+        requestExtensions.addExtension(Extension.subjectAlternativeName.getId(), false, san);
+
+        CertificateIssuer issuer = new CertificateIssuer(X509CertificateVersion.VERSION3, caCert,
+                                                         rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, null,
+                                                         extensions);
+        Date now = new Date();
+
+        X509Certificate cert = toCertificate(issuer.issue(
+                new CertificateIssuer.Request(new X500Name("CN=Leaf"), rsaKeyPair.getPublic(), BigInteger.TEN, now,
+                                              new Date(now.getTime() + HOUR), requestExtensions)));
+
+        cert.verify(caCert.getPublicKey());
+        assertThat(cert.getCriticalExtensionOIDs()).containsExactly(Extension.basicConstraints.getId());
+        assertThat(cert.getNonCriticalExtensionOIDs()).containsExactly(Extension.subjectAlternativeName.getId());
+        assertThat(cert.getExtensionValue(Extension.subjectAlternativeName.getId())).isEqualTo(san);
+    }
+
+    @Test
+    void version1CertificateHasNoExtensions() throws Exception {
+        X509ExtensionSet extensions = new X509ExtensionSet();
+        extensions.addExtension(Extension.basicConstraints.getId(), true,
+                                new DEROctetString(new BasicConstraints(false)).getEncoded(ASN1Encoding.DER));
+
+        CertificateIssuer issuer = new CertificateIssuer(X509CertificateVersion.VERSION1, caCert,
+                                                         rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, null,
+                                                         extensions);
+        Date now = new Date();
+
+        X509Certificate cert = toCertificate(issuer.issue(
+                new CertificateIssuer.Request(new X500Name("CN=Leaf"), rsaKeyPair.getPublic(), BigInteger.TEN, now,
+                                              new Date(now.getTime() + HOUR), extensions)));
+
+        cert.verify(caCert.getPublicKey());
+        assertThat(cert.getVersion()).isEqualTo(1);
+        assertThat(cert.getCriticalExtensionOIDs()).isNull();
+        assertThat(cert.getNonCriticalExtensionOIDs()).isNull();
+    }
+
+    @Test
+    void certificatesAreIssuedInParallel() throws Exception {
+        CertificateIssuer issuer = new CertificateIssuer(X509CertificateVersion.VERSION3, caCert,
+                                                         rsaKeyPair.getPrivate(), SignatureType.SHA256_RSA, null,
+                                                         null);
+        Date now = new Date();
+
+        List<CertificateIssuer.Request> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(new CertificateIssuer.Request(new X500Name("CN=Leaf " + i), rsaKeyPair.getPublic(),
+                                                       BigInteger.valueOf(i + 2), now,
+                                                       new Date(now.getTime() + HOUR)));
+        }
+
+        AtomicReferenceArray<byte[]> issued = new AtomicReferenceArray<>(requests.size());
+        issuer.issue(requests, 4, issued::set);
+
+        for (int i = 0; i < requests.size(); i++) {
+            X509Certificate cert = toCertificate(issued.get(i));
+            cert.verify(caCert.getPublicKey());
+            assertThat(cert.getSerialNumber()).isEqualTo(BigInteger.valueOf(i + 2));
+            assertThat(cert.getNonCriticalExtensionOIDs()).isNull();
+        }
+    }
+
+    private static X509Certificate toCertificate(byte[] der) throws Exception {
+        return (X509Certificate) CertificateFactory.getInstance("X.509")
+                                                   .generateCertificate(new ByteArrayInputStream(der));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.gui.dialogs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ResourceBundle;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+import org.kse.gui.passwordmanager.Password;
+import org.kse.utilities.history.KeyStoreHistory;
+import org.kse.utilities.io.IndentChar;
+import org.kse.utilities.io.IndentSequence;
+
+/**
+ * Unit tests for KeyStorePropertiesTree.
+ */
+class KeyStorePropertiesTreeTest extends KeyPairTestsBase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final char[] KEYSTORE_PASSWORD = "keystore".toCharArray();
+    private static final char[] ENTRY_PASSWORD = "entry".toCharArray();
+
+    private static final IndentSequence INDENT = new IndentSequence(IndentChar.SPACE, 4);
+
+    private static ResourceBundle res = ResourceBundle.getBundle("org/kse/gui/dialogs/resources");
+
+    private KeyStorePropertiesTree propertiesTree;
+
+    @BeforeEach
+    void createKeyStore() throws Exception {
+        X509Certificate rsaCert = certificate("CN=RSA", rsaKeyPair.getPublic(), 1);
+        X509Certificate dsaCert = certificate("CN=DSA", dsaKeyPair.getPublic(), 2);
+
+        KeyStore keyStore = KeyStore.getInstance("JCEKS");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("trusted", dsaCert);
+        keyStore.setKeyEntry("rsa", rsaKeyPair.getPrivate(), ENTRY_PASSWORD, new Certificate[] { rsaCert });
+        keyStore.setKeyEntry("locked", dsaKeyPair.getPrivate(), ENTRY_PASSWORD, new Certificate[] { dsaCert });
+        keyStore.setKeyEntry("aes", new SecretKeySpec(new byte[16], "AES"), ENTRY_PASSWORD, null);
+
+        KeyStoreHistory history = new KeyStoreHistory(keyStore, new File("test.jceks"),
+                                                      new Password(KEYSTORE_PASSWORD.clone()));
+        history.getCurrentState().setEntryPassword("rsa", new Password(ENTRY_PASSWORD.clone()));
+        history.getCurrentState().setEntryPassword("aes", new Password(ENTRY_PASSWORD.clone()));
+
+        propertiesTree = new KeyStorePropertiesTree(history);
+    }
+
+    @Test
+    void contentsOfLazyTreeMatchEagerTree() throws Exception {
+        String contents = propertiesTree.getContents(propertiesTree.createRootNode());
+
+        assertThat(contents).isEqualTo(getEagerContents(propertiesTree.createRootNode()));
+        assertThat(contents).doesNotContain(res.getString("DProperties.properties.Loading"));
+        assertThat(contents).contains("        rsa\n            ", "        aes\n            ",
+                                      "        trusted\n            ");
+    }
+
+    @Test
+    void contentsDoNotDependOnExpandedEntries() throws Exception {
+        DefaultMutableTreeNode rootNode = propertiesTree.createRootNode();
+        String contents = propertiesTree.getContents(rootNode);
+
+        // expand the entries the way the dialog does
+        expandEntries(rootNode);
+
+        assertThat(propertiesTree.getContents(rootNode)).isEqualTo(contents);
+    }
+
+    /**
+     * The text the dialog copied when it still created the whole tree up front.
+     */
+    private static String getEagerContents(DefaultMutableTreeNode rootNode) throws Exception {
+        expandEntries(rootNode);
+        return getNodeContents(rootNode, 0);
+    }
+
+    private static void expandEntries(TreeNode node) throws Exception {
+        if (node instanceof KeyStorePropertiesTree.EntryNode) {
+            KeyStorePropertiesTree.EntryNode entryNode = (KeyStorePropertiesTree.EntryNode) node;
+            DefaultMutableTreeNode details = entryNode.createDetails();
+
+            entryNode.removeAllChildren();
+            while (details.getChildCount() > 0) {
+                entryNode.add((MutableTreeNode) details.getFirstChild());
+            }
+            return;
+        }
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            expandEntries(node.getChildAt(i));
+        }
+    }
+
+    private static String getNodeContents(TreeNode node, int level) {
+        StringBuilder strBuff = new StringBuilder();
+
+        strBuff.append(INDENT.toString(level));
+
+        strBuff.append(node.toString().trim());
+        strBuff.append("\n");
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            strBuff.append(getNodeContents(node.getChildAt(i), level + 1));
+        }
+
+        return strBuff.toString();
+    }
+
+    private static X509Certificate certificate(String dn, PublicKey publicKey, int serial)
+            throws Exception {
+        X509CertificateGenerator generator = new X509CertificateGenerator(X509CertificateVersion.VERSION3);
+        return generator.generateSelfSigned(new X500Name(dn), DAY, publicKey, rsaKeyPair.getPrivate(),
+                                            SignatureType.SHA256_RSA, BigInteger.valueOf(serial));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.history;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kse.crypto.KeyPairTestsBase;
+import org.kse.crypto.signing.SignatureType;
+import org.kse.crypto.x509.X509CertificateGenerator;
+import org.kse.crypto.x509.X509CertificateVersion;
+import org.kse.gui.passwordmanager.Password;
+import org.kse.utilities.history.KeyStoreDiff.Change;
+
+/**
+ * Unit tests for KeyStoreDiff.
+ */
+class KeyStoreDiffTest extends KeyPairTestsBase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final char[] KEYSTORE_PASSWORD = "keystore".toCharArray();
+    private static final char[] ENTRY_PASSWORD = "entry".toCharArray();
+
+    private KeyStore baseKeyStore;
+    private KeyStore externalKeyStore;
+    private KeyStoreState baseState;
+
+    private X509Certificate certA;
+    private X509Certificate certB;
+    private X509Certificate certC;
+    private X509Certificate certD;
+
+    @BeforeEach
+    void createKeyStores() throws Exception {
+        certA = certificate("CN=A", 1);
+        certB = certificate("CN=B", 2);
+        certC = certificate("CN=C", 3);
+        certD = certificate("CN=D", 4);
+
+        baseKeyStore = emptyKeyStore();
+        baseKeyStore.setCertificateEntry("unchanged", certA);
+        baseKeyStore.setCertificateEntry("removed", certB);
+        baseKeyStore.setCertificateEntry("recertified", certC);
+        baseKeyStore.setKeyEntry("key", rsaKeyPair.getPrivate(), ENTRY_PASSWORD, new Certificate[] { certA });
+        baseKeyStore.setKeyEntry("rekeyed", rsaKeyPair.getPrivate(), ENTRY_PASSWORD, new Certificate[] { certB });
+
+        baseState = new KeyStoreHistory(baseKeyStore, new File("test.jks"),
+                                        new Password(KEYSTORE_PASSWORD.clone())).getCurrentState();
+        baseState.setEntryPassword("key", new Password(ENTRY_PASSWORD.clone()));
+        baseState.setEntryPassword("rekeyed", new Password(ENTRY_PASSWORD.clone()));
+
+        externalKeyStore = emptyKeyStore();
+        externalKeyStore.setCertificateEntry("unchanged", certA);
+        externalKeyStore.setCertificateEntry("recertified", certD);
+        externalKeyStore.setCertificateEntry("added", certC);
+        externalKeyStore.setKeyEntry("key", rsaKeyPair.getPrivate(), ENTRY_PASSWORD, new Certificate[] { certA });
+        externalKeyStore.setKeyEntry("rekeyed", dsaKeyPair.getPrivate(), ENTRY_PASSWORD, new Certificate[] { certB });
+        externalKeyStore.setKeyEntry("addedkey", dsaKeyPair.getPrivate(), KEYSTORE_PASSWORD,
+                                     new Certificate[] { certD });
+        externalKeyStore.setKeyEntry("lockedkey", dsaKeyPair.getPrivate(), "unknown".toCharArray(),
+                                     new Certificate[] { certD });
+    }
+
+    @Test
+    void computeFindsAddedRemovedAndModifiedEntries() throws Exception {
+        KeyStoreDiff diff = KeyStoreDiff.compute(baseState, externalKeyStore, new Password(KEYSTORE_PASSWORD.clone()));
+
+        assertThat(diff.isEmpty()).isFalse();
+        assertThat(diff.getAliases(Change.ADDED)).containsExactly("added", "addedkey", "lockedkey");
+        assertThat(diff.getAliases(Change.REMOVED)).containsExactly("removed");
+        assertThat(diff.getAliases(Change.MODIFIED)).containsExactly("recertified", "rekeyed");
+        assertThat(diff.getChanges()).doesNotContainKeys("unchanged", "key");
+    }
+
+    @Test
+    void computeOfIdenticalKeyStoresIsEmpty() throws Exception {
+        KeyStoreDiff diff = KeyStoreDiff.compute(baseState, baseKeyStore, new Password(KEYSTORE_PASSWORD.clone()));
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(diff.getChanges()).isEmpty();
+    }
+
+    @Test
+    void applyToMergesChangesAndSkipsLockedKeys() throws Exception {
+        KeyStoreDiff diff = KeyStoreDiff.compute(baseState, externalKeyStore, new Password(KEYSTORE_PASSWORD.clone()));
+
+        assertThat(diff.applyTo(baseState)).containsExactly("lockedkey");
+
+        KeyStore merged = baseState.getKeyStore();
+        assertThat(merged.containsAlias("removed")).isFalse();
+        assertThat(merged.containsAlias("lockedkey")).isFalse();
+        assertThat(merged.getCertificate("unchanged")).isEqualTo(certA);
+        assertThat(merged.getCertificate("recertified")).isEqualTo(certD);
+        assertThat(merged.getCertificate("added")).isEqualTo(certC);
+
+        PrivateKey rekeyed = (PrivateKey) merged.getKey("rekeyed", ENTRY_PASSWORD);
+        assertThat(rekeyed.getEncoded()).isEqualTo(externalKeyStore.getKey("rekeyed", ENTRY_PASSWORD).getEncoded());
+
+        // the key of the added entry was recovered with the KeyStore password and is stored with it
+        PrivateKey added = (PrivateKey) merged.getKey("addedkey", KEYSTORE_PASSWORD);
+        assertThat(added.getEncoded()).isEqualTo(externalKeyStore.getKey("addedkey", KEYSTORE_PASSWORD).getEncoded());
+        assertThat(baseState.getEntryPassword("addedkey").toCharArray()).isEqualTo(KEYSTORE_PASSWORD);
+
+        // after the merge there is nothing left to merge
+        assertThat(KeyStoreDiff.compute(baseState, externalKeyStore, new Password(KEYSTORE_PASSWORD.clone()))
+                               .getChanges()).containsOnlyKeys("lockedkey");
+    }
+
+    private static KeyStore emptyKeyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        return keyStore;
+    }
+
+    private static X509Certificate certificate(String subject, long serial) throws Exception {
+        return new X509CertificateGenerator(X509CertificateVersion.VERSION3).generateSelfSigned(
+                new X500Name(subject), DAY, rsaKeyPair.getPublic(), rsaKeyPair.getPrivate(),
+                SignatureType.SHA256_RSA, BigInteger.valueOf(serial));
+    }
+}
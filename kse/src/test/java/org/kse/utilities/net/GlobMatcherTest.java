@@ -0,0 +1,67 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Unit tests for GlobMatcher. The expected result is always the one of the regex based conversion.
+ */
+class GlobMatcherTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = ';', value = {
+            "www.example.com; www.example.com",
+            "www.example.com; www.example.org",
+            "www.example.com; www?example.com",
+            "wwwXexample.com; www.example.com",
+            "www.example.com; *.example.com",
+            "example.com; *.example.com",
+            "www.example.com; (*.example.com|example.com)",
+            "example.com; (*.example.com|example.com)",
+            "example.org; (*.example.com|example.com)",
+            "http://example.com/folder/a.html; http://example.com/folder/*",
+            "http://example.com/other/a.html; http://example.com/folder/*",
+            "http://home.netscape.com/people/ari/index.html; */ari/*",
+            "http://home.netscape.com/people/montulli/index.html; */ari/*",
+            "abcabc; *abc*abc*",
+            "abcab; *abc*abc*",
+            "aaa; a*a*a",
+            "aa; a*a*a",
+            "abc; ???",
+            "abcd; ???",
+            "; *",
+            "; ?",
+            "10.1.2.3; 10.*",
+            "a.example.com; *.example.*",
+            "host1; host[0-9]",
+            "hostX; host[0-9]",
+            "www.example.com; ^www.*|*.org$",
+            "www.example.org; (www|mail).example.+",
+    })
+    void matchesLikeRegex(String text, String pattern) {
+        String str = text == null ? "" : text;
+
+        assertThat(GlobMatcher.compile(pattern).matches(str)).isEqualTo(str.matches(GlobMatcher.toRegex(pattern)));
+    }
+}
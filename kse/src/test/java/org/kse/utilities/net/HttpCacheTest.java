@@ -0,0 +1,104 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for HttpCache.
+ */
+class HttpCacheTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void maxAgeTakesPrecedenceOverExpires() {
+        HttpHeaders headers = headers("Cache-Control", "public, max-age=60", "Expires",
+                                      "Thu, 01 Jan 2099 00:00:00 GMT");
+
+        assertThat(HttpCache.freshUntil(headers, NOW)).isEqualTo(NOW + 60_000);
+    }
+
+    @Test
+    void noStoreIsNotCached() {
+        HttpCache cache = new HttpCache(1024);
+
+        assertThat(cache.put(uri("a"), new byte[10], headers("Cache-Control", "no-store"), NOW)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void staleEntryWithValidatorIsKeptForRevalidation() {
+        HttpCache cache = new HttpCache(1024);
+        cache.put(uri("a"), new byte[10], headers("Cache-Control", "no-cache", "ETag", "\"1\""), NOW);
+
+        HttpCache.Entry entry = cache.get(uri("a"), NOW + 1);
+
+        assertThat(entry).isNotNull();
+        assertThat(entry.isFresh(NOW + 1)).isFalse();
+        assertThat(entry.eTag).isEqualTo("\"1\"");
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() {
+        HttpCache cache = new HttpCache(100);
+        HttpHeaders headers = headers("Cache-Control", "max-age=60");
+
+        cache.put(uri("a"), new byte[25], headers, NOW);
+        cache.put(uri("b"), new byte[25], headers, NOW);
+        cache.put(uri("c"), new byte[25], headers, NOW);
+        cache.get(uri("a"), NOW);
+        cache.put(uri("d"), new byte[25], headers, NOW);
+        cache.put(uri("e"), new byte[25], headers, NOW);
+
+        assertThat(cache.get(uri("a"), NOW)).isNotNull();
+        assertThat(cache.get(uri("b"), NOW)).isNull();
+        assertThat(cache.size()).isEqualTo(4);
+    }
+
+    @Test
+    void largeBodiesAreNotCached() {
+        HttpCache cache = new HttpCache(100);
+
+        assertThat(cache.put(uri("a"), new byte[26], headers("Cache-Control", "max-age=60"), NOW)).isNull();
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://example.com/" + path);
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        Map<String, List<String>> map = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], Arrays.asList(namesAndValues[i + 1]));
+        }
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for LruCache.
+ */
+class LruCacheTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        LruCache<String, String> cache = new LruCache<>(2, 0);
+
+        cache.put("a", "1", NOW);
+        cache.put("b", "2", NOW);
+        cache.get("a", NOW);
+        cache.put("c", "3", NOW);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a", NOW)).isEqualTo("1");
+        assertThat(cache.get("b", NOW)).isNull();
+        assertThat(cache.get("c", NOW)).isEqualTo("3");
+    }
+
+    @Test
+    void expiredEntryIsMiss() {
+        LruCache<String, String> cache = new LruCache<>(10, 1000);
+
+        cache.put("a", "1", NOW);
+        cache.put("b", "2", NOW, 5000);
+
+        assertThat(cache.get("a", NOW + 999)).isEqualTo("1");
+        assertThat(cache.get("a", NOW + 1000)).isNull();
+        assertThat(cache.get("b", NOW + 1000)).isEqualTo("2");
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
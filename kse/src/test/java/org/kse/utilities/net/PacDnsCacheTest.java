@@ -0,0 +1,101 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for PacDnsCache.
+ */
+class PacDnsCacheTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final Map<String, String> addresses = new HashMap<>();
+    private final List<String> lookups = new ArrayList<>();
+
+    private String lookup(String host) throws UnknownHostException {
+        lookups.add(host);
+        String address = addresses.get(host);
+        if (address == null) {
+            throw new UnknownHostException(host);
+        }
+        return address;
+    }
+
+    @Test
+    void resolvedHostIsCachedForPositiveTtl() {
+        PacDnsCache cache = new PacDnsCache(this::lookup, false);
+        addresses.put("www.example.com", "192.0.2.1");
+
+        assertThat(cache.resolve("www.example.com", NOW)).isEqualTo("192.0.2.1");
+        assertThat(cache.resolve("WWW.example.com", NOW + PacDnsCache.POSITIVE_TTL_MILLIS - 1)).isEqualTo("192.0.2.1");
+        assertThat(lookups).hasSize(1);
+
+        addresses.put("www.example.com", "192.0.2.2");
+        assertThat(cache.resolve("www.example.com", NOW + PacDnsCache.POSITIVE_TTL_MILLIS)).isEqualTo("192.0.2.2");
+        assertThat(lookups).hasSize(2);
+    }
+
+    @Test
+    void unresolvableHostIsCachedForNegativeTtl() {
+        PacDnsCache cache = new PacDnsCache(this::lookup, false);
+
+        assertThat(cache.resolve("unknown.example.com", NOW)).isEmpty();
+        assertThat(cache.resolve("unknown.example.com", NOW + PacDnsCache.NEGATIVE_TTL_MILLIS - 1)).isEmpty();
+        assertThat(lookups).hasSize(1);
+
+        addresses.put("unknown.example.com", "192.0.2.3");
+        assertThat(cache.resolve("unknown.example.com", NOW + PacDnsCache.NEGATIVE_TTL_MILLIS)).isEqualTo("192.0.2.3");
+        assertThat(lookups).hasSize(2);
+    }
+
+    @Test
+    void refreshPrefetchesRecentlyResolvedHosts() {
+        PacDnsCache cache = new PacDnsCache(this::lookup, true);
+        addresses.put("", "10.0.0.1");
+        addresses.put("www.example.com", "192.0.2.1");
+
+        cache.resolve("www.example.com", NOW);
+        addresses.put("www.example.com", "192.0.2.2");
+        addresses.put("", "10.0.0.2");
+        cache.refresh(NOW + PacDnsCache.REFRESH_INTERVAL_MILLIS);
+
+        // entry was renewed, so it is still valid after the original one would have expired
+        lookups.clear();
+        long later = NOW + PacDnsCache.POSITIVE_TTL_MILLIS;
+        assertThat(cache.resolve("www.example.com", later)).isEqualTo("192.0.2.2");
+        assertThat(cache.getLocalAddress()).isEqualTo("10.0.0.2");
+        assertThat(lookups).isEmpty();
+
+        // hosts not used since the last refresh are not prefetched again
+        cache.refresh(later);
+        cache.refresh(later);
+        assertThat(lookups).containsExactly("", "www.example.com", "");
+    }
+}
@@ -24,9 +24,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.params.provider.Arguments.of;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneOffset;
@@ -34,6 +37,8 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -83,4 +88,85 @@ class PacProxySelectorTest {
                 of("pac_sandbox2.js")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void preloadedScriptIsSharedBySelectorsForSameUrl() throws URISyntaxException {
+        URI pacUri = new File(TEST_FILES_PATH, "pac1.js").toURI();
+        new PacProxySelector(pacUri).preload();
+
+        PacProxySelector selector = new PacProxySelector(pacUri);
+        selector.preload();
+
+        assertThat(selector.select(new URI("http://www.example.net"))).hasSize(2);
+    }
+
+    @Test
+    void reloadPicksUpEditedScript(@TempDir Path tempDir) throws IOException, URISyntaxException {
+        Path pacFile = tempDir.resolve("edited.js");
+        Files.write(pacFile, "function FindProxyForURL(url, host) { return \"DIRECT\"; }".getBytes());
+
+        PacProxySelector selector = new PacProxySelector(pacFile.toUri());
+        assertThat(selector.select(new URI("http://www.example.net"))).containsOnly(Proxy.NO_PROXY);
+
+        Files.write(pacFile, "function FindProxyForURL(url, host) { return \"PROXY proxy.example.com:8080\"; }"
+                .getBytes());
+        selector.reload();
+
+        assertThat(selector.select(new URI("http://www.example.net")))
+                .extracting((proxy) -> proxy.toString().replaceAll("/<unresolved>", ""))
+                .containsExactly("HTTP @ proxy.example.com:8080");
+    }
+
+    @Test
+    void missingScriptSelectsNoProxy() throws URISyntaxException {
+        PacProxySelector selector = new PacProxySelector(new File(TEST_FILES_PATH, "missing.js").toURI());
+        selector.preload();
+
+        assertThat(selector.select(new URI("http://www.example.net"))).containsOnly(Proxy.NO_PROXY);
+        assertThat(selector.select(new URI("http://www.example.net"))).containsOnly(Proxy.NO_PROXY);
+    }
+
+    @Test
+    void reloadOfMissingScriptSelectsNoProxy() throws URISyntaxException {
+        PacProxySelector selector = new PacProxySelector(new File(TEST_FILES_PATH, "missing.js").toURI());
+
+        // a load that fails immediately must not leave its failed future behind
+        for (int i = 0; i < 10; i++) {
+            selector.reload();
+            assertThat(selector.select(new URI("http://www.example.net"))).containsOnly(Proxy.NO_PROXY);
+        }
+    }
+
+    @Test
+    void resultsAreCachedPerHostIfScriptIgnoresUrl() throws URISyntaxException {
+        PacProxySelector selector = new PacProxySelector(new File(TEST_FILES_PATH, "pac1.js").toURI());
+
+        List<Proxy> first = selector.select(new URI("http://www.example.net/ocsp/first"));
+        List<Proxy> second = selector.select(new URI("http://WWW.example.net/ocsp/second?x=1"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(selector.getEvaluations()).isEqualTo(1);
+        assertThat(selector.getCacheHitRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void resultsAreCachedPerUrlIfScriptUsesUrl() throws URISyntaxException {
+        PacProxySelector selector = new PacProxySelector(new File(TEST_FILES_PATH, "pac2.js").toURI());
+
+        selector.select(new URI("http://www.example.net/a"));
+        selector.select(new URI("http://www.example.net/b"));
+        selector.select(new URI("http://www.example.net/a"));
+
+        assertThat(selector.getEvaluations()).isEqualTo(2);
+        assertThat(selector.getCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    void usesUrl() {
+        assertThat(PacProxySelector.usesUrl("function FindProxyForURL(url, host) { return \"DIRECT\"; }")).isFalse();
+        assertThat(PacProxySelector.usesUrl(
+                "function FindProxyForURL(url, host) { return shExpMatch(url, \"*/x/*\") ? \"DIRECT\" : null; }"))
+                .isTrue();
+        assertThat(PacProxySelector.usesUrl("function FindProxyForURL() { return arguments[0]; }")).isTrue();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.net;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the throughput of shExpMatch() with the regex conversion that was used before and with the cached
+ * GlobMatcher. The patterns are taken from a realistic PAC file, every URL is checked against all of them as a
+ * script does that falls through to its default proxy. Not a unit test; run with "gradlew benchmarkShExpMatch",
+ * optionally with the number of rounds as argument.
+ */
+public class ShExpMatchBenchmark {
+
+    private static final String PAC_FILE = "src/test/resources/testdata/ShExpMatchBenchmark/corporate.js";
+
+    private static final Pattern SH_EXP_MATCH_CALL = Pattern.compile("shExpMatch\\((host|url), \"([^\"]*)\"\\)");
+
+    private static final String[] URLS = {
+            "http://ocsp.digicert.com/MFEwTzBNMEswSTAJBgUrDgMCGgUABBQ",
+            "http://crl3.digicert.com/DigiCertGlobalRootG2.crl",
+            "http://r3.o.lencr.org/",
+            "https://api.github.com/repos/kaikramer/keystore-explorer/releases/latest",
+            "https://www.example.org/index.html",
+            "https://login.microsoftonline.com/common/oauth2/v2.0/token",
+            "https://wiki.example.com/display/SEC/Certificates",
+            "https://downloads.example.net/tools/setup.exe",
+    };
+
+    private static class Call {
+        final boolean url;
+        final String pattern;
+
+        Call(boolean url, String pattern) {
+            this.url = url;
+            this.pattern = pattern;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        List<Call> calls = new ArrayList<>();
+        Matcher matcher = SH_EXP_MATCH_CALL.matcher(
+                new String(Files.readAllBytes(Paths.get(PAC_FILE)), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            calls.add(new Call("url".equals(matcher.group(1)), matcher.group(2)));
+        }
+
+        String[] hosts = new String[URLS.length];
+        for (int i = 0; i < URLS.length; i++) {
+            hosts[i] = URI.create(URLS[i]).getHost();
+        }
+
+        System.out.printf("%d shExpMatch calls per evaluation, %d URLs, %d rounds%n", calls.size(), URLS.length,
+                          rounds);
+        System.out.printf("%-10s %15s %15s%n", "", "evaluations/s", "matches");
+
+        // run twice, the first pass only warms up the JIT
+        for (int pass = 0; pass < 2; pass++) {
+            benchmark("regex", calls, hosts, rounds, true);
+            benchmark("glob", calls, hosts, rounds, false);
+        }
+    }
+
+    private static void benchmark(String name, List<Call> calls, String[] hosts, int rounds, boolean regex) {
+        long matches = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < URLS.length; i++) {
+                for (Call call : calls) {
+                    String str = call.url ? URLS[i] : hosts[i];
+                    boolean match = regex ? str.matches(GlobMatcher.toRegex(call.pattern))
+                                          : PacHelperFunctions.shExpMatch(str, call.pattern);
+                    if (match) {
+                        matches++;
+                    }
+                }
+            }
+        }
+        double rate = rounds * (double) URLS.length / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("%-10s %15.0f %15d%n", name, rate, matches);
+    }
+}
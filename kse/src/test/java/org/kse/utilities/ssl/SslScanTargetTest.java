@@ -0,0 +1,64 @@
+/*
+ * Copyright 2004 - 2013 Wayne Grant
+ *           2013 - 2024 Kai Kramer
+ *
+ * This file is part of KeyStore Explorer.
+ *
+ * KeyStore Explorer is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * KeyStore Explorer is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with KeyStore Explorer.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.kse.utilities.ssl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SslScanTargetTest {
+
+    @Test
+    void hostsAndPorts() {
+        List<SslScanTarget> targets = SslScanTarget.parse("# comment\nexample.com\n" +
+                                                          "example.org:8443, [2001:db8::1]:636 ::1;\n" +
+                                                          "EXAMPLE.com:443", 443);
+
+        assertThat(targets).extracting(SslScanTarget::toString)
+                           .containsExactly("example.com:443", "example.org:8443", "[2001:db8::1]:636",
+                                            "[::1]:443");
+    }
+
+    @Test
+    void cidrRangeSkipsNetworkAndBroadcastAddress() {
+        List<SslScanTarget> targets = SslScanTarget.parse("192.168.1.5/30:8443", 443);
+
+        assertThat(targets).extracting(SslScanTarget::toString)
+                           .containsExactly("192.168.1.5:8443", "192.168.1.6:8443");
+    }
+
+    @Test
+    void largestCidrRange() {
+        assertThat(SslScanTarget.parse("10.0.0.0/16", 443)).hasSize(SslScanTarget.MAX_RANGE_SIZE - 2);
+        assertThat(SslScanTarget.parse("10.0.0.1/32", 443)).hasSize(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "host:0", "host:65536", "host:x", ":443", "[::1", "[::1]x", "10.0.0.0/15",
+                             "10.0.0/24", "10.0.0.256/24", "10.0.0.0/x" })
+    void invalidTargets(String text) {
+        assertThatThrownBy(() -> SslScanTarget.parse(text, 443)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,64 @@
+function FindProxyForURL(url, host) {
+
+    host = host.toLowerCase();
+
+    // local and intranet hosts
+    if (isPlainHostName(host) ||
+        shExpMatch(host, "localhost") ||
+        shExpMatch(host, "*.local") ||
+        shExpMatch(host, "*.localdomain") ||
+        shExpMatch(host, "(*.corp.example.com|corp.example.com)") ||
+        shExpMatch(host, "(*.intranet.example.com|intranet.example.com)") ||
+        shExpMatch(host, "*.lab.example.net") ||
+        shExpMatch(host, "wiki.example.com") ||
+        shExpMatch(host, "jira.example.com") ||
+        shExpMatch(host, "git?.example.com") ||
+        shExpMatch(host, "build-*.example.com"))
+        return "DIRECT";
+
+    // private address ranges given as literals
+    if (shExpMatch(host, "10.*") ||
+        shExpMatch(host, "192.168.*") ||
+        shExpMatch(host, "172.16.*") ||
+        shExpMatch(host, "172.17.*") ||
+        shExpMatch(host, "172.18.*") ||
+        shExpMatch(host, "172.19.*") ||
+        shExpMatch(host, "172.2?.*") ||
+        shExpMatch(host, "172.30.*") ||
+        shExpMatch(host, "172.31.*") ||
+        shExpMatch(host, "127.*"))
+        return "DIRECT";
+
+    // revocation and update services bypass the authenticating proxy
+    if (shExpMatch(url, "http://ocsp.*") ||
+        shExpMatch(url, "http://crl.*") ||
+        shExpMatch(url, "http://*.digicert.com/*") ||
+        shExpMatch(url, "http://*.letsencrypt.org/*") ||
+        shExpMatch(url, "http://*.globalsign.com/*") ||
+        shExpMatch(url, "http://*.sectigo.com/*") ||
+        shExpMatch(url, "http://*.entrust.net/*") ||
+        shExpMatch(url, "*/*.crl") ||
+        shExpMatch(url, "*/*.crt") ||
+        shExpMatch(url, "https://api.github.com/repos/*/releases/*"))
+        return "PROXY revocation-proxy.example.com:3128; DIRECT";
+
+    // cloud services with a dedicated egress
+    if (shExpMatch(host, "(*.office365.com|office365.com)") ||
+        shExpMatch(host, "(*.sharepoint.com|sharepoint.com)") ||
+        shExpMatch(host, "*.microsoftonline.com") ||
+        shExpMatch(host, "*.salesforce.com") ||
+        shExpMatch(host, "*.zoom.us") ||
+        shExpMatch(host, "*.slack.com") ||
+        shExpMatch(host, "*.amazonaws.com") ||
+        shExpMatch(host, "*.s3.*.amazonaws.com") ||
+        shExpMatch(url, "https://*.blob.core.windows.net/*"))
+        return "PROXY cloud-proxy.example.com:8080";
+
+    // blocked
+    if (shExpMatch(host, "*.ads.*") ||
+        shExpMatch(host, "*tracker*") ||
+        shExpMatch(url, "*://*/*.exe"))
+        return "PROXY blackhole.example.com:1";
+
+    return "PROXY proxy1.example.com:8080; PROXY proxy2.example.com:8080";
+}